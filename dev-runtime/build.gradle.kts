@@ -25,6 +25,12 @@ dependencies {
 
     testImplementation(platform("org.junit:junit-bom:5.10.2"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testImplementation("org.springframework:spring-context:6.0.13")
+    testImplementation("com.fasterxml.jackson.core:jackson-databind:2.14.2")
+    testImplementation("org.springframework:spring-context-support:6.0.13")
+    testImplementation("com.github.ben-manes.caffeine:caffeine:3.1.8")
+    testImplementation("com.zaxxer:HikariCP:5.1.0")
+    testImplementation("com.h2database:h2:2.2.224")
 }
 
 tasks.test {
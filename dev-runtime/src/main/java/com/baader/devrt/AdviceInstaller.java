@@ -0,0 +1,82 @@
+package com.baader.devrt;
+
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.matcher.ElementMatchers;
+
+import java.lang.instrument.Instrumentation;
+import java.util.function.BiConsumer;
+
+/**
+ * Shared setup for the removable, retransforming advice used by probes and captures.
+ * Class format changes are disabled so reset() can always restore the original bytecode.
+ */
+final class AdviceInstaller {
+
+    // Instrumenting the recording path itself would recurse on every call.
+    private static final ElementMatcher.Junction<TypeDescription> RECORDING_PATH =
+            ElementMatchers.<TypeDescription>named(MethodProbes.class.getName())
+                    .or(ElementMatchers.nameStartsWith(MethodProbes.class.getName() + "$"))
+                    .or(ElementMatchers.named(ProbeAdvice.class.getName()))
+                    .or(ElementMatchers.named(LatencyHistogram.class.getName()))
+                    .or(ElementMatchers.named(WindowedHistogram.class.getName()))
+                    .or(ElementMatchers.nameStartsWith(WindowedHistogram.class.getName() + "$"))
+                    .or(ElementMatchers.named(MethodCaptures.class.getName()))
+                    .or(ElementMatchers.nameStartsWith(MethodCaptures.class.getName() + "$"))
+                    .or(ElementMatchers.named(CaptureAdvice.class.getName()));
+
+    private AdviceInstaller() {}
+
+    /**
+     * Retransforms every loaded (and future) type matching {@code types}, weaving
+     * {@code advice} into the methods matching {@code methods}. {@code onMethod} is told
+     * about each woven method so callers can pre-register their counters.
+     */
+    static ResettableClassFileTransformer install(Instrumentation inst,
+                                                  ElementMatcher<? super TypeDescription> types,
+                                                  ElementMatcher<? super MethodDescription> methods,
+                                                  Class<?> advice,
+                                                  BiConsumer<TypeDescription, MethodDescription.InDefinedShape> onMethod) {
+        return new AgentBuilder.Default()
+                .disableClassFormatChanges()
+                .with(AgentBuilder.RedefinitionStrategy.RETRANSFORMATION)
+                .with(AgentBuilder.InitializationStrategy.NoOp.INSTANCE)
+                .with(AgentBuilder.TypeStrategy.Default.REDEFINE)
+                .with(AgentBuilder.Listener.StreamWriting.toSystemError().withErrorsOnly())
+                .type(ElementMatchers.<TypeDescription>not(ElementMatchers.isInterface())
+                        .and(ElementMatchers.not(RECORDING_PATH))
+                        .and(types))
+                .transform((builder, type, classLoader, module, protectionDomain) -> {
+                    for (MethodDescription.InDefinedShape m : type.getDeclaredMethods().filter(methods)) {
+                        onMethod.accept(type, m);
+                    }
+                    return builder.visit(Advice.to(advice).on(methods));
+                })
+                .installOn(inst);
+    }
+
+    static void reset(ResettableClassFileTransformer transformer) {
+        Instrumentation inst = AgentRuntime.getInstrumentation();
+        if (inst != null && transformer != null) {
+            transformer.reset(inst, AgentBuilder.RedefinitionStrategy.RETRANSFORMATION);
+        }
+    }
+
+    /** Key format shared with {@code @Advice.Origin("#t.#m#d")}. */
+    static String methodKey(TypeDescription type, MethodDescription m) {
+        return type.getName() + "." + m.getInternalName() + m.getDescriptor();
+    }
+
+    /** Concrete, non-synthetic methods whose name matches the glob. */
+    static ElementMatcher.Junction<MethodDescription> methodsNamed(String methodGlob) {
+        return ElementMatchers.<MethodDescription>isMethod()
+                .and(ElementMatchers.not(ElementMatchers.isAbstract()))
+                .and(ElementMatchers.not(ElementMatchers.isNative()))
+                .and(ElementMatchers.not(ElementMatchers.isSynthetic()))
+                .and(ElementMatchers.nameMatches(MethodProbes.globToRegex(methodGlob)));
+    }
+}
@@ -1,6 +1,9 @@
 package com.baader.devrt;
 
 import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.matcher.ElementMatchers;
+import net.bytebuddy.matcher.StringMatcher;
 
 import java.io.File;
 import java.io.IOException;
@@ -11,17 +14,19 @@ import java.util.jar.JarFile;
 
 public class Agent {
     public static void premain(String agentArgs, Instrumentation inst) {
-        setup(agentArgs, inst);
+        setup(agentArgs, inst, true);
     }
 
     public static void agentmain(String agentArgs, Instrumentation inst) {
-        setup(agentArgs, inst);
+        setup(agentArgs, inst, false);
     }
 
-    private static void setup(String agentArgs, Instrumentation inst) {
+    private static void setup(String agentArgs, Instrumentation inst, boolean atLaunch) {
+        AgentStartup.begin();
         AgentRuntime.setInstrumentation(inst);
 
         File agentJarFile = getAgentJarFile();
+        AgentStartup.phase("locate-jar");
         if (agentJarFile == null) {
             System.err.println("[dev-runtime] Could not determine agent JAR location. Context auto-binding will fail.");
             startNreplServer(agentArgs); // Start server anyway
@@ -37,21 +42,48 @@ public class Agent {
         } catch (IOException e) {
             System.err.println("[dev-runtime] Failed to add agent JAR to system class path.");
         }
+        AgentStartup.phase("append-classpath");
 
         // Strategy 2: Use InjectionStrategy for the transformer.
         // This is more robust for the transformation process itself.
-        System.out.println("[dev-runtime] Installing context transformer with injection strategy...");
-        new AgentBuilder.Default()
-                .with(AgentBuilder.RedefinitionStrategy.RETRANSFORMATION)
-                .with(new AgentBuilder.InjectionStrategy.UsingInstrumentation(inst, agentJarFile))
-                .with(new Slf4jAgentBuilderListener()) // Use SLF4J for logging
-                .type(ContextCapturingTransformer.MATCHER)
-                .transform(ContextCapturingTransformer.TRANSFORMER)
-                .installOn(inst);
-        System.out.println("[dev-runtime] Transformer installed.");
+        // The transformer only ever matches SpringApplication, so everything outside Spring Boot's
+        // package and the JDK's own loaders is ignored on a name/loader check, before any parsing.
+        // It is reset once no new context has been bound for a while (see AgentStartup.onContextCaptured).
+        if (SpringContextHolder.get() == null) {
+            System.out.println("[dev-runtime] Installing context transformer with injection strategy...");
+            ResettableClassFileTransformer transformer = new AgentBuilder.Default()
+                    .disableClassFormatChanges()
+                    .with(AgentBuilder.RedefinitionStrategy.RETRANSFORMATION)
+                    .with(AgentBuilder.RedefinitionStrategy.DiscoveryStrategy.SinglePass.INSTANCE)
+                    .with(AgentBuilder.TypeStrategy.Default.REDEFINE)
+                    .with(new AgentBuilder.InjectionStrategy.UsingInstrumentation(inst, agentJarFile))
+                    .with(new AgentBuilder.Listener.Filtering(
+                            new StringMatcher(ContextCapturingTransformer.PACKAGE, StringMatcher.Mode.STARTS_WITH),
+                            new Slf4jAgentBuilderListener())) // Use SLF4J for logging
+                    .ignore(ElementMatchers.not(ElementMatchers.nameStartsWith(ContextCapturingTransformer.PACKAGE)))
+                    .or(ElementMatchers.any(), ElementMatchers.isBootstrapClassLoader()
+                            .or(ElementMatchers.isExtensionClassLoader()))
+                    .type(ContextCapturingTransformer.MATCHER)
+                    .transform(ContextCapturingTransformer.TRANSFORMER)
+                    .installOn(inst);
+            AgentStartup.transformerInstalled(transformer);
+            System.out.println("[dev-runtime] Transformer installed.");
+        }
+        AgentStartup.phase("install-transformer");
+
+        // Bean creation timing only pays off when it sees the context being refreshed.
+        if (atLaunch) {
+            try {
+                BeanStartup.install(inst);
+            } catch (Throwable t) {
+                System.err.println("[dev-runtime] Bean startup timing unavailable: " + t);
+            }
+            AgentStartup.phase("install-bean-timing");
+        }
 
         // Start background auto-bind attempts (ContextLoader, LiveBeansView, static scan, JMX).
         AutoBinder.scheduleAutoBind();
+        AgentStartup.phase("schedule-autobind");
 
         // Start the nREPL server
         startNreplServer(agentArgs);
@@ -78,6 +110,10 @@ public class Agent {
                     String[] kv = part.split("=", 2);
                     if (kv.length == 2 && kv[0].trim().equals("port")) {
                         port = Integer.parseInt(kv[1].trim());
+                    } else if (kv.length == 2 && kv[0].trim().equals("snapshotBudgetMb")) {
+                        SnapshotTier.setDefaultBudget(Long.parseLong(kv[1].trim()) << 20);
+                    } else if (kv.length == 2 && kv[0].trim().equals("captureGraceSeconds")) {
+                        AgentStartup.setCaptureGraceMillis(Long.parseLong(kv[1].trim()) * 1000L);
                     }
                 }
             }
@@ -88,12 +124,16 @@ public class Agent {
             try {
                 MiniNreplServer server = new MiniNreplServer(finalPort);
                 server.start();
+                AgentStartup.milestone("ready");
                 System.out.println("[dev-runtime] nREPL server started on port " + finalPort);
+                // Off the startup path; the first snapshot call would load it otherwise.
+                SnapshotManager.loadIndex();
             } catch (Throwable t1) {
                 t1.printStackTrace();
             }
         }, "dev-runtime-server");
         t.setDaemon(true);
         t.start();
+        AgentStartup.phase("start-server");
     }
 }
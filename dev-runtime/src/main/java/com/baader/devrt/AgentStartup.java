@@ -0,0 +1,127 @@
+package com.baader.devrt;
+
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Timings of the agent's attach sequence and the lifecycle of the context-capturing
+ * transformer. Apps may start several contexts in sequence (bootstrap, builder children,
+ * more SpringApplication runs), so the transformer stays until no new context has been
+ * captured for a grace period, and is removed after that so class loading stops paying
+ * for it. BeanStartup's createBean advice goes at the same time. Reported through describe.
+ */
+final class AgentStartup {
+
+    private static volatile long attachedAt;
+    private static long phaseStart;
+    private static final Map<String, Long> phases = new LinkedHashMap<>();
+    private static final Map<String, Long> milestones = new LinkedHashMap<>();
+    private static volatile ResettableClassFileTransformer transformer;
+    private static volatile String transformerState = "none";
+    private static volatile long captureGraceNanos = 30_000_000_000L;
+    private static volatile long removeAt;
+    private static Thread remover;
+
+    private AgentStartup() {}
+
+    static synchronized void begin() {
+        attachedAt = System.nanoTime();
+        phaseStart = attachedAt;
+        phases.clear();
+        milestones.clear();
+    }
+
+    /** Ends the current setup phase under {@code name} and starts the next one. */
+    static synchronized void phase(String name) {
+        long now = System.nanoTime();
+        phases.put(name, now - phaseStart);
+        phaseStart = now;
+    }
+
+    /** Records a one-off event as an offset from attach; the first occurrence wins. */
+    static synchronized void milestone(String name) {
+        if (attachedAt == 0) return;
+        milestones.putIfAbsent(name, System.nanoTime() - attachedAt);
+    }
+
+    static void transformerInstalled(ResettableClassFileTransformer t) {
+        transformer = t;
+        transformerState = "installed";
+    }
+
+    /** Quiet time after the last captured context before the transformer is removed (agent arg captureGraceSeconds). */
+    static void setCaptureGraceMillis(long millis) {
+        captureGraceNanos = Math.max(0, millis) * 1_000_000L;
+    }
+
+    /**
+     * Called whenever a context is bound; (re)starts the grace period after which the
+     * capturing transformer is reset. The reset runs off the caller's thread, since that is
+     * typically the application's main thread inside SpringApplication.run.
+     */
+    static synchronized void onContextCaptured() {
+        milestone("context-captured");
+        if (transformer == null && !BeanStartup.installed()) return;
+        removeAt = System.nanoTime() + captureGraceNanos;
+        if (remover != null) return;
+        remover = new Thread(AgentStartup::removeWhenQuiet, "dev-runtime-transformer-reset");
+        remover.setDaemon(true);
+        remover.start();
+    }
+
+    private static void removeWhenQuiet() {
+        ResettableClassFileTransformer t;
+        synchronized (AgentStartup.class) {
+            while (true) {
+                long wait = removeAt - System.nanoTime();
+                if (wait <= 0) break;
+                try {
+                    AgentStartup.class.wait(wait / 1_000_000L + 1);
+                } catch (InterruptedException e) {
+                    remover = null;
+                    return;
+                }
+            }
+            t = transformer;
+            transformer = null;
+            remover = null;
+        }
+        if (BeanStartup.installed()) {
+            try {
+                BeanStartup.uninstall();
+                milestone("bean-timing-removed");
+            } catch (Throwable e) {
+                System.err.println("[dev-runtime] Failed to remove bean creation timing: " + e);
+            }
+        }
+        if (t == null) return;
+        try {
+            AdviceInstaller.reset(t);
+            transformerState = "removed";
+            milestone("transformer-removed");
+        } catch (Throwable e) {
+            transformerState = "remove-failed";
+            System.err.println("[dev-runtime] Failed to remove context transformer: " + e);
+        }
+    }
+
+    static String transformerState() { return transformerState; }
+
+    /** "name=ms,..." for the sequential setup phases. */
+    static synchronized String phasesAsString() { return format(phases); }
+
+    /** "name=ms,..." offsets from attach, e.g. ready and context-captured. */
+    static synchronized String milestonesAsString() { return format(milestones); }
+
+    private static String format(Map<String, Long> values) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> e : values.entrySet()) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(e.getKey()).append('=').append(String.format(Locale.ROOT, "%.2f", e.getValue() / 1e6));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,128 @@
+package com.baader.devrt;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Allocation hotspots from JFR's throttled jdk.ObjectAllocationSample events. Events are
+ * folded into per-site totals while the stream runs, so memory is bounded by
+ * {@link #MAX_SITES} rather than by the number of samples.
+ */
+final class AllocationSampler {
+
+    static final int MAX_SECONDS = 120;
+    static final int MAX_SITES = 4096;
+    private static final String OTHER = "<other>";
+
+    static final class Site {
+        final String className;
+        final List<String> frames;
+        long bytes;
+        long samples;
+        Site(String className, List<String> frames) { this.className = className; this.frames = frames; }
+    }
+
+    static final class Report {
+        final List<Site> sites;
+        final long totalBytes;
+        final long totalSamples;
+        Report(List<Site> sites, long totalBytes, long totalSamples) {
+            this.sites = sites; this.totalBytes = totalBytes; this.totalSamples = totalSamples;
+        }
+    }
+
+    private AllocationSampler() {}
+
+    /**
+     * Streams allocation samples for {@code seconds}, then closes the stream and returns the
+     * sites ordered by sampled bytes. {@code depth} is the number of frames that form a site.
+     * Only one recording runs at a time.
+     */
+    static synchronized Report record(int seconds, int depth, int samplesPerSecond) throws InterruptedException {
+        if (seconds < 1 || seconds > MAX_SECONDS) {
+            throw new IllegalArgumentException("seconds must be between 1 and " + MAX_SECONDS);
+        }
+        int frameDepth = Math.max(1, Math.min(depth, 32));
+        Map<String, Site> sites = new HashMap<>();
+        long[] totals = new long[2];
+        AtomicInteger flushes = new AtomicInteger();
+        try (RecordingStream rs = new RecordingStream()) {
+            rs.enable("jdk.ObjectAllocationSample")
+              .with("throttle", Math.max(1, samplesPerSecond) + "/s")
+              .withStackTrace();
+            // Chunks still go to the JVM's JFR repository (under java.io.tmpdir unless configured);
+            // keep them short-lived. No recording file is dumped.
+            rs.setMaxAge(Duration.ofSeconds(10));
+            rs.onEvent("jdk.ObjectAllocationSample", e -> {
+                synchronized (sites) { fold(sites, totals, e, frameDepth); }
+            });
+            rs.onFlush(flushes::incrementAndGet);
+            rs.startAsync();
+            Thread.sleep(seconds * 1000L);
+            ContentionReport.awaitFlushes(flushes);
+        }
+        synchronized (sites) {
+            List<Site> out = new ArrayList<>(sites.values());
+            out.sort((a, b) -> Long.compare(b.bytes, a.bytes));
+            return new Report(out, totals[0], totals[1]);
+        }
+    }
+
+    private static void fold(Map<String, Site> sites, long[] totals, RecordedEvent e, int depth) {
+        String className = e.getClass("objectClass") != null ? e.getClass("objectClass").getName() : "?";
+        long weight = e.getLong("weight");
+        List<String> frames = new ArrayList<>(depth);
+        RecordedStackTrace st = e.getStackTrace();
+        if (st != null) {
+            for (RecordedFrame f : st.getFrames()) {
+                if (!f.isJavaFrame()) continue;
+                frames.add(f.getMethod().getType().getName() + "#" + f.getMethod().getName() + ":" + f.getLineNumber());
+                if (frames.size() == depth) break;
+            }
+        }
+        String key = className + "|" + String.join("|", frames);
+        Site site = sites.get(key);
+        if (site == null) {
+            // Once the table is full, new sites are folded into a single overflow bucket.
+            if (sites.size() >= MAX_SITES) {
+                site = sites.computeIfAbsent(OTHER, k -> new Site(OTHER, List.of()));
+            } else {
+                site = new Site(className, frames);
+                sites.put(key, site);
+            }
+        }
+        site.bytes += weight;
+        site.samples++;
+        totals[0] += weight;
+        totals[1]++;
+    }
+
+    /**
+     * Columns: sampled bytes, share %, samples, allocated class, top frame, stack (frames joined
+     * by " <- "). Frames are "type#method:line" so the plugin can navigate to them.
+     */
+    static String toTsv(Report report, int limit) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < report.sites.size() && i < limit; i++) {
+            Site s = report.sites.get(i);
+            double share = report.totalBytes > 0 ? 100.0 * s.bytes / report.totalBytes : 0;
+            sb.append(s.bytes).append('\t')
+              .append(String.format(Locale.ROOT, "%.1f", share)).append('\t')
+              .append(s.samples).append('\t')
+              .append(s.className).append('\t')
+              .append(s.frames.isEmpty() ? "" : s.frames.get(0)).append('\t')
+              .append(String.join(" <- ", s.frames)).append('\n');
+        }
+        return sb.toString();
+    }
+}
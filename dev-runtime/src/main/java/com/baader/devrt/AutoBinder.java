@@ -3,9 +3,19 @@ package com.baader.devrt;
 import javax.management.MBeanServer;
 import java.lang.instrument.Instrumentation;
 import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Heurisztikus Spring ApplicationContext-kereső az agent oldalán.
@@ -87,76 +97,151 @@ final class AutoBinder {
         return null;
     }
 
-    private static Object tryScanStaticFields() {
+    // Library and framework packages never hold the application's context in a static field.
+    private static final String[] SKIPPED_PACKAGES = {
+            "java.", "javax.", "jakarta.", "jdk.", "sun.", "com.sun.", "kotlin.", "kotlinx.", "scala.", "groovy.",
+            "org.springframework.", "org.apache.", "org.hibernate.", "org.jboss.", "org.eclipse.", "org.glassfish.",
+            "org.slf4j.", "ch.qos.logback.", "org.yaml.", "org.aspectj.", "org.objectweb.", "org.junit.",
+            "org.h2.", "org.postgresql.", "com.mysql.", "com.zaxxer.", "com.fasterxml.", "com.google.",
+            "io.netty.", "io.micrometer.", "io.projectreactor.", "reactor.", "net.bytebuddy.", "lombok.",
+            "com.baader.devrt."
+    };
+    private static final String APPLICATION_CONTEXT = "org.springframework.context.ApplicationContext";
+
+    /**
+     * A static field or getter found to hold a context. Only the declaring class is kept,
+     * weakly, so a remembered member does not pin its class loader after a restart.
+     */
+    private static final class ContextMember {
+        final WeakReference<Class<?>> owner;
+        final String name;
+        final boolean getter;
+
+        ContextMember(Class<?> owner, String name, boolean getter) {
+            this.owner = new WeakReference<>(owner);
+            this.name = name;
+            this.getter = getter;
+        }
+
+        Object read() throws Exception {
+            Class<?> c = owner.get();
+            if (c == null) return null;
+            if (getter) {
+                Method m = c.getDeclaredMethod(name);
+                m.setAccessible(true);
+                return m.invoke(null);
+            }
+            Field f = c.getDeclaredField(name);
+            f.setAccessible(true);
+            return f.get(null);
+        }
+    }
+
+    // Memoized across passes: classes already looked at (guarded by itself; the scheduler and
+    // bind-spring may scan at the same time), and the static members found to hold a
+    // context, which are re-read each pass since they may be assigned later.
+    private static final Set<Class<?>> scannedClasses = Collections.newSetFromMap(new WeakHashMap<>());
+    private static final List<ContextMember> contextMembers = new CopyOnWriteArrayList<>();
+    // ApplicationContext as seen from each class loader; absent value = Spring not visible there.
+    private static final Map<ClassLoader, Optional<Class<?>>> contextTypes = new WeakHashMap<>();
+    // Shared by all passes; idle workers of a ForkJoinPool exit on their own.
+    private static final ForkJoinPool scanPool =
+            new ForkJoinPool(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+
+    static Object tryScanStaticFields() {
         Instrumentation inst = AgentRuntime.getInstrumentation();
         if (inst == null) return null;
         try {
-            Class<?>[] all = inst.getAllLoadedClasses();
-            for (Class<?> c : all) {
-                String cn = c.getName();
-                if (cn.startsWith("java.") || cn.startsWith("jdk.") || cn.startsWith("sun.")) continue;
-                try {
-                    Field[] fs = c.getDeclaredFields();
-                    for (Field f : fs) {
-                        int mod = f.getModifiers();
-                        if (!java.lang.reflect.Modifier.isStatic(mod)) continue;
-                        f.setAccessible(true);
-                        Object v = null;
-                        try { v = f.get(null); } catch (Throwable ignored) {}
-                        if (v != null && isApplicationContextLike(v.getClass())) {
-                            System.out.println("[auto-bind] static field instance hit: " + cn + "." + f.getName());
-                            return v;
-                        }
-                        // If value is null, still check the declared type name to log
-                        if (v == null && isApplicationContextLikeTypeName(f.getType())) {
-                            // can't bind null, continue
-                        }
-                    }
-                    // Also try common static getters with zero args
-                    Object viaGetter = tryStaticGetterReturningCtx(c);
-                    if (viaGetter != null) return viaGetter;
-                } catch (Throwable ignored) {}
+            Object known = readKnownMembers();
+            if (known != null) return known;
+
+            List<Class<?>> fresh = new ArrayList<>();
+            Class<?>[] loaded = inst.getAllLoadedClasses();
+            synchronized (scannedClasses) {
+                for (Class<?> c : loaded) {
+                    if (!scannedClasses.add(c)) continue;
+                    if (c.isArray() || c.isPrimitive() || c.isHidden() || isSkippedPackage(c.getName())) continue;
+                    // A class whose loader cannot see ApplicationContext cannot declare a field of that type.
+                    if (contextType(c.getClassLoader()) == null) continue;
+                    fresh.add(c);
+                }
             }
+            if (fresh.isEmpty()) return null;
+
+            scanPool.submit(() -> fresh.parallelStream().forEach(AutoBinder::discoverMembers)).get();
+            return readKnownMembers();
         } catch (Throwable ignored) {}
         return null;
     }
 
-    private static boolean isApplicationContextLikeTypeName(Class<?> t) {
-        String tn = t.getName();
-        return tn.equals("org.springframework.context.ApplicationContext") || tn.endsWith("ApplicationContext");
-    }
-
-    private static boolean isApplicationContextLike(Class<?> c) {
-        // Walk interfaces and superclasses by name
-        if (c == null) return false;
-        if (c.getName().equals("org.springframework.context.ApplicationContext")) return true;
-        for (Class<?> i : safeInterfaces(c)) if (isApplicationContextLike(i)) return true;
-        return isApplicationContextLike(c.getSuperclass());
+    static boolean isSkippedPackage(String className) {
+        for (String p : SKIPPED_PACKAGES) {
+            if (className.startsWith(p)) return true;
+        }
+        return false;
     }
 
-    private static Class<?>[] safeInterfaces(Class<?> c) {
-        try { return c.getInterfaces(); } catch (Throwable t) { return new Class<?>[0]; }
+    private static Class<?> contextType(ClassLoader loader) {
+        if (loader == null) return null;
+        synchronized (contextTypes) {
+            Optional<Class<?>> type = contextTypes.get(loader);
+            if (type == null) {
+                try {
+                    type = Optional.of(Class.forName(APPLICATION_CONTEXT, false, loader));
+                } catch (Throwable t) {
+                    type = Optional.empty();
+                }
+                contextTypes.put(loader, type);
+            }
+            return type.orElse(null);
+        }
     }
 
-    private static Object tryStaticGetterReturningCtx(Class<?> c) {
+    /** Records static fields and zero-arg static getters of {@code c} typed as ApplicationContext. */
+    private static void discoverMembers(Class<?> c) {
+        Class<?> ctxType = contextType(c.getClassLoader());
+        if (ctxType == null) return;
         try {
-            Method[] ms = c.getDeclaredMethods();
-            for (Method m : ms) {
-                int mod = m.getModifiers();
-                if (!java.lang.reflect.Modifier.isStatic(mod)) continue;
-                if (m.getParameterCount() != 0) continue;
+            for (Field f : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(f.getModifiers())) continue;
+                if (!ctxType.isAssignableFrom(f.getType())) continue;
+                try {
+                    f.setAccessible(true);
+                    contextMembers.add(new ContextMember(c, f.getName(), false));
+                } catch (Throwable ignored) {}
+            }
+            for (Method m : c.getDeclaredMethods()) {
+                if (!Modifier.isStatic(m.getModifiers()) || m.getParameterCount() != 0) continue;
+                if (!ctxType.isAssignableFrom(m.getReturnType())) continue;
                 String mn = m.getName();
                 if (!(mn.equals("getApplicationContext") || mn.equals("applicationContext") || mn.equals("context") || mn.equals("getContext"))) continue;
                 try {
                     m.setAccessible(true);
-                    Object v = m.invoke(null);
-                    if (v != null && isApplicationContextLike(v.getClass())) {
-                        System.out.println("[auto-bind] static getter hit: " + c.getName() + "." + mn);
+                    contextMembers.add(new ContextMember(c, mn, true));
+                } catch (Throwable ignored) {}
+            }
+        } catch (Throwable ignored) {
+            // Unresolvable member types (NoClassDefFoundError) and the like; nothing to find here.
+        }
+    }
+
+    private static Object readKnownMembers() {
+        contextMembers.removeIf(m -> m.owner.get() == null);
+        // Fields before getters, as a field hit needs no code to run.
+        for (boolean getters : new boolean[] { false, true }) {
+            for (ContextMember m : contextMembers) {
+                if (m.getter != getters) continue;
+                try {
+                    Object v = m.read();
+                    if (v != null) {
+                        Class<?> owner = m.owner.get();
+                        System.out.println("[auto-bind] " + (getters ? "static getter hit: " : "static field instance hit: ")
+                                + (owner != null ? owner.getName() : "?") + "." + m.name);
                         return v;
                     }
                 } catch (Throwable ignored) {}
             }
-        } catch (Throwable ignored) {}
+        }
         return null;
     }
 
@@ -0,0 +1,21 @@
+package com.baader.devrt;
+
+import net.bytebuddy.asm.Advice;
+
+/**
+ * Inlined into AbstractAutowireCapableBeanFactory.createBean by BeanStartup. Nested
+ * createBean calls on the same thread are the dependencies resolved while creating the
+ * outer bean.
+ */
+public class BeanCreationAdvice {
+
+    @Advice.OnMethodEnter
+    public static void onEnter(@Advice.Argument(0) String beanName) {
+        BeanStartup.enter(beanName);
+    }
+
+    @Advice.OnMethodExit(onThrowable = Throwable.class)
+    public static void onExit(@Advice.Return Object bean, @Advice.Thrown Throwable thrown) {
+        BeanStartup.exit(bean, thrown != null);
+    }
+}
@@ -0,0 +1,213 @@
+package com.baader.devrt;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bean names with their types, read from bean definitions and
+ * {@code getType(name, false)} so listing never creates a bean or initialises a
+ * FactoryBean. Built once per context and kept until the context is refreshed (its startup
+ * date changes) or beans are registered or removed (the definition count changes).
+ */
+final class BeanIndex {
+
+    static final class Row {
+        final String name;
+        final String typeName;
+        final Class<?> type;
+        final String scope;
+        final boolean lazy;
+        final boolean isAbstract;
+        final boolean primary;
+        Row(String name, String typeName, Class<?> type, String scope, boolean lazy, boolean isAbstract, boolean primary) {
+            this.name = name; this.typeName = typeName; this.type = type; this.scope = scope;
+            this.lazy = lazy; this.isAbstract = isAbstract; this.primary = primary;
+        }
+
+        String flags() {
+            StringBuilder sb = new StringBuilder();
+            if (lazy) sb.append("lazy,");
+            if (isAbstract) sb.append("abstract,");
+            if (primary) sb.append("primary,");
+            if (type == null) sb.append("unresolved,");
+            return sb.length() == 0 ? "" : sb.substring(0, sb.length() - 1);
+        }
+    }
+
+    final List<Row> rows;
+    final long startupDate;
+    final int definitionCount;
+    final long buildNanos;
+    private volatile TypeIndex typeIndex;
+
+    /**
+     * Inverted index for BeanQuery: lower-cased type names (fully qualified and simple) of
+     * every superclass and interface, and of every annotation and meta-annotation, mapped
+     * to the rows carrying them.
+     */
+    static final class TypeIndex {
+        final Map<String, List<Row>> byAssignable = new HashMap<>();
+        final Map<String, List<Row>> byAnnotation = new HashMap<>();
+    }
+
+    private BeanIndex(List<Row> rows, long startupDate, int definitionCount, long buildNanos) {
+        this.rows = rows; this.startupDate = startupDate; this.definitionCount = definitionCount; this.buildNanos = buildNanos;
+    }
+
+    /** The cached index of the entry's context, rebuilt when it is stale. */
+    static BeanIndex of(ContextRegistry.Entry entry) throws ReflectiveOperationException {
+        Object ctx = entry.context();
+        if (ctx == null) throw new IllegalStateException("Context " + entry.id + " has been collected");
+        Object startup = ContextRegistry.invoke(ctx, "getStartupDate");
+        long startupDate = startup instanceof Long ? (Long) startup : 0;
+        int count = entry.beanCount();
+        BeanIndex index = entry.beanIndex;
+        if (index != null && index.startupDate == startupDate && index.definitionCount == count) return index;
+        index = build(entry.beanFactory(), startupDate, count);
+        entry.beanIndex = index;
+        return index;
+    }
+
+    private static BeanIndex build(Object beanFactory, long startupDate, int count) throws ReflectiveOperationException {
+        long start = System.nanoTime();
+        // Resolved once per build against the interfaces, which every factory and definition implements.
+        ClassLoader loader = beanFactory.getClass().getClassLoader();
+        Class<?> listable = Class.forName("org.springframework.beans.factory.ListableBeanFactory", false, loader);
+        Method getNames = listable.getMethod("getBeanDefinitionNames");
+        Method getType = listable.getMethod("getType", String.class, boolean.class);
+        Method getDefinition = null;
+        Method getScope = null, isLazy = null, isAbstract = null, isPrimary = null, getClassName = null;
+        try {
+            Class<?> configurable = Class.forName(
+                    "org.springframework.beans.factory.config.ConfigurableListableBeanFactory", false, loader);
+            if (configurable.isInstance(beanFactory)) {
+                getDefinition = configurable.getMethod("getBeanDefinition", String.class);
+                Class<?> def = Class.forName("org.springframework.beans.factory.config.BeanDefinition", false, loader);
+                getScope = def.getMethod("getScope");
+                isLazy = def.getMethod("isLazyInit");
+                isAbstract = def.getMethod("isAbstract");
+                isPrimary = def.getMethod("isPrimary");
+                getClassName = def.getMethod("getBeanClassName");
+            }
+        } catch (ClassNotFoundException | NoSuchMethodException ignored) {
+            // Plain ListableBeanFactory: types only.
+        }
+
+        String[] names = (String[]) getNames.invoke(beanFactory);
+        Arrays.sort(names);
+        List<Row> rows = new ArrayList<>(names.length);
+        for (String name : names) {
+            if (name == null || name.isEmpty()) continue;
+            Class<?> type = null;
+            try {
+                type = userClass((Class<?>) getType.invoke(beanFactory, name, false));
+            } catch (Throwable ignored) {}
+            String scope = "singleton", className = null;
+            boolean lazy = false, abstractDef = false, primary = false;
+            if (getDefinition != null) {
+                try {
+                    Object def = getDefinition.invoke(beanFactory, name);
+                    Object s = getScope.invoke(def);
+                    if (s instanceof String && !((String) s).isEmpty()) scope = (String) s;
+                    lazy = Boolean.TRUE.equals(isLazy.invoke(def));
+                    abstractDef = Boolean.TRUE.equals(isAbstract.invoke(def));
+                    primary = Boolean.TRUE.equals(isPrimary.invoke(def));
+                    className = (String) getClassName.invoke(def);
+                } catch (Throwable ignored) {}
+            }
+            String typeName = type != null ? type.getName() : className != null ? className : "";
+            rows.add(new Row(name, typeName, type, scope, lazy, abstractDef, primary));
+        }
+        return new BeanIndex(Collections.unmodifiableList(rows), startupDate, count, System.nanoTime() - start);
+    }
+
+    /** Built on first use, since plain listing does not need it. */
+    TypeIndex typeIndex() {
+        TypeIndex t = typeIndex;
+        if (t != null) return t;
+        synchronized (this) {
+            if (typeIndex != null) return typeIndex;
+            t = new TypeIndex();
+            for (Row r : rows) {
+                if (r.type == null) continue;
+                Set<Class<?>> types = new HashSet<>();
+                collectSupertypes(r.type, types);
+                for (Class<?> c : types) add(t.byAssignable, c, r);
+                Set<Class<?>> annotations = new HashSet<>();
+                for (java.lang.annotation.Annotation a : annotationsOf(r.type)) collectAnnotations(a.annotationType(), annotations);
+                for (Class<?> a : annotations) add(t.byAnnotation, a, r);
+            }
+            typeIndex = t;
+            return t;
+        }
+    }
+
+    private static java.lang.annotation.Annotation[] annotationsOf(Class<?> type) {
+        try {
+            return type.getAnnotations();
+        } catch (Throwable e) {
+            // Annotation types missing from the class path.
+            return new java.lang.annotation.Annotation[0];
+        }
+    }
+
+    private static void collectSupertypes(Class<?> c, Set<Class<?>> out) {
+        if (c == null || c == Object.class || !out.add(c)) return;
+        collectSupertypes(c.getSuperclass(), out);
+        for (Class<?> i : c.getInterfaces()) collectSupertypes(i, out);
+    }
+
+    /** The annotation and, transitively, its meta-annotations (@Service brings @Component). */
+    private static void collectAnnotations(Class<?> a, Set<Class<?>> out) {
+        if (a.getName().startsWith("java.lang.annotation.") || a.getName().equals("kotlin.Metadata") || !out.add(a)) return;
+        for (java.lang.annotation.Annotation meta : annotationsOf(a)) collectAnnotations(meta.annotationType(), out);
+    }
+
+    private static void add(Map<String, List<Row>> index, Class<?> c, Row r) {
+        for (String key : new String[] {c.getName().toLowerCase(Locale.ROOT), c.getSimpleName().toLowerCase(Locale.ROOT)}) {
+            List<Row> list = index.computeIfAbsent(key, k -> new ArrayList<>());
+            // Rows are added in order, so a duplicate (same simple name twice) is always the last one.
+            if (list.isEmpty() || list.get(list.size() - 1) != r) list.add(r);
+        }
+    }
+
+    /** CGLIB subclasses (Foo$$SpringCGLIB$$0) are reported as the class they enhance. */
+    private static Class<?> userClass(Class<?> type) {
+        if (type != null && type.getName().contains("$$") && type.getSuperclass() != null
+                && type.getSuperclass() != Object.class) {
+            return type.getSuperclass();
+        }
+        return type;
+    }
+
+    /** Rows whose name or type contains {@code query}, case-insensitively; all rows for a blank query. */
+    List<Row> filter(String query) {
+        if (query == null || query.isBlank()) return rows;
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        List<Row> out = new ArrayList<>();
+        for (Row r : rows) {
+            if (r.name.toLowerCase(Locale.ROOT).contains(q) || r.typeName.toLowerCase(Locale.ROOT).contains(q)) out.add(r);
+        }
+        return out;
+    }
+
+    /** Columns: name, type, scope, flags (lazy, abstract, primary, unresolved). */
+    static String toTsv(List<Row> rows, int offset, int limit) {
+        StringBuilder sb = new StringBuilder();
+        int end = limit > 0 ? Math.min(rows.size(), offset + limit) : rows.size();
+        for (int i = Math.max(0, offset); i < end; i++) {
+            Row r = rows.get(i);
+            sb.append(r.name).append('\t').append(r.typeName).append('\t')
+              .append(r.scope).append('\t').append(r.flags()).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,152 @@
+package com.baader.devrt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Predicates over a BeanIndex: assignable to a type, carrying an annotation (directly or as
+ * a meta-annotation), bean name glob, type package, plus free-text terms that must occur in
+ * the name or type. Type and annotation predicates are answered from the inverted
+ * TypeIndex; the rest filters those candidates. Matches are ranked by how well the name and
+ * type agree with the free text, primary beans first on ties.
+ *
+ * <p>Query text syntax, as typed in the IDE's chooser: {@code type:CacheManager @Repository
+ * name:order* pkg:com.acme free text}. Type and annotation names may be simple or fully
+ * qualified.
+ */
+final class BeanQuery {
+
+    final List<String> types = new ArrayList<>();
+    final List<String> annotations = new ArrayList<>();
+    final List<Pattern> names = new ArrayList<>();
+    final List<String> packages = new ArrayList<>();
+    final List<String> terms = new ArrayList<>();
+
+    static BeanQuery parse(String text) {
+        BeanQuery q = new BeanQuery();
+        if (text == null) return q;
+        for (String token : text.trim().split("\\s+")) {
+            if (token.isEmpty()) continue;
+            String lower = token.toLowerCase(Locale.ROOT);
+            if (lower.startsWith("type:")) q.type(token.substring(5));
+            else if (lower.startsWith("implements:")) q.type(token.substring(11));
+            else if (lower.startsWith("annotation:")) q.annotation(token.substring(11));
+            else if (token.startsWith("@")) q.annotation(token.substring(1));
+            else if (lower.startsWith("name:")) q.name(token.substring(5));
+            else if (lower.startsWith("pkg:")) q.pkg(token.substring(4));
+            else if (lower.startsWith("package:")) q.pkg(token.substring(8));
+            else q.terms.add(lower);
+        }
+        return q;
+    }
+
+    BeanQuery type(String name) {
+        if (!name.isBlank()) types.add(name.trim().toLowerCase(Locale.ROOT));
+        return this;
+    }
+
+    BeanQuery annotation(String name) {
+        String n = name.trim();
+        if (n.startsWith("@")) n = n.substring(1);
+        if (!n.isEmpty()) annotations.add(n.toLowerCase(Locale.ROOT));
+        return this;
+    }
+
+    /** Glob over bean names: {@code *} any run, {@code ?} one character; case-insensitive. */
+    BeanQuery name(String glob) {
+        if (glob.isBlank()) return this;
+        StringBuilder re = new StringBuilder();
+        for (char c : glob.trim().toCharArray()) {
+            if (c == '*') re.append(".*");
+            else if (c == '?') re.append('.');
+            else re.append(Pattern.quote(String.valueOf(c)));
+        }
+        names.add(Pattern.compile(re.toString(), Pattern.CASE_INSENSITIVE));
+        return this;
+    }
+
+    BeanQuery pkg(String prefix) {
+        if (!prefix.isBlank()) packages.add(prefix.trim());
+        return this;
+    }
+
+    /** Matching rows, best first. */
+    List<BeanIndex.Row> run(BeanIndex index) {
+        List<BeanIndex.Row> candidates = index.rows;
+        if (!types.isEmpty() || !annotations.isEmpty()) {
+            BeanIndex.TypeIndex t = index.typeIndex();
+            Set<BeanIndex.Row> allowed = null;
+            for (String type : types) allowed = intersect(allowed, t.byAssignable.get(type));
+            for (String a : annotations) allowed = intersect(allowed, t.byAnnotation.get(a));
+            Set<BeanIndex.Row> keep = allowed;
+            candidates = new ArrayList<>();
+            for (BeanIndex.Row r : index.rows) {
+                if (keep.contains(r)) candidates.add(r);
+            }
+        }
+        List<Scored> scored = new ArrayList<>();
+        for (BeanIndex.Row r : candidates) {
+            if (!matches(r)) continue;
+            scored.add(new Scored(r, score(r)));
+        }
+        // Stable sort: equal scores keep the index's name order.
+        scored.sort((a, b) -> b.score != a.score ? Integer.compare(b.score, a.score)
+                : Boolean.compare(b.row.primary, a.row.primary));
+        List<BeanIndex.Row> out = new ArrayList<>(scored.size());
+        for (Scored s : scored) out.add(s.row);
+        return out;
+    }
+
+    private static Set<BeanIndex.Row> intersect(Set<BeanIndex.Row> acc, List<BeanIndex.Row> rows) {
+        if (rows == null) return Collections.emptySet();
+        if (acc == null) return new HashSet<>(rows);
+        acc.retainAll(new HashSet<>(rows));
+        return acc;
+    }
+
+    private boolean matches(BeanIndex.Row r) {
+        for (Pattern p : names) {
+            if (!p.matcher(r.name).matches()) return false;
+        }
+        for (String p : packages) {
+            if (!r.typeName.startsWith(p)) return false;
+        }
+        String name = r.name.toLowerCase(Locale.ROOT);
+        String type = r.typeName.toLowerCase(Locale.ROOT);
+        for (String term : terms) {
+            if (!name.contains(term) && !type.contains(term)) return false;
+        }
+        return true;
+    }
+
+    /** Exact name beats name prefix beats simple-type prefix beats substring hits. */
+    private int score(BeanIndex.Row r) {
+        int score = 0;
+        String name = r.name.toLowerCase(Locale.ROOT);
+        String type = r.typeName.toLowerCase(Locale.ROOT);
+        String simple = type.substring(type.lastIndexOf('.') + 1);
+        for (String term : terms) {
+            if (name.equals(term)) score += 100;
+            else if (name.startsWith(term)) score += 60;
+            else if (simple.startsWith(term)) score += 40;
+            else if (name.contains(term)) score += 20;
+            else score += 5;
+        }
+        for (String t : types) {
+            // The bean's own type named directly ranks above its subtypes.
+            if (type.equals(t) || simple.equals(t)) score += 30;
+        }
+        return score;
+    }
+
+    private static final class Scored {
+        final BeanIndex.Row row;
+        final int score;
+        Scored(BeanIndex.Row row, int score) { this.row = row; this.score = score; }
+    }
+}
@@ -0,0 +1,236 @@
+package com.baader.devrt;
+
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.matcher.ElementMatchers;
+import net.bytebuddy.matcher.StringMatcher;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-bean creation cost as a tree: a bean's children are the beans created while it was
+ * being created, i.e. its dependency chain. Total time includes the children, self time
+ * does not.
+ *
+ * <p>Two sources. With {@code -javaagent} at launch, advice on
+ * AbstractAutowireCapableBeanFactory.createBean records every bean. Otherwise the bound
+ * context's BufferingApplicationStartup is read, if the application set one before refresh
+ * ({@code app.setApplicationStartup(new BufferingApplicationStartup(10000))}).
+ *
+ * <p>The advice is removed together with the context-capturing transformer, once contexts
+ * have stopped starting (see AgentStartup), so later prototype and scoped bean creations
+ * are not recorded or slowed down; what was recorded stays available.
+ */
+public final class BeanStartup {
+
+    static final int MAX_BEANS = 50_000;
+    static final String FACTORY = "org.springframework.beans.factory.support.AbstractAutowireCapableBeanFactory";
+
+    static final class Node {
+        final String name;
+        String type = "";
+        long totalNanos;
+        boolean failed;
+        final List<Node> children = new ArrayList<>();
+        private final long start;
+        Node(String name, long start) { this.name = name; this.start = start; }
+
+        long selfNanos() {
+            long self = totalNanos;
+            for (Node c : children) self -= c.totalNanos;
+            return Math.max(0, self);
+        }
+
+        int descendants() {
+            int n = 0;
+            for (Node c : children) n += 1 + c.descendants();
+            return n;
+        }
+    }
+
+    static final class Report {
+        final List<Node> roots;
+        final String source;
+        final int beans;
+        Report(List<Node> roots, String source, int beans) {
+            this.roots = roots; this.source = source; this.beans = beans;
+        }
+        long totalNanos() {
+            long t = 0;
+            for (Node n : roots) t += n.totalNanos;
+            return t;
+        }
+    }
+
+    private static final ThreadLocal<ArrayDeque<Node>> open = ThreadLocal.withInitial(ArrayDeque::new);
+    private static final List<Node> roots = new ArrayList<>();
+    private static int recorded;
+    private static volatile ResettableClassFileTransformer transformer;
+
+    private BeanStartup() {}
+
+    /**
+     * Weaves the recording advice into the bean factory. Only useful at launch, before the
+     * context is refreshed; the name filter keeps every other class out of ByteBuddy.
+     */
+    static synchronized void install(Instrumentation inst) {
+        if (transformer != null) return;
+        String pkg = FACTORY.substring(0, FACTORY.lastIndexOf('.') + 1);
+        transformer = new AgentBuilder.Default()
+                .disableClassFormatChanges()
+                .with(AgentBuilder.RedefinitionStrategy.RETRANSFORMATION)
+                .with(AgentBuilder.InitializationStrategy.NoOp.INSTANCE)
+                .with(AgentBuilder.TypeStrategy.Default.REDEFINE)
+                .with(new AgentBuilder.Listener.Filtering(
+                        new StringMatcher(pkg, StringMatcher.Mode.STARTS_WITH),
+                        AgentBuilder.Listener.StreamWriting.toSystemError().withErrorsOnly()))
+                .ignore(ElementMatchers.not(ElementMatchers.nameStartsWith(pkg)))
+                .or(ElementMatchers.any(), ElementMatchers.isBootstrapClassLoader())
+                .type(ElementMatchers.named(FACTORY))
+                .transform((builder, type, classLoader, module, protectionDomain) ->
+                        builder.visit(Advice.to(BeanCreationAdvice.class).on(
+                                ElementMatchers.named("createBean").and(ElementMatchers.takesArguments(3))
+                                        .and(ElementMatchers.takesArgument(0, String.class)))))
+                .installOn(inst);
+    }
+
+    static synchronized void uninstall() {
+        AdviceInstaller.reset(transformer);
+        transformer = null;
+    }
+
+    static boolean installed() { return transformer != null; }
+
+    public static void enter(String beanName) {
+        open.get().push(new Node(beanName, System.nanoTime()));
+    }
+
+    public static void exit(Object bean, boolean failed) {
+        ArrayDeque<Node> stack = open.get();
+        Node n = stack.poll();
+        if (n == null) return;
+        n.totalNanos = System.nanoTime() - n.start;
+        n.failed = failed;
+        if (bean != null) n.type = bean.getClass().getName();
+        Node parent = stack.peek();
+        if (parent != null) {
+            parent.children.add(n);
+            return;
+        }
+        synchronized (BeanStartup.class) {
+            // Only top-level nodes are counted against the cap, subtrees are kept whole.
+            if (recorded < MAX_BEANS) {
+                roots.add(n);
+                recorded += 1 + n.descendants();
+            }
+        }
+    }
+
+    static synchronized void clear() {
+        roots.clear();
+        recorded = 0;
+    }
+
+    /** Recorded creations if any, else the context's buffered startup steps; null if neither. */
+    static Report report(Object ctx) {
+        synchronized (BeanStartup.class) {
+            if (!roots.isEmpty()) {
+                return new Report(sorted(new ArrayList<>(roots)), "createBean advice", recorded);
+            }
+        }
+        return ctx != null ? fromApplicationStartup(ctx) : null;
+    }
+
+    /**
+     * Reads "spring.beans.instantiate" steps from a BufferingApplicationStartup. Steps record
+     * their parent step, which for a nested instantiation is the dependent bean.
+     */
+    static Report fromApplicationStartup(Object ctx) {
+        try {
+            Object startup = ctx.getClass().getMethod("getApplicationStartup").invoke(ctx);
+            if (startup == null) return null;
+            Method timelineMethod;
+            try {
+                timelineMethod = startup.getClass().getMethod("getBufferedTimeline");
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+            Object timeline = timelineMethod.invoke(startup);
+            List<?> events = (List<?>) timeline.getClass().getMethod("getEvents").invoke(timeline);
+            Map<Long, Node> byStep = new HashMap<>();
+            Map<Long, Long> parentOf = new HashMap<>();
+            List<Long> order = new ArrayList<>();
+            Class<?> stepType = null, tagType = null;
+            for (Object event : events) {
+                Object step = event.getClass().getMethod("getStartupStep").invoke(event);
+                if (stepType == null) {
+                    ClassLoader loader = step.getClass().getClassLoader();
+                    stepType = Class.forName("org.springframework.core.metrics.StartupStep", false, loader);
+                    tagType = Class.forName("org.springframework.core.metrics.StartupStep$Tag", false, loader);
+                }
+                if (!"spring.beans.instantiate".equals(stepType.getMethod("getName").invoke(step))) continue;
+                long id = (Long) stepType.getMethod("getId").invoke(step);
+                Long parentId = (Long) stepType.getMethod("getParentId").invoke(step);
+                String name = "?", type = "";
+                for (Object tag : (Iterable<?>) stepType.getMethod("getTags").invoke(step)) {
+                    String key = (String) tagType.getMethod("getKey").invoke(tag);
+                    String value = (String) tagType.getMethod("getValue").invoke(tag);
+                    if ("beanName".equals(key)) name = value;
+                    else if ("beanType".equals(key)) type = value;
+                }
+                Node n = new Node(name, 0);
+                n.type = type;
+                n.totalNanos = ((Duration) event.getClass().getMethod("getDuration").invoke(event)).toNanos();
+                byStep.put(id, n);
+                if (parentId != null) parentOf.put(id, parentId);
+                order.add(id);
+            }
+            List<Node> top = new ArrayList<>();
+            for (long id : order) {
+                Node n = byStep.get(id);
+                Node parent = parentOf.containsKey(id) ? byStep.get(parentOf.get(id)) : null;
+                if (parent != null) parent.children.add(n); else top.add(n);
+            }
+            return new Report(sorted(top), "BufferingApplicationStartup", byStep.size());
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /** Most expensive first, at every level. */
+    private static List<Node> sorted(List<Node> nodes) {
+        nodes.sort((a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+        for (Node n : nodes) sorted(n.children);
+        return nodes;
+    }
+
+    /**
+     * Depth-first rows: depth, bean, type, total ms, self ms, beans created beneath it. Only
+     * the {@code limit} most expensive top-level beans are listed, and nodes under
+     * {@code minMillis} are left out of the tree (their time stays in the parent's total).
+     */
+    static String toTsv(Report r, int limit, double minMillis) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < r.roots.size() && i < limit; i++) append(sb, r.roots.get(i), 0, minMillis);
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, Node n, int depth, double minMillis) {
+        if (depth > 0 && n.totalNanos / 1e6 < minMillis) return;
+        sb.append(depth).append('\t').append(n.name).append(n.failed ? " (failed)" : "").append('\t')
+          .append(n.type).append('\t')
+          .append(String.format(Locale.ROOT, "%.2f", n.totalNanos / 1e6)).append('\t')
+          .append(String.format(Locale.ROOT, "%.2f", n.selfNanos() / 1e6)).append('\t')
+          .append(n.descendants()).append('\n');
+        for (Node c : n.children) append(sb, c, depth + 1, minMillis);
+    }
+}
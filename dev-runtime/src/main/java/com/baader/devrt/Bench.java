@@ -0,0 +1,190 @@
+package com.baader.devrt;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * In-JVM microbenchmark for REPL snippets, measured against the live JIT state. Each fork
+ * runs warmup and measurement iterations on a fresh thread; results go through the
+ * ReplBindings blackhole. A CPU budget below 100% idles between iterations so the
+ * application keeps its share of the machine.
+ */
+final class Bench {
+
+    static final class Options {
+        int warmupIterations = 5;
+        int iterations = 10;
+        int forks = 1;
+        long iterationMillis = 200;
+        int cpuBudgetPercent = 50;
+        long maxMillis = 60_000;
+    }
+
+    static final class Result {
+        final double nsPerOp;
+        final double ciHalfWidth;
+        final double minNsPerOp;
+        final double maxNsPerOp;
+        final int samples;
+        final long ops;
+        final double bytesPerOp;
+        final long gcCount;
+        final long gcMillis;
+        final boolean truncated;
+        Result(double nsPerOp, double ciHalfWidth, double minNsPerOp, double maxNsPerOp, int samples, long ops,
+               double bytesPerOp, long gcCount, long gcMillis, boolean truncated) {
+            this.nsPerOp = nsPerOp; this.ciHalfWidth = ciHalfWidth;
+            this.minNsPerOp = minNsPerOp; this.maxNsPerOp = maxNsPerOp;
+            this.samples = samples; this.ops = ops; this.bytesPerOp = bytesPerOp;
+            this.gcCount = gcCount; this.gcMillis = gcMillis; this.truncated = truncated;
+        }
+
+        String describe() {
+            return String.format(Locale.ROOT,
+                    "%.3f ± %.3f ns/op (95%% CI, %d samples, min %.3f, max %.3f), %s B/op, %d op(s), GC: %d (%d ms)%s",
+                    nsPerOp, ciHalfWidth, samples, minNsPerOp, maxNsPerOp,
+                    bytesPerOp < 0 ? "n/a" : String.format(Locale.ROOT, "%.1f", bytesPerOp),
+                    ops, gcCount, gcMillis, truncated ? " [stopped at time limit]" : "");
+        }
+    }
+
+    // Two-sided 95% Student t quantiles for 1..30 degrees of freedom.
+    private static final double[] T95 = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+
+    private Bench() {}
+
+    private static final class Fork implements Runnable {
+        final Supplier<Object> target;
+        final Options o;
+        final long deadline;
+        final List<Double> samples = new ArrayList<>();
+        long ops;
+        long allocated = -1;
+        boolean truncated;
+        Throwable failure;
+
+        Fork(Supplier<Object> target, Options o, long deadline) {
+            this.target = target; this.o = o; this.deadline = deadline;
+        }
+
+        @Override public void run() {
+            try {
+                for (int i = 0; i < o.warmupIterations && !pastDeadline(); i++) iteration();
+                long before = allocatedBytes();
+                long measuredOps = 0;
+                for (int i = 0; i < o.iterations; i++) {
+                    if (pastDeadline()) { truncated = true; break; }
+                    long[] r = iteration();
+                    samples.add(r[0] / (double) r[1]);
+                    measuredOps += r[1];
+                }
+                long after = allocatedBytes();
+                ops = measuredOps;
+                if (before >= 0 && after >= 0) allocated = after - before;
+            } catch (Throwable t) {
+                failure = t;
+            }
+        }
+
+        private boolean pastDeadline() { return System.nanoTime() > deadline; }
+
+        /** Runs the target for about iterationMillis; returns {elapsed nanos, ops}. */
+        private long[] iteration() throws InterruptedException {
+            long budget = o.iterationMillis * 1_000_000L;
+            long n = 0;
+            int batch = 1;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                for (int i = 0; i < batch; i++) ReplBindings.consume(target.get());
+                n += batch;
+                elapsed = System.nanoTime() - start;
+                // Grow batches so the clock is read rarely compared to the work measured.
+                if (batch < (1 << 20) && elapsed < budget / 64) batch <<= 1;
+            } while (elapsed < budget);
+            idle(elapsed);
+            return new long[] {elapsed, n};
+        }
+
+        private void idle(long busyNanos) throws InterruptedException {
+            if (o.cpuBudgetPercent >= 100) return;
+            long pause = busyNanos * (100 - o.cpuBudgetPercent) / o.cpuBudgetPercent;
+            Thread.sleep(pause / 1_000_000L, (int) (pause % 1_000_000L));
+        }
+    }
+
+    static Result run(Supplier<Object> target, Options o) throws Exception {
+        if (o.iterations < 1 || o.forks < 1 || o.warmupIterations < 0 || o.iterationMillis < 1) {
+            throw new IllegalArgumentException("iterations, forks and iteration time must be positive");
+        }
+        if (o.cpuBudgetPercent < 1 || o.cpuBudgetPercent > 100) {
+            throw new IllegalArgumentException("cpu budget must be between 1 and 100 percent");
+        }
+        long deadline = System.nanoTime() + o.maxMillis * 1_000_000L;
+        long[] gcBefore = gcTotals();
+        List<Double> samples = new ArrayList<>();
+        long ops = 0, allocated = 0;
+        boolean allocKnown = true, truncated = false;
+        for (int f = 0; f < o.forks; f++) {
+            Fork fork = new Fork(target, o, deadline);
+            Thread t = new Thread(fork, "devrt-bench-fork-" + (f + 1));
+            t.setDaemon(true);
+            t.start();
+            t.join();
+            if (fork.failure != null) {
+                throw new IllegalStateException("Benchmark snippet failed: " + fork.failure, fork.failure);
+            }
+            samples.addAll(fork.samples);
+            ops += fork.ops;
+            if (fork.allocated < 0) allocKnown = false; else allocated += fork.allocated;
+            truncated |= fork.truncated;
+            if (System.nanoTime() > deadline) {
+                truncated |= f < o.forks - 1;
+                break;
+            }
+        }
+        long[] gcAfter = gcTotals();
+        if (samples.isEmpty()) throw new IllegalStateException("Time limit reached before any measurement");
+
+        double mean = 0, min = Double.MAX_VALUE, max = 0;
+        for (double s : samples) { mean += s; min = Math.min(min, s); max = Math.max(max, s); }
+        mean /= samples.size();
+        double ci = 0;
+        if (samples.size() > 1) {
+            double var = 0;
+            for (double s : samples) var += (s - mean) * (s - mean);
+            var /= samples.size() - 1;
+            int df = samples.size() - 1;
+            double t = df <= T95.length ? T95[df - 1] : 1.960;
+            ci = t * Math.sqrt(var / samples.size());
+        }
+        return new Result(mean, ci, min, max, samples.size(), ops,
+                allocKnown && ops > 0 ? allocated / (double) ops : -1,
+                gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1], truncated);
+    }
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean mx
+                && mx.isThreadAllocatedMemorySupported() && mx.isThreadAllocatedMemoryEnabled()) {
+            return mx.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /** {collection count, collection millis} summed over all collectors. */
+    private static long[] gcTotals() {
+        long count = 0, millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[] {count, millis};
+    }
+}
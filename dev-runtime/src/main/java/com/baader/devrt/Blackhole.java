@@ -0,0 +1,31 @@
+package com.baader.devrt;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Benchmark sink. Every value may be published (with a probability that quickly drops
+ * towards zero), so the JIT can neither drop the computation nor scalar-replace an
+ * allocation, while the common path is a multiply and a branch. State is per instance;
+ * concurrent workers should each use their own to avoid sharing a cache line.
+ */
+final class Blackhole {
+    private int seed = (int) System.nanoTime();
+    private int mask = 1;
+    private volatile Object sink;
+
+    void consume(Object value) {
+        int s = seed = seed * 1664525 + 1013904223;
+        if ((s & mask) == 0) {
+            sink = new WeakReference<>(value);
+            if (mask < 0x3FFFFFFF) mask = (mask << 1) + 1;
+        }
+    }
+
+    void consume(long value) {
+        int s = seed = seed * 1664525 + 1013904223;
+        if (((s ^ (int) value) & mask) == 0) {
+            sink = value;
+            if (mask < 0x3FFFFFFF) mask = (mask << 1) + 1;
+        }
+    }
+}
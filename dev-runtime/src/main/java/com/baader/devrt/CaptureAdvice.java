@@ -0,0 +1,27 @@
+package com.baader.devrt;
+
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+
+/**
+ * Inlined into captured methods by MethodCaptures. The sampling decision is taken on
+ * entry; arguments and the return value are only boxed for sampled calls.
+ */
+public class CaptureAdvice {
+
+    @Advice.OnMethodEnter
+    public static long onEnter(@Advice.Origin("#t.#m#d") String method) {
+        return MethodCaptures.sampled(method) ? System.nanoTime() : Long.MIN_VALUE;
+    }
+
+    @Advice.OnMethodExit(onThrowable = Throwable.class)
+    public static void onExit(@Advice.Enter long start,
+                              @Advice.Origin("#t.#m#d") String method,
+                              @Advice.AllArguments Object[] args,
+                              @Advice.Return(typing = Assigner.Typing.DYNAMIC) Object returned,
+                              @Advice.Thrown Throwable thrown) {
+        if (start != Long.MIN_VALUE) {
+            MethodCaptures.record(method, args, returned, thrown, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.baader.devrt;
+
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Blocked-time report from JFR's jdk.JavaMonitorEnter (synchronized) and jdk.ThreadPark
+ * (java.util.concurrent locks) events. The events are only enabled while a session is
+ * open, so the overhead is paid just for the reporting window. Aggregation is by monitor
+ * class and by blocking stack, bounded like AllocationSampler.
+ */
+final class ContentionReport {
+
+    static final int MAX_SECONDS = 120;
+    static final int MAX_STACKS = 2048;
+    private static final String OTHER = "<other>";
+
+    static final class Entry {
+        final String key;
+        final String monitorClass;
+        final String kind;
+        final List<String> frames;
+        long count;
+        long totalNanos;
+        long maxNanos;
+        Entry(String key, String monitorClass, String kind, List<String> frames) {
+            this.key = key; this.monitorClass = monitorClass; this.kind = kind; this.frames = frames;
+        }
+        void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+    }
+
+    static final class Report {
+        final List<Entry> byMonitor;
+        final List<Entry> byStack;
+        final double seconds;
+        Report(List<Entry> byMonitor, List<Entry> byStack, double seconds) {
+            this.byMonitor = byMonitor; this.byStack = byStack; this.seconds = seconds;
+        }
+        long totalBlockedNanos() {
+            long t = 0;
+            for (Entry e : byMonitor) t += e.totalNanos;
+            return t;
+        }
+    }
+
+    /** An open recording; {@link #stop()} switches the events off and returns the report. */
+    static final class Session {
+        private final RecordingStream stream;
+        private final int depth;
+        private final long started = System.nanoTime();
+        private final Map<String, Entry> byMonitor = new HashMap<>();
+        private final Map<String, Entry> byStack = new HashMap<>();
+        private final AtomicInteger flushes = new AtomicInteger();
+
+        private Session(long thresholdMillis, int depth) {
+            this.depth = depth;
+            this.stream = new RecordingStream();
+            stream.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ofMillis(thresholdMillis)).withStackTrace();
+            stream.enable("jdk.ThreadPark").withThreshold(Duration.ofMillis(thresholdMillis)).withStackTrace();
+            stream.setMaxAge(Duration.ofSeconds(10));
+            stream.onEvent("jdk.JavaMonitorEnter", e -> fold(e, "monitorClass", "monitor"));
+            stream.onEvent("jdk.ThreadPark", e -> fold(e, "parkedClass", "park"));
+            stream.onFlush(flushes::incrementAndGet);
+            stream.startAsync();
+        }
+
+        private synchronized void fold(RecordedEvent e, String classField, String kind) {
+            RecordedClass rc = e.getValue(classField);
+            String monitor = rc != null ? rc.getName() : "?";
+            long nanos = e.getDuration().toNanos();
+            byMonitor.computeIfAbsent(kind + ":" + monitor, k -> new Entry(k, monitor, kind, List.of())).add(nanos);
+
+            List<String> frames = new ArrayList<>(depth);
+            RecordedStackTrace st = e.getStackTrace();
+            if (st != null) {
+                for (RecordedFrame f : st.getFrames()) {
+                    if (!f.isJavaFrame()) continue;
+                    String type = f.getMethod().getType().getName();
+                    // Skip the park/lock plumbing so the first frame is the caller that blocked.
+                    if (frames.isEmpty() && (type.startsWith("jdk.internal.misc.Unsafe")
+                            || type.startsWith("java.util.concurrent.locks."))) continue;
+                    frames.add(type + "#" + f.getMethod().getName() + ":" + f.getLineNumber());
+                    if (frames.size() == depth) break;
+                }
+            }
+            String key = kind + ":" + monitor + "|" + String.join("|", frames);
+            Entry entry = byStack.get(key);
+            if (entry == null) {
+                if (byStack.size() >= MAX_STACKS) {
+                    entry = byStack.computeIfAbsent(OTHER, k -> new Entry(OTHER, OTHER, kind, List.of()));
+                } else {
+                    entry = new Entry(key, monitor, kind, frames);
+                    byStack.put(key, entry);
+                }
+            }
+            entry.add(nanos);
+        }
+
+        Report stop() {
+            double seconds = (System.nanoTime() - started) / 1e9;
+            try {
+                awaitFlushes(flushes);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stream.close();
+            synchronized (this) {
+                return new Report(sorted(byMonitor), sorted(byStack), seconds);
+            }
+        }
+    }
+
+    private ContentionReport() {}
+
+    /**
+     * Starts recording blocking longer than {@code thresholdMillis}; {@code depth} frames
+     * identify a blocking stack.
+     */
+    static Session start(long thresholdMillis, int depth) {
+        return new Session(Math.max(0, thresholdMillis), Math.max(1, Math.min(depth, 32)));
+    }
+
+    /** Records for {@code seconds} on the calling thread, then switches the events off again. */
+    static Report record(int seconds, long thresholdMillis, int depth) throws InterruptedException {
+        if (seconds < 1 || seconds > MAX_SECONDS) {
+            throw new IllegalArgumentException("seconds must be between 1 and " + MAX_SECONDS);
+        }
+        Session s = start(thresholdMillis, depth);
+        try {
+            Thread.sleep(seconds * 1000L);
+        } catch (InterruptedException e) {
+            s.stop();
+            throw e;
+        }
+        return s.stop();
+    }
+
+    /**
+     * Closing a RecordingStream drops events not yet flushed to it (JFR flushes about once a
+     * second); waits until two more flushes, counted by an onFlush hook, have passed, which
+     * covers everything recorded before the call. Gives up after three seconds.
+     */
+    static void awaitFlushes(AtomicInteger flushes) throws InterruptedException {
+        int target = flushes.get() + 2;
+        long giveUp = System.nanoTime() + 3_000_000_000L;
+        while (flushes.get() < target && System.nanoTime() < giveUp) {
+            Thread.sleep(20);
+        }
+    }
+
+    private static List<Entry> sorted(Map<String, Entry> entries) {
+        List<Entry> out = new ArrayList<>(entries.values());
+        out.sort((a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+        return out;
+    }
+
+    /**
+     * Two sections: "monitor" rows (kind, class, count, total ms, max ms) followed by "stack"
+     * rows (kind, class, count, total ms, max ms, frames joined by " <- ").
+     */
+    static String toTsv(Report r, int limit) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < r.byMonitor.size() && i < limit; i++) {
+            Entry e = r.byMonitor.get(i);
+            sb.append("monitor\t").append(e.kind).append('\t').append(e.monitorClass).append('\t')
+              .append(e.count).append('\t').append(millis(e.totalNanos)).append('\t')
+              .append(millis(e.maxNanos)).append("\t\n");
+        }
+        for (int i = 0; i < r.byStack.size() && i < limit; i++) {
+            Entry e = r.byStack.get(i);
+            sb.append("stack\t").append(e.kind).append('\t').append(e.monitorClass).append('\t')
+              .append(e.count).append('\t').append(millis(e.totalNanos)).append('\t')
+              .append(millis(e.maxNanos)).append('\t')
+              .append(String.join(" <- ", e.frames)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1e6);
+    }
+}
@@ -8,14 +8,18 @@ import net.bytebuddy.matcher.ElementMatchers;
 
 public class ContextCapturingTransformer {
 
+    /** Package of the only matched type; used as the agent's cheap name pre-filter. */
+    public static final String PACKAGE = "org.springframework.boot.";
+
     public static final ElementMatcher.Junction<TypeDescription> MATCHER =
-            ElementMatchers.named("org.springframework.boot.SpringApplication");
+            ElementMatchers.named(PACKAGE + "SpringApplication");
 
+    // Advice is woven into the existing method bodies (no rebased copies), so the class
+    // format is unchanged and resetting the transformer restores the original bytecode.
     public static final AgentBuilder.Transformer TRANSFORMER =
             (builder, typeDescription, classLoader, module, protectionDomain) ->
-                    builder.method(ElementMatchers.named("run")
+                    builder.visit(Advice.to(SpringApplicationRunAdvice.class).on(ElementMatchers.named("run")
                                     .and(ElementMatchers.takesArguments(String[].class))
-                                    .or(ElementMatchers.named("run").and(ElementMatchers.takesArguments(Class[].class, String[].class))))
-                            .intercept(Advice.to(SpringApplicationRunAdvice.class));
+                                    .or(ElementMatchers.named("run").and(ElementMatchers.takesArguments(Class[].class, String[].class)))));
 
 }
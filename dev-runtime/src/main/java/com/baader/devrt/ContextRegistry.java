@@ -0,0 +1,253 @@
+package com.baader.devrt;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Every application context the agent has seen, from SpringApplication.run, the bridge
+ * configuration or AutoBinder, together with its parents. Apps with a bootstrap context,
+ * parent/child contexts or several SpringApplication instances keep all of them; the
+ * current one is the user's choice (use-context) or else the active context with the most
+ * bean definitions, the last registered winning ties. Class loader, bean factory and the
+ * methods called on them are resolved once per context.
+ * Contexts are held weakly so a closed and discarded context can be collected.
+ */
+final class ContextRegistry {
+
+    static final class Entry {
+        final String id;
+        final String springId;
+        final String contextClass;
+        final String parentId;
+        final long registeredAt = System.currentTimeMillis();
+        private final WeakReference<Object> ref;
+        private volatile ClassLoader classLoader;
+        private volatile Object beanFactory;
+        private volatile Method getBean;
+        private volatile Method getSingleton;
+        private volatile Method isActive;
+        private volatile Method getBeanDefinitionCount;
+        volatile BeanIndex beanIndex;
+
+        private Entry(String id, Object ctx, String parentId) {
+            this.id = id;
+            this.ref = new WeakReference<>(ctx);
+            this.springId = String.valueOf(invoke(ctx, "getId"));
+            this.contextClass = ctx.getClass().getName();
+            this.parentId = parentId;
+        }
+
+        Object context() { return ref.get(); }
+
+        /** "active", "inactive" (not yet refreshed or closed) or "collected". */
+        String state() {
+            Object ctx = ref.get();
+            if (ctx == null) return "collected";
+            Object active = null;
+            try {
+                Method m = isActive = resolve(isActive, ctx, "isActive");
+                active = m.invoke(ctx);
+            } catch (Throwable ignored) {}
+            return Boolean.FALSE.equals(active) ? "inactive" : "active";
+        }
+
+        int beanCount() {
+            Object ctx = ref.get();
+            if (ctx == null) return -1;
+            try {
+                Method m = getBeanDefinitionCount = resolve(getBeanDefinitionCount, ctx, "getBeanDefinitionCount");
+                Object n = m.invoke(ctx);
+                return n instanceof Integer ? (Integer) n : -1;
+            } catch (Throwable t) {
+                return -1;
+            }
+        }
+
+        /** The bean class loader, falling back to the loader of the context class. */
+        ClassLoader classLoader() {
+            ClassLoader cl = classLoader;
+            if (cl != null) return cl;
+            Object ctx = ref.get();
+            if (ctx == null) return null;
+            Object bcl = invoke(beanFactory(), "getBeanClassLoader");
+            cl = bcl instanceof ClassLoader ? (ClassLoader) bcl : ctx.getClass().getClassLoader();
+            classLoader = cl;
+            return cl;
+        }
+
+        /**
+         * The context's bean factory. Refreshable contexts throw until refreshed, so a failed
+         * lookup is retried next time and the context itself serves as the factory meanwhile.
+         */
+        Object beanFactory() {
+            Object bf = beanFactory;
+            if (bf != null) return bf;
+            Object ctx = ref.get();
+            if (ctx == null) return null;
+            bf = invoke(ctx, "getBeanFactory");
+            if (bf == null) return ctx;
+            beanFactory = bf;
+            return bf;
+        }
+
+        /** {@code getBean(name)} on the bean factory; null when the bean cannot be obtained. */
+        Object bean(String name) {
+            Object bf = beanFactory();
+            if (bf == null) return null;
+            try {
+                Method m = getBean = resolve(getBean, bf, "getBean", String.class);
+                return m.invoke(bf, name);
+            } catch (Throwable t) {
+                return null;
+            }
+        }
+
+        /** An already created singleton; never triggers creation. Null when not (yet) created. */
+        Object singleton(String name) {
+            Object bf = beanFactory();
+            if (bf == null) return null;
+            try {
+                Method m = getSingleton = resolve(getSingleton, bf, "getSingleton", String.class);
+                return m.invoke(bf, name);
+            } catch (Throwable t) {
+                return null;
+            }
+        }
+
+        /**
+         * Created beans assignable to {@code typeName}, by bean name, found through the bean
+         * index. Beans not created yet (lazy ones) are left alone rather than instantiated.
+         */
+        Map<String, Object> existingBeansOfType(String typeName) throws ReflectiveOperationException {
+            Map<String, Object> out = new LinkedHashMap<>();
+            for (BeanIndex.Row r : new BeanQuery().type(typeName).run(BeanIndex.of(this))) {
+                Object bean = singleton(r.name);
+                // A FactoryBean's singleton is the factory; its product is cached once created.
+                if ((bean == null || !r.type.isInstance(bean)) && !r.lazy && r.scope.equals("singleton")) bean = bean(r.name);
+                if (bean != null) out.put(r.name, bean);
+            }
+            return out;
+        }
+    }
+
+    private static final List<Entry> entries = new CopyOnWriteArrayList<>();
+    private static final AtomicInteger ids = new AtomicInteger();
+    private static volatile Entry selected;
+
+    private ContextRegistry() {}
+
+    /** Adds {@code ctx} and any parents not yet known; returns its entry. Idempotent. */
+    static synchronized Entry register(Object ctx) {
+        Entry known = entryFor(ctx);
+        if (known != null) return known;
+        Object parent = invoke(ctx, "getParent");
+        String parentId = parent != null && parent != ctx ? register(parent).id : null;
+        Entry e = new Entry("c" + ids.incrementAndGet(), ctx, parentId);
+        entries.add(e);
+        return e;
+    }
+
+    static Entry entryFor(Object ctx) {
+        if (ctx == null) return null;
+        for (Entry e : entries) {
+            if (e.context() == ctx) return e;
+        }
+        return null;
+    }
+
+    /** Looks up by registry id (c1, c2 ...) or by the context's own id. */
+    static Entry find(String id) {
+        for (Entry e : entries) {
+            if (e.id.equals(id)) return e;
+        }
+        for (Entry e : entries) {
+            if (e.springId.equals(id) && e.context() != null) return e;
+        }
+        return null;
+    }
+
+    /** Makes {@code id} the current context; null when unknown or already collected. */
+    static Entry use(String id) {
+        Entry e = find(id);
+        if (e == null || e.context() == null) return null;
+        selected = e;
+        return e;
+    }
+
+    /** The selected context, or the active one with the most bean definitions (latest wins ties). */
+    static Entry current() {
+        Entry s = selected;
+        if (s != null && s.context() != null) return s;
+        Entry best = null;
+        int bestBeans = Integer.MIN_VALUE;
+        boolean bestActive = false;
+        for (Entry e : entries) {
+            if (e.context() == null) continue;
+            boolean active = e.state().equals("active");
+            int beans = e.beanCount();
+            if (best == null || (active && !bestActive) || (active == bestActive && beans >= bestBeans)) {
+                best = e;
+                bestBeans = beans;
+                bestActive = active;
+            }
+        }
+        return best;
+    }
+
+    static Object currentContext() {
+        Entry e = current();
+        return e != null ? e.context() : null;
+    }
+
+    static List<Entry> list() {
+        entries.removeIf(e -> e.context() == null && e != selected);
+        return new ArrayList<>(entries);
+    }
+
+    static synchronized void clear() {
+        entries.clear();
+        selected = null;
+    }
+
+    /** Columns: current marker, id, context id, parent id, class, class loader, bean count, state. */
+    static String listAsTsv() {
+        Entry cur = current();
+        StringBuilder sb = new StringBuilder();
+        for (Entry e : list()) {
+            ClassLoader cl = e.classLoader();
+            sb.append(e == cur ? "*" : "").append('\t')
+              .append(e.id).append('\t')
+              .append(e.springId).append('\t')
+              .append(e.parentId != null ? e.parentId : "").append('\t')
+              .append(e.contextClass).append('\t')
+              .append(cl != null ? cl.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(cl)) : "")
+              .append('\t')
+              .append(e.beanCount()).append('\t')
+              .append(e.state()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** {@code cached} if it applies to {@code target}, else the public method looked up on it. */
+    private static Method resolve(Method cached, Object target, String name, Class<?>... params)
+            throws NoSuchMethodException {
+        if (cached != null && cached.getDeclaringClass().isInstance(target)) return cached;
+        return target.getClass().getMethod(name, params);
+    }
+
+    /** Calls a public no-arg method reflectively; null on any failure. */
+    static Object invoke(Object target, String method) {
+        if (target == null) return null;
+        try {
+            return target.getClass().getMethod(method).invoke(target);
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+}
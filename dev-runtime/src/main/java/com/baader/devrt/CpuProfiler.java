@@ -0,0 +1,119 @@
+package com.baader.devrt;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sampling CPU profiler built on ThreadMXBean stack dumps. Only RUNNABLE threads are
+ * counted, and stacks are merged into a trie whose node count is capped, so a long or
+ * deep profile cannot grow without bound. Output is the collapsed-stack format
+ * ("root;caller;callee count") understood by flame graph renderers.
+ */
+final class CpuProfiler {
+
+    static final int MAX_SECONDS = 120;
+    static final int MAX_NODES = 50_000;
+    static final int MAX_DEPTH = 256;
+    private static final String TRUNCATED = "[truncated]";
+
+    static final class Node {
+        final String frame;
+        final Map<String, Node> children = new HashMap<>();
+        long self;
+        Node(String frame) { this.frame = frame; }
+    }
+
+    static final class Profile {
+        final Node root = new Node("all");
+        int nodes = 1;
+        long samples;
+        long ticks;
+        boolean truncated;
+
+        void add(StackTraceElement[] stack) {
+            Node n = root;
+            // Stack traces are innermost first; the trie is rooted at the outermost frame.
+            for (int i = stack.length - 1; i >= 0; i--) {
+                StackTraceElement f = stack[i];
+                n = child(n, f.getClassName() + "." + f.getMethodName());
+                if (n.frame == TRUNCATED) break;
+            }
+            n.self++;
+            samples++;
+        }
+
+        private Node child(Node parent, String frame) {
+            Node c = parent.children.get(frame);
+            if (c != null) return c;
+            if (nodes >= MAX_NODES) {
+                // Out of budget: charge the rest of the stack to a single marker child.
+                truncated = true;
+                frame = TRUNCATED;
+                c = parent.children.get(frame);
+                if (c != null) return c;
+            }
+            c = new Node(frame);
+            parent.children.put(frame, c);
+            nodes++;
+            return c;
+        }
+    }
+
+    private CpuProfiler() {}
+
+    /**
+     * Samples all live threads every {@code intervalMillis} for {@code seconds} on the calling
+     * thread, then returns the merged profile. Only one profile runs at a time.
+     */
+    static synchronized Profile sample(int seconds, int intervalMillis) throws InterruptedException {
+        if (seconds < 1 || seconds > MAX_SECONDS) {
+            throw new IllegalArgumentException("seconds must be between 1 and " + MAX_SECONDS);
+        }
+        if (intervalMillis < 1 || intervalMillis > 1000) {
+            throw new IllegalArgumentException("intervalMillis must be between 1 and 1000");
+        }
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        long self = Thread.currentThread().getId();
+        Profile profile = new Profile();
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            long tickStart = System.nanoTime();
+            for (ThreadInfo ti : mx.dumpAllThreads(false, false, MAX_DEPTH)) {
+                if (ti == null || ti.getThreadId() == self) continue;
+                if (ti.getThreadState() != Thread.State.RUNNABLE) continue;
+                StackTraceElement[] stack = ti.getStackTrace();
+                if (stack.length == 0) continue;
+                profile.add(stack);
+            }
+            profile.ticks++;
+            long sleepNanos = intervalMillis * 1_000_000L - (System.nanoTime() - tickStart);
+            if (sleepNanos > 0) Thread.sleep(sleepNanos / 1_000_000L, (int) (sleepNanos % 1_000_000L));
+        }
+        return profile;
+    }
+
+    /** One "frame;frame;... count" line per stack that has samples ending in it. */
+    static String collapsed(Profile profile) {
+        StringBuilder sb = new StringBuilder();
+        List<String> path = new ArrayList<>();
+        appendCollapsed(profile.root, path, sb);
+        return sb.toString();
+    }
+
+    private static void appendCollapsed(Node n, List<String> path, StringBuilder sb) {
+        if (n.self > 0 && !path.isEmpty()) {
+            sb.append(String.join(";", path)).append(' ').append(n.self).append('\n');
+        }
+        for (Node c : n.children.values()) {
+            // Collapsed format reserves ';' and ' ' as separators.
+            path.add(c.frame.replace(';', ':').replace(' ', '_'));
+            appendCollapsed(c, path, sb);
+            path.remove(path.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.baader.devrt;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-endpoint latency for Spring MVC. Handler methods are discovered from every
+ * RequestMappingHandlerMapping in the bound context and instrumented as a single
+ * windowed probe, so the whole table is removed again with one call.
+ */
+final class EndpointLatency {
+
+    private static final String HANDLER_MAPPING =
+            "org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping";
+
+    private static volatile MethodProbes.Probe probe;
+
+    private EndpointLatency() {}
+
+    static boolean isInstalled() {
+        MethodProbes.Probe p = probe;
+        // The probe may have been dropped through probe/remove in the meantime.
+        return p != null && MethodProbes.exists(p.id);
+    }
+
+    /** Instruments all handler methods unless already done; returns the number of endpoints. */
+    static synchronized int install(Object ctx) throws Exception {
+        if (isInstalled()) return MethodProbes.statsOf(probe.id).size();
+        Map<Method, String> endpoints = discover(ctx);
+        if (endpoints.isEmpty()) {
+            throw new IllegalStateException("No Spring MVC handler methods found in the bound context");
+        }
+        probe = MethodProbes.addMethods("endpoints", endpoints, true);
+        return endpoints.size();
+    }
+
+    static synchronized boolean remove() {
+        MethodProbes.Probe p = probe;
+        probe = null;
+        return p != null && MethodProbes.remove(p.id);
+    }
+
+    /** Handler method → "{GET [/orders/{id}]}"-style label, taken from the mapping info. */
+    static Map<Method, String> discover(Object ctx) throws Exception {
+        ClassLoader cl = ctx.getClass().getClassLoader();
+        Class<?> mappingType;
+        try {
+            mappingType = Class.forName(HANDLER_MAPPING, false, cl);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("spring-webmvc is not on the application classpath");
+        }
+        Map<?, ?> mappings = (Map<?, ?>) ctx.getClass()
+                .getMethod("getBeansOfType", Class.class).invoke(ctx, mappingType);
+        Map<Method, String> out = new LinkedHashMap<>();
+        for (Object mapping : mappings.values()) {
+            Map<?, ?> handlers = (Map<?, ?>) mappingType.getMethod("getHandlerMethods").invoke(mapping);
+            for (Map.Entry<?, ?> e : handlers.entrySet()) {
+                Object handler = e.getValue();
+                Method m = (Method) handler.getClass().getMethod("getMethod").invoke(handler);
+                // One method can carry several mappings; keep them all in the label.
+                out.merge(m, String.valueOf(e.getKey()), (a, b) -> a + " " + b);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Top {@code limit} endpoints by {@code sort} ("p99", "rps" or "count") over the sliding
+     * window. Columns: endpoint, window count, req/s, p50, p95, p99, max (µs), total count, errors.
+     */
+    static String topAsTsv(int limit, String sort) {
+        MethodProbes.Probe p = probe;
+        if (p == null) return "";
+        List<Row> rows = new ArrayList<>();
+        for (Map.Entry<String, MethodProbes.Stats> e : MethodProbes.statsOf(p.id).entrySet()) {
+            MethodProbes.Stats s = e.getValue();
+            if (s.window == null) continue;
+            rows.add(new Row(e.getKey(), s, s.window.snapshot()));
+        }
+        Comparator<Row> order = switch (sort == null ? "" : sort.toLowerCase(Locale.ROOT)) {
+            case "rps", "throughput" -> Comparator.comparingDouble(r -> r.window.perSecond());
+            case "count" -> Comparator.comparingLong(r -> r.stats.latency.count());
+            default -> Comparator.comparingLong(r -> r.window.p99);
+        };
+        rows.sort(order.reversed());
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rows.size() && i < limit; i++) {
+            Row r = rows.get(i);
+            sb.append(r.label).append('\t')
+              .append(r.window.count).append('\t')
+              .append(String.format(Locale.ROOT, "%.2f", r.window.perSecond())).append('\t')
+              .append(MethodProbes.micros(r.window.p50)).append('\t')
+              .append(MethodProbes.micros(r.window.p95)).append('\t')
+              .append(MethodProbes.micros(r.window.p99)).append('\t')
+              .append(MethodProbes.micros(r.window.max)).append('\t')
+              .append(r.stats.latency.count()).append('\t')
+              .append(r.stats.errors.sum()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static final class Row {
+        final String label;
+        final MethodProbes.Stats stats;
+        final WindowedHistogram.Snapshot window;
+        Row(String label, MethodProbes.Stats stats, WindowedHistogram.Snapshot window) {
+            this.label = label; this.stats = stats; this.window = window;
+        }
+    }
+}
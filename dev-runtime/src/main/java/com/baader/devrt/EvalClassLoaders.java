@@ -0,0 +1,202 @@
+package com.baader.devrt;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of the class loaders created by the REPL (JavaCodeEvaluator snippets and
+ * JShell sessions). Loaders are only weakly referenced here so the registry itself never
+ * pins metaspace; the optional snippet cache is the only strong holder and is bounded.
+ */
+final class EvalClassLoaders {
+    static final String KIND_EVAL = "eval";
+    static final String KIND_JSHELL = "jshell";
+
+    private static final int MAX_CACHED_SNIPPETS = 64;
+    private static final AtomicLong IDS = new AtomicLong();
+    private static final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private static volatile boolean reuseEnabled = Boolean.getBoolean("devrt.reuseEvalLoaders");
+
+    // (parent loader, compiled source) -> loaded snippet class; the same source compiled under
+    // another context's loader links against other classes. Access-ordered so the oldest
+    // snippet is evicted first.
+    private static final Map<SnippetKey, Cached> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<SnippetKey, Cached> eldest) {
+            if (size() > MAX_CACHED_SNIPPETS) {
+                Entry e = entries.get(eldest.getValue().id);
+                if (e != null) e.released = true;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    static final class Entry {
+        final long id;
+        final String kind;
+        final String label;
+        final long createdAt = System.currentTimeMillis();
+        final WeakReference<Object> target;
+        final int classCount;
+        final long bytecodeBytes;
+        volatile boolean released;
+
+        Entry(long id, String kind, String label, Object target, int classCount, long bytecodeBytes) {
+            this.id = id; this.kind = kind; this.label = label;
+            this.target = new WeakReference<>(target);
+            this.classCount = classCount; this.bytecodeBytes = bytecodeBytes;
+        }
+
+        boolean isCollected() { return target.get() == null; }
+    }
+
+    private record SnippetKey(ClassLoader parent, String source) {}
+
+    private static final class Cached {
+        final long id; final Class<?> clazz;
+        Cached(long id, Class<?> clazz) { this.id = id; this.clazz = clazz; }
+    }
+
+    private EvalClassLoaders() {}
+
+    static boolean isReuseEnabled() { return reuseEnabled; }
+
+    static void setReuseEnabled(boolean enabled) {
+        reuseEnabled = enabled;
+        if (!enabled) releaseCached();
+    }
+
+    /** Registers a freshly created snippet loader and returns its id. */
+    static long registerEvalLoader(ClassLoader loader, Map<String, byte[]> classes) {
+        return registerEvalLoader(loader, classes, reuseEnabled);
+    }
+
+    /** As above; {@code pinned} means the caller keeps the loader alive until it calls release(). */
+    static long registerEvalLoader(ClassLoader loader, Map<String, byte[]> classes, boolean pinned) {
+        long bytes = 0;
+        for (byte[] b : classes.values()) bytes += b.length;
+        long id = IDS.incrementAndGet();
+        Entry e = new Entry(id, KIND_EVAL, String.join(",", classes.keySet()), loader, classes.size(), bytes);
+        // Unpinned loaders are referenced only by the running snippet.
+        e.released = !pinned;
+        entries.put(id, e);
+        purgeCollected();
+        return id;
+    }
+
+    /** Registers a JShell session; its loader is internal to JShell, so the session itself is tracked. */
+    static long registerJShell(Object session) {
+        long id = IDS.incrementAndGet();
+        entries.put(id, new Entry(id, KIND_JSHELL, "session@" + Integer.toHexString(System.identityHashCode(session)), session, 0, 0));
+        purgeCollected();
+        return id;
+    }
+
+    static Class<?> cachedClass(ClassLoader parent, String source) {
+        if (!reuseEnabled) return null;
+        synchronized (cache) {
+            Cached c = cache.get(new SnippetKey(parent, source));
+            return c != null ? c.clazz : null;
+        }
+    }
+
+    static void cache(ClassLoader parent, String source, long id, Class<?> clazz) {
+        if (!reuseEnabled) return;
+        synchronized (cache) {
+            cache.put(new SnippetKey(parent, source), new Cached(id, clazz));
+        }
+    }
+
+    /** Drops every strong reference the REPL holds for the given loader id. */
+    static boolean release(long id) {
+        Entry e = entries.get(id);
+        if (e == null) return false;
+        e.released = true;
+        synchronized (cache) {
+            cache.values().removeIf(c -> c.id == id);
+        }
+        return true;
+    }
+
+    static int releaseCached() {
+        synchronized (cache) {
+            int n = cache.size();
+            for (Cached c : cache.values()) {
+                Entry e = entries.get(c.id);
+                if (e != null) e.released = true;
+            }
+            cache.clear();
+            return n;
+        }
+    }
+
+    static Entry get(long id) { return entries.get(id); }
+
+    static Collection<Entry> entries() { return new ArrayList<>(entries.values()); }
+
+    /** Forgets entries whose loader was released and has already been collected. */
+    static void purgeCollected() {
+        entries.values().removeIf(e -> e.released && e.isCollected());
+    }
+
+    /**
+     * TSV report: one row per loader (id, kind, state, classes, bytecode bytes, age ms, label),
+     * followed by JVM-wide metaspace and class-unloading totals.
+     */
+    static String reportAsTsv() {
+        StringBuilder sb = new StringBuilder();
+        long now = System.currentTimeMillis();
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort((a, b) -> Long.compare(a.id, b.id));
+        for (Entry e : sorted) {
+            String state = e.isCollected() ? "unloaded" : (e.released ? "released" : "live");
+            sb.append(e.id).append('\t')
+              .append(e.kind).append('\t')
+              .append(state).append('\t')
+              .append(e.classCount).append('\t')
+              .append(e.bytecodeBytes).append('\t')
+              .append(now - e.createdAt).append('\t')
+              .append(e.label).append('\n');
+        }
+        sb.append("# metaspace.used\t").append(metaspaceUsed()).append('\n');
+        try {
+            ClassLoadingMXBean cl = ManagementFactory.getClassLoadingMXBean();
+            sb.append("# classes.loaded\t").append(cl.getLoadedClassCount()).append('\n');
+            sb.append("# classes.unloaded\t").append(cl.getUnloadedClassCount()).append('\n');
+        } catch (Throwable ignored) {}
+        sb.append("# jshell.classes\t").append(countJShellClasses()).append('\n');
+        return sb.toString();
+    }
+
+    static long metaspaceUsed() {
+        try {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if ("Metaspace".equals(pool.getName())) return pool.getUsage().getUsed();
+            }
+        } catch (Throwable ignored) {}
+        return -1;
+    }
+
+    // JShell wraps every snippet into classes of the synthetic REPL package.
+    private static int countJShellClasses() {
+        Instrumentation inst = AgentRuntime.getInstrumentation();
+        if (inst == null) return -1;
+        int n = 0;
+        try {
+            for (Class<?> c : inst.getAllLoadedClasses()) {
+                if (c.getName().startsWith("REPL.")) n++;
+            }
+        } catch (Throwable ignored) {}
+        return n;
+    }
+}
@@ -0,0 +1,131 @@
+package com.baader.devrt;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resource cost of one eval: wall time split into compile and execute, CPU time and bytes
+ * allocated by the handler thread (compiling) plus the snippet threads (executing), and the
+ * GC pauses that ended meanwhile. Pauses come from GarbageCollectorMXBean notifications,
+ * which are delivered shortly after the collection, so a pause at the very end of an eval
+ * may land on the next one. Concurrent cycles (e.g. "ZGC Cycles") are not pauses and are
+ * left out.
+ */
+final class EvalCost {
+
+    private static final ThreadLocal<EvalCost> CURRENT = new ThreadLocal<>();
+    private static final LongAdder gcPauses = new LongAdder();
+    private static final LongAdder gcPauseMillis = new LongAdder();
+    private static boolean listening;
+
+    /** CPU and allocation readings of the current thread; -1 where the JVM can't tell. */
+    static final class Probe {
+        final long wall;
+        final long cpu;
+        final long allocated;
+
+        private Probe(long wall, long cpu, long allocated) {
+            this.wall = wall;
+            this.cpu = cpu;
+            this.allocated = allocated;
+        }
+
+        static Probe now() {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            long cpu = threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+            long allocated = -1;
+            if (threads instanceof com.sun.management.ThreadMXBean sun && sun.isThreadAllocatedMemoryEnabled()) {
+                allocated = sun.getCurrentThreadAllocatedBytes();
+            }
+            return new Probe(System.nanoTime(), cpu, allocated);
+        }
+    }
+
+    private final Probe start;
+    private final long gcCountStart;
+    private final long gcMillisStart;
+    private long executeNanos;
+    private long executeCpu;
+    private long executeAllocated;
+
+    private EvalCost() {
+        this.gcCountStart = gcPauses.sum();
+        this.gcMillisStart = gcPauseMillis.sum();
+        this.start = Probe.now();
+    }
+
+    /** Starts measuring an eval on the calling thread until {@link #end}. */
+    static EvalCost begin() {
+        listenForGc();
+        EvalCost cost = new EvalCost();
+        CURRENT.set(cost);
+        return cost;
+    }
+
+    static EvalCost current() {
+        return CURRENT.get();
+    }
+
+    /** Called on a snippet thread when it finishes, with the probe taken when it started. */
+    synchronized void executed(Probe from) {
+        Probe to = Probe.now();
+        executeNanos += to.wall - from.wall;
+        executeCpu = add(executeCpu, from.cpu, to.cpu);
+        executeAllocated = add(executeAllocated, from.allocated, to.allocated);
+    }
+
+    /**
+     * Stops measuring; keys: wall-ms, compile-ms, execute-ms, cpu-ms, allocated-bytes,
+     * gc-count, gc-ms. CPU and allocation are left out when the JVM does not support them.
+     */
+    synchronized Map<String, Object> end() {
+        CURRENT.remove();
+        Probe end = Probe.now();
+        long wall = end.wall - start.wall;
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("wall-ms", millis(wall));
+        out.put("compile-ms", millis(Math.max(0, wall - executeNanos)));
+        out.put("execute-ms", millis(executeNanos));
+        if (start.cpu >= 0 && executeCpu >= 0) out.put("cpu-ms", millis(end.cpu - start.cpu + executeCpu));
+        if (start.allocated >= 0 && executeAllocated >= 0) {
+            out.put("allocated-bytes", end.allocated - start.allocated + executeAllocated);
+        }
+        out.put("gc-count", gcPauses.sum() - gcCountStart);
+        out.put("gc-ms", gcPauseMillis.sum() - gcMillisStart);
+        return out;
+    }
+
+    private static long add(long total, long from, long to) {
+        return total < 0 || from < 0 || to < 0 ? -1 : total + (to - from);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1e6);
+    }
+
+    private static synchronized void listenForGc() {
+        if (listening) return;
+        listening = true;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(gc instanceof NotificationEmitter emitter)) continue;
+            emitter.addNotificationListener((notification, handback) -> {
+                if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                String name = info.getGcName();
+                if (name.contains("Cycles") || name.contains("Concurrent")) return;
+                gcPauses.increment();
+                gcPauseMillis.add(info.getGcInfo().getDuration());
+            }, null, null);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.baader.devrt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor beans of a context: Spring's ThreadPoolTaskExecutor and ThreadPoolTaskScheduler
+ * (through their underlying executors), ConcurrentTaskExecutor adapters and plain
+ * ThreadPoolExecutor or ForkJoinPool beans. The JDK pools are read directly. Rejections are
+ * counted by a delegating RejectedExecutionHandler installed on first use, so counts start
+ * then. A daemon thread samples every executor into a RingBuffer for trends.
+ */
+final class ExecutorPools {
+
+    static final int DEFAULT_SIZE = 300;
+    static final long DEFAULT_INTERVAL_MILLIS = 1000;
+    // Spring wrappers, innermost last: task executor / scheduler, ConcurrentTaskExecutor(Scheduler).
+    private static final String[] UNWRAP_GETTERS = {
+            "getThreadPoolExecutor", "getScheduledThreadPoolExecutor", "getConcurrentExecutor", "getScheduledExecutor"};
+
+    static final class Sample {
+        final long at;
+        final int poolSize, active;
+        final long queued, completed, rejected;
+        Sample(long at, int poolSize, int active, long queued, long completed, long rejected) {
+            this.at = at; this.poolSize = poolSize; this.active = active;
+            this.queued = queued; this.completed = completed; this.rejected = rejected;
+        }
+    }
+
+    static final class Pool {
+        final String bean;
+        final String kind;
+        final Object owner;
+        final Object executor;
+        final RingBuffer<Sample> samples;
+        volatile CountingRejections rejections;
+
+        Pool(String bean, String kind, Object owner, Object executor, int size) {
+            this.bean = bean; this.kind = kind; this.owner = owner; this.executor = executor;
+            this.samples = new RingBuffer<>(size);
+            countRejections();
+        }
+
+        void countRejections() {
+            if (executor instanceof ThreadPoolExecutor) rejections = CountingRejections.install((ThreadPoolExecutor) executor);
+        }
+
+        /** Rejections since monitoring (re)started; -1 for pools without a rejection handler. */
+        long rejected() {
+            CountingRejections r = rejections;
+            return r != null ? r.count.sum() : -1;
+        }
+    }
+
+    /** Counts, then hands over to the executor's own policy, so behaviour is unchanged. */
+    static final class CountingRejections implements RejectedExecutionHandler {
+        final RejectedExecutionHandler delegate;
+        final LongAdder count = new LongAdder();
+
+        private CountingRejections(RejectedExecutionHandler delegate) { this.delegate = delegate; }
+
+        static CountingRejections install(ThreadPoolExecutor tpe) {
+            synchronized (tpe) {
+                RejectedExecutionHandler h = tpe.getRejectedExecutionHandler();
+                if (h instanceof CountingRejections) return (CountingRejections) h;
+                CountingRejections c = new CountingRejections(h);
+                tpe.setRejectedExecutionHandler(c);
+                return c;
+            }
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            count.increment();
+            delegate.rejectedExecution(r, executor);
+        }
+    }
+
+    private static volatile List<Pool> pools = List.of();
+    private static volatile List<String> unsupported = List.of();
+    // The context the pools were discovered in; setPoolSize rediscovers once another one is in use.
+    private static volatile ContextRegistry.Entry discoveredIn;
+    private static volatile Thread sampler;
+    private static volatile long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+
+    private ExecutorPools() {}
+
+    static boolean isRunning() {
+        Thread t = sampler;
+        return t != null && t.isAlive();
+    }
+
+    static long intervalMillis() { return intervalMillis; }
+
+    static List<Pool> pools() { return pools; }
+
+    /** Executor beans that are not backed by a readable JDK pool, as "bean (class)". */
+    static List<String> unsupported() { return unsupported; }
+
+    /** (Re)discovers the executors and samples them every {@code interval} ms into rings of {@code size}. */
+    static synchronized List<Pool> start(ContextRegistry.Entry entry, long interval, int size) throws ReflectiveOperationException {
+        if (interval < 10) throw new IllegalArgumentException("interval must be at least 10 ms");
+        discover(entry, size);
+        intervalMillis = interval;
+        if (!isRunning()) {
+            Thread t = new Thread(ExecutorPools::run, "dev-runtime-executors");
+            t.setDaemon(true);
+            sampler = t;
+            t.start();
+        }
+        return pools;
+    }
+
+    /** Stops sampling and puts the executors' own rejection handlers back; samples stay readable. */
+    static synchronized boolean stop() {
+        Thread t = sampler;
+        sampler = null;
+        if (t != null) t.interrupt();
+        for (Pool p : pools) {
+            CountingRejections r = p.rejections;
+            if (r == null) continue;
+            ThreadPoolExecutor tpe = (ThreadPoolExecutor) p.executor;
+            synchronized (tpe) {
+                if (tpe.getRejectedExecutionHandler() == r) tpe.setRejectedExecutionHandler(r.delegate);
+            }
+        }
+        return t != null;
+    }
+
+    /** Stops sampling and forgets the discovered pools. */
+    static synchronized void reset() {
+        stop();
+        pools = List.of();
+        unsupported = List.of();
+        discoveredIn = null;
+    }
+
+    private static void run() {
+        while (Thread.currentThread() == sampler) {
+            for (Pool p : pools) p.samples.add(sample(p));
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    static Sample sample(Pool p) {
+        long now = System.currentTimeMillis();
+        if (p.executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor tpe = (ThreadPoolExecutor) p.executor;
+            return new Sample(now, tpe.getPoolSize(), tpe.getActiveCount(), tpe.getQueue().size(),
+                    tpe.getCompletedTaskCount(), p.rejected());
+        }
+        ForkJoinPool fjp = (ForkJoinPool) p.executor;
+        return new Sample(now, fjp.getPoolSize(), fjp.getActiveThreadCount(),
+                fjp.getQueuedSubmissionCount() + fjp.getQueuedTaskCount(), -1, -1);
+    }
+
+    static synchronized List<Pool> discover(ContextRegistry.Entry entry, int size) throws ReflectiveOperationException {
+        List<Pool> found = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        for (Map.Entry<String, Object> e : entry.existingBeansOfType("java.util.concurrent.Executor").entrySet()) {
+            Object bean = e.getValue();
+            Object executor = unwrap(bean);
+            if (executor == null) {
+                skipped.add(e.getKey() + " (" + bean.getClass().getName() + ")");
+                continue;
+            }
+            // An adapter bean and the executor bean it wraps report the same pool once.
+            if (indexOf(found, executor) >= 0) continue;
+            int known = indexOf(pools, executor);
+            if (known >= 0 && pools.get(known).samples.capacity() == size) {
+                Pool p = pools.get(known);
+                p.countRejections();
+                found.add(p);
+            } else {
+                found.add(new Pool(e.getKey(), kindOf(bean, executor), bean, executor, size));
+            }
+        }
+        pools = List.copyOf(found);
+        unsupported = List.copyOf(skipped);
+        discoveredIn = entry;
+        return pools;
+    }
+
+    private static int indexOf(List<Pool> list, Object executor) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).executor == executor) return i;
+        }
+        return -1;
+    }
+
+    /** The ThreadPoolExecutor or ForkJoinPool behind {@code bean}; null for anything else. */
+    static Object unwrap(Object bean) {
+        Object o = bean;
+        for (int depth = 0; o != null && depth < 6; depth++) {
+            if (o instanceof ThreadPoolExecutor || o instanceof ForkJoinPool) return o;
+            Object next = null;
+            for (String getter : UNWRAP_GETTERS) {
+                // getThreadPoolExecutor() throws (and yields null here) before initialization.
+                next = ContextRegistry.invoke(o, getter);
+                if (next != null && next != o) break;
+                next = null;
+            }
+            o = next;
+        }
+        return null;
+    }
+
+    private static String kindOf(Object bean, Object executor) {
+        String name = bean.getClass().getName();
+        if (name.endsWith(".ThreadPoolTaskExecutor")) return "task-executor";
+        if (name.endsWith(".ThreadPoolTaskScheduler")) return "task-scheduler";
+        if (executor instanceof ForkJoinPool) return "fork-join";
+        return executor instanceof java.util.concurrent.ScheduledThreadPoolExecutor ? "scheduled" : "thread-pool";
+    }
+
+    /**
+     * Sets core and/or max size (negative = unchanged). The two are applied in the order
+     * that keeps core &lt;= max at every step, since the JDK rejects either setter otherwise.
+     * Spring's own setters are used when present, so the bean's properties stay in sync.
+     */
+    static synchronized String setPoolSize(ContextRegistry.Entry entry, String bean, int core, int max) throws ReflectiveOperationException {
+        if (pools.isEmpty() || discoveredIn != entry) {
+            discover(entry, pools.isEmpty() ? DEFAULT_SIZE : pools.get(0).samples.capacity());
+        }
+        Pool p = null;
+        for (Pool candidate : pools) {
+            if (candidate.bean.equals(bean)) p = candidate;
+        }
+        if (p == null) throw new IllegalArgumentException("No executor bean '" + bean + "'");
+        if (!(p.executor instanceof ThreadPoolExecutor)) {
+            throw new IllegalArgumentException(bean + " is a ForkJoinPool; its parallelism is fixed");
+        }
+        ThreadPoolExecutor tpe = (ThreadPoolExecutor) p.executor;
+        int oldCore = tpe.getCorePoolSize(), oldMax = tpe.getMaximumPoolSize();
+        int newCore = core >= 0 ? core : oldCore;
+        int newMax = p.kind.equals("task-scheduler") || p.kind.equals("scheduled")
+                ? oldMax // Scheduled pools only ever use core threads.
+                : max > 0 ? max : oldMax;
+        if (newCore > newMax) throw new IllegalArgumentException("core " + newCore + " exceeds max " + newMax);
+        if (newMax >= oldMax) {
+            applyMax(p, tpe, newMax);
+            applyCore(p, tpe, newCore);
+        } else {
+            applyCore(p, tpe, newCore);
+            applyMax(p, tpe, newMax);
+        }
+        return p.bean + ": core " + oldCore + " -> " + tpe.getCorePoolSize()
+                + (newMax != oldMax ? ", max " + oldMax + " -> " + tpe.getMaximumPoolSize() : "");
+    }
+
+    private static void applyCore(Pool p, ThreadPoolExecutor tpe, int core) throws ReflectiveOperationException {
+        if (core == tpe.getCorePoolSize()) return;
+        String setter = p.kind.equals("task-scheduler") ? "setPoolSize" : "setCorePoolSize";
+        if (p.owner != tpe && p.kind.startsWith("task-")) p.owner.getClass().getMethod(setter, int.class).invoke(p.owner, core);
+        else tpe.setCorePoolSize(core);
+    }
+
+    private static void applyMax(Pool p, ThreadPoolExecutor tpe, int max) throws ReflectiveOperationException {
+        if (max == tpe.getMaximumPoolSize()) return;
+        if (p.kind.equals("task-executor")) p.owner.getClass().getMethod("setMaxPoolSize", int.class).invoke(p.owner, max);
+        else tpe.setMaximumPoolSize(max);
+    }
+
+    /**
+     * Current values, read live. Columns: bean, kind, core, max, pool size, largest, active,
+     * queued, remaining queue capacity, completed, rejected (since monitoring began); blank
+     * when the pool type does not report it.
+     */
+    static String poolsAsTsv() {
+        StringBuilder sb = new StringBuilder();
+        for (Pool p : pools) {
+            sb.append(p.bean).append('\t').append(p.kind).append('\t');
+            if (p.executor instanceof ThreadPoolExecutor) {
+                ThreadPoolExecutor tpe = (ThreadPoolExecutor) p.executor;
+                int remaining = tpe.getQueue().remainingCapacity();
+                sb.append(tpe.getCorePoolSize()).append('\t').append(tpe.getMaximumPoolSize()).append('\t')
+                  .append(tpe.getPoolSize()).append('\t').append(tpe.getLargestPoolSize()).append('\t')
+                  .append(tpe.getActiveCount()).append('\t').append(tpe.getQueue().size()).append('\t')
+                  .append(remaining == Integer.MAX_VALUE ? "" : remaining).append('\t')
+                  .append(tpe.getCompletedTaskCount()).append('\t').append(p.rejected()).append('\n');
+            } else {
+                ForkJoinPool fjp = (ForkJoinPool) p.executor;
+                sb.append(fjp.getParallelism()).append('\t').append(fjp.getParallelism()).append('\t')
+                  .append(fjp.getPoolSize()).append('\t').append("").append('\t')
+                  .append(fjp.getActiveThreadCount()).append('\t')
+                  .append(fjp.getQueuedSubmissionCount() + fjp.getQueuedTaskCount()).append('\t')
+                  .append("\t\t\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Samples newer than {@code since} (epoch ms). Columns: bean, time, pool size, active, queued, completed, rejected. */
+    static String samplesAsTsv(long since) {
+        StringBuilder sb = new StringBuilder();
+        for (Pool p : pools) {
+            for (Sample s : p.samples.snapshot()) {
+                if (s.at <= since) continue;
+                sb.append(p.bean).append('\t').append(s.at).append('\t').append(s.poolSize).append('\t')
+                  .append(s.active).append('\t').append(s.queued).append('\t')
+                  .append(s.completed < 0 ? "" : s.completed).append('\t')
+                  .append(s.rejected < 0 ? "" : s.rejected).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+}
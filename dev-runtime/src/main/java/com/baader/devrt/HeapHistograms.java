@@ -0,0 +1,147 @@
+package com.baader.devrt;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Named class histogram captures taken through the DiagnosticCommand MBean (the same
+ * data as {@code jcmd GC.class_histogram}), plus per-class diffs between two captures.
+ */
+final class HeapHistograms {
+
+    static final int MAX_CAPTURES = 16;
+    // " 1:        123456      7890123  java.lang.String (java.base@17)"
+    private static final Pattern ROW = Pattern.compile("^\\s*\\d+:\\s+(\\d+)\\s+(\\d+)\\s+(\\S+)");
+
+    static final class Row {
+        final String className;
+        final long instances;
+        final long bytes;
+        Row(String className, long instances, long bytes) {
+            this.className = className; this.instances = instances; this.bytes = bytes;
+        }
+    }
+
+    static final class Capture {
+        final String name;
+        final long timestamp;
+        final Map<String, Row> rows;
+        final long totalBytes;
+        Capture(String name, long timestamp, Map<String, Row> rows) {
+            this.name = name; this.timestamp = timestamp; this.rows = rows;
+            long total = 0;
+            for (Row r : rows.values()) total += r.bytes;
+            this.totalBytes = total;
+        }
+    }
+
+    static final class Delta {
+        final String className;
+        final long instances;
+        final long bytes;
+        Delta(String className, long instances, long bytes) {
+            this.className = className; this.instances = instances; this.bytes = bytes;
+        }
+    }
+
+    private static final AtomicInteger IDS = new AtomicInteger();
+    // Insertion ordered so the oldest capture is dropped first.
+    private static final Map<String, Capture> captures = new LinkedHashMap<>();
+
+    private HeapHistograms() {}
+
+    /**
+     * Takes a histogram and stores it under {@code name} (generated when blank). Unless
+     * {@code all} is set only live objects are counted, which forces a full GC first.
+     */
+    static Capture capture(String name, boolean all) throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName dcmd = new ObjectName("com.sun.management:type=DiagnosticCommand");
+        String[] args = all ? new String[] {"-all"} : new String[0];
+        String out = (String) server.invoke(dcmd, "gcClassHistogram",
+                new Object[] {args}, new String[] {String[].class.getName()});
+        String id = (name == null || name.isBlank()) ? "h" + IDS.incrementAndGet() : name.trim();
+        Capture c = new Capture(id, System.currentTimeMillis(), parse(out));
+        synchronized (captures) {
+            captures.remove(id);
+            captures.put(id, c);
+            while (captures.size() > MAX_CAPTURES) {
+                captures.remove(captures.keySet().iterator().next());
+            }
+        }
+        return c;
+    }
+
+    static Map<String, Row> parse(String histogram) {
+        Map<String, Row> rows = new HashMap<>();
+        for (String line : histogram.split("\n")) {
+            Matcher m = ROW.matcher(line);
+            if (!m.find()) continue;
+            Row r = new Row(m.group(3), Long.parseLong(m.group(1)), Long.parseLong(m.group(2)));
+            // The same name can appear once per class loader; fold them together.
+            rows.merge(r.className, r, (a, b) -> new Row(a.className, a.instances + b.instances, a.bytes + b.bytes));
+        }
+        return rows;
+    }
+
+    static Capture get(String name) {
+        synchronized (captures) { return captures.get(name); }
+    }
+
+    static List<Capture> list() {
+        synchronized (captures) { return new ArrayList<>(captures.values()); }
+    }
+
+    static boolean remove(String name) {
+        synchronized (captures) { return captures.remove(name) != null; }
+    }
+
+    /** Per-class change from {@code from} to {@code to}, largest byte growth first. */
+    static List<Delta> diff(Capture from, Capture to) {
+        Set<String> names = new HashSet<>(from.rows.keySet());
+        names.addAll(to.rows.keySet());
+        List<Delta> out = new ArrayList<>();
+        for (String cls : names) {
+            Row a = from.rows.get(cls);
+            Row b = to.rows.get(cls);
+            long di = (b == null ? 0 : b.instances) - (a == null ? 0 : a.instances);
+            long db = (b == null ? 0 : b.bytes) - (a == null ? 0 : a.bytes);
+            if (di != 0 || db != 0) out.add(new Delta(cls, di, db));
+        }
+        out.sort((x, y) -> x.bytes != y.bytes ? Long.compare(y.bytes, x.bytes) : Long.compare(y.instances, x.instances));
+        return out;
+    }
+
+    /** Columns: class, instances, bytes; largest first. */
+    static String toTsv(Capture c, int limit) {
+        List<Row> rows = new ArrayList<>(c.rows.values());
+        rows.sort((x, y) -> Long.compare(y.bytes, x.bytes));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rows.size() && i < limit; i++) {
+            Row r = rows.get(i);
+            sb.append(r.className).append('\t').append(r.instances).append('\t').append(r.bytes).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** Columns: class, instance delta, byte delta. */
+    static String diffAsTsv(List<Delta> deltas, int limit) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < deltas.size() && i < limit; i++) {
+            Delta d = deltas.get(i);
+            sb.append(d.className).append('\t').append(d.instances).append('\t').append(d.bytes).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -2,25 +2,28 @@ package com.baader.devrt;
 
 import jdk.jshell.Diag;
 import jdk.jshell.JShell;
+import jdk.jshell.Snippet;
 import jdk.jshell.SnippetEvent;
-import jdk.jshell.execution.LocalExecutionControlProvider;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Stateful JShell session: imports/definitions/values are persisted.
- * LocalExecutionControl ensures it runs in the same JVM process, allowing
- * access to the live Spring context.
+ * Local (in-process) execution allows access to the live Spring context;
+ * MeteredExecutionControl additionally reports each snippet's cost to EvalCost.
  */
 public final class JShellSession implements AutoCloseable {
     private final JShell jshell;
     private final Set<String> rememberedImports = new LinkedHashSet<>();
+    private final long loaderId;
 
     public JShellSession(Object applicationContext) {
         this.jshell = JShell.builder()
-                .executionEngine(new LocalExecutionControlProvider(), null)
+                .executionEngine(new MeteredExecutionControl.Provider(), null)
                 .build();
+        this.loaderId = EvalClassLoaders.registerJShell(this);
 
         // Make ReplBindings available in the shell and inject the context
         jshell.eval("import " + ReplBindings.class.getName() + ";");
@@ -188,7 +191,48 @@ public final class JShellSession implements AutoCloseable {
         return new EvalResult(values, output.toString(), getImports());
     }
 
-    @Override public void close() { jshell.close(); }
+    /**
+     * Compiles {@code snippet} once into a Supplier that runs it, for benchmarking. An
+     * expression's value is returned; a statement block yields null. The helper snippet is
+     * dropped again, so repeated calls leave nothing behind in the session.
+     */
+    @SuppressWarnings("unchecked")
+    public Supplier<Object> compileSupplier(String snippet) {
+        String body = snippet.trim();
+        while (body.endsWith(";")) body = body.substring(0, body.length() - 1).trim();
+        String key = "__supplier" + System.nanoTime();
+        String[] forms = {
+                "(java.util.function.Supplier<Object>) () -> (Object) (" + body + ")",
+                "(java.util.function.Supplier<Object>) () -> { " + body + "; return null; }"
+        };
+        StringBuilder errors = new StringBuilder();
+        for (String form : forms) {
+            errors.setLength(0);
+            for (SnippetEvent e : jshell.eval("ReplBindings.put(\"" + key + "\", " + form + ");")) {
+                if (e.exception() != null) errors.append(e.exception()).append('\n');
+                Snippet sn = e.snippet();
+                if (sn != null && e.causeSnippet() == null) {
+                    jshell.diagnostics(sn).forEach(d ->
+                            errors.append(d.getMessage(Locale.getDefault())).append('\n'));
+                    // The compiled lambda keeps working after its snippet is dropped.
+                    if (jshell.status(sn).isActive()) jshell.drop(sn);
+                }
+            }
+            Object supplier = ReplBindings.remove(key);
+            if (supplier != null) return (Supplier<Object>) supplier;
+        }
+        throw new IllegalArgumentException("Snippet does not compile: " + errors.toString().trim());
+    }
+
+    /** Snippets currently defined or executed in the session. */
+    long activeSnippetCount() {
+        return jshell.snippets().filter(sn -> jshell.status(sn).isActive()).count();
+    }
+
+    @Override public void close() {
+        jshell.close();
+        EvalClassLoaders.release(loaderId);
+    }
 
     /** DTO for evaluation results. */
     public record EvalResult(List<String> values, String output, List<String> imports) {
@@ -19,6 +19,7 @@ class JavaCodeEvaluator {
     );
     static final class EvalObj { final Object obj; final String error; EvalObj(Object o,String e){obj=o;error=e;} }
     static final class HotSwapResult { final boolean success; final String message; final String error; HotSwapResult(boolean s, String m, String e){success=s;message=m;error=e;} }
+    static final class SnippetClass { final Class<?> clazz; final String error; SnippetClass(Class<?> c, String e){clazz=c;error=e;} }
     static final class CompileOutput { final Map<String, byte[]> classes; final String error; CompileOutput(Map<String, byte[]> c, String e){classes=c;error=e;} }
 
     public static void setVariable(String name, Object value) {
@@ -39,31 +40,9 @@ class JavaCodeEvaluator {
 
     static EvalResult evaluate(String code) {
         try {
-            String className = containsTypeDefinition(code) ? extractClassName(code, "DynamicJavaClass") : "DynamicJavaClass";
-            String full = containsTypeDefinition(code) ? code : wrap(code, className);
-
-            JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-            if (compiler == null) return new EvalResult(null, "Java compiler not available (JRE?). Use JDK.");
-
-            DiagnosticCollector<JavaFileObject> diags = new DiagnosticCollector<>();
-            StandardJavaFileManager fm = compiler.getStandardFileManager(diags, null, null);
-            JavaSourceFromString src = new JavaSourceFromString(className, full);
-            InMemoryFileManager mem = new InMemoryFileManager(fm);
-            JavaCompiler.CompilationTask task = compiler.getTask(null, mem, diags,
-                    Arrays.asList("-source","17","-target","17","-proc:none"), null, Arrays.asList(src));
-            if (!task.call()) {
-                StringBuilder sb = new StringBuilder("Compilation failed:\n");
-                for (Diagnostic<? extends JavaFileObject> d : diags.getDiagnostics()) {
-                    sb.append("Line ").append(d.getLineNumber()).append(": ").append(d.getMessage(null)).append('\n');
-                }
-                return new EvalResult(null, sb.toString());
-            }
-            ClassLoader parent = resolveAppClassLoader();
-            InMemoryClassLoader cl = new InMemoryClassLoader(parent, mem.getCompiledClasses());
-            Class<?> clazz = cl.loadClass(className);
-            Method run = clazz.getMethod("run");
-            Object instance = clazz.getDeclaredConstructor().newInstance();
-            Object res = run.invoke(instance);
+            SnippetClass loaded = loadSnippetClass(code);
+            if (loaded.error != null) return new EvalResult(null, loaded.error);
+            Object res = runSnippet(loaded.clazz);
             return new EvalResult(res != null ? String.valueOf(res) : "null", null);
         } catch (Throwable t) {
             StringWriter sw = new StringWriter(); t.printStackTrace(new PrintWriter(sw));
@@ -73,38 +52,43 @@ class JavaCodeEvaluator {
 
     static EvalObj evaluateObject(String code) {
         try {
-            String className = containsTypeDefinition(code) ? extractClassName(code, "DynamicJavaClass") : "DynamicJavaClass";
-            String full = containsTypeDefinition(code) ? code : wrap(code, className);
-
-            JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-            if (compiler == null) return new EvalObj(null, "Java compiler not available (JRE?). Use JDK.");
-
-            DiagnosticCollector<JavaFileObject> diags = new DiagnosticCollector<>();
-            StandardJavaFileManager fm = compiler.getStandardFileManager(diags, null, null);
-            JavaSourceFromString src = new JavaSourceFromString(className, full);
-            InMemoryFileManager mem = new InMemoryFileManager(fm);
-            JavaCompiler.CompilationTask task = compiler.getTask(null, mem, diags,
-                    Arrays.asList("-source","17","-target","17","-proc:none"), null, Arrays.asList(src));
-            if (!task.call()) {
-                StringBuilder sb = new StringBuilder("Compilation failed:\n");
-                for (Diagnostic<? extends JavaFileObject> d : diags.getDiagnostics()) {
-                    sb.append("Line ").append(d.getLineNumber()).append(": ").append(d.getMessage(null)).append('\n');
-                }
-                return new EvalObj(null, sb.toString());
-            }
-            ClassLoader parent = resolveAppClassLoader();
-            InMemoryClassLoader cl = new InMemoryClassLoader(parent, mem.getCompiledClasses());
-            Class<?> clazz = cl.loadClass(className);
-            Method run = clazz.getMethod("run");
-            Object instance = clazz.getDeclaredConstructor().newInstance();
-            Object res = run.invoke(instance);
-            return new EvalObj(res, null);
+            SnippetClass loaded = loadSnippetClass(code);
+            if (loaded.error != null) return new EvalObj(null, loaded.error);
+            return new EvalObj(runSnippet(loaded.clazz), null);
         } catch (Throwable t) {
             StringWriter sw = new StringWriter(); t.printStackTrace(new PrintWriter(sw));
             return new EvalObj(null, sw.toString());
         }
     }
 
+    /**
+     * Compiles the snippet into its own InMemoryClassLoader and registers that loader with
+     * EvalClassLoaders. When loader reuse is enabled, an identical snippet under the same
+     * application class loader skips compilation and runs on the class loaded the first time.
+     */
+    static SnippetClass loadSnippetClass(String code) throws Exception {
+        String className = containsTypeDefinition(code) ? extractClassName(code, "DynamicJavaClass") : "DynamicJavaClass";
+        String full = containsTypeDefinition(code) ? code : wrap(code, className);
+
+        ClassLoader parent = resolveAppClassLoader();
+        Class<?> cached = EvalClassLoaders.cachedClass(parent, full);
+        if (cached != null) return new SnippetClass(cached, null);
+
+        CompileOutput compiled = compileRawJava(full, className);
+        if (compiled.error != null) return new SnippetClass(null, compiled.error);
+        InMemoryClassLoader cl = new InMemoryClassLoader(parent, compiled.classes);
+        long loaderId = EvalClassLoaders.registerEvalLoader(cl, compiled.classes);
+        Class<?> clazz = cl.loadClass(className);
+        EvalClassLoaders.cache(parent, full, loaderId, clazz);
+        return new SnippetClass(clazz, null);
+    }
+
+    private static Object runSnippet(Class<?> clazz) throws Exception {
+        Method run = clazz.getMethod("run");
+        Object instance = clazz.getDeclaredConstructor().newInstance();
+        return run.invoke(instance);
+    }
+
     static HotSwapResult hotSwap(String code) {
         if (code == null || code.trim().isEmpty()) {
             return new HotSwapResult(false, null, "No Java source provided");
@@ -167,6 +151,11 @@ class JavaCodeEvaluator {
     }
 
     private static CompileOutput compileRawJava(String code, String binaryName) {
+        return compileRawJava(code, binaryName, List.of());
+    }
+
+    /** Compiles with the JVM class path plus {@code extraClasspath} (directories or jars). */
+    static CompileOutput compileRawJava(String code, String binaryName, List<String> extraClasspath) {
         try {
             JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
             if (compiler == null) return new CompileOutput(null, "Java compiler not available (JRE?). Use JDK.");
@@ -174,8 +163,15 @@ class JavaCodeEvaluator {
             StandardJavaFileManager fm = compiler.getStandardFileManager(diags, null, null);
             JavaSourceFromString src = new JavaSourceFromString(binaryName, code);
             InMemoryFileManager mem = new InMemoryFileManager(fm);
-            JavaCompiler.CompilationTask task = compiler.getTask(null, mem, diags,
-                    Arrays.asList("-source","17","-target","17","-proc:none"), null, Arrays.asList(src));
+            List<String> options = new ArrayList<>(Arrays.asList("-source","17","-target","17","-proc:none"));
+            if (!extraClasspath.isEmpty()) {
+                List<String> cp = new ArrayList<>();
+                cp.add(System.getProperty("java.class.path"));
+                cp.addAll(extraClasspath);
+                options.add("-classpath");
+                options.add(String.join(File.pathSeparator, cp));
+            }
+            JavaCompiler.CompilationTask task = compiler.getTask(null, mem, diags, options, null, Arrays.asList(src));
             if (!task.call()) {
                 StringBuilder sb = new StringBuilder("Compilation failed:\n");
                 for (Diagnostic<? extends JavaFileObject> d : diags.getDiagnostics()) {
@@ -219,55 +215,17 @@ class JavaCodeEvaluator {
     }
 
     private static ClassLoader resolveAppClassLoader() {
-        try {
-            Class<?> holder = Class.forName("com.baader.devrt.SpringContextHolder");
-            Method gm = holder.getMethod("get");
-            Object ctx = gm.invoke(null);
-            if (ctx != null) {
-                try {
-                    Class<?> cac = Class.forName("org.springframework.context.ConfigurableApplicationContext");
-                    if (cac.isInstance(ctx)) {
-                        Method getBF = cac.getMethod("getBeanFactory");
-                        Object bf = getBF.invoke(ctx);
-                        Method getBCL = bf.getClass().getMethod("getBeanClassLoader");
-                        Object bcl = getBCL.invoke(bf);
-                        if (bcl instanceof ClassLoader) return (ClassLoader) bcl;
-                    }
-                } catch (Throwable ignored) {}
-                ClassLoader cl = ctx.getClass().getClassLoader();
-                if (cl != null) return cl;
-            }
-        } catch (Throwable ignored) {}
-        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        // Cached per context by the registry (bean class loader, else the context's own loader).
+        ContextRegistry.Entry current = ContextRegistry.current();
+        ClassLoader cl = current != null ? current.classLoader() : null;
+        if (cl == null) cl = Thread.currentThread().getContextClassLoader();
         if (cl == null) cl = JavaCodeEvaluator.class.getClassLoader();
         return cl;
     }
 
     // Resolve a class with the application bean class loader if possible
     static Class<?> resolveAppClass(String fqn) throws Exception {
-        ClassLoader cl = null;
-        try {
-            Class<?> holder = Class.forName("com.baader.devrt.SpringContextHolder");
-            Method gm = holder.getMethod("get");
-            Object ctx = gm.invoke(null);
-            if (ctx != null) {
-                // try bean factory class loader
-                try {
-                    Class<?> cac = Class.forName("org.springframework.context.ConfigurableApplicationContext");
-                    if (cac.isInstance(ctx)) {
-                        Method getBF = cac.getMethod("getBeanFactory");
-                        Object bf = getBF.invoke(ctx);
-                        Method getBCL = bf.getClass().getMethod("getBeanClassLoader");
-                        Object bcl = getBCL.invoke(bf);
-                        if (bcl instanceof ClassLoader) cl = (ClassLoader) bcl;
-                    }
-                } catch (Throwable ignored) {}
-                if (cl == null) cl = ctx.getClass().getClassLoader();
-            }
-        } catch (Throwable ignored) {}
-        if (cl == null) cl = Thread.currentThread().getContextClassLoader();
-        if (cl == null) cl = JavaCodeEvaluator.class.getClassLoader();
-        return Class.forName(fqn, true, cl);
+        return Class.forName(fqn, true, resolveAppClassLoader());
     }
 
     private static boolean containsTypeDefinition(String s) {
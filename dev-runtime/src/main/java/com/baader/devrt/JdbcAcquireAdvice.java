@@ -0,0 +1,20 @@
+package com.baader.devrt;
+
+import net.bytebuddy.asm.Advice;
+
+/**
+ * Inlined into HikariPool and Tomcat's ConnectionPool by JdbcPools. Failed borrows are
+ * timed too: an acquire timeout is exactly the latency cliff the monitor is for.
+ */
+public class JdbcAcquireAdvice {
+
+    @Advice.OnMethodEnter
+    public static long onEnter() {
+        return System.nanoTime();
+    }
+
+    @Advice.OnMethodExit(onThrowable = Throwable.class)
+    public static void onExit(@Advice.This Object pool, @Advice.Enter long start) {
+        JdbcPools.acquired(pool, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,402 @@
+package com.baader.devrt;
+
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.matcher.ElementMatchers;
+
+import javax.sql.DataSource;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection pool monitor for DataSource beans. HikariCP and Tomcat JDBC pools are found
+ * behind Spring's DataSource proxies, and a daemon thread samples active, idle, waiting and
+ * total connections into a RingBuffer per pool. Acquire times come from JdbcAcquireAdvice
+ * on the pools' own borrow methods and are aggregated per sampling interval. Pool sizes
+ * can be changed live, through HikariConfigMXBean or Tomcat's shared pool properties.
+ */
+public final class JdbcPools {
+
+    static final int DEFAULT_SIZE = 300;
+    static final long DEFAULT_INTERVAL_MILLIS = 1000;
+    private static final String HIKARI_DATA_SOURCE = "com.zaxxer.hikari.HikariDataSource";
+    private static final String TOMCAT_DATA_SOURCE = "org.apache.tomcat.jdbc.pool.DataSourceProxy";
+
+    /** One sampling tick; -1 where the pool does not report a value. */
+    static final class Sample {
+        final long at;
+        final int active, idle, waiting, total, max;
+        final long acquires;
+        final long acquireAvgNanos, acquireMaxNanos;
+        Sample(long at, int[] counts, long acquires, long acquireAvgNanos, long acquireMaxNanos) {
+            this.at = at;
+            this.active = counts[0]; this.idle = counts[1]; this.waiting = counts[2];
+            this.total = counts[3]; this.max = counts[4];
+            this.acquires = acquires; this.acquireAvgNanos = acquireAvgNanos; this.acquireMaxNanos = acquireMaxNanos;
+        }
+    }
+
+    static final class Pool {
+        final String bean;
+        final Adapter adapter;
+        final RingBuffer<Sample> samples;
+        private final LongAdder acquires = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final AtomicLong acquireMax = new AtomicLong();
+        // The internal pool object the acquire advice reports from.
+        volatile Object target;
+
+        Pool(String bean, Adapter adapter, int size) {
+            this.bean = bean; this.adapter = adapter; this.samples = new RingBuffer<>(size);
+        }
+
+        void recordAcquire(long nanos) {
+            acquires.increment();
+            acquireNanos.add(nanos);
+            acquireMax.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    /** Reads and resizes one kind of pool; resolved once per data source. */
+    abstract static class Adapter {
+        final Object dataSource;
+        Adapter(Object dataSource) { this.dataSource = dataSource; }
+
+        abstract String kind();
+
+        /** The pool instance acquires run in; null while the pool has not started. */
+        abstract Object target() throws ReflectiveOperationException;
+
+        /** active, idle, waiting, total, max; -1 when unknown. */
+        abstract int[] read() throws ReflectiveOperationException;
+
+        /** Applies a new maximum and (when non-negative) minimum idle; returns a description. */
+        abstract String resize(int max, int minIdle) throws ReflectiveOperationException;
+    }
+
+    private static volatile List<Pool> pools = List.of();
+    private static volatile List<String> unsupported = List.of();
+    // The context the pools were discovered in; resize rediscovers once another one is in use.
+    private static volatile ContextRegistry.Entry discoveredIn;
+    private static volatile Thread sampler;
+    private static volatile long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+    private static ResettableClassFileTransformer acquireAdvice;
+
+    private JdbcPools() {}
+
+    /** Called from inlined advice when a pool hands out a connection. */
+    public static void acquired(Object pool, long nanos) {
+        for (Pool p : pools) {
+            if (p.target == pool) {
+                p.recordAcquire(nanos);
+                return;
+            }
+        }
+    }
+
+    static boolean isRunning() {
+        Thread t = sampler;
+        return t != null && t.isAlive();
+    }
+
+    static long intervalMillis() { return intervalMillis; }
+
+    static List<Pool> pools() { return pools; }
+
+    /** DataSource beans that are not a known pool, as "bean (class)". */
+    static List<String> unsupported() { return unsupported; }
+
+    /**
+     * (Re)discovers the pools of {@code entry} and samples them every {@code interval} ms
+     * into rings of {@code size}. Pools seen before keep their history when the size is
+     * unchanged. A new interval applies after the current sleep.
+     */
+    static synchronized List<Pool> start(ContextRegistry.Entry entry, long interval, int size) throws ReflectiveOperationException {
+        if (interval < 10) throw new IllegalArgumentException("interval must be at least 10 ms");
+        discover(entry, size);
+        intervalMillis = interval;
+        installAcquireAdvice();
+        if (!isRunning()) {
+            Thread t = new Thread(JdbcPools::run, "dev-runtime-jdbc-pools");
+            t.setDaemon(true);
+            sampler = t;
+            t.start();
+        }
+        return pools;
+    }
+
+    /** Stops sampling and removes the acquire advice; collected samples stay readable. */
+    static synchronized boolean stop() {
+        Thread t = sampler;
+        sampler = null;
+        if (t != null) t.interrupt();
+        if (acquireAdvice != null) {
+            AdviceInstaller.reset(acquireAdvice);
+            acquireAdvice = null;
+        }
+        for (Pool p : pools) p.target = null;
+        return t != null;
+    }
+
+    /** Stops sampling and forgets the discovered pools. */
+    static synchronized void reset() {
+        stop();
+        pools = List.of();
+        unsupported = List.of();
+        discoveredIn = null;
+    }
+
+    private static void run() {
+        while (Thread.currentThread() == sampler) {
+            for (Pool p : pools) {
+                try {
+                    p.samples.add(sample(p));
+                } catch (Throwable ignored) {
+                    // A pool being closed or restarted; try again next tick.
+                }
+            }
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /** Reads the pool and drains the acquire times recorded since the previous sample. */
+    static Sample sample(Pool p) throws ReflectiveOperationException {
+        p.target = p.adapter.target();
+        int[] counts = p.adapter.read();
+        long n = p.acquires.sumThenReset();
+        long nanos = p.acquireNanos.sumThenReset();
+        long max = p.acquireMax.getAndSet(0);
+        return new Sample(System.currentTimeMillis(), counts, n, n > 0 ? nanos / n : -1, n > 0 ? max : -1);
+    }
+
+    static synchronized List<Pool> discover(ContextRegistry.Entry entry, int size) throws ReflectiveOperationException {
+        List<Pool> found = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        ClassLoader cl = entry.classLoader();
+        Class<?> hikari = optionalClass(HIKARI_DATA_SOURCE, cl);
+        Class<?> tomcat = optionalClass(TOMCAT_DATA_SOURCE, cl);
+        for (Map.Entry<String, Object> e : entry.existingBeansOfType("javax.sql.DataSource").entrySet()) {
+            Object raw;
+            Adapter adapter = null;
+            if ((raw = unwrap(e.getValue(), hikari)) != null) adapter = new Hikari(raw, hikari);
+            else if ((raw = unwrap(e.getValue(), tomcat)) != null) adapter = new Tomcat(raw, tomcat);
+            if (adapter == null) {
+                skipped.add(e.getKey() + " (" + e.getValue().getClass().getName() + ")");
+                continue;
+            }
+            // A proxy bean and the pool bean it wraps report the same pool once.
+            if (indexOf(found, raw) >= 0) continue;
+            int known = indexOf(pools, raw);
+            found.add(known >= 0 && pools.get(known).samples.capacity() == size
+                    ? pools.get(known) : new Pool(e.getKey(), adapter, size));
+        }
+        pools = List.copyOf(found);
+        unsupported = List.copyOf(skipped);
+        discoveredIn = entry;
+        return pools;
+    }
+
+    private static int indexOf(List<Pool> list, Object dataSource) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).adapter.dataSource == dataSource) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * {@code ds} itself, what it unwraps to through JDBC's Wrapper, or the target of a
+     * Spring DelegatingDataSource chain, if that is a {@code type}.
+     */
+    static Object unwrap(Object ds, Class<?> type) {
+        if (type == null) return null;
+        for (int depth = 0; ds != null && depth < 8; depth++) {
+            if (type.isInstance(ds)) return ds;
+            if (ds instanceof DataSource) {
+                try {
+                    if (((DataSource) ds).isWrapperFor(type)) return ((DataSource) ds).unwrap(type);
+                } catch (Exception | LinkageError ignored) {}
+            }
+            ds = ContextRegistry.invoke(ds, "getTargetDataSource");
+        }
+        return null;
+    }
+
+    /** Resizes a pool by bean name; {@code minIdle} is left alone when negative. */
+    static synchronized String resize(ContextRegistry.Entry entry, String bean, int max, int minIdle) throws ReflectiveOperationException {
+        if (max < 1) throw new IllegalArgumentException("max must be at least 1");
+        if (pools.isEmpty() || discoveredIn != entry) {
+            discover(entry, pools.isEmpty() ? DEFAULT_SIZE : pools.get(0).samples.capacity());
+        }
+        for (Pool p : pools) {
+            if (p.bean.equals(bean) || pools.size() == 1 && bean.isEmpty()) return p.bean + ": " + p.adapter.resize(max, minIdle);
+        }
+        throw new IllegalArgumentException("No connection pool bean '" + bean + "'");
+    }
+
+    private static synchronized void installAcquireAdvice() {
+        Instrumentation inst = AgentRuntime.getInstrumentation();
+        if (acquireAdvice != null || inst == null) return;
+        acquireAdvice = AdviceInstaller.install(inst,
+                ElementMatchers.named("com.zaxxer.hikari.pool.HikariPool")
+                        .or(ElementMatchers.named("org.apache.tomcat.jdbc.pool.ConnectionPool")),
+                // HikariPool.getConnection() delegates to the timeout variant; Tomcat's public
+                // getConnection overloads both go through the three-argument borrowConnection.
+                ElementMatchers.named("getConnection").and(ElementMatchers.takesArguments(long.class))
+                        .or(ElementMatchers.named("borrowConnection").and(ElementMatchers.takesArguments(3))),
+                JdbcAcquireAdvice.class, (type, method) -> {});
+    }
+
+    private static Class<?> optionalClass(String name, ClassLoader cl) {
+        try {
+            return Class.forName(name, false, cl);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /** Columns: pool, kind, data source class, current max. */
+    static String poolsAsTsv() {
+        StringBuilder sb = new StringBuilder();
+        for (Pool p : pools) {
+            List<Sample> s = p.samples.snapshot();
+            sb.append(p.bean).append('\t').append(p.adapter.kind()).append('\t')
+              .append(p.adapter.dataSource.getClass().getName()).append('\t')
+              .append(s.isEmpty() ? "" : known(s.get(s.size() - 1).max)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Samples newer than {@code since} (epoch ms), oldest first per pool. Columns: pool, time
+     * (epoch ms), active, idle, waiting, total, max, acquires, acquire avg ms, acquire max ms.
+     */
+    static String samplesAsTsv(long since) {
+        StringBuilder sb = new StringBuilder();
+        for (Pool p : pools) {
+            for (Sample s : p.samples.snapshot()) {
+                if (s.at <= since) continue;
+                sb.append(p.bean).append('\t').append(s.at).append('\t')
+                  .append(known(s.active)).append('\t').append(known(s.idle)).append('\t')
+                  .append(known(s.waiting)).append('\t').append(known(s.total)).append('\t')
+                  .append(known(s.max)).append('\t').append(s.acquires).append('\t')
+                  .append(millis(s.acquireAvgNanos)).append('\t').append(millis(s.acquireMaxNanos)).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String known(long v) {
+        return v < 0 ? "" : Long.toString(v);
+    }
+
+    private static String millis(long nanos) {
+        return nanos < 0 ? "" : String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /** HikariCP through its public MXBean interfaces; the pool is created on first use. */
+    private static final class Hikari extends Adapter {
+        private final Method poolBean, configBean;
+        private final Method active, idle, waiting, total, getMax, setMax, setMinIdle;
+
+        Hikari(Object ds, Class<?> type) throws ReflectiveOperationException {
+            super(ds);
+            ClassLoader cl = type.getClassLoader();
+            Class<?> poolMx = Class.forName("com.zaxxer.hikari.HikariPoolMXBean", false, cl);
+            Class<?> configMx = Class.forName("com.zaxxer.hikari.HikariConfigMXBean", false, cl);
+            poolBean = type.getMethod("getHikariPoolMXBean");
+            configBean = type.getMethod("getHikariConfigMXBean");
+            active = poolMx.getMethod("getActiveConnections");
+            idle = poolMx.getMethod("getIdleConnections");
+            waiting = poolMx.getMethod("getThreadsAwaitingConnection");
+            total = poolMx.getMethod("getTotalConnections");
+            getMax = configMx.getMethod("getMaximumPoolSize");
+            setMax = configMx.getMethod("setMaximumPoolSize", int.class);
+            setMinIdle = configMx.getMethod("setMinimumIdle", int.class);
+        }
+
+        @Override String kind() { return "hikari"; }
+
+        @Override Object target() throws ReflectiveOperationException {
+            // HikariPool is its own MXBean.
+            return poolBean.invoke(dataSource);
+        }
+
+        @Override int[] read() throws ReflectiveOperationException {
+            int max = (Integer) getMax.invoke(configBean.invoke(dataSource));
+            Object pool = poolBean.invoke(dataSource);
+            if (pool == null) return new int[] {0, 0, 0, 0, max};
+            return new int[] {(Integer) active.invoke(pool), (Integer) idle.invoke(pool),
+                    (Integer) waiting.invoke(pool), (Integer) total.invoke(pool), max};
+        }
+
+        @Override String resize(int max, int minIdle) throws ReflectiveOperationException {
+            Object config = configBean.invoke(dataSource);
+            int old = (Integer) getMax.invoke(config);
+            if (minIdle >= 0) setMinIdle.invoke(config, Math.min(minIdle, max));
+            setMax.invoke(config, max);
+            return "maximumPoolSize " + old + " -> " + max + (minIdle >= 0 ? ", minimumIdle " + Math.min(minIdle, max) : "");
+        }
+    }
+
+    /**
+     * Tomcat JDBC. The running ConnectionPool shares the data source's PoolProperties, so
+     * maxActive changes apply to the next borrow; with fairQueue=false the idle queue keeps
+     * its initial capacity and cannot grow beyond the original maxActive.
+     */
+    private static final class Tomcat extends Adapter {
+        private final Field pool;
+        private final Method size, active, idle, waitCount, getMaxActive, setMaxActive, getMaxIdle, setMaxIdle, setMinIdle;
+
+        Tomcat(Object ds, Class<?> type) throws ReflectiveOperationException {
+            super(ds);
+            ClassLoader cl = type.getClassLoader();
+            // Read directly: getPool() would create the pool.
+            pool = type.getDeclaredField("pool");
+            pool.setAccessible(true);
+            Class<?> connectionPool = Class.forName("org.apache.tomcat.jdbc.pool.ConnectionPool", false, cl);
+            size = connectionPool.getMethod("getSize");
+            active = connectionPool.getMethod("getActive");
+            idle = connectionPool.getMethod("getIdle");
+            waitCount = connectionPool.getMethod("getWaitCount");
+            Class<?> config = Class.forName("org.apache.tomcat.jdbc.pool.PoolConfiguration", false, cl);
+            getMaxActive = config.getMethod("getMaxActive");
+            setMaxActive = config.getMethod("setMaxActive", int.class);
+            getMaxIdle = config.getMethod("getMaxIdle");
+            setMaxIdle = config.getMethod("setMaxIdle", int.class);
+            setMinIdle = config.getMethod("setMinIdle", int.class);
+        }
+
+        @Override String kind() { return "tomcat-jdbc"; }
+
+        @Override Object target() throws ReflectiveOperationException {
+            return pool.get(dataSource);
+        }
+
+        @Override int[] read() throws ReflectiveOperationException {
+            int max = (Integer) getMaxActive.invoke(dataSource);
+            Object p = pool.get(dataSource);
+            if (p == null) return new int[] {0, 0, 0, 0, max};
+            return new int[] {(Integer) active.invoke(p), (Integer) idle.invoke(p),
+                    (Integer) waitCount.invoke(p), (Integer) size.invoke(p), max};
+        }
+
+        @Override String resize(int max, int minIdle) throws ReflectiveOperationException {
+            int old = (Integer) getMaxActive.invoke(dataSource);
+            setMaxActive.invoke(dataSource, max);
+            // Tomcat warns and clamps on every borrow when maxIdle exceeds maxActive.
+            if ((Integer) getMaxIdle.invoke(dataSource) > max) setMaxIdle.invoke(dataSource, max);
+            if (minIdle >= 0) setMinIdle.invoke(dataSource, Math.min(minIdle, max));
+            return "maxActive " + old + " -> " + max + (minIdle >= 0 ? ", minIdle " + Math.min(minIdle, max) : "");
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.baader.devrt;
+
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.matcher.ElementMatchers;
+
+import java.lang.instrument.Instrumentation;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * JDBC statements fired by one eval, for spotting N+1 patterns from the REPL. Advice on
+ * every java.sql.Connection and Statement implementation (SqlPrepareAdvice,
+ * SqlExecuteAdvice) reports to the Tracker of the current eval. Only the outermost call on a
+ * thread counts, so a pool's proxy statement and the driver statement behind it are one
+ * query. JShell runs snippets on a thread it starts per eval, so the tracker is inherited
+ * by threads created during the eval; work handed to pre-existing pool threads is not seen.
+ * Counting is opt-in: the advice is installed by the sql/track op and removed by sql/remove.
+ * Outside an eval the advice costs one volatile read.
+ */
+public final class JdbcStatements {
+
+    private static final long NOT_TRACKED = Long.MIN_VALUE;
+    private static final long NESTED = Long.MIN_VALUE + 1;
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final InheritableThreadLocal<Binding> CURRENT = new InheritableThreadLocal<>();
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+    private static final AtomicInteger open = new AtomicInteger();
+    private static ResettableClassFileTransformer executeAdvice;
+    private static ResettableClassFileTransformer prepareAdvice;
+
+    // What threads inherit: a handle end() empties, so a long-lived thread started during an
+    // eval does not keep the eval's tracker and its statement maps reachable.
+    private static final class Binding {
+        volatile Tracker tracker;
+        Binding(Tracker tracker) { this.tracker = tracker; }
+    }
+
+    static final class Fingerprint {
+        final String sql;
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        Fingerprint(String sql) { this.sql = sql; }
+    }
+
+    /** Statements of one eval, shared with the threads the eval starts. */
+    static final class Tracker {
+        final LongAdder statements = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final Map<String, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+        // Prepared statement -> its SQL, for the no-argument execute methods.
+        final Map<Object, String> preparedSql = Collections.synchronizedMap(new IdentityHashMap<>());
+
+        void record(String sql, long elapsed) {
+            statements.increment();
+            nanos.add(elapsed);
+            Fingerprint f = fingerprints.computeIfAbsent(fingerprint(sql), Fingerprint::new);
+            f.count.increment();
+            f.nanos.add(elapsed);
+        }
+
+        long count() { return statements.sum(); }
+
+        /** Statements whose fingerprint occurred more than once. */
+        long repeated() {
+            long n = 0;
+            for (Fingerprint f : fingerprints.values()) {
+                long c = f.count.sum();
+                if (c > 1) n += c;
+            }
+            return n;
+        }
+
+        /** "42 queries, 37 identical, 18.4 ms". */
+        String summary() {
+            long repeated = repeated();
+            return count() + (count() == 1 ? " query" : " queries")
+                    + (repeated > 0 ? ", " + repeated + " identical" : "")
+                    + String.format(Locale.ROOT, ", %.1f ms", nanos.sum() / 1e6);
+        }
+
+        /** Columns: count, total ms, fingerprint; repeated fingerprints only, most frequent first. */
+        String repeatedAsTsv(int limit) {
+            List<Fingerprint> list = new ArrayList<>();
+            for (Fingerprint f : fingerprints.values()) {
+                if (f.count.sum() > 1) list.add(f);
+            }
+            list.sort((a, b) -> Long.compare(b.count.sum(), a.count.sum()));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < list.size() && i < limit; i++) {
+                Fingerprint f = list.get(i);
+                sb.append(f.count.sum()).append('\t')
+                  .append(String.format(Locale.ROOT, "%.1f", f.nanos.sum() / 1e6)).append('\t')
+                  .append(f.sql).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+
+    private JdbcStatements() {}
+
+    /** Starts tracking on the calling thread (and threads it creates) until {@link #end}. */
+    static Tracker begin() {
+        Tracker t = new Tracker();
+        CURRENT.set(new Binding(t));
+        open.incrementAndGet();
+        return t;
+    }
+
+    static void end(Tracker t) {
+        Binding b = CURRENT.get();
+        if (b != null && b.tracker == t) b.tracker = null;
+        t.preparedSql.clear();
+        CURRENT.remove();
+        open.decrementAndGet();
+    }
+
+    /** Called from inlined advice on entry; the result goes back to the matching exit call. */
+    public static long enter() {
+        if (open.get() == 0) return NOT_TRACKED;
+        if (current() == null) return NOT_TRACKED;
+        int[] depth = DEPTH.get();
+        return depth[0]++ == 0 ? System.nanoTime() : NESTED;
+    }
+
+    /** Exit of Statement.execute*; {@code sql} is the first argument when it is the SQL text. */
+    public static void executed(Object statement, Object sql, long start) {
+        if (start == NOT_TRACKED) return;
+        DEPTH.get()[0]--;
+        if (start == NESTED) return;
+        long elapsed = System.nanoTime() - start;
+        Tracker t = current();
+        if (t == null) return;
+        t.record(sql instanceof String ? (String) sql : t.preparedSql.get(statement), elapsed);
+    }
+
+    /** Exit of Connection.prepareStatement/prepareCall. */
+    public static void prepared(Object statement, String sql, long start) {
+        if (start == NOT_TRACKED) return;
+        DEPTH.get()[0]--;
+        if (start == NESTED || statement == null) return;
+        Tracker t = current();
+        if (t != null) t.preparedSql.put(statement, sql);
+    }
+
+    private static Tracker current() {
+        Binding b = CURRENT.get();
+        return b != null ? b.tracker : null;
+    }
+
+    /**
+     * Installs the advice if the context has a DataSource bean, so apps without JDBC never pay
+     * for the retransformation. Driver classes loaded later are woven on load. Returns false
+     * when there is no DataSource to track.
+     */
+    static synchronized boolean install(ContextRegistry.Entry ctx) throws ReflectiveOperationException {
+        if (executeAdvice != null) return true;
+        Instrumentation inst = AgentRuntime.getInstrumentation();
+        if (inst == null) throw new IllegalStateException("Instrumentation unavailable. Attach the dev runtime agent first.");
+        if (new BeanQuery().type("javax.sql.DataSource").run(BeanIndex.of(ctx)).isEmpty()) return false;
+        executeAdvice = AdviceInstaller.install(inst,
+                ElementMatchers.isSubTypeOf(Statement.class),
+                ElementMatchers.namedOneOf("execute", "executeQuery", "executeUpdate", "executeLargeUpdate",
+                                "executeBatch", "executeLargeBatch")
+                        .and(ElementMatchers.not(ElementMatchers.isAbstract())),
+                SqlExecuteAdvice.class, (type, method) -> {});
+        prepareAdvice = AdviceInstaller.install(inst,
+                ElementMatchers.isSubTypeOf(Connection.class),
+                ElementMatchers.namedOneOf("prepareStatement", "prepareCall")
+                        .and(ElementMatchers.takesArgument(0, String.class))
+                        .and(ElementMatchers.not(ElementMatchers.isAbstract())),
+                SqlPrepareAdvice.class, (type, method) -> {});
+        return true;
+    }
+
+    static synchronized boolean isInstalled() {
+        return executeAdvice != null;
+    }
+
+    /** Removes the advice; returns false if it was not installed. */
+    static synchronized boolean uninstall() {
+        if (executeAdvice == null) return false;
+        AdviceInstaller.reset(executeAdvice);
+        AdviceInstaller.reset(prepareAdvice);
+        executeAdvice = null;
+        prepareAdvice = null;
+        return true;
+    }
+
+    /** SQL with literals replaced by ?, IN lists collapsed and whitespace normalized. */
+    static String fingerprint(String sql) {
+        if (sql == null) return "(statement prepared outside the eval)";
+        String s = STRING_LITERAL.matcher(sql).replaceAll("?");
+        s = NUMBER.matcher(s).replaceAll("?");
+        s = IN_LIST.matcher(s).replaceAll("(?)");
+        s = WHITESPACE.matcher(s).replaceAll(" ").trim();
+        return s.length() > 300 ? s.substring(0, 300) + "..." : s;
+    }
+}
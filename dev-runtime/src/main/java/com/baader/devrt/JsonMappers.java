@@ -0,0 +1,160 @@
+package com.baader.devrt;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+
+/**
+ * One configured Jackson ObjectMapper per Jackson copy (ObjectMapper class), for the snapshot code.
+ * Jackson is not an agent dependency, so the mapper is created reflectively from the app's
+ * loader, and the few methods the agent calls are resolved once as MethodHandles. Building
+ * a mapper per call would also throw away its serializer caches, which is where most of
+ * the cost of the first write of a type goes.
+ */
+final class JsonMappers {
+
+    private static final String OBJECT_MAPPER = "com.fasterxml.jackson.databind.ObjectMapper";
+    private static final String SERIALIZATION_FEATURE = "com.fasterxml.jackson.databind.SerializationFeature";
+    private static final String GENERATOR_FEATURE = "com.fasterxml.jackson.core.JsonGenerator$Feature";
+
+    // Mapper per ObjectMapper class. A ClassValue lets the class and its loader be collected
+    // even though the mapper reaches them; a map keyed weakly on the loader would pin it.
+    private static final ClassValue<Optional<Mapper>> mappers = new ClassValue<>() {
+        @Override
+        protected Optional<Mapper> computeValue(Class<?> omClass) {
+            return Optional.ofNullable(create(omClass));
+        }
+    };
+    // Loaders Jackson is not visible from, so the lookup is not repeated; the value holds nothing.
+    private static final Map<ClassLoader, Boolean> withoutJackson = new WeakHashMap<>();
+
+    /** A mapper with its bound method handles; thread-safe like the ObjectMapper itself. */
+    static final class Mapper {
+        final Object objectMapper;
+        private final MethodHandle writePretty;   // (Object)String
+        private final MethodHandle writeCompact;  // (Object)String
+        private final MethodHandle read;          // (String, Class)Object
+        private final MethodHandle writeStream;   // (OutputStream, Object)void, compact
+        private final MethodHandle readStream;    // (InputStream, Class)Object
+
+        private Mapper(Object objectMapper, MethodHandle writePretty, MethodHandle writeCompact, MethodHandle read,
+                       MethodHandle writeStream, MethodHandle readStream) {
+            this.objectMapper = objectMapper;
+            this.writePretty = writePretty;
+            this.writeCompact = writeCompact;
+            this.read = read;
+            this.writeStream = writeStream;
+            this.readStream = readStream;
+        }
+
+        String write(Object value, boolean pretty) throws Exception {
+            try {
+                return pretty ? (String) writePretty.invokeExact(value) : (String) writeCompact.invokeExact(value);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        <T> T read(String json, Class<T> type) throws Exception {
+            try {
+                return type.cast((Object) read.invokeExact(json, (Class<?>) type));
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        /** Streams compact JSON to {@code out}, flushing but not closing it. */
+        void writeTo(OutputStream out, Object value) throws Exception {
+            try {
+                writeStream.invokeExact(out, value);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        <T> T readFrom(InputStream in, Class<T> type) throws Exception {
+            try {
+                return type.cast((Object) readStream.invokeExact(in, (Class<?>) type));
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+
+    private JsonMappers() {}
+
+    /** The mapper for the calling thread's context class loader (or the agent's), or null. */
+    static Mapper forContext() {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        return of(cl != null ? cl : JsonMappers.class.getClassLoader());
+    }
+
+    static Mapper of(ClassLoader loader) {
+        synchronized (withoutJackson) {
+            if (withoutJackson.containsKey(loader)) return null;
+        }
+        Class<?> omClass;
+        try {
+            omClass = Class.forName(OBJECT_MAPPER, false, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            synchronized (withoutJackson) {
+                withoutJackson.put(loader, Boolean.TRUE);
+            }
+            return null;
+        }
+        return mappers.get(omClass).orElse(null);
+    }
+
+    /**
+     * ObjectMapper that tolerates empty beans and writes dates as ISO strings; pretty,
+     * compact and streaming writers share its caches.
+     */
+    private static Mapper create(Class<?> omClass) {
+        try {
+            ClassLoader loader = omClass.getClassLoader();
+            Object mapper = omClass.getConstructor().newInstance();
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            try {
+                Class<?> sfClass = Class.forName(SERIALIZATION_FEATURE, true, loader);
+                MethodHandle disable = lookup.findVirtual(omClass, "disable", MethodType.methodType(omClass, sfClass));
+                disable.invoke(mapper, sfClass.getField("FAIL_ON_EMPTY_BEANS").get(null));
+                disable.invoke(mapper, sfClass.getField("WRITE_DATES_AS_TIMESTAMPS").get(null));
+            } catch (Throwable e) {
+                // Defaults still work; snapshots of empty beans just fail over to memory.
+            }
+            Object pretty = omClass.getMethod("writerWithDefaultPrettyPrinter").invoke(mapper);
+            Object compact = omClass.getMethod("writer").invoke(mapper);
+            MethodType writeType = MethodType.methodType(String.class, Object.class);
+            MethodHandle writePretty = lookup.findVirtual(pretty.getClass(), "writeValueAsString", writeType)
+                    .bindTo(pretty);
+            MethodHandle writeCompact = lookup.findVirtual(compact.getClass(), "writeValueAsString", writeType)
+                    .bindTo(compact);
+            MethodHandle read = lookup.findVirtual(omClass, "readValue",
+                            MethodType.methodType(Object.class, String.class, Class.class))
+                    .bindTo(mapper);
+            // Callers own the stream (e.g. to fsync the channel before closing it).
+            Class<?> gfClass = Class.forName(GENERATOR_FEATURE, true, loader);
+            Object streaming = compact.getClass().getMethod("without", gfClass)
+                    .invoke(compact, gfClass.getField("AUTO_CLOSE_TARGET").get(null));
+            MethodHandle writeStream = lookup.findVirtual(streaming.getClass(), "writeValue",
+                            MethodType.methodType(void.class, OutputStream.class, Object.class))
+                    .bindTo(streaming);
+            MethodHandle readStream = lookup.findVirtual(omClass, "readValue",
+                            MethodType.methodType(Object.class, InputStream.class, Class.class))
+                    .bindTo(mapper);
+            return new Mapper(mapper, writePretty, writeCompact, read, writeStream, readStream);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    private static Exception rethrow(Throwable t) {
+        if (t instanceof Error e) throw e;
+        return t instanceof Exception e ? e : new RuntimeException(t);
+    }
+}
@@ -0,0 +1,87 @@
+package com.baader.devrt;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear latency histogram (4 sub-buckets per power of two, ~25% error).
+ * Recording is a couple of atomic adds, so it is safe to call from instrumented hot paths.
+ */
+final class LatencyHistogram {
+    private static final int BUCKETS = 256;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets.incrementAndGet(bucket(nanos));
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    long count() { return count.sum(); }
+
+    long totalNanos() { return total.sum(); }
+
+    long maxNanos() { return max.get(); }
+
+    long meanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : total.sum() / n;
+    }
+
+    /** Upper bound of the bucket holding the q-th quantile (0..1). */
+    long percentile(double q) {
+        long[] snapshot = new long[BUCKETS];
+        addTo(snapshot);
+        return percentile(snapshot, q, max.get());
+    }
+
+    /** Adds this histogram's bucket counts into {@code acc}, e.g. to merge several histograms. */
+    void addTo(long[] acc) {
+        for (int i = 0; i < BUCKETS; i++) acc[i] += buckets.get(i);
+    }
+
+    static long[] newBuckets() { return new long[BUCKETS]; }
+
+    static long percentile(long[] buckets, double q, long max) {
+        long n = 0;
+        for (long b : buckets) n += b;
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(q * n);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    static int bucket(long v) {
+        if (v < 4) return (int) v;
+        int msb = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) ((v >>> (msb - 2)) & 3);
+        return (msb - 1) * 4 + sub;
+    }
+
+    static long upperBound(int idx) {
+        if (idx < 4) return idx;
+        int msb = idx / 4 + 1;
+        int sub = idx % 4;
+        if (msb >= 62) return Long.MAX_VALUE;
+        return ((4L + sub + 1) << (msb - 2)) - 1;
+    }
+}
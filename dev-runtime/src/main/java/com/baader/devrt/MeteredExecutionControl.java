@@ -0,0 +1,103 @@
+package com.baader.devrt;
+
+import jdk.jshell.execution.LocalExecutionControl;
+import jdk.jshell.spi.ExecutionControl;
+import jdk.jshell.spi.ExecutionControlProvider;
+import jdk.jshell.spi.ExecutionEnv;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Local execution that runs each snippet on a fresh thread like LocalExecutionControl, but
+ * measures CPU and allocation on that thread so EvalCost can split compile from execute.
+ * The stock control's thread is gone before its cost can be read. Its thread group and stop
+ * handling are private to it, so they are repeated here: snippets run in a group this
+ * control owns, stop() stops that group, and a stopped snippet ends in StoppedException.
+ * Unlike the stock control, the JVM-wide default uncaught exception handler is left alone.
+ */
+final class MeteredExecutionControl extends LocalExecutionControl {
+
+    static final class Provider implements ExecutionControlProvider {
+        @Override
+        public String name() {
+            return "metered-local";
+        }
+
+        @Override
+        public ExecutionControl generate(ExecutionEnv env, Map<String, String> parameters) {
+            return new MeteredExecutionControl();
+        }
+    }
+
+    private final Object stopLock = new Object();
+    private boolean userCodeRunning;
+    private ThreadGroup execThreadGroup;
+
+    @Override
+    protected String invoke(Method doitMethod) throws Exception {
+        EvalCost cost = EvalCost.current();
+        ThreadGroup group = new ThreadGroup("JShell metered local execution");
+        synchronized (stopLock) {
+            execThreadGroup = group;
+        }
+        Object[] result = new Object[1];
+        Throwable[] failure = new Throwable[1];
+        boolean[] stopped = new boolean[1];
+        Thread snippet = new Thread(group, () -> {
+            EvalCost.Probe probe = EvalCost.Probe.now();
+            try {
+                result[0] = doitMethod.invoke(null);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof ThreadDeath) stopped[0] = true;
+                else failure[0] = e;
+            } catch (ThreadDeath e) {
+                stopped[0] = true;
+            } catch (Throwable e) {
+                failure[0] = e;
+            } finally {
+                if (cost != null) cost.executed(probe);
+            }
+        }, "jshell-snippet");
+        snippet.start();
+        // As the stock control: wait for the threads of the group as they are right after the start.
+        Thread[] threads = new Thread[group.activeCount() + 1];
+        group.enumerate(threads);
+        for (Thread t : threads) {
+            if (t != null) t.join();
+        }
+        snippet.join();
+        if (stopped[0]) throw new StoppedException();
+        // InvocationTargetException is turned into a RunException by DirectExecutionControl.
+        if (failure[0] instanceof Exception e) throw e;
+        if (failure[0] instanceof Error e) throw e;
+        return valueString(result[0]);
+    }
+
+    @Override
+    @SuppressWarnings({"deprecation", "removal"})
+    public void stop() throws EngineTerminationException, InternalException {
+        synchronized (stopLock) {
+            if (!userCodeRunning) return;
+            if (execThreadGroup == null) throw new InternalException("Snippet thread group is null, cannot stop");
+            execThreadGroup.stop();
+        }
+    }
+
+    @Override
+    protected void clientCodeEnter() {
+        super.clientCodeEnter();
+        synchronized (stopLock) {
+            userCodeRunning = true;
+        }
+    }
+
+    @Override
+    protected void clientCodeLeave() {
+        super.clientCodeLeave();
+        synchronized (stopLock) {
+            userCodeRunning = false;
+        }
+    }
+}
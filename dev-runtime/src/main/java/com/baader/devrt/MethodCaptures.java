@@ -0,0 +1,428 @@
+package com.baader.devrt;
+
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.matcher.ElementMatchers;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Conditional argument/return capture. Sampled calls that pass the optional predicate are
+ * stored in a fixed-size RingBuffer per capture, so a capture left running on a hot method
+ * costs at most one random draw per unsampled call and a bounded amount of heap. Entries
+ * keep arguments and results as text rendered at capture time and only weakly as objects,
+ * so a capture does not pin request-scoped object graphs.
+ */
+public final class MethodCaptures {
+
+    public static final class Entry {
+        public final long timestamp;
+        public final String thread;
+        public final String method;
+        /** Arguments as rendered when the call was captured. */
+        public final String args;
+        /** Return value as rendered when the call was captured; null if the call threw. */
+        public final String result;
+        public final String error;
+        public final long durationNanos;
+        private final WeakReference<?>[] argRefs;
+        private final WeakReference<?> resultRef;
+
+        Entry(String method, Object[] args, Object result, Throwable error, long durationNanos) {
+            this.timestamp = System.currentTimeMillis();
+            this.thread = Thread.currentThread().getName();
+            this.method = method;
+            this.args = render(args);
+            this.result = error != null ? null : render(result);
+            this.error = error != null ? render(error) : null;
+            this.durationNanos = durationNanos;
+            this.argRefs = new WeakReference<?>[args != null ? args.length : 0];
+            for (int i = 0; i < argRefs.length; i++) argRefs[i] = new WeakReference<>(args[i]);
+            this.resultRef = new WeakReference<>(result);
+        }
+
+        /** The argument objects, with null for those collected since the call. */
+        public Object[] liveArgs() {
+            Object[] out = new Object[argRefs.length];
+            for (int i = 0; i < out.length; i++) out[i] = argRefs[i].get();
+            return out;
+        }
+
+        /** The returned object, or null if it was collected since the call. */
+        public Object liveResult() {
+            return resultRef.get();
+        }
+    }
+
+    static final class Capture {
+        final String id;
+        final String pattern;
+        final String predicateSource;
+        final double rate;
+        final RingBuffer<Entry> buffer;
+        final Map<String, Predicate<Object[]>> predicates = new ConcurrentHashMap<>();
+        final Map<String, String> displayNames = new ConcurrentHashMap<>();
+        final List<Long> loaderIds = new ArrayList<>();
+        final LongAdder matched = new LongAdder();
+        final LongAdder predicateErrors = new LongAdder();
+        volatile ResettableClassFileTransformer transformer;
+
+        Capture(String id, String pattern, String predicateSource, double rate, int size) {
+            this.id = id; this.pattern = pattern; this.predicateSource = predicateSource;
+            this.rate = rate; this.buffer = new RingBuffer<>(size);
+        }
+    }
+
+    static final int DEFAULT_SIZE = 100;
+    private static final int MAX_SIZE = 10_000;
+    private static final int MAX_RENDERED = 2_000;
+    private static final int MAX_RENDER_DEPTH = 4;
+    private static final Pattern ARG_INDEX = Pattern.compile("\\bargs\\s*\\[\\s*(\\d+)\\s*\\]");
+    private static final AtomicInteger IDS = new AtomicInteger();
+    private static final Map<String, Capture> captures = new ConcurrentHashMap<>();
+    // Keyed by "<type>.<method><descriptor>", the @Advice.Origin format used by CaptureAdvice.
+    private static final Map<String, Capture> byMethod = new ConcurrentHashMap<>();
+
+    private MethodCaptures() {}
+
+    /** Called from inlined advice on method entry. */
+    public static boolean sampled(String method) {
+        Capture c = byMethod.get(method);
+        if (c == null) return false;
+        return c.rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < c.rate;
+    }
+
+    /** Called from inlined advice on method exit, for sampled calls only. */
+    public static void record(String method, Object[] args, Object result, Throwable error, long nanos) {
+        Capture c = byMethod.get(method);
+        if (c == null) return;
+        if (c.predicateSource != null) {
+            Predicate<Object[]> p = c.predicates.get(method);
+            if (p == null) return; // class loaded after add(): no compiled predicate for it
+            try {
+                if (!p.test(args)) return;
+            } catch (Throwable t) {
+                c.predicateErrors.increment();
+                return;
+            }
+        }
+        c.matched.increment();
+        c.buffer.add(new Entry(c.displayNames.getOrDefault(method, method), args, result, error, nanos));
+    }
+
+    /** Captured entries of a capture, oldest first; usable directly from REPL snippets. */
+    public static List<Entry> entries(String id) {
+        Capture c = captures.get(id);
+        return c != null ? c.buffer.snapshot() : List.of();
+    }
+
+    /**
+     * Installs a capture on {@code <class glob>#<method glob>}. The optional predicate is a
+     * boolean Java expression over {@code args[i]} (typed as the declared parameter) or
+     * {@code arg0..argN}; it is compiled once per matched method when the capture is added.
+     */
+    static synchronized Capture add(String pattern, String predicate, double rate, int size) {
+        Instrumentation inst = AgentRuntime.getInstrumentation();
+        if (inst == null) throw new IllegalStateException("Instrumentation unavailable. Attach the dev runtime agent first.");
+        String[] globs = MethodProbes.parsePattern(pattern);
+        Pattern classRegex = Pattern.compile(MethodProbes.globToRegex(globs[0]));
+        Pattern methodRegex = Pattern.compile(MethodProbes.globToRegex(globs[1]));
+        String predicateSource = predicate == null || predicate.isBlank() ? null : predicate.trim();
+        double effectiveRate = rate <= 0 || rate > 1 ? 1.0 : rate;
+        int effectiveSize = Math.min(Math.max(size, 1), MAX_SIZE);
+
+        Capture capture = new Capture("c" + IDS.incrementAndGet(), pattern.trim(), predicateSource, effectiveRate, effectiveSize);
+        Map<String, Method> targets = new LinkedHashMap<>();
+        for (Class<?> c : inst.getAllLoadedClasses()) {
+            if (c.isInterface() || c.isArray() || !classRegex.matcher(c.getName()).matches()) continue;
+            try {
+                for (Method m : c.getDeclaredMethods()) {
+                    if (m.isSynthetic() || Modifier.isAbstract(m.getModifiers()) || Modifier.isNative(m.getModifiers())) continue;
+                    if (!methodRegex.matcher(m.getName()).matches()) continue;
+                    targets.put(c.getName() + "." + m.getName() + new MethodDescription.ForLoadedMethod(m).getDescriptor(), m);
+                }
+            } catch (Throwable ignored) {}
+        }
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("No loaded method matches " + pattern);
+        }
+        for (Map.Entry<String, Method> t : targets.entrySet()) {
+            if (byMethod.containsKey(t.getKey())) {
+                throw new IllegalStateException("Method already captured: " + t.getKey());
+            }
+        }
+        if (predicateSource != null) {
+            try {
+                for (Map.Entry<String, Method> t : targets.entrySet()) {
+                    capture.predicates.put(t.getKey(), compilePredicate(capture, t.getValue(), predicateSource));
+                }
+            } catch (RuntimeException e) {
+                releaseLoaders(capture);
+                throw e;
+            }
+        }
+
+        try {
+            capture.transformer = AdviceInstaller.install(inst,
+                    ElementMatchers.nameMatches(classRegex.pattern()),
+                    AdviceInstaller.methodsNamed(globs[1]),
+                    CaptureAdvice.class,
+                    (type, m) -> {
+                        String key = AdviceInstaller.methodKey(type, m);
+                        capture.displayNames.put(key, type.getName() + "#" + m.getName());
+                        byMethod.putIfAbsent(key, capture);
+                    });
+        } catch (RuntimeException e) {
+            byMethod.values().removeIf(v -> v == capture);
+            releaseLoaders(capture);
+            throw e;
+        }
+        captures.put(capture.id, capture);
+        return capture;
+    }
+
+    static synchronized boolean remove(String id) {
+        Capture c = captures.remove(id);
+        if (c == null) return false;
+        AdviceInstaller.reset(c.transformer);
+        byMethod.values().removeIf(v -> v == c);
+        releaseLoaders(c);
+        c.buffer.clear();
+        return true;
+    }
+
+    private static void releaseLoaders(Capture c) {
+        synchronized (c.loaderIds) {
+            for (Long loaderId : c.loaderIds) EvalClassLoaders.release(loaderId);
+        }
+    }
+
+    static synchronized int removeAll() {
+        int n = 0;
+        for (String id : new ArrayList<>(captures.keySet())) {
+            if (remove(id)) n++;
+        }
+        return n;
+    }
+
+    /** TSV: id, pattern, rate, stored, matched, buffer capacity, predicate errors, predicate. */
+    static String listAsTsv() {
+        StringBuilder sb = new StringBuilder();
+        for (Capture c : captures.values()) {
+            sb.append(c.id).append('\t')
+              .append(c.pattern).append('\t')
+              .append(c.rate).append('\t')
+              .append(Math.min(c.buffer.total(), c.buffer.capacity())).append('\t')
+              .append(c.matched.sum()).append('\t')
+              .append(c.buffer.capacity()).append('\t')
+              .append(c.predicateErrors.sum()).append('\t')
+              .append(c.predicateSource != null ? c.predicateSource : "").append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** TSV: timestamp, thread, method, duration µs, args, result or exception. */
+    static String entriesAsTsv(String id) {
+        StringBuilder sb = new StringBuilder();
+        for (Entry e : entries(id)) {
+            sb.append(e.timestamp).append('\t')
+              .append(e.thread).append('\t')
+              .append(e.method).append('\t')
+              .append(e.durationNanos / 1000).append('\t')
+              .append(preview(e.args)).append('\t')
+              .append(e.error != null ? "! " + preview(e.error) : preview(e.result))
+              .append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** Entries as plain maps, ready to be persisted by SnapshotManager. */
+    static List<Map<String, Object>> entriesAsMaps(String id) {
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (Entry e : entries(id)) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("timestamp", e.timestamp);
+            m.put("thread", e.thread);
+            m.put("method", e.method);
+            m.put("durationNanos", e.durationNanos);
+            m.put("args", e.args);
+            m.put("result", e.result);
+            m.put("error", e.error);
+            out.add(m);
+        }
+        return out;
+    }
+
+    private static Predicate<Object[]> compilePredicate(Capture capture, Method target, String expr) {
+        String className = "CapturePredicate" + capture.id + "_" + Integer.toHexString(System.identityHashCode(target));
+        List<String> classpath = classpathFor(target);
+        String error = null;
+        // Typed parameters first; fall back to Object when a type is not visible to javac.
+        for (boolean typed : new boolean[] { true, false }) {
+            String source = predicateSource(className, target.getParameterTypes(), expr, typed);
+            JavaCodeEvaluator.CompileOutput compiled = JavaCodeEvaluator.compileRawJava(source, className, classpath);
+            if (compiled.error != null) {
+                if (error == null) error = compiled.error;
+                continue;
+            }
+            try {
+                ClassLoader parent = target.getDeclaringClass().getClassLoader();
+                JavaCodeEvaluator.InMemoryClassLoader cl = new JavaCodeEvaluator.InMemoryClassLoader(parent, compiled.classes);
+                long loaderId = EvalClassLoaders.registerEvalLoader(cl, compiled.classes, true);
+                synchronized (capture.loaderIds) { capture.loaderIds.add(loaderId); }
+                @SuppressWarnings("unchecked")
+                Predicate<Object[]> p = (Predicate<Object[]>) cl.loadClass(className).getDeclaredConstructor().newInstance();
+                return p;
+            } catch (Throwable t) {
+                error = t.toString();
+            }
+        }
+        throw new IllegalArgumentException("Predicate does not compile for " + target + ":\n" + error);
+    }
+
+    private static String predicateSource(String className, Class<?>[] params, String expr, boolean typed) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("public class ").append(className).append(" implements java.util.function.Predicate<Object[]> {\n");
+        sb.append("  public boolean test(Object[] args) {\n");
+        for (int i = 0; i < params.length; i++) {
+            String type = typed ? typeName(params[i]) : "Object";
+            sb.append("    ").append(type).append(" arg").append(i).append(" = (").append(type).append(") args[").append(i).append("];\n");
+        }
+        Matcher m = ARG_INDEX.matcher(expr);
+        sb.append("    return ").append(m.replaceAll("arg$1")).append(";\n");
+        sb.append("  }\n}\n");
+        return sb.toString();
+    }
+
+    private static String typeName(Class<?> c) {
+        if (c.isPrimitive()) return c.getName();
+        String canonical = c.getCanonicalName();
+        if (canonical == null) return "Object";
+        for (Class<?> t = c; t != null; t = t.getEnclosingClass()) {
+            if (!Modifier.isPublic(t.getModifiers())) return "Object";
+        }
+        return canonical;
+    }
+
+    // Fat-jar class loaders are invisible to javac; point it at the code sources it can read.
+    private static List<String> classpathFor(Method target) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        types.add(target.getDeclaringClass());
+        types.addAll(Arrays.asList(target.getParameterTypes()));
+        List<String> out = new ArrayList<>();
+        for (Class<?> t : types) {
+            try {
+                CodeSource cs = t.getProtectionDomain().getCodeSource();
+                if (cs == null || cs.getLocation() == null || !"file".equals(cs.getLocation().getProtocol())) continue;
+                String path = new File(cs.getLocation().toURI()).getPath();
+                if (!out.contains(path)) out.add(path);
+            } catch (Throwable ignored) {}
+        }
+        return out;
+    }
+
+    // Runs on the captured thread, so it stops at MAX_RENDERED instead of rendering the whole
+    // value first: arrays, collections and maps are walked element by element up to
+    // MAX_RENDER_DEPTH, and only leaf values go through toString().
+    private static String render(Object value) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            appendValue(sb, value, 0);
+        } catch (Throwable t) {
+            appendCapped(sb, " (render failed: " + t + ")");
+        }
+        if (sb.length() > MAX_RENDERED) {
+            sb.setLength(MAX_RENDERED);
+            sb.append("...");
+        }
+        return sb.toString();
+    }
+
+    private static void appendValue(StringBuilder sb, Object value, int depth) {
+        if (sb.length() > MAX_RENDERED) return;
+        boolean container = value != null
+                && (value.getClass().isArray() || value instanceof Collection<?> || value instanceof Map<?, ?>);
+        if (!container) {
+            appendLeaf(sb, value);
+        } else if (depth >= MAX_RENDER_DEPTH) {
+            appendCapped(sb, value.getClass().getSimpleName() + "[...]");
+        } else if (value instanceof Map<?, ?> map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                if (sb.length() > MAX_RENDERED) return;
+                if (!first) sb.append(", ");
+                first = false;
+                appendValue(sb, e.getKey(), depth + 1);
+                sb.append('=');
+                appendValue(sb, e.getValue(), depth + 1);
+            }
+            sb.append('}');
+        } else if (value instanceof Collection<?> items) {
+            sb.append('[');
+            boolean first = true;
+            for (Object item : items) {
+                if (sb.length() > MAX_RENDERED) return;
+                if (!first) sb.append(", ");
+                first = false;
+                appendValue(sb, item, depth + 1);
+            }
+            sb.append(']');
+        } else {
+            sb.append('[');
+            for (int i = 0, n = Array.getLength(value); i < n; i++) {
+                if (sb.length() > MAX_RENDERED) return;
+                if (i > 0) sb.append(", ");
+                appendValue(sb, Array.get(value, i), depth + 1);
+            }
+            sb.append(']');
+        }
+    }
+
+    // A failing toString() must not break the captured call.
+    private static void appendLeaf(StringBuilder sb, Object value) {
+        if (value instanceof CharSequence cs) {
+            appendCapped(sb, cs);
+            return;
+        }
+        String s;
+        try {
+            s = String.valueOf(value);
+        } catch (Throwable t) {
+            s = value.getClass().getName() + " (toString failed: " + t + ")";
+        }
+        appendCapped(sb, s);
+    }
+
+    // Keeps one character past the cap so render() can tell a truncated value from a full one.
+    private static void appendCapped(StringBuilder sb, CharSequence s) {
+        int room = MAX_RENDERED + 1 - sb.length();
+        if (room > 0) sb.append(s, 0, Math.min(s.length(), room));
+    }
+
+    private static String preview(String s) {
+        String flat = s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+        return flat.length() > 200 ? flat.substring(0, 200) + "..." : flat;
+    }
+}
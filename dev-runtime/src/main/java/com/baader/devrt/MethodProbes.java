@@ -0,0 +1,219 @@
+package com.baader.devrt;
+
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatchers;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * On-demand latency probes. A probe retransforms the matched methods with ProbeAdvice;
+ * removing it resets the transformer so the original bytecode is restored.
+ */
+public final class MethodProbes {
+
+    static final class Stats {
+        final String probeId;
+        final String display;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        // Only for probes that need "right now" numbers (e.g. EndpointLatency); null otherwise.
+        final WindowedHistogram window;
+        Stats(String probeId, String display, WindowedHistogram window) {
+            this.probeId = probeId; this.display = display; this.window = window;
+        }
+    }
+
+    static final class Probe {
+        final String id;
+        final String pattern;
+        final List<String> methodKeys = new ArrayList<>();
+        volatile ResettableClassFileTransformer transformer;
+        Probe(String id, String pattern) { this.id = id; this.pattern = pattern; }
+    }
+
+    private static final AtomicInteger IDS = new AtomicInteger();
+    private static final Map<String, Probe> probes = new ConcurrentHashMap<>();
+    // Keyed by "<type>.<method><descriptor>", the @Advice.Origin format used by ProbeAdvice.
+    private static final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    private MethodProbes() {}
+
+    /** Called from inlined advice; must stay allocation-free. */
+    public static void record(String method, long nanos, boolean error) {
+        Stats s = stats.get(method);
+        if (s == null) return;
+        s.latency.record(nanos);
+        if (s.window != null) s.window.record(nanos);
+        if (error) s.errors.increment();
+    }
+
+    /**
+     * Installs a probe. The pattern is {@code <class glob>#<method glob>}, e.g.
+     * {@code com.acme.OrderService#place*}; a missing method part means all methods.
+     */
+    static synchronized Probe add(String pattern) {
+        Instrumentation inst = AgentRuntime.getInstrumentation();
+        if (inst == null) throw new IllegalStateException("Instrumentation unavailable. Attach the dev runtime agent first.");
+        String[] globs = parsePattern(pattern);
+        String classGlob = globs[0];
+        String methodGlob = globs[1];
+
+        Probe probe = new Probe("p" + IDS.incrementAndGet(), pattern.trim());
+        probe.transformer = AdviceInstaller.install(inst,
+                ElementMatchers.nameMatches(globToRegex(classGlob)),
+                AdviceInstaller.methodsNamed(methodGlob),
+                ProbeAdvice.class,
+                (type, m) -> registerMethod(probe, type, m));
+        probes.put(probe.id, probe);
+        return probe;
+    }
+
+    /**
+     * Installs a probe on an explicit set of loaded methods. {@code labels} maps each method to
+     * its display name; when {@code windowed} is set, each method also keeps a sliding-window
+     * histogram (12 slices of 5 s).
+     */
+    static synchronized Probe addMethods(String description, Map<Method, String> labels, boolean windowed) {
+        Instrumentation inst = AgentRuntime.getInstrumentation();
+        if (inst == null) throw new IllegalStateException("Instrumentation unavailable. Attach the dev runtime agent first.");
+        if (labels.isEmpty()) throw new IllegalArgumentException("No methods to probe");
+        Probe probe = new Probe("p" + IDS.incrementAndGet(), description);
+        Map<String, String> byKey = new HashMap<>();
+        Set<Class<?>> types = new LinkedHashSet<>();
+        List<Method> methods = new ArrayList<>();
+        for (Map.Entry<Method, String> e : labels.entrySet()) {
+            Method m = e.getKey();
+            MethodDescription md = new MethodDescription.ForLoadedMethod(m);
+            byKey.put(m.getDeclaringClass().getName() + "." + m.getName() + md.getDescriptor(), e.getValue());
+            types.add(m.getDeclaringClass());
+            methods.add(m);
+        }
+        probe.transformer = AdviceInstaller.install(inst,
+                ElementMatchers.anyOf(types.toArray(new Class<?>[0])),
+                ElementMatchers.anyOf(methods.toArray(new Method[0])),
+                ProbeAdvice.class,
+                (type, m) -> {
+                    String key = AdviceInstaller.methodKey(type, m);
+                    String label = byKey.get(key);
+                    if (label == null) return;
+                    stats.computeIfAbsent(key, k -> new Stats(probe.id, label,
+                            windowed ? new WindowedHistogram(12, 5_000) : null));
+                    synchronized (probe.methodKeys) {
+                        if (!probe.methodKeys.contains(key)) probe.methodKeys.add(key);
+                    }
+                });
+        probes.put(probe.id, probe);
+        return probe;
+    }
+
+    static boolean exists(String probeId) { return probes.containsKey(probeId); }
+
+    /** Live stats of a probe, keyed by display name. */
+    static Map<String, Stats> statsOf(String probeId) {
+        Probe p = probes.get(probeId);
+        if (p == null) return Map.of();
+        Map<String, Stats> out = new LinkedHashMap<>();
+        synchronized (p.methodKeys) {
+            for (String key : p.methodKeys) {
+                Stats s = stats.get(key);
+                if (s != null) out.put(s.display, s);
+            }
+        }
+        return out;
+    }
+
+    /** Removes the probe and retransforms the affected classes back to their original bytecode. */
+    static synchronized boolean remove(String id) {
+        Probe probe = probes.remove(id);
+        if (probe == null) return false;
+        AdviceInstaller.reset(probe.transformer);
+        synchronized (probe.methodKeys) {
+            for (String key : probe.methodKeys) stats.remove(key);
+        }
+        return true;
+    }
+
+    static synchronized int removeAll() {
+        int n = 0;
+        for (String id : new ArrayList<>(probes.keySet())) {
+            if (remove(id)) n++;
+        }
+        return n;
+    }
+
+    /** TSV: probe, method, count, errors, mean/p50/p90/p99/max in microseconds. */
+    static String listAsTsv() {
+        StringBuilder sb = new StringBuilder();
+        for (Probe p : probes.values()) {
+            List<String> keys;
+            synchronized (p.methodKeys) { keys = new ArrayList<>(p.methodKeys); }
+            if (keys.isEmpty()) {
+                sb.append(p.id).append('\t').append(p.pattern).append("\t0\t0\t0\t0\t0\t0\t0\n");
+                continue;
+            }
+            for (String key : keys) {
+                Stats s = stats.get(key);
+                if (s == null) continue;
+                LatencyHistogram h = s.latency;
+                sb.append(p.id).append('\t')
+                  .append(s.display).append('\t')
+                  .append(h.count()).append('\t')
+                  .append(s.errors.sum()).append('\t')
+                  .append(micros(h.meanNanos())).append('\t')
+                  .append(micros(h.percentile(0.50))).append('\t')
+                  .append(micros(h.percentile(0.90))).append('\t')
+                  .append(micros(h.percentile(0.99))).append('\t')
+                  .append(micros(h.maxNanos())).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void registerMethod(Probe probe, TypeDescription type, MethodDescription m) {
+        String key = AdviceInstaller.methodKey(type, m);
+        stats.computeIfAbsent(key, k -> new Stats(probe.id, type.getName() + "#" + m.getName(), null));
+        synchronized (probe.methodKeys) {
+            if (!probe.methodKeys.contains(key)) probe.methodKeys.add(key);
+        }
+    }
+
+    /** Splits {@code <class glob>#<method glob>} and rejects class globs that match everything. */
+    static String[] parsePattern(String pattern) {
+        String[] parts = pattern.trim().split("#", 2);
+        String classGlob = parts[0].trim();
+        String methodGlob = parts.length > 1 && !parts[1].isBlank() ? parts[1].trim() : "*";
+        if (classGlob.isEmpty() || classGlob.replace("*", "").replace(".", "").isEmpty()) {
+            throw new IllegalArgumentException("Class pattern is too broad: " + pattern);
+        }
+        return new String[] { classGlob, methodGlob };
+    }
+
+    static String globToRegex(String glob) {
+        StringBuilder sb = new StringBuilder();
+        String[] parts = glob.split("\\*", -1);
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) sb.append(".*");
+            if (!parts[i].isEmpty()) sb.append(Pattern.quote(parts[i]));
+        }
+        return sb.toString();
+    }
+
+    static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+}
@@ -12,6 +12,9 @@ import java.util.concurrent.Executors;
  * all REPL logic to a dedicated ReplHandler.
  */
 public class MiniNreplServer {
+    // Handler keys sent as messages of their own; any other key rides along with "value".
+    private static final Set<String> STANDARD_KEYS = Set.of("value", "values", "output", "message", "err", "status", "imports");
+
     private final int port;
     private ServerSocket serverSocket;
     private ExecutorService executor;
@@ -70,7 +73,10 @@ public class MiniNreplServer {
                 // Restore full ops list for compatibility
                 respond(Map.of(
                     "id", id,
-                    "ops", "clone,describe,eval,java-eval,imports/get,imports/add,session/reset,snapshots,snapshot/save,snapshot/get,snapshot/list,snapshot/delete,list-beans,bind-spring,class-reload",
+                    "agent-phases", AgentStartup.phasesAsString(),
+                    "agent-milestones", AgentStartup.milestonesAsString(),
+                    "agent-transformer", AgentStartup.transformerState(),
+                    "ops", "clone,describe,eval,java-eval,imports/get,imports/add,session/reset,snapshots,snapshot/save,snapshot/get,snapshot/list,snapshot/delete,list-beans,bind-spring,class-reload,loaders/report,loaders/release,loaders/reuse,probe/add,probe/remove,probe/list,capture/add,capture/remove,capture/list,capture/entries,capture/save,endpoints/top,endpoints/remove,alloc/top,profile/cpu,heap/histo,heap/histo-diff,contention/report,bench,bench/parallel,list-contexts,use-context,beans/query,startup/report,caches/stats,caches/evict,caches/warm,pools/jdbc,executors,set-pool-size,sql/track,sql/remove",
                     "status", "done"
                 ), out);
                 return;
@@ -92,7 +98,13 @@ public class MiniNreplServer {
             String primaryValue = response.get("value");
             String valuesField = response.get("values");
             if (primaryValue != null && !primaryValue.isEmpty()) {
-                respond(Map.of("id", id, "session", sessionId, "value", primaryValue), out);
+                // Extra keys (e.g. a match total for paged results) travel with the value.
+                Map<String, String> valueMsg = new LinkedHashMap<>();
+                for (Map.Entry<String, String> e : response.entrySet()) {
+                    if (!STANDARD_KEYS.contains(e.getKey())) valueMsg.put(e.getKey(), e.getValue());
+                }
+                valueMsg.put("value", primaryValue);
+                respond(valueMsg, out);
             } else if (valuesField != null && !valuesField.equals("[]")) {
                 respond(Map.of("id", id, "session", sessionId, "value", valuesField), out);
             }
@@ -105,6 +117,18 @@ public class MiniNreplServer {
             if (response.containsKey("err")) {
                 respond(Map.of("id", id, "session", sessionId, "err", response.get("err")), out);
             }
+            boolean valueSent = (primaryValue != null && !primaryValue.isEmpty())
+                    || (valuesField != null && !valuesField.equals("[]"));
+            if (!valueSent) {
+                // No value to ride along with (e.g. the cost and sql summary of a statement-only
+                // eval): send extras last, so callers that look at the first message still see
+                // output or err.
+                Map<String, String> extras = new LinkedHashMap<>();
+                for (Map.Entry<String, String> e : response.entrySet()) {
+                    if (!STANDARD_KEYS.contains(e.getKey())) extras.put(e.getKey(), e.getValue());
+                }
+                if (extras.size() > 2) respond(extras, out);
+            }
             
             // Send final "done" status
             respond(Map.of("id", id, "session", sessionId, "status", "done"), out);
@@ -0,0 +1,120 @@
+package com.baader.devrt;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rough retained-size estimates for cached values: a breadth-limited walk of the object
+ * graph summing shallow sizes from Instrumentation (or a field-count guess without it).
+ * JDK internals are not reflectively readable, so JDK collections are walked through their
+ * public API with a per-entry overhead, and strings are sized from their length. The walk
+ * stops at {@code maxObjects}, so the result is a lower bound for large graphs.
+ */
+final class ObjectSizes {
+
+    private static final ClassValue<Field[]> REFERENCE_FIELDS = new ClassValue<>() {
+        @Override protected Field[] computeValue(Class<?> type) {
+            List<Field> out = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field f : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(f.getModifiers()) || f.getType().isPrimitive()) continue;
+                    try {
+                        f.setAccessible(true);
+                        out.add(f);
+                    } catch (RuntimeException ignored) {
+                        // Inaccessible module member: counted shallowly only.
+                    }
+                }
+            }
+            return out.toArray(new Field[0]);
+        }
+    };
+
+    private ObjectSizes() {}
+
+    static long deepSize(Object root, int maxObjects) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Object> pending = new ArrayDeque<>();
+        if (root != null) pending.push(root);
+        long total = 0;
+        while (!pending.isEmpty() && visited.size() < maxObjects) {
+            Object o = pending.pop();
+            if (!visited.add(o)) continue;
+            Class<?> c = o.getClass();
+            // Shared infrastructure, not owned by the value.
+            if (o instanceof Class || o instanceof ClassLoader || o instanceof Thread) continue;
+            total += shallow(o);
+            if (c.isArray()) {
+                if (!c.getComponentType().isPrimitive()) {
+                    for (int i = 0, n = Array.getLength(o); i < n; i++) push(pending, Array.get(o, i));
+                }
+            } else if (o instanceof String) {
+                total += 16 + ((String) o).length();
+            } else if (isJdk(c)) {
+                if (o instanceof Map) {
+                    Map<?, ?> m = (Map<?, ?>) o;
+                    total += 40L * m.size();
+                    for (Map.Entry<?, ?> e : m.entrySet()) { push(pending, e.getKey()); push(pending, e.getValue()); }
+                } else if (o instanceof Collection) {
+                    Collection<?> col = (Collection<?>) o;
+                    total += 16L * col.size();
+                    for (Object e : col) push(pending, e);
+                }
+            } else {
+                for (Field f : REFERENCE_FIELDS.get(c)) {
+                    try {
+                        push(pending, f.get(o));
+                    } catch (IllegalAccessException ignored) {}
+                }
+            }
+        }
+        return total;
+    }
+
+    /** Average deep size of {@code samples} key/value pairs, scaled to {@code size} entries. */
+    static long estimateMap(Map<?, ?> map, int samples, int maxObjectsPerEntry) {
+        int size = map.size();
+        if (size == 0) return 0;
+        long sampled = 0;
+        int n = 0;
+        try {
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                sampled += deepSize(e.getKey(), maxObjectsPerEntry) + deepSize(e.getValue(), maxObjectsPerEntry) + 40;
+                if (++n >= samples) break;
+            }
+        } catch (RuntimeException concurrentChange) {
+            if (n == 0) return -1;
+        }
+        return n == 0 ? 0 : sampled / n * size;
+    }
+
+    private static void push(ArrayDeque<Object> pending, Object o) {
+        if (o != null) pending.push(o);
+    }
+
+    private static boolean isJdk(Class<?> c) {
+        String n = c.getName();
+        return n.startsWith("java.") || n.startsWith("javax.") || n.startsWith("jdk.") || n.startsWith("sun.");
+    }
+
+    private static long shallow(Object o) {
+        Instrumentation inst = AgentRuntime.getInstrumentation();
+        if (inst != null) return inst.getObjectSize(o);
+        Class<?> c = o.getClass();
+        if (c.isArray()) {
+            int len = Array.getLength(o);
+            return 16 + (long) len * (c.getComponentType().isPrimitive() ? 4 : 8);
+        }
+        return 16 + 8L * REFERENCE_FIELDS.get(c).length;
+    }
+}
@@ -0,0 +1,183 @@
+package com.baader.devrt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Scaling test: runs a snippet on 1, 2, 4 ... N threads for a fixed time per step and
+ * reports throughput, speedup over one thread and per-call latency. Each step is recorded
+ * with a ContentionReport session so a flat speedup curve can be tied to the monitor or
+ * lock it serialises on. As in Bench, a CPU budget below 100% idles after each step, so
+ * the workers are busy at most that share of the wall time.
+ */
+final class ParallelBench {
+
+    static final int MAX_THREADS = 64;
+    static final long MAX_TOTAL_MILLIS = 120_000;
+    static final int DEFAULT_CPU_BUDGET_PERCENT = 50;
+
+    static final class Step {
+        final int threads;
+        final long ops;
+        final double opsPerSecond;
+        final double speedup;
+        final long p50, p90, p99, max;
+        final ContentionReport.Report contention;
+        Step(int threads, long ops, double opsPerSecond, double speedup,
+             long p50, long p90, long p99, long max, ContentionReport.Report contention) {
+            this.threads = threads; this.ops = ops; this.opsPerSecond = opsPerSecond; this.speedup = speedup;
+            this.p50 = p50; this.p90 = p90; this.p99 = p99; this.max = max; this.contention = contention;
+        }
+    }
+
+    private ParallelBench() {}
+
+    /** 1, 2, 4 ... up to and including {@code max}. */
+    static List<Integer> threadCounts(int max) {
+        List<Integer> out = new ArrayList<>();
+        for (int n = 1; n < max; n <<= 1) out.add(n);
+        out.add(max);
+        return out;
+    }
+
+    /** Half the cores, at most 4: enough to show a scaling trend without starving the app. */
+    static int defaultThreads() {
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    static synchronized List<Step> run(Supplier<Object> target, int maxThreads, long stepMillis, long warmupMillis,
+                                       int cpuBudgetPercent) throws Exception {
+        if (maxThreads < 1 || maxThreads > MAX_THREADS) {
+            throw new IllegalArgumentException("threads must be between 1 and " + MAX_THREADS);
+        }
+        if (cpuBudgetPercent < 1 || cpuBudgetPercent > 100) {
+            throw new IllegalArgumentException("cpu budget must be between 1 and 100 percent");
+        }
+        List<Integer> counts = threadCounts(maxThreads);
+        if (stepMillis < 100 || warmupMillis < 0 || warmupMillis + counts.size() * stepMillis > MAX_TOTAL_MILLIS) {
+            throw new IllegalArgumentException("step time must be at least 100 ms and the run at most "
+                    + MAX_TOTAL_MILLIS / 1000 + " s");
+        }
+        if (warmupMillis > 0) {
+            runStep(target, 1, warmupMillis);
+            idle(warmupMillis, cpuBudgetPercent);
+        }
+        List<Step> steps = new ArrayList<>();
+        double base = 0;
+        for (int threads : counts) {
+            ContentionReport.Session session = ContentionReport.start(1, 6);
+            StepResult r;
+            ContentionReport.Report contention;
+            try {
+                r = runStep(target, threads, stepMillis);
+            } finally {
+                // Always switch the JFR events off again, even when the snippet fails.
+                contention = session.stop();
+            }
+            idle(stepMillis, cpuBudgetPercent);
+            double opsPerSecond = r.ops / r.seconds;
+            if (threads == 1) base = opsPerSecond;
+            steps.add(new Step(threads, r.ops, opsPerSecond, base > 0 ? opsPerSecond / base : 0,
+                    LatencyHistogram.percentile(r.buckets, 0.50, r.max),
+                    LatencyHistogram.percentile(r.buckets, 0.90, r.max),
+                    LatencyHistogram.percentile(r.buckets, 0.99, r.max),
+                    r.max, contention));
+        }
+        return steps;
+    }
+
+    /**
+     * Columns: threads, ops/s, speedup, efficiency %, p50/p90/p99/max µs, blocked ms, and the
+     * most blocked-on monitor or lock class with its blocked ms.
+     */
+    static String toTsv(List<Step> steps) {
+        StringBuilder sb = new StringBuilder();
+        for (Step s : steps) {
+            sb.append(s.threads).append('\t')
+              .append(String.format(Locale.ROOT, "%.1f", s.opsPerSecond)).append('\t')
+              .append(String.format(Locale.ROOT, "%.2f", s.speedup)).append('\t')
+              .append(String.format(Locale.ROOT, "%.0f", 100 * s.speedup / s.threads)).append('\t')
+              .append(MethodProbes.micros(s.p50)).append('\t')
+              .append(MethodProbes.micros(s.p90)).append('\t')
+              .append(MethodProbes.micros(s.p99)).append('\t')
+              .append(MethodProbes.micros(s.max)).append('\t')
+              .append(ContentionReport.millis(s.contention.totalBlockedNanos())).append('\t');
+            if (!s.contention.byMonitor.isEmpty()) {
+                ContentionReport.Entry top = s.contention.byMonitor.get(0);
+                sb.append(top.monitorClass).append(" (").append(ContentionReport.millis(top.totalNanos)).append(" ms)");
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void idle(long busyMillis, int cpuBudgetPercent) throws InterruptedException {
+        if (cpuBudgetPercent >= 100) return;
+        Thread.sleep(busyMillis * (100 - cpuBudgetPercent) / cpuBudgetPercent);
+    }
+
+    private static final class StepResult {
+        long ops;
+        double seconds;
+        final long[] buckets = LatencyHistogram.newBuckets();
+        long max;
+    }
+
+    /** Runs {@code threads} workers for {@code millis}; per-thread histograms are merged at the end. */
+    private static StepResult runStep(Supplier<Object> target, int threads, long millis) throws Exception {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        LatencyHistogram[] histograms = new LatencyHistogram[threads];
+        long[] counts = new long[threads];
+        Thread[] workers = new Thread[threads];
+        long[] window = new long[2];
+        for (int i = 0; i < threads; i++) {
+            int id = i;
+            histograms[i] = new LatencyHistogram();
+            workers[i] = new Thread(() -> {
+                LatencyHistogram h = histograms[id];
+                Blackhole sink = new Blackhole();
+                long n = 0;
+                ready.countDown();
+                try {
+                    go.await();
+                    long end = window[1];
+                    long now = System.nanoTime();
+                    while (now < end && failure.get() == null) {
+                        sink.consume(target.get());
+                        long after = System.nanoTime();
+                        h.record(after - now);
+                        now = after;
+                        n++;
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+                counts[id] = n;
+            }, "devrt-bench-parallel-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        ready.await();
+        window[0] = System.nanoTime();
+        window[1] = window[0] + millis * 1_000_000L;
+        go.countDown();
+        for (Thread w : workers) w.join();
+        if (failure.get() != null) {
+            throw new IllegalStateException("Benchmark snippet failed: " + failure.get(), failure.get());
+        }
+        StepResult r = new StepResult();
+        r.seconds = millis / 1000.0;
+        for (int i = 0; i < threads; i++) {
+            r.ops += counts[i];
+            histograms[i].addTo(r.buckets);
+            r.max = Math.max(r.max, histograms[i].maxNanos());
+        }
+        return r;
+    }
+}
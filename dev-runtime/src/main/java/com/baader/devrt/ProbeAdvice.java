@@ -0,0 +1,22 @@
+package com.baader.devrt;
+
+import net.bytebuddy.asm.Advice;
+
+/**
+ * Inlined into probed methods by MethodProbes. Kept minimal: one nanoTime per edge and a
+ * map lookup on exit, so leaving a probe on a hot method stays cheap.
+ */
+public class ProbeAdvice {
+
+    @Advice.OnMethodEnter
+    public static long onEnter() {
+        return System.nanoTime();
+    }
+
+    @Advice.OnMethodExit(onThrowable = Throwable.class)
+    public static void onExit(@Advice.Enter long start,
+                              @Advice.Origin("#t.#m#d") String method,
+                              @Advice.Thrown Throwable thrown) {
+        MethodProbes.record(method, System.nanoTime() - start, thrown != null);
+    }
+}
@@ -14,7 +14,14 @@ public final class ReplBindings {
 
     public static void put(String name, Object value) { NAMED.put(name, value); }
     public static Object get(String name) { return NAMED.get(name); }
+    public static Object remove(String name) { return NAMED.remove(name); }
     public static Map<String, Object> snapshot() { return Collections.unmodifiableMap(NAMED); }
-    
+
+    // Shared benchmark sink; snippets can pass intermediate values to it as well.
+    private static final Blackhole BLACKHOLE = new Blackhole();
+
+    public static void consume(Object value) { BLACKHOLE.consume(value); }
+    public static void consume(long value) { BLACKHOLE.consume(value); }
+
     private ReplBindings() {}
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package com.baader.devrt;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * Handles the logic for all REPL operations, managing the JShell session state.
@@ -25,17 +28,69 @@ public class ReplHandler {
             case ReplOps.SESSION_RESET -> handleResetSession();
             case ReplOps.BIND_SPRING -> handleBindSpring(message);
             case ReplOps.CLASS_RELOAD -> handleClassReload(message);
-            case ReplOps.LIST_BEANS -> handleListBeans();
-            // Snapshot ops can be added here later
+            case ReplOps.LIST_BEANS -> handleListBeans(message);
+            case ReplOps.LOADERS_REPORT -> handleLoadersReport();
+            case ReplOps.LOADERS_RELEASE -> handleLoadersRelease(message);
+            case ReplOps.LOADERS_REUSE -> handleLoadersReuse(message);
+            case ReplOps.PROBE_ADD -> handleProbeAdd(message);
+            case ReplOps.PROBE_REMOVE -> handleProbeRemove(message);
+            case ReplOps.PROBE_LIST -> Map.of("value", MethodProbes.listAsTsv());
+            case ReplOps.CAPTURE_ADD -> handleCaptureAdd(message);
+            case ReplOps.CAPTURE_REMOVE -> handleCaptureRemove(message);
+            case ReplOps.CAPTURE_LIST -> Map.of("value", MethodCaptures.listAsTsv());
+            case ReplOps.CAPTURE_ENTRIES -> Map.of("value", MethodCaptures.entriesAsTsv(message.getOrDefault("id", "")));
+            case ReplOps.CAPTURE_SAVE -> handleCaptureSave(message);
+            case ReplOps.ENDPOINTS_TOP -> handleEndpointsTop(message);
+            case ReplOps.ENDPOINTS_REMOVE -> Map.of("value", EndpointLatency.remove()
+                    ? "Endpoint probes removed" : "No endpoint probes installed");
+            case ReplOps.ALLOC_TOP -> handleAllocTop(message);
+            case ReplOps.PROFILE_CPU -> handleProfileCpu(message);
+            case ReplOps.HEAP_HISTO -> handleHeapHisto(message);
+            case ReplOps.HEAP_HISTO_DIFF -> handleHeapHistoDiff(message);
+            case ReplOps.CONTENTION_REPORT -> handleContentionReport(message);
+            case ReplOps.BENCH -> handleBench(message);
+            case ReplOps.BENCH_PARALLEL -> handleBenchParallel(message);
+            case ReplOps.LIST_CONTEXTS -> Map.of("value", ContextRegistry.listAsTsv());
+            case ReplOps.USE_CONTEXT -> handleUseContext(message);
+            case ReplOps.BEANS_QUERY -> handleBeansQuery(message);
+            case ReplOps.STARTUP_REPORT -> handleStartupReport(message);
+            case ReplOps.CACHES_STATS -> handleCachesStats(message);
+            case ReplOps.CACHES_EVICT -> handleCachesEvict(message);
+            case ReplOps.CACHES_WARM -> handleCachesWarm(message);
+            case ReplOps.POOLS_JDBC -> handleJdbcPools(message);
+            case ReplOps.EXECUTORS -> handleExecutors(message);
+            case ReplOps.SET_POOL_SIZE -> handleSetPoolSize(message);
+            case ReplOps.SQL_TRACK -> handleSqlTrack();
+            case ReplOps.SQL_REMOVE -> Map.of("value", JdbcStatements.uninstall()
+                    ? "JDBC statement counting removed" : "JDBC statement counting was not installed");
+            case ReplOps.SNAPSHOT_GET -> handleSnapshotGet(message);
+            case ReplOps.SNAPSHOT_LIST, ReplOps.SNAPSHOTS ->
+                    Map.of("value", SnapshotStore.listAsTsv() + SnapshotManager.listAsTsv());
+            // Further snapshot ops can be added here later
             default -> Map.of("status", "error", "message", "Unknown op: " + op);
         };
     }
 
     private Map<String, Object> handleEval(Map<String, String> msg) {
         String code = msg.getOrDefault("code", "");
-        JShellSession.EvalResult res = sessionRef.get().eval(code);
-        
-        Map<String, Object> response = new LinkedHashMap<>();
+        JShellSession session = sessionRef.get();
+        JdbcStatements.Tracker sql = JdbcStatements.begin();
+        EvalCost cost = EvalCost.begin();
+        JShellSession.EvalResult res;
+        Map<String, Object> costs;
+        try {
+            res = session.eval(code);
+        } finally {
+            costs = cost.end();
+            JdbcStatements.end(sql);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>(costs);
+        if (sql.count() > 0) {
+            response.put("sql", sql.summary());
+            String repeated = sql.repeatedAsTsv(5);
+            if (!repeated.isEmpty()) response.put("sql-repeated", repeated);
+        }
         response.put("values", res.values());
         response.put("output", res.output());
         response.put("imports", res.imports());
@@ -82,7 +137,109 @@ public class ReplHandler {
         return Map.of("value", res.message != null ? res.message : "HotSwap completed");
     }
 
-    private Map<String, Object> handleListBeans() {
+    private Map<String, Object> handleLoadersReport() {
+        EvalClassLoaders.purgeCollected();
+        return Map.of("value", EvalClassLoaders.reportAsTsv());
+    }
+
+    private Map<String, Object> handleLoadersRelease(Map<String, String> msg) {
+        String id = msg.getOrDefault("id", "").trim();
+        if (id.isEmpty() || id.equals("all")) {
+            int n = EvalClassLoaders.releaseCached();
+            return Map.of("value", "Released " + n + " cached snippet loader(s)");
+        }
+        try {
+            boolean released = EvalClassLoaders.release(Long.parseLong(id));
+            return released
+                    ? Map.of("value", "Released loader " + id)
+                    : Map.of("status", "error", "err", "Unknown loader id: " + id);
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid loader id: " + id);
+        }
+    }
+
+    private Map<String, Object> handleLoadersReuse(Map<String, String> msg) {
+        String enabled = msg.get("enabled");
+        if (enabled != null) {
+            EvalClassLoaders.setReuseEnabled(Boolean.parseBoolean(enabled.trim()));
+        }
+        return Map.of("value", String.valueOf(EvalClassLoaders.isReuseEnabled()));
+    }
+
+    private Map<String, Object> handleProbeAdd(Map<String, String> msg) {
+        String pattern = msg.getOrDefault("pattern", "").trim();
+        if (pattern.isEmpty()) {
+            String cls = msg.getOrDefault("class", "").trim();
+            String method = msg.getOrDefault("method", "").trim();
+            pattern = method.isEmpty() ? cls : cls + "#" + method;
+        }
+        if (pattern.isEmpty()) {
+            return Map.of("status", "error", "err", "Missing 'pattern' (e.g. com.acme.OrderService#place*)");
+        }
+        try {
+            MethodProbes.Probe probe = MethodProbes.add(pattern);
+            return Map.of("value", probe.id, "message", "Probe " + probe.id + " installed on " + pattern);
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Probe install failed: " + t.getMessage());
+        }
+    }
+
+    private Map<String, Object> handleProbeRemove(Map<String, String> msg) {
+        String id = msg.getOrDefault("id", "").trim();
+        try {
+            if (id.isEmpty() || id.equals("all")) {
+                return Map.of("value", "Removed " + MethodProbes.removeAll() + " probe(s)");
+            }
+            return MethodProbes.remove(id)
+                    ? Map.of("value", "Removed probe " + id)
+                    : Map.of("status", "error", "err", "Unknown probe id: " + id);
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Probe removal failed: " + t.getMessage());
+        }
+    }
+
+    private Map<String, Object> handleCaptureAdd(Map<String, String> msg) {
+        String pattern = msg.getOrDefault("pattern", "").trim();
+        if (pattern.isEmpty()) {
+            return Map.of("status", "error", "err", "Missing 'pattern' (e.g. com.acme.OrderService#place)");
+        }
+        try {
+            double rate = Double.parseDouble(msg.getOrDefault("rate", "1.0").trim());
+            int size = Integer.parseInt(msg.getOrDefault("size", String.valueOf(MethodCaptures.DEFAULT_SIZE)).trim());
+            MethodCaptures.Capture c = MethodCaptures.add(pattern, msg.get("predicate"), rate, size);
+            return Map.of("value", c.id, "message", "Capture " + c.id + " installed on " + pattern);
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid rate/size: " + e.getMessage());
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Capture install failed: " + t.getMessage());
+        }
+    }
+
+    private Map<String, Object> handleCaptureRemove(Map<String, String> msg) {
+        String id = msg.getOrDefault("id", "").trim();
+        try {
+            if (id.isEmpty() || id.equals("all")) {
+                return Map.of("value", "Removed " + MethodCaptures.removeAll() + " capture(s)");
+            }
+            return MethodCaptures.remove(id)
+                    ? Map.of("value", "Removed capture " + id)
+                    : Map.of("status", "error", "err", "Unknown capture id: " + id);
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Capture removal failed: " + t.getMessage());
+        }
+    }
+
+    private Map<String, Object> handleCaptureSave(Map<String, String> msg) {
+        String id = msg.getOrDefault("id", "").trim();
+        String name = msg.getOrDefault("name", "").trim();
+        if (id.isEmpty() || name.isEmpty()) {
+            return Map.of("status", "error", "err", "Both 'id' and 'name' are required");
+        }
+        int n = SnapshotManager.saveCapture(name, id);
+        return Map.of("value", "Saved " + n + " captured call(s) as snapshot '" + name + "'");
+    }
+
+    private Map<String, Object> handleEndpointsTop(Map<String, String> msg) {
         Object ctx = ReplBindings.applicationContext();
         if (ctx == null) {
             ctx = SpringContextHolder.get();
@@ -91,41 +248,469 @@ public class ReplHandler {
             return Map.of("status", "error", "err", "No ApplicationContext bound in dev-runtime");
         }
         try {
-            // Avoid hard failure if Spring is not on the classpath
-            Class<?> appCtxClass = Class.forName("org.springframework.context.ApplicationContext");
-            if (!appCtxClass.isInstance(ctx)) {
-                return Map.of("status", "error", "err", "Bound context is not a Spring ApplicationContext");
-            }
-            Object appCtx = appCtxClass.cast(ctx);
-            // getBeanDefinitionNames()
-            String[] names;
-            try {
-                java.lang.reflect.Method getNames = appCtxClass.getMethod("getBeanDefinitionNames");
-                Object res = getNames.invoke(appCtx);
-                names = (String[]) res;
-            } catch (Throwable t) {
-                return Map.of("status", "error", "err", "Cannot list beans via ApplicationContext: " + t);
-            }
-            java.util.Arrays.sort(names);
-            StringBuilder sb = new StringBuilder();
-            for (String name : names) {
-                if (name == null || name.isEmpty()) continue;
-                String className = "";
-                try {
-                    java.lang.reflect.Method getBean = appCtxClass.getMethod("getBean", String.class);
-                    Object bean = getBean.invoke(appCtx, name);
-                    if (bean != null) {
-                        className = bean.getClass().getName();
-                    }
-                } catch (Throwable ignored) {}
-                sb.append(name).append('\t').append(className).append('\n');
-            }
-            return Map.of("value", sb.toString());
+            int n = Integer.parseInt(msg.getOrDefault("n", "20").trim());
+            int endpoints = EndpointLatency.install(ctx);
+            return Map.of("value", EndpointLatency.topAsTsv(n, msg.getOrDefault("sort", "p99")),
+                    "message", endpoints + " endpoint(s) instrumented");
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid n: " + e.getMessage());
         } catch (Throwable t) {
-            return Map.of("status", "error", "err", t.toString());
+            return Map.of("status", "error", "err", "Endpoint probes failed: " + t.getMessage());
+        }
+    }
+
+    private Map<String, Object> handleAllocTop(Map<String, String> msg) {
+        try {
+            int seconds = Integer.parseInt(msg.getOrDefault("seconds", "10").trim());
+            int n = Integer.parseInt(msg.getOrDefault("n", "30").trim());
+            int depth = Integer.parseInt(msg.getOrDefault("depth", "5").trim());
+            int rate = Integer.parseInt(msg.getOrDefault("rate", "300").trim());
+            AllocationSampler.Report report = AllocationSampler.record(seconds, depth, rate);
+            return Map.of("value", AllocationSampler.toTsv(report, n),
+                    "message", report.totalSamples + " sample(s), ~" + (report.totalBytes >> 20)
+                            + " MiB sampled over " + seconds + "s");
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid seconds/n/depth/rate: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Map.of("status", "error", "err", "Allocation recording interrupted");
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Allocation recording failed: " + t.getMessage());
+        }
+    }
+
+    private Map<String, Object> handleProfileCpu(Map<String, String> msg) {
+        try {
+            int seconds = Integer.parseInt(msg.getOrDefault("seconds", "10").trim());
+            int interval = Integer.parseInt(msg.getOrDefault("interval", "10").trim());
+            CpuProfiler.Profile profile = CpuProfiler.sample(seconds, interval);
+            return Map.of("value", CpuProfiler.collapsed(profile),
+                    "message", profile.samples + " sample(s) in " + profile.ticks + " tick(s)"
+                            + (profile.truncated ? ", trie truncated at " + CpuProfiler.MAX_NODES + " nodes" : ""));
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid seconds/interval: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Map.of("status", "error", "err", "CPU profile interrupted");
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "CPU profile failed: " + t.getMessage());
+        }
+    }
+
+    private Map<String, Object> handleHeapHisto(Map<String, String> msg) {
+        try {
+            int n = Integer.parseInt(msg.getOrDefault("n", "50").trim());
+            boolean all = Boolean.parseBoolean(msg.getOrDefault("all", "false").trim());
+            HeapHistograms.Capture c = HeapHistograms.capture(msg.get("name"), all);
+            return Map.of("value", HeapHistograms.toTsv(c, n),
+                    "message", "Captured histogram '" + c.name + "': " + c.rows.size() + " classes, "
+                            + (c.totalBytes >> 20) + " MiB" + (all ? "" : " live"));
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid n: " + e.getMessage());
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Class histogram failed: " + t.getMessage());
+        }
+    }
+
+    private Map<String, Object> handleHeapHistoDiff(Map<String, String> msg) {
+        String from = msg.getOrDefault("from", "").trim();
+        String to = msg.getOrDefault("to", "").trim();
+        if (from.isEmpty() || to.isEmpty()) {
+            return Map.of("status", "error", "err", "Both 'from' and 'to' capture names are required");
+        }
+        HeapHistograms.Capture a = HeapHistograms.get(from);
+        HeapHistograms.Capture b = HeapHistograms.get(to);
+        if (a == null || b == null) {
+            return Map.of("status", "error", "err", "Unknown histogram capture: " + (a == null ? from : to));
+        }
+        try {
+            int n = Integer.parseInt(msg.getOrDefault("n", "50").trim());
+            return Map.of("value", HeapHistograms.diffAsTsv(HeapHistograms.diff(a, b), n),
+                    "message", "Heap change " + from + " -> " + to + ": "
+                            + ((b.totalBytes - a.totalBytes) >> 10) + " KiB");
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid n: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> handleContentionReport(Map<String, String> msg) {
+        try {
+            int seconds = Integer.parseInt(msg.getOrDefault("seconds", "10").trim());
+            long threshold = Long.parseLong(msg.getOrDefault("threshold", "1").trim());
+            int depth = Integer.parseInt(msg.getOrDefault("depth", "6").trim());
+            int n = Integer.parseInt(msg.getOrDefault("n", "20").trim());
+            ContentionReport.Report report = ContentionReport.record(seconds, threshold, depth);
+            return Map.of("value", ContentionReport.toTsv(report, n),
+                    "message", ContentionReport.millis(report.totalBlockedNanos()) + " ms blocked in "
+                            + report.byMonitor.size() + " monitor class(es) over " + seconds + "s");
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid seconds/threshold/depth/n: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Map.of("status", "error", "err", "Contention report interrupted");
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Contention report failed: " + t.getMessage());
+        }
+    }
+
+    private Map<String, Object> handleBench(Map<String, String> msg) {
+        String code = msg.getOrDefault("code", "").trim();
+        if (code.isEmpty()) {
+            return Map.of("status", "error", "err", "Missing 'code' to benchmark");
+        }
+        try {
+            Bench.Options o = new Bench.Options();
+            o.warmupIterations = Integer.parseInt(msg.getOrDefault("warmup", String.valueOf(o.warmupIterations)).trim());
+            o.iterations = Integer.parseInt(msg.getOrDefault("iterations", String.valueOf(o.iterations)).trim());
+            o.forks = Integer.parseInt(msg.getOrDefault("forks", String.valueOf(o.forks)).trim());
+            o.iterationMillis = Long.parseLong(msg.getOrDefault("time", String.valueOf(o.iterationMillis)).trim());
+            o.cpuBudgetPercent = Integer.parseInt(msg.getOrDefault("cpu", String.valueOf(o.cpuBudgetPercent)).trim());
+            Supplier<Object> target = sessionRef.get().compileSupplier(code);
+            return Map.of("value", Bench.run(target, o).describe());
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid bench option: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Map.of("status", "error", "err", "Benchmark interrupted");
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Benchmark failed: " + t.getMessage());
+        }
+    }
+
+    private Map<String, Object> handleBenchParallel(Map<String, String> msg) {
+        String code = msg.getOrDefault("code", "").trim();
+        if (code.isEmpty()) {
+            return Map.of("status", "error", "err", "Missing 'code' to benchmark");
+        }
+        // Snippets reach the live beans through ReplBindings; bind the captured context if needed.
+        if (ReplBindings.applicationContext() == null && SpringContextHolder.get() != null) {
+            ReplBindings.setApplicationContext(SpringContextHolder.get());
+        }
+        try {
+            int threads = Integer.parseInt(msg.getOrDefault("threads", String.valueOf(ParallelBench.defaultThreads())).trim());
+            long step = Long.parseLong(msg.getOrDefault("time", "2000").trim());
+            long warmup = Long.parseLong(msg.getOrDefault("warmup", "1000").trim());
+            int cpu = Integer.parseInt(msg.getOrDefault("cpu", String.valueOf(ParallelBench.DEFAULT_CPU_BUDGET_PERCENT)).trim());
+            Supplier<Object> target = sessionRef.get().compileSupplier(code);
+            List<ParallelBench.Step> steps = ParallelBench.run(target, threads, step, warmup, cpu);
+            ParallelBench.Step last = steps.get(steps.size() - 1);
+            return Map.of("value", ParallelBench.toTsv(steps),
+                    "message", String.format(Locale.ROOT, "Speedup at %d thread(s): %.2fx",
+                            last.threads, last.speedup));
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid bench option: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Map.of("status", "error", "err", "Benchmark interrupted");
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Benchmark failed: " + t.getMessage());
+        }
+    }
+
+    private Map<String, Object> handleListBeans(Map<String, String> msg) {
+        Object ctx = ReplBindings.applicationContext();
+        if (ctx == null) {
+            ctx = SpringContextHolder.get();
+        }
+        if (ctx == null) {
+            return Map.of("status", "error", "err", "No ApplicationContext bound in dev-runtime");
+        }
+        try {
+            int offset = Integer.parseInt(msg.getOrDefault("offset", "0").trim());
+            int limit = Integer.parseInt(msg.getOrDefault("limit", "0").trim());
+            BeanIndex index = BeanIndex.of(ContextRegistry.register(ctx));
+            List<BeanIndex.Row> matches = index.filter(msg.get("q"));
+            return Map.of("value", BeanIndex.toTsv(matches, offset, limit),
+                    "total", String.valueOf(matches.size()),
+                    "message", matches.size() + " of " + index.rows.size() + " bean(s)");
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid offset/limit: " + e.getMessage());
+        } catch (ClassNotFoundException e) {
+            return Map.of("status", "error", "err", "Bound context is not a Spring ApplicationContext");
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Cannot list beans: " + t);
+        }
+    }
+
+    private Map<String, Object> handleBeansQuery(Map<String, String> msg) {
+        Object ctx = ReplBindings.applicationContext();
+        if (ctx == null) {
+            ctx = SpringContextHolder.get();
+        }
+        if (ctx == null) {
+            return Map.of("status", "error", "err", "No ApplicationContext bound in dev-runtime");
+        }
+        try {
+            int offset = Integer.parseInt(msg.getOrDefault("offset", "0").trim());
+            int limit = Integer.parseInt(msg.getOrDefault("limit", "50").trim());
+            // Free-form query text plus optional explicit predicates.
+            BeanQuery query = BeanQuery.parse(msg.get("q"));
+            if (msg.containsKey("type")) query.type(msg.get("type"));
+            if (msg.containsKey("annotation")) query.annotation(msg.get("annotation"));
+            if (msg.containsKey("name")) query.name(msg.get("name"));
+            if (msg.containsKey("package")) query.pkg(msg.get("package"));
+            BeanIndex index = BeanIndex.of(ContextRegistry.register(ctx));
+            List<BeanIndex.Row> matches = query.run(index);
+            return Map.of("value", BeanIndex.toTsv(matches, offset, limit),
+                    "total", String.valueOf(matches.size()),
+                    "message", matches.size() + " of " + index.rows.size() + " bean(s) match");
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid offset/limit: " + e.getMessage());
+        } catch (ClassNotFoundException e) {
+            return Map.of("status", "error", "err", "Bound context is not a Spring ApplicationContext");
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Bean query failed: " + t);
+        }
+    }
+
+    private Map<String, Object> handleStartupReport(Map<String, String> msg) {
+        try {
+            int n = Integer.parseInt(msg.getOrDefault("n", "30").trim());
+            double min = Double.parseDouble(msg.getOrDefault("min", "1").trim());
+            Object ctx = ReplBindings.applicationContext();
+            if (ctx == null) {
+                ctx = SpringContextHolder.get();
+            }
+            BeanStartup.Report report = BeanStartup.report(ctx);
+            if (report == null) {
+                return Map.of("status", "error", "err", "No bean startup data: attach with -javaagent at launch, "
+                        + "or set a BufferingApplicationStartup on the SpringApplication");
+            }
+            return Map.of("value", BeanStartup.toTsv(report, n, min),
+                    "message", String.format(Locale.ROOT, "%d bean(s), %.1f ms in top-level creations (%s)",
+                            report.beans, report.totalNanos() / 1e6, report.source));
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid n/min: " + e.getMessage());
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Startup report failed: " + t);
+        }
+    }
+
+    private static ContextRegistry.Entry boundContext() {
+        Object ctx = ReplBindings.applicationContext();
+        if (ctx == null) {
+            ctx = SpringContextHolder.get();
+        }
+        return ctx != null ? ContextRegistry.register(ctx) : null;
+    }
+
+    private Map<String, Object> handleCachesStats(Map<String, String> msg) {
+        ContextRegistry.Entry ctx = boundContext();
+        if (ctx == null) {
+            return Map.of("status", "error", "err", "No ApplicationContext bound in dev-runtime");
+        }
+        try {
+            boolean memory = Boolean.parseBoolean(msg.getOrDefault("memory", "true").trim());
+            List<SpringCaches.CacheInfo> caches = SpringCaches.stats(ctx, memory);
+            return Map.of("value", SpringCaches.toTsv(caches), "message", caches.size() + " cache(s)");
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Cache statistics failed: " + t);
         }
     }
 
+    private Map<String, Object> handleCachesEvict(Map<String, String> msg) {
+        ContextRegistry.Entry ctx = boundContext();
+        if (ctx == null) {
+            return Map.of("status", "error", "err", "No ApplicationContext bound in dev-runtime");
+        }
+        String name = msg.getOrDefault("cache", "").trim();
+        if (name.isEmpty()) {
+            return Map.of("status", "error", "err", "Missing 'cache' name");
+        }
+        try {
+            // Clearing needs an explicit all=true, so a forgotten or null key never empties a cache.
+            boolean all = Boolean.parseBoolean(msg.getOrDefault("all", "false").trim());
+            String keyCode = msg.getOrDefault("key", "").trim();
+            if (all == !keyCode.isEmpty()) {
+                return Map.of("status", "error", "err", "Pass either 'key' or all=true to clear the whole cache");
+            }
+            Object cache = SpringCaches.find(ctx, msg.get("manager"), name);
+            if (all) {
+                SpringCaches.clear(cache);
+                return Map.of("value", "Cleared cache " + name);
+            }
+            // The key is a snippet expression, so typed keys (Long, records ...) can be evicted.
+            Object key = sessionRef.get().compileSupplier(keyCode).get();
+            if (key == null) {
+                return Map.of("status", "error", "err", "Key expression evaluated to null; nothing evicted");
+            }
+            SpringCaches.evict(cache, key);
+            return Map.of("value", "Evicted " + key + " from " + name);
+        } catch (InvocationTargetException e) {
+            return Map.of("status", "error", "err", "Cache eviction failed: " + e.getCause());
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Cache eviction failed: " + t);
+        }
+    }
+
+    private Map<String, Object> handleCachesWarm(Map<String, String> msg) {
+        ContextRegistry.Entry ctx = boundContext();
+        if (ctx == null) {
+            return Map.of("status", "error", "err", "No ApplicationContext bound in dev-runtime");
+        }
+        String name = msg.getOrDefault("cache", "").trim();
+        String code = msg.getOrDefault("code", "").trim();
+        if (name.isEmpty() || code.isEmpty()) {
+            return Map.of("status", "error", "err", "Both 'cache' and 'code' (a snippet returning a Map) are required");
+        }
+        try {
+            Object cache = SpringCaches.find(ctx, msg.get("manager"), name);
+            Object entries = sessionRef.get().compileSupplier(code).get();
+            if (!(entries instanceof Map)) {
+                return Map.of("status", "error", "err", "Snippet must return a Map of cache entries, got "
+                        + (entries == null ? "null" : entries.getClass().getName()));
+            }
+            return Map.of("value", "Put " + SpringCaches.warm(cache, (Map<?, ?>) entries) + " entries into " + name);
+        } catch (InvocationTargetException e) {
+            return Map.of("status", "error", "err", "Cache warm-up failed: " + e.getCause());
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Cache warm-up failed: " + t);
+        }
+    }
+
+    /**
+     * Starts sampling on first use (or when interval/size are given), optionally resizes a
+     * pool (pool, max, min) or stops (stop=true). Replies with the pools as the value and
+     * the samples newer than {@code since} under "samples".
+     */
+    private Map<String, Object> handleSqlTrack() {
+        ContextRegistry.Entry ctx = boundContext();
+        if (ctx == null) {
+            return Map.of("status", "error", "err", "No ApplicationContext bound in dev-runtime");
+        }
+        try {
+            if (!JdbcStatements.install(ctx)) {
+                return Map.of("status", "error", "err", "No DataSource bean in the bound context");
+            }
+            return Map.of("value", "Counting JDBC statements per eval; sql/remove stops it");
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "JDBC statement counting failed: " + t.getMessage());
+        }
+    }
+
+    private Map<String, Object> handleJdbcPools(Map<String, String> msg) {
+        ContextRegistry.Entry ctx = boundContext();
+        if (ctx == null) {
+            return Map.of("status", "error", "err", "No ApplicationContext bound in dev-runtime");
+        }
+        try {
+            if (Boolean.parseBoolean(msg.getOrDefault("stop", "false").trim())) {
+                return Map.of("value", JdbcPools.stop() ? "Stopped pool sampling" : "Pool sampling was not running");
+            }
+            String resized = null;
+            String max = msg.getOrDefault("max", "").trim();
+            if (!max.isEmpty()) {
+                resized = JdbcPools.resize(ctx, msg.getOrDefault("pool", "").trim(), Integer.parseInt(max),
+                        Integer.parseInt(msg.getOrDefault("min", "-1").trim()));
+            }
+            if (!JdbcPools.isRunning() || msg.containsKey("interval") || msg.containsKey("size")) {
+                long interval = Long.parseLong(msg.getOrDefault("interval",
+                        String.valueOf(JdbcPools.intervalMillis())).trim());
+                int size = Integer.parseInt(msg.getOrDefault("size", String.valueOf(JdbcPools.DEFAULT_SIZE)).trim());
+                JdbcPools.start(ctx, interval, Math.max(1, Math.min(size, 100_000)));
+            }
+            if (JdbcPools.pools().isEmpty()) {
+                JdbcPools.stop();
+                return Map.of("status", "error", "err", "No HikariCP or Tomcat JDBC pool among the DataSource beans"
+                        + (JdbcPools.unsupported().isEmpty() ? "" : ": " + String.join(", ", JdbcPools.unsupported())));
+            }
+            long since = Long.parseLong(msg.getOrDefault("since", "0").trim());
+            String message = JdbcPools.pools().size() + " pool(s), sampled every " + JdbcPools.intervalMillis() + " ms"
+                    + (resized != null ? "; " + resized : "")
+                    + (JdbcPools.unsupported().isEmpty() ? "" : "; not a known pool: " + String.join(", ", JdbcPools.unsupported()));
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("value", JdbcPools.poolsAsTsv());
+            response.put("samples", JdbcPools.samplesAsTsv(since));
+            if (resized != null) response.put("resized", resized);
+            response.put("message", message);
+            return response;
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid number: " + e.getMessage());
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "JDBC pool monitor failed: " + t);
+        }
+    }
+
+    /**
+     * Lists executor beans with live values, starting the sampler on first use (or when
+     * interval/size are given); stop=true stops it. Samples newer than {@code since} ride
+     * along under "samples".
+     */
+    private Map<String, Object> handleExecutors(Map<String, String> msg) {
+        ContextRegistry.Entry ctx = boundContext();
+        if (ctx == null) {
+            return Map.of("status", "error", "err", "No ApplicationContext bound in dev-runtime");
+        }
+        try {
+            if (Boolean.parseBoolean(msg.getOrDefault("stop", "false").trim())) {
+                return Map.of("value", ExecutorPools.stop() ? "Stopped executor sampling" : "Executor sampling was not running");
+            }
+            if (!ExecutorPools.isRunning() || msg.containsKey("interval") || msg.containsKey("size")) {
+                long interval = Long.parseLong(msg.getOrDefault("interval",
+                        String.valueOf(ExecutorPools.intervalMillis())).trim());
+                int size = Integer.parseInt(msg.getOrDefault("size", String.valueOf(ExecutorPools.DEFAULT_SIZE)).trim());
+                ExecutorPools.start(ctx, interval, Math.max(1, Math.min(size, 100_000)));
+            }
+            if (ExecutorPools.pools().isEmpty()) {
+                ExecutorPools.stop();
+                return Map.of("status", "error", "err", "No thread pool among the Executor beans"
+                        + (ExecutorPools.unsupported().isEmpty() ? "" : ": " + String.join(", ", ExecutorPools.unsupported())));
+            }
+            long since = Long.parseLong(msg.getOrDefault("since", "0").trim());
+            return Map.of("value", ExecutorPools.poolsAsTsv(), "samples", ExecutorPools.samplesAsTsv(since),
+                    "message", ExecutorPools.pools().size() + " executor(s), sampled every " + ExecutorPools.intervalMillis() + " ms"
+                            + (ExecutorPools.unsupported().isEmpty() ? "" : "; not a thread pool: "
+                            + String.join(", ", ExecutorPools.unsupported())));
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid number: " + e.getMessage());
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Executor introspection failed: " + t);
+        }
+    }
+
+    private Map<String, Object> handleSetPoolSize(Map<String, String> msg) {
+        ContextRegistry.Entry ctx = boundContext();
+        if (ctx == null) {
+            return Map.of("status", "error", "err", "No ApplicationContext bound in dev-runtime");
+        }
+        String name = msg.getOrDefault("name", "").trim();
+        if (name.isEmpty()) {
+            return Map.of("status", "error", "err", "Missing executor bean 'name'");
+        }
+        try {
+            int core = Integer.parseInt(msg.getOrDefault("core", "-1").trim());
+            int max = Integer.parseInt(msg.getOrDefault("max", "-1").trim());
+            if (core < 0 && max < 0) {
+                return Map.of("status", "error", "err", "Give 'core' and/or 'max'");
+            }
+            return Map.of("value", ExecutorPools.setPoolSize(ctx, name, core, max));
+        } catch (NumberFormatException e) {
+            return Map.of("status", "error", "err", "Invalid core/max: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return Map.of("status", "error", "err", e.getMessage());
+        } catch (Throwable t) {
+            return Map.of("status", "error", "err", "Resize failed: " + t);
+        }
+    }
+
+    private Map<String, Object> handleUseContext(Map<String, String> msg) {
+        String id = msg.getOrDefault("id", "").trim();
+        if (id.isEmpty()) {
+            return Map.of("status", "error", "err", "Missing context 'id' (see list-contexts)");
+        }
+        ContextRegistry.Entry e = ContextRegistry.use(id);
+        if (e == null) {
+            return Map.of("status", "error", "err", "Unknown or collected context: " + id);
+        }
+        // Rebind the session so ctx/applicationContext in snippets point at the chosen context.
+        JShellSession oldSession = sessionRef.getAndSet(new JShellSession(e.context()));
+        if (oldSession != null) {
+            oldSession.close();
+        }
+        return Map.of("value", e.id, "message", "Using context " + e.id + " (" + e.springId + ", "
+                + e.beanCount() + " beans); session reset");
+    }
+
     private Map<String, Object> handleBindSpring(Map<String, String> msg) {
         try {
             // Prefer context captured by the transformer; if not present, fall back to
@@ -155,4 +740,18 @@ public class ReplHandler {
             return Map.of("status", "error", "err", t.toString());
         }
     }
+
+    private Map<String, Object> handleSnapshotGet(Map<String, String> msg) {
+        String name = msg.getOrDefault("name", "").trim();
+        if (name.isEmpty()) {
+            return Map.of("status", "error", "err", "Missing 'name'");
+        }
+        // Persisted snapshots pretty-printed; JSON kept by SnapshotStore as it was saved.
+        String json = SnapshotManager.show(name);
+        if (json == null) json = SnapshotStore.getJson(name);
+        if (json == null) {
+            return Map.of("status", "error", "err", "No JSON snapshot named '" + name + "'");
+        }
+        return Map.of("value", json);
+    }
 }
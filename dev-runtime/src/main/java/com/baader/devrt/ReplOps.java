@@ -8,7 +8,40 @@ public final class ReplOps {
     public static final String SNAPSHOT_SAVE = "snapshot/save";
     public static final String SNAPSHOT_GET  = "snapshot/get";
     public static final String SNAPSHOT_LIST = "snapshot/list";
+    public static final String SNAPSHOTS = "snapshots";
     public static final String SNAPSHOT_DELETE = "snapshot/delete";
+    public static final String LOADERS_REPORT = "loaders/report";
+    public static final String LOADERS_RELEASE = "loaders/release";
+    public static final String LOADERS_REUSE = "loaders/reuse";
+    public static final String PROBE_ADD = "probe/add";
+    public static final String PROBE_REMOVE = "probe/remove";
+    public static final String PROBE_LIST = "probe/list";
+    public static final String CAPTURE_ADD = "capture/add";
+    public static final String CAPTURE_REMOVE = "capture/remove";
+    public static final String CAPTURE_LIST = "capture/list";
+    public static final String CAPTURE_ENTRIES = "capture/entries";
+    public static final String CAPTURE_SAVE = "capture/save";
+    public static final String ENDPOINTS_TOP = "endpoints/top";
+    public static final String ENDPOINTS_REMOVE = "endpoints/remove";
+    public static final String ALLOC_TOP = "alloc/top";
+    public static final String PROFILE_CPU = "profile/cpu";
+    public static final String HEAP_HISTO = "heap/histo";
+    public static final String HEAP_HISTO_DIFF = "heap/histo-diff";
+    public static final String CONTENTION_REPORT = "contention/report";
+    public static final String BENCH = "bench";
+    public static final String BENCH_PARALLEL = "bench/parallel";
+    public static final String LIST_CONTEXTS = "list-contexts";
+    public static final String USE_CONTEXT = "use-context";
+    public static final String BEANS_QUERY = "beans/query";
+    public static final String STARTUP_REPORT = "startup/report";
+    public static final String CACHES_STATS = "caches/stats";
+    public static final String CACHES_EVICT = "caches/evict";
+    public static final String CACHES_WARM = "caches/warm";
+    public static final String POOLS_JDBC = "pools/jdbc";
+    public static final String EXECUTORS = "executors";
+    public static final String SET_POOL_SIZE = "set-pool-size";
+    public static final String SQL_TRACK = "sql/track";
+    public static final String SQL_REMOVE = "sql/remove";
     
     // Legacy ops for compatibility
     public static final String JAVA_EVAL = "java-eval";
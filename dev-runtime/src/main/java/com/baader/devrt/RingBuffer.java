@@ -0,0 +1,47 @@
+package com.baader.devrt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size, lock-free ring: writers claim a slot with one atomic increment and
+ * overwrite the oldest element, so memory stays bounded no matter how long it runs.
+ */
+final class RingBuffer<T> {
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLong next = new AtomicLong();
+
+    RingBuffer(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    void add(T value) {
+        long seq = next.getAndIncrement();
+        slots.set((int) (seq % slots.length()), value);
+    }
+
+    int capacity() { return slots.length(); }
+
+    /** Number of elements ever added, including overwritten ones. */
+    long total() { return next.get(); }
+
+    /** Current contents, oldest first. */
+    List<T> snapshot() {
+        long end = next.get();
+        int cap = slots.length();
+        long start = Math.max(0, end - cap);
+        List<T> out = new ArrayList<>((int) (end - start));
+        for (long seq = start; seq < end; seq++) {
+            T v = slots.get((int) (seq % cap));
+            if (v != null) out.add(v);
+        }
+        return out;
+    }
+
+    void clear() {
+        for (int i = 0; i < slots.length(); i++) slots.set(i, null);
+    }
+}
@@ -0,0 +1,214 @@
+package com.baader.devrt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Metadata of the persisted (JSON) snapshots, kept in one compacted TSV file next to them so
+ * listing and info never touch the directory. The file is rewritten atomically on every
+ * change. It is loaded once, when the agent starts or on first use; that load also reconciles
+ * it with the directory: files saved before the index existed are added (taking their type
+ * from the old .type sidecar, which is then removed), rows whose file is gone are dropped,
+ * and files whose size changed are re-checksummed.
+ * <p>
+ * Several agents (one per JVM) may share the directory. Every change therefore re-reads the
+ * file and applies itself to what is there, holding a lock on {@code index.lock}, so rows
+ * written by another agent are kept, and this agent's rows are refreshed from the file.
+ */
+final class SnapshotIndex {
+
+    private static final String HEADER = "# name\ttype\tsize\tts\tcrc32c\ttier";
+    // A FileLock is held per JVM, not per thread; indexes of the same directory in one JVM
+    // would fail with OverlappingFileLockException without this.
+    private static final Object JVM_LOCK = new Object();
+
+    static final class Row {
+        final String name;
+        final String type;
+        final long size;
+        final long ts;
+        final long checksum;
+        final String tier;
+
+        Row(String name, String type, long size, long ts, long checksum, String tier) {
+            this.name = name;
+            this.type = type;
+            this.size = size;
+            this.ts = ts;
+            this.checksum = checksum;
+            this.tier = tier;
+        }
+
+        String checksumHex() {
+            return String.format("%08x", checksum);
+        }
+    }
+
+    private interface Change {
+        /** Applies itself to the current rows; true if they need writing. */
+        boolean apply(Map<String, Row> rows);
+    }
+
+    private final Path dir;
+    private final Path file;
+    private final Path lockFile;
+    private final Map<String, Row> rows = new TreeMap<>();
+    private boolean loaded;
+
+    SnapshotIndex(Path dir) {
+        this.dir = dir;
+        this.file = dir.resolve("index.tsv");
+        this.lockFile = dir.resolve("index.lock");
+    }
+
+    synchronized void load() {
+        if (loaded) return;
+        loaded = true;
+        try {
+            update(rows -> reconcile());
+        } catch (Exception e) {
+            System.err.println("Failed to load snapshot index: " + e);
+        }
+    }
+
+    /** Adds files the index does not know, drops rows without a file; true if anything changed. */
+    private boolean reconcile() {
+        boolean dirty = !Files.exists(file);
+        try {
+            Set<String> onDisk = new HashSet<>();
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) files::iterator) {
+                    String fileName = p.getFileName().toString();
+                    if (!fileName.endsWith(".json")) continue;
+                    String name = fileName.substring(0, fileName.length() - ".json".length());
+                    onDisk.add(name);
+                    Row known = rows.get(name);
+                    long size = Files.size(p);
+                    if (known != null && known.size == size) continue;
+                    String type = known != null ? known.type : migrateType(name);
+                    rows.put(name, new Row(name, type, size, Files.getLastModifiedTime(p).toMillis(), checksum(p), "DISK"));
+                    dirty = true;
+                }
+            }
+            dirty |= rows.keySet().retainAll(onDisk);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return dirty;
+    }
+
+    synchronized Row get(String name) {
+        load();
+        return rows.get(name);
+    }
+
+    /** Rows sorted by name. */
+    synchronized List<Row> rows() {
+        load();
+        return new ArrayList<>(rows.values());
+    }
+
+    synchronized void put(Row row) throws Exception {
+        load();
+        update(rows -> {
+            rows.put(row.name, row);
+            return true;
+        });
+    }
+
+    synchronized void remove(String name) {
+        load();
+        try {
+            update(rows -> rows.remove(name) != null);
+        } catch (Exception e) {
+            System.err.println("Failed to update snapshot index: " + e);
+        }
+    }
+
+    synchronized void clear() {
+        load();
+        try {
+            update(rows -> {
+                boolean changed = !rows.isEmpty();
+                rows.clear();
+                return changed;
+            });
+        } catch (Exception e) {
+            System.err.println("Failed to update snapshot index: " + e);
+        }
+    }
+
+    /** Re-reads the file under the directory lock, applies {@code change} and writes the result. */
+    private void update(Change change) throws Exception {
+        synchronized (JVM_LOCK) {
+            try (FileChannel ch = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                ch.lock(); // released when the channel closes
+                if (Files.exists(file)) {
+                    rows.clear();
+                    for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                        Row r = parse(line);
+                        if (r != null) rows.put(r.name, r);
+                    }
+                }
+                if (change.apply(rows)) persist();
+            }
+        }
+    }
+
+    private void persist() throws Exception {
+        StringBuilder sb = new StringBuilder(HEADER).append('\n');
+        for (Row r : rows.values()) {
+            sb.append(r.name).append('\t').append(r.type).append('\t').append(r.size).append('\t')
+              .append(r.ts).append('\t').append(r.checksumHex()).append('\t').append(r.tier).append('\n');
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        SnapshotManager.writeAtomically(file, out -> out.write(bytes));
+    }
+
+    private static Row parse(String line) {
+        if (line.isEmpty() || line.startsWith("#")) return null;
+        String[] p = line.split("\t", -1);
+        if (p.length < 6) return null;
+        try {
+            return new Row(p[0], p[1], Long.parseLong(p[2]), Long.parseLong(p[3]), Long.parseLong(p[4], 16), p[5]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** Type from the sidecar file older versions wrote next to each snapshot; removes it. */
+    private String migrateType(String name) {
+        Path typePath = dir.resolve(name + ".type");
+        try {
+            if (!Files.exists(typePath)) return "";
+            String type = Files.readString(typePath).trim();
+            Files.delete(typePath);
+            return type;
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    static long checksum(Path path) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buf = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(path)) {
+            for (int n; (n = in.read(buf)) > 0; ) crc.update(buf, 0, n);
+        }
+        return crc.getValue();
+    }
+}
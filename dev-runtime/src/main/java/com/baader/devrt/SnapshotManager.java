@@ -2,57 +2,67 @@ package com.baader.devrt;
 
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
 
 /**
- * Simplified Snapshot Manager - auto-detects whether to save as JSON or Object
+ * Simplified Snapshot Manager - auto-detects whether to save as JSON or Object.
+ * JSON snapshots are streamed to and from disk as compact JSON, never held as one String;
+ * files are replaced atomically (temp file + rename). Pretty-printing happens only in
+ * {@link #show}. Their metadata lives in a {@link SnapshotIndex}, so listing never scans
+ * the directory.
  */
 public class SnapshotManager {
-    private static final Map<String, Object> objectCache = new ConcurrentHashMap<>();
-    private static final Map<String, String> typeCache = new ConcurrentHashMap<>();
-    private static final Path SNAPSHOT_DIR = Paths.get(System.getProperty("user.home"), ".java-repl-snapshots");
+    static final Path DEFAULT_DIR = Paths.get(System.getProperty("user.home"), ".java-repl-snapshots");
+    private static final int IO_BUFFER = 64 * 1024;
+    // Everything below belongs to one snapshot directory and is replaced with it (see useDirectory).
+    private static volatile Path snapshotDir;
+    // Objects Jackson can't write; bounded, spilling to disk when serializable.
+    private static volatile SnapshotTier objectCache;
+    // SnapshotStore's pinned objects, spilling next to them, under the same budget.
+    private static volatile SnapshotTier pinned;
+    private static volatile SnapshotIndex index;
 
     static {
+        useDirectory(DEFAULT_DIR);
+    }
+
+    /**
+     * Keeps snapshots in {@code dir} from now on, starting with empty in-memory tiers; the
+     * agent stays on the default, tests point it at a temporary directory
+     */
+    static synchronized void useDirectory(Path dir) {
         try {
-            Files.createDirectories(SNAPSHOT_DIR);
+            Files.createDirectories(dir);
         } catch (IOException e) {
             System.err.println("Failed to create snapshot directory: " + e);
         }
+        SnapshotTier.Budget budget = new SnapshotTier.Budget();
+        objectCache = new SnapshotTier(dir.resolve("spill"), budget);
+        pinned = new SnapshotTier(dir.resolve("pinned"), budget);
+        index = new SnapshotIndex(dir);
+        snapshotDir = dir;
     }
 
-    private static Object getObjectMapper() {
-        try {
-            ClassLoader cl = Thread.currentThread().getContextClassLoader();
-            if (cl == null) cl = SnapshotManager.class.getClassLoader();
-            Class<?> omClass = Class.forName("com.fasterxml.jackson.databind.ObjectMapper", true, cl);
-            Object mapper = omClass.getConstructor().newInstance();
-
-            // Configure mapper
-            try {
-                Class<?> sfClass = Class.forName("com.fasterxml.jackson.databind.SerializationFeature", true, cl);
-                java.lang.reflect.Method enable = omClass.getMethod("enable", sfClass);
-                java.lang.reflect.Method disable = omClass.getMethod("disable", sfClass);
-
-                Object indentOutput = sfClass.getField("INDENT_OUTPUT").get(null);
-                Object failOnEmpty = sfClass.getField("FAIL_ON_EMPTY_BEANS").get(null);
-                Object writeDates = sfClass.getField("WRITE_DATES_AS_TIMESTAMPS").get(null);
-
-                enable.invoke(mapper, indentOutput);
-                disable.invoke(mapper, failOnEmpty);
-                disable.invoke(mapper, writeDates);
-            } catch (Exception e) {
-                // Ignore configuration errors
-            }
-
-            return mapper;
-        } catch (Exception e) {
-            return null;
-        }
+    static SnapshotTier pinned() {
+        return pinned;
     }
 
     /**
@@ -61,30 +71,30 @@ public class SnapshotManager {
     public static void save(String name, Object obj) {
         if (obj == null) {
             objectCache.remove(name);
-            typeCache.remove(name);
             deleteJsonFile(name);
             return;
         }
 
         // Try to save as JSON first (for persistence)
         try {
-            Object mapper = getObjectMapper();
+            JsonMappers.Mapper mapper = JsonMappers.forContext();
             if (mapper != null) {
-                java.lang.reflect.Method writeValueAsString = mapper.getClass().getMethod("writeValueAsString", Object.class);
-                String json = (String) writeValueAsString.invoke(mapper, obj);
-                saveJsonFile(name, json);
-                typeCache.put(name, obj.getClass().getName());
+                saveJsonFile(name, mapper, obj);
                 objectCache.remove(name); // Remove from memory cache if JSON save successful
                 System.out.println("Saved as JSON: " + name + " (" + obj.getClass().getSimpleName() + ")");
             } else {
                 throw new Exception("ObjectMapper not available");
             }
         } catch (Exception e) {
-            // If JSON serialization fails, keep in memory
-            objectCache.put(name, obj);
-            typeCache.put(name, obj.getClass().getName());
+            // If JSON serialization fails, keep the object itself (memory, or spilled to disk)
             deleteJsonFile(name); // Clean up any old JSON file
-            System.out.println("Saved in memory: " + name + " (" + obj.getClass().getSimpleName() + ")");
+            SnapshotTier.Tier tier = objectCache.put(name, obj);
+            if (tier == null) {
+                System.out.println("Not saved: " + name + " exceeds the snapshot memory budget and could not be spilled to disk");
+            } else {
+                System.out.println((tier == SnapshotTier.Tier.MEMORY ? "Saved in memory: " : "Saved to disk (over memory budget): ")
+                        + name + " (" + obj.getClass().getSimpleName() + ")");
+            }
         }
     }
 
@@ -94,35 +104,36 @@ public class SnapshotManager {
     @SuppressWarnings("unchecked")
     public static <T> T load(String name) {
         // Check memory cache first
-        if (objectCache.containsKey(name)) {
+        SnapshotTier.Entry entry = objectCache.entry(name);
+        if (entry != null) {
             T cached = (T) objectCache.get(name);
-            System.out.println("Loaded from memory cache: " + name + " = " + cached);
+            System.out.println((entry.tier == SnapshotTier.Tier.MEMORY ? "Loaded from memory cache: " : "Loaded from disk spill: ")
+                    + name + " = " + cached);
             return cached;
         }
 
         // Try loading from JSON file
-        String json = loadJsonFile(name);
-        if (json != null) {
-            System.out.println("Found JSON for " + name + ": " + json.substring(0, Math.min(100, json.length())) + "...");
-            String typeName = typeCache.get(name);
-            if (typeName != null) {
+        SnapshotIndex.Row row = index.get(name);
+        if (row != null) {
+            Path jsonPath = snapshotDir.resolve(name + ".json");
+            String typeName = row.type;
+            System.out.println("Loading JSON snapshot: " + name + " (" + row.size + " bytes)");
+            if (!typeName.isEmpty()) {
                 try {
                     ClassLoader cl = Thread.currentThread().getContextClassLoader();
                     if (cl == null) cl = SnapshotManager.class.getClassLoader();
                     Class<?> clazz = cl.loadClass(typeName);
 
-                    Object mapper = getObjectMapper();
+                    JsonMappers.Mapper mapper = JsonMappers.forContext();
                     if (mapper != null) {
-                        java.lang.reflect.Method readValue = mapper.getClass().getMethod("readValue", String.class, Class.class);
-                        return (T) readValue.invoke(mapper, json, clazz);
+                        return (T) readVerified(row, jsonPath, mapper, clazz);
                     }
                 } catch (Exception e) {
                     // Try generic deserialization
                     try {
-                        Object mapper = getObjectMapper();
+                        JsonMappers.Mapper mapper = JsonMappers.forContext();
                         if (mapper != null) {
-                            java.lang.reflect.Method readValue = mapper.getClass().getMethod("readValue", String.class, Class.class);
-                            return (T) readValue.invoke(mapper, json, Object.class);
+                            return (T) readVerified(row, jsonPath, mapper, Object.class);
                         }
                     } catch (Exception e2) {
                         System.err.println("Failed to deserialize " + name + ": " + e2);
@@ -148,17 +159,10 @@ public class SnapshotManager {
 
         // Try to convert via JSON
         try {
-            Object mapper = getObjectMapper();
+            JsonMappers.Mapper mapper = JsonMappers.forContext();
             if (mapper != null) {
-                String json;
-                if (obj instanceof String) {
-                    json = (String) obj;
-                } else {
-                    java.lang.reflect.Method writeValueAsString = mapper.getClass().getMethod("writeValueAsString", Object.class);
-                    json = (String) writeValueAsString.invoke(mapper, obj);
-                }
-                java.lang.reflect.Method readValue = mapper.getClass().getMethod("readValue", String.class, Class.class);
-                return type.cast(readValue.invoke(mapper, json, type));
+                String json = obj instanceof String ? (String) obj : mapper.write(obj, false);
+                return mapper.read(json, type);
             }
         } catch (Exception e) {
             System.err.println("Failed to convert " + name + " to " + type.getName() + ": " + e);
@@ -187,22 +191,22 @@ public class SnapshotManager {
         }
     }
 
+    /**
+     * Save the entries of a method capture (see MethodCaptures) as a snapshot
+     */
+    public static int saveCapture(String name, String captureId) {
+        List<Map<String, Object>> entries = MethodCaptures.entriesAsMaps(captureId);
+        save(name, entries);
+        return entries.size();
+    }
+
     /**
      * List all snapshots
      */
     public static List<String> list() {
         Set<String> names = new HashSet<>();
-        names.addAll(objectCache.keySet());
-
-        // Add JSON files
-        try {
-            Files.list(SNAPSHOT_DIR)
-                .filter(p -> p.toString().endsWith(".json"))
-                .map(p -> p.getFileName().toString().replace(".json", ""))
-                .forEach(names::add);
-        } catch (IOException e) {
-            // Ignore
-        }
+        for (SnapshotTier.Entry e : objectCache.entries()) names.add(e.name);
+        for (SnapshotIndex.Row row : index.rows()) names.add(row.name);
 
         List<String> sorted = new ArrayList<>(names);
         Collections.sort(sorted);
@@ -216,25 +220,23 @@ public class SnapshotManager {
         StringBuilder sb = new StringBuilder();
         sb.append("Name: ").append(name).append("\n");
 
-        if (objectCache.containsKey(name)) {
-            Object obj = objectCache.get(name);
-            sb.append("Storage: Memory\n");
-            sb.append("Type: ").append(obj.getClass().getName()).append("\n");
-            sb.append("Value: ").append(obj.toString()).append("\n");
+        SnapshotTier.Entry entry = objectCache.entry(name);
+        if (entry != null) {
+            sb.append("Storage: ").append(entry.tier == SnapshotTier.Tier.MEMORY ? "Memory" : "Disk (spilled)").append("\n");
+            sb.append("Type: ").append(entry.type).append("\n");
+            sb.append("Size: ~").append(entry.size).append(" bytes (estimated)\n");
+            Object obj = entry.value;
+            if (obj != null) sb.append("Value: ").append(obj).append("\n");
         } else {
-            Path jsonPath = SNAPSHOT_DIR.resolve(name + ".json");
-            if (Files.exists(jsonPath)) {
+            SnapshotIndex.Row row = index.get(name);
+            if (row != null) {
                 sb.append("Storage: JSON file\n");
-                String typeName = typeCache.get(name);
-                if (typeName != null) {
-                    sb.append("Type: ").append(typeName).append("\n");
-                }
-                try {
-                    long size = Files.size(jsonPath);
-                    sb.append("Size: ").append(size).append(" bytes\n");
-                } catch (IOException e) {
-                    // Ignore
+                if (!row.type.isEmpty()) {
+                    sb.append("Type: ").append(row.type).append("\n");
                 }
+                sb.append("Size: ").append(row.size).append(" bytes\n");
+                sb.append("Saved: ").append(Instant.ofEpochMilli(row.ts)).append("\n");
+                sb.append("Checksum: ").append(row.checksumHex()).append(" (CRC32C)\n");
             } else {
                 sb.append("Not found\n");
             }
@@ -243,12 +245,52 @@ public class SnapshotManager {
         return sb.toString();
     }
 
+    /**
+     * Pretty-printed JSON of a snapshot, for display; null if it is not a JSON snapshot
+     */
+    public static String show(String name) {
+        Path jsonPath = snapshotDir.resolve(name + ".json");
+        JsonMappers.Mapper mapper = JsonMappers.forContext();
+        if (mapper == null || index.get(name) == null) return null;
+        try {
+            return mapper.write(readJsonFile(jsonPath, mapper, Object.class), true);
+        } catch (Exception e) {
+            System.err.println("Failed to read " + name + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Snapshots as TSV: name, type, mode (JSON or OBJECT), timestamp, size in bytes
+     * (estimated for objects), tier (MEMORY or DISK)
+     */
+    public static String listAsTsv() {
+        StringBuilder sb = new StringBuilder();
+        for (SnapshotTier.Entry e : objectCache.entries()) {
+            sb.append(e.name).append('\t').append(e.type).append("\tOBJECT\t").append(e.ts).append('\t')
+              .append(e.size).append('\t').append(e.tier).append('\n');
+        }
+        for (SnapshotIndex.Row row : index.rows()) {
+            if (objectCache.contains(row.name)) continue;
+            sb.append(row.name).append('\t').append(row.type).append("\tJSON\t").append(row.ts).append('\t')
+              .append(row.size).append('\t').append(row.tier).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Memory budget for snapshots kept as objects, shared with SnapshotStore's pinned objects;
+     * the oldest are spilled or dropped beyond it
+     */
+    public static void setMemoryBudget(long bytes) {
+        objectCache.setBudget(bytes);
+    }
+
     /**
      * Delete a snapshot
      */
     public static void delete(String name) {
         objectCache.remove(name);
-        typeCache.remove(name);
         deleteJsonFile(name);
     }
 
@@ -257,64 +299,108 @@ public class SnapshotManager {
      */
     public static void clear() {
         objectCache.clear();
-        typeCache.clear();
 
-        try {
-            Files.list(SNAPSHOT_DIR)
-                .filter(p -> p.toString().endsWith(".json"))
-                .forEach(p -> {
-                    try {
-                        Files.delete(p);
-                    } catch (IOException e) {
-                        // Ignore
-                    }
-                });
-        } catch (IOException e) {
-            // Ignore
+        for (SnapshotIndex.Row row : index.rows()) {
+            try {
+                Files.deleteIfExists(snapshotDir.resolve(row.name + ".json"));
+            } catch (IOException e) {
+                // Ignore
+            }
         }
+        index.clear();
+    }
+
+    /**
+     * Reads the snapshot index and reconciles it with the directory; called once at agent start
+     */
+    static void loadIndex() {
+        index.load();
     }
 
     // Helper methods
-    private static void saveJsonFile(String name, String json) {
+    private static void saveJsonFile(String name, JsonMappers.Mapper mapper, Object obj) throws Exception {
+        Path jsonPath = snapshotDir.resolve(name + ".json");
+        CRC32C crc = new CRC32C();
+        writeAtomically(jsonPath, out -> {
+            OutputStream checked = new CheckedOutputStream(out, crc);
+            mapper.writeTo(checked, obj);
+            checked.flush();
+        });
+        index.put(new SnapshotIndex.Row(name, obj.getClass().getName(), Files.size(jsonPath),
+                System.currentTimeMillis(), crc.getValue(), SnapshotTier.Tier.DISK.name()));
+    }
+
+    interface StreamWriter {
+        void write(OutputStream out) throws Exception;
+    }
+
+    /**
+     * Writes through a buffered channel into a temp file next to {@code target}, forces it to
+     * disk and renames it over the target, so readers see the old or the new file, never half.
+     */
+    static void writeAtomically(Path target, StreamWriter writer) throws Exception {
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
         try {
-            Path path = SNAPSHOT_DIR.resolve(name + ".json");
-            Files.writeString(path, json);
-
-            // Save type info
-            Path typePath = SNAPSHOT_DIR.resolve(name + ".type");
-            String typeName = typeCache.get(name);
-            if (typeName != null) {
-                Files.writeString(typePath, typeName);
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(ch), IO_BUFFER);
+                writer.write(out);
+                out.flush();
+                ch.force(true);
             }
-        } catch (IOException e) {
-            System.err.println("Failed to save JSON file: " + e);
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
         }
     }
 
-    private static String loadJsonFile(String name) {
-        try {
-            Path path = SNAPSHOT_DIR.resolve(name + ".json");
-            if (Files.exists(path)) {
-                // Load type info if available
-                Path typePath = SNAPSHOT_DIR.resolve(name + ".type");
-                if (Files.exists(typePath)) {
-                    String typeName = Files.readString(typePath);
-                    typeCache.put(name, typeName);
+    /**
+     * Reads a snapshot file and checks it against the CRC32C its index row was written with.
+     * A file changed outside the agent is still returned (it parsed), with a warning, and its
+     * row is updated so the warning is not repeated.
+     */
+    private static <T> T readVerified(SnapshotIndex.Row row, Path path, JsonMappers.Mapper mapper, Class<T> type) throws Exception {
+        CRC32C crc = new CRC32C();
+        T value;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+             InputStream in = new CheckedInputStream(new BufferedInputStream(Channels.newInputStream(ch), IO_BUFFER), crc)) {
+            // Jackson closes its input; the rest of the file still has to go through the checksum.
+            value = mapper.readFrom(new FilterInputStream(in) {
+                @Override
+                public void close() {
                 }
-                return Files.readString(path);
+            }, type);
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        if (crc.getValue() != row.checksum) {
+            System.err.println("Snapshot " + row.name + " was changed outside the agent (checksum "
+                    + row.checksumHex() + ", file " + String.format("%08x", crc.getValue()) + ")");
+            try {
+                index.put(new SnapshotIndex.Row(row.name, row.type, Files.size(path),
+                        Files.getLastModifiedTime(path).toMillis(), crc.getValue(), row.tier));
+            } catch (Exception e) {
+                System.err.println("Failed to update snapshot index: " + e);
             }
-        } catch (IOException e) {
-            System.err.println("Failed to load JSON file: " + e);
         }
-        return null;
+        return value;
+    }
+
+    private static <T> T readJsonFile(Path path, JsonMappers.Mapper mapper, Class<T> type) throws Exception {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+             InputStream in = new BufferedInputStream(Channels.newInputStream(ch), IO_BUFFER)) {
+            return mapper.readFrom(in, type);
+        }
     }
 
     private static void deleteJsonFile(String name) {
         try {
-            Files.deleteIfExists(SNAPSHOT_DIR.resolve(name + ".json"));
-            Files.deleteIfExists(SNAPSHOT_DIR.resolve(name + ".type"));
+            Files.deleteIfExists(snapshotDir.resolve(name + ".json"));
         } catch (IOException e) {
             // Ignore
         }
+        index.remove(name);
     }
 }
\ No newline at end of file
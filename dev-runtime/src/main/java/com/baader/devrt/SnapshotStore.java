@@ -1,6 +1,5 @@
 package com.baader.devrt;
 
-import java.lang.reflect.Method;
 import java.time.Instant;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -12,15 +11,16 @@ public final class SnapshotStore {
         Meta(String n, String t, long ts, long sz, Mode m){this.name=n;this.type=t;this.ts=ts;this.approxSize=sz;this.mode=m;}
     }
 
-    private static final Map<String,Object> live = new ConcurrentHashMap<>();
     private static final Map<String,String> json = new ConcurrentHashMap<>();
     private static final Map<String,Meta> meta = new ConcurrentHashMap<>();
 
     public static void pin(String name, Object obj){
-        live.put(name, obj);
-        meta.put(name, new Meta(name, obj!=null?obj.getClass().getName():"null", Instant.now().toEpochMilli(), estimate(obj), Mode.LIVE));
+        json.remove(name);
+        if (obj == null || live().put(name, obj) == null) { live().remove(name); meta.remove(name); return; }
+        SnapshotTier.Entry e = live().entry(name);
+        meta.put(name, new Meta(name, e.type, e.ts, e.size, Mode.LIVE));
     }
-    public static Object get(String name){ return live.get(name); }
+    public static Object get(String name){ return live().get(name); }
 
     public static void saveJson(String name, Object obj){
         String j;
@@ -29,38 +29,42 @@ public final class SnapshotStore {
         } else {
             j = toJson(obj);
         }
+        live().remove(name);
         json.put(name, j);
         meta.put(name, new Meta(name, obj!=null?obj.getClass().getName():"null", Instant.now().toEpochMilli(), j!=null?j.length():0, Mode.JSON));
     }
     public static String getJson(String name){ return json.get(name); }
 
+    // Pinned objects; bounded, spilling to disk when serializable. Owned by SnapshotManager with its directory.
+    private static SnapshotTier live(){ return SnapshotManager.pinned(); }
+
+    /** Columns: name, type, mode, timestamp, approximate size, tier (MEMORY or DISK). */
     public static String listAsTsv(){
         StringBuilder sb = new StringBuilder();
         for (Meta m : meta.values()){
+            SnapshotTier.Entry e = m.mode == Mode.LIVE ? live().entry(m.name) : null;
+            if (m.mode == Mode.LIVE && e == null) continue; // dropped over budget
             sb.append(m.name).append('\t')
               .append(m.type).append('\t')
               .append(m.mode).append('\t')
               .append(m.ts).append('\t')
-              .append(m.approxSize).append('\n');
+              .append(m.approxSize).append('\t')
+              .append(e != null ? e.tier : SnapshotTier.Tier.MEMORY).append('\n');
         }
         return sb.toString();
     }
 
-    public static void delete(String name){ live.remove(name); json.remove(name); meta.remove(name); }
+    public static void delete(String name){ live().remove(name); json.remove(name); meta.remove(name); }
 
-    private static long estimate(Object o){ return 0L; }
+    /** Memory budget for pinned objects, shared with SnapshotManager's; the oldest are spilled or dropped beyond it. */
+    public static void setMemoryBudget(long bytes){ live().setBudget(bytes); }
 
     private static String toJson(Object obj){
         if (obj == null) return "null";
-        // Try Jackson via app class loader
+        // Try Jackson via app class loader; compact for size
         try {
-            ClassLoader cl = Thread.currentThread().getContextClassLoader();
-            if (cl == null) cl = SnapshotStore.class.getClassLoader();
-            Class<?> om = Class.forName("com.fasterxml.jackson.databind.ObjectMapper", true, cl);
-            Object mapper = om.getConstructor().newInstance();
-            // enable pretty? skip for size
-            Method write = om.getMethod("writeValueAsString", Object.class);
-            return (String) write.invoke(mapper, obj);
+            JsonMappers.Mapper mapper = JsonMappers.forContext();
+            if (mapper != null) return mapper.write(obj, false);
         } catch (Throwable ignored) {}
         // Fallback
         return String.valueOf(obj);
@@ -0,0 +1,310 @@
+package com.baader.devrt;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Snapshot objects held by reference, bounded by a memory budget. Entries are sized with
+ * ObjectSizes when stored and kept in least-recently-used order; when the budget is
+ * exceeded the oldest entries spill to disk with Java serialization, or are dropped with a
+ * notice when they are not serializable. Spilled entries are read back on demand as copies
+ * and stay on disk. An entry larger than the whole budget never enters memory.
+ * <p>
+ * Tiers can share one {@link Budget}, which then caps them together and evicts the least
+ * recently used entry of any of them; its monitor guards all their entries. Serialization
+ * and reading spilled entries back happen outside that monitor, one spill at a time per
+ * tier. Spill files only live as long as the tier, so a new tier clears its directory.
+ */
+final class SnapshotTier {
+
+    enum Tier { MEMORY, DISK }
+
+    static final class Entry {
+        final String name;
+        final String type;
+        final long size;
+        final long ts;
+        Tier tier = Tier.MEMORY;
+        Object value;
+        // Chosen for eviction and no longer counted against the budget; being written out.
+        boolean spilling;
+        long lastUsed;
+
+        Entry(String name, Object value, long size) {
+            this.name = name;
+            this.type = value.getClass().getName();
+            this.size = size;
+            this.ts = System.currentTimeMillis();
+            this.value = value;
+        }
+    }
+
+    /** A memory budget for one or more tiers. */
+    static final class Budget {
+        private final List<SnapshotTier> tiers = new ArrayList<>();
+        private long limit;
+        private long used;
+        private long clock;
+
+        Budget() {
+            this.limit = defaultBudget;
+        }
+    }
+
+    // Deep-size walk limit; larger graphs are under-estimated rather than walked for seconds.
+    private static final int MAX_SIZED_OBJECTS = 200_000;
+    private static volatile long defaultBudget = Math.min(256L << 20, Runtime.getRuntime().maxMemory() / 8);
+
+    private final Path spillDir;
+    private final Budget budget;
+    // Least recently used first; get() moves an entry to the end, lookups for listing don't.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private final Object spillLock = new Object();
+
+    SnapshotTier(Path spillDir) {
+        this(spillDir, new Budget());
+    }
+
+    SnapshotTier(Path spillDir, Budget budget) {
+        this.spillDir = spillDir;
+        this.budget = budget;
+        synchronized (budget) {
+            budget.tiers.add(this);
+        }
+        purgeSpills();
+    }
+
+    /** Budget for budgets created from now on (agent argument snapshotBudgetMb). */
+    static void setDefaultBudget(long bytes) {
+        defaultBudget = bytes;
+    }
+
+    long budget() {
+        synchronized (budget) {
+            return budget.limit;
+        }
+    }
+
+    long used() {
+        synchronized (budget) {
+            return budget.used;
+        }
+    }
+
+    /** Changes the (possibly shared) budget, spilling whatever no longer fits. */
+    void setBudget(long bytes) {
+        List<Entry> victims = new ArrayList<>();
+        synchronized (budget) {
+            budget.limit = bytes;
+            chooseVictims(null, victims);
+        }
+        spill(victims);
+    }
+
+    /** Stores {@code value}; returns the tier it ended up in, or null if it was dropped. */
+    Tier put(String name, Object value) {
+        Entry e = new Entry(name, value, ObjectSizes.deepSize(value, MAX_SIZED_OBJECTS));
+        List<Entry> victims = new ArrayList<>();
+        synchronized (budget) {
+            remove(name);
+            e.lastUsed = ++budget.clock;
+            entries.put(name, e);
+            if (e.size > budget.limit) {
+                e.spilling = true;
+                victims.add(e);
+            } else {
+                budget.used += e.size;
+                chooseVictims(e, victims);
+            }
+        }
+        spill(victims);
+        synchronized (budget) {
+            return entries.get(name) == e ? e.tier : null;
+        }
+    }
+
+    boolean contains(String name) {
+        synchronized (budget) {
+            return entries.containsKey(name);
+        }
+    }
+
+    Entry entry(String name) {
+        synchronized (budget) {
+            return entries.get(name);
+        }
+    }
+
+    /** The value; a fresh copy for spilled entries, or null if absent or unreadable. */
+    Object get(String name) {
+        Entry e;
+        synchronized (budget) {
+            e = entries.remove(name);
+            if (e == null) return null;
+            entries.put(name, e);
+            e.lastUsed = ++budget.clock;
+            if (e.tier == Tier.MEMORY) return e.value;
+        }
+        try {
+            return readSpilled(spillFile(name));
+        } catch (Exception ex) {
+            // Removed or replaced while reading is not an error.
+            if (entry(name) == e) System.err.println("Failed to read spilled snapshot " + name + ": " + ex);
+            return null;
+        }
+    }
+
+    void remove(String name) {
+        synchronized (budget) {
+            Entry e = entries.remove(name);
+            if (e == null) return;
+            if (e.tier == Tier.DISK) {
+                deleteSpill(name);
+            } else if (!e.spilling) {
+                budget.used -= e.size;
+            }
+        }
+    }
+
+    void clear() {
+        synchronized (budget) {
+            for (String name : new ArrayList<>(entries.keySet())) remove(name);
+        }
+    }
+
+    /** Entries in least- to most-recently-used order. */
+    List<Entry> entries() {
+        synchronized (budget) {
+            return new ArrayList<>(entries.values());
+        }
+    }
+
+    /**
+     * While over budget, takes the least recently used in-memory entry of any tier sharing
+     * it (never {@code keep}) off the budget and adds it to {@code victims}.
+     */
+    private void chooseVictims(Entry keep, List<Entry> victims) {
+        while (budget.used > budget.limit) {
+            Entry oldest = null;
+            for (SnapshotTier t : budget.tiers) {
+                for (Entry e : t.entries.values()) {
+                    if (e == keep || e.tier != Tier.MEMORY || e.spilling) continue;
+                    if (oldest == null || e.lastUsed < oldest.lastUsed) oldest = e;
+                    break;
+                }
+            }
+            if (oldest == null) return;
+            oldest.spilling = true;
+            budget.used -= oldest.size;
+            victims.add(oldest);
+        }
+    }
+
+    private void spill(List<Entry> victims) {
+        for (Entry e : victims) {
+            owner(e).spill(e);
+        }
+    }
+
+    private SnapshotTier owner(Entry e) {
+        synchronized (budget) {
+            for (SnapshotTier t : budget.tiers) {
+                if (t.entries.get(e.name) == e) return t;
+            }
+        }
+        return this;
+    }
+
+    /** Writes a victim to disk, or drops it; a victim removed or replaced meanwhile is skipped. */
+    private void spill(Entry e) {
+        synchronized (spillLock) {
+            Object value;
+            synchronized (budget) {
+                if (entries.get(e.name) != e) return;
+                value = e.value;
+            }
+            Exception failure = null;
+            if (value instanceof Serializable) {
+                try {
+                    Files.createDirectories(spillDir);
+                    SnapshotManager.writeAtomically(spillFile(e.name), out -> {
+                        ObjectOutputStream oos = new ObjectOutputStream(out);
+                        oos.writeObject(value);
+                        oos.flush();
+                    });
+                } catch (Exception ex) {
+                    failure = ex;
+                }
+            }
+            synchronized (budget) {
+                e.spilling = false;
+                if (entries.get(e.name) != e) {
+                    deleteSpill(e.name);
+                } else if (value instanceof Serializable && failure == null) {
+                    e.tier = Tier.DISK;
+                    e.value = null;
+                    System.out.println("Snapshot spilled to disk: " + e.name + " (~" + e.size + " bytes)");
+                } else {
+                    deleteSpill(e.name);
+                    entries.remove(e.name);
+                    System.out.println("Snapshot dropped to stay within the memory budget: " + e.name + " (~" + e.size
+                            + " bytes, " + (failure != null ? "could not be spilled: " + failure : "not serializable") + ")");
+                }
+            }
+        }
+    }
+
+    private Path spillFile(String name) {
+        return spillDir.resolve(name + ".ser");
+    }
+
+    private void deleteSpill(String name) {
+        try {
+            Files.deleteIfExists(spillFile(name));
+        } catch (IOException ignored) {
+        }
+    }
+
+    /** Spill files left by an earlier run; nothing refers to them any more. */
+    private void purgeSpills() {
+        if (!Files.isDirectory(spillDir)) return;
+        try (DirectoryStream<Path> spills = Files.newDirectoryStream(spillDir, "*.ser")) {
+            for (Path p : spills) Files.deleteIfExists(p);
+        } catch (IOException e) {
+            System.err.println("Failed to clear old snapshot spills in " + spillDir + ": " + e);
+        }
+    }
+
+    private static Object readSpilled(Path path) throws Exception {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        ClassLoader loader = cl != null ? cl : SnapshotTier.class.getClassLoader();
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+             InputStream in = new BufferedInputStream(Channels.newInputStream(ch), 64 * 1024);
+             ObjectInputStream ois = new ObjectInputStream(in) {
+                 @Override
+                 protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                     try {
+                         return Class.forName(desc.getName(), false, loader);
+                     } catch (ClassNotFoundException e) {
+                         return super.resolveClass(desc);
+                     }
+                 }
+             }) {
+            return ois.readObject();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.baader.devrt;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Caches of every CacheManager bean in a context, with the provider's own statistics:
+ * Caffeine's estimated size and hit/miss/eviction counters (when recordStats is on), size
+ * for ConcurrentMap-backed caches, which keep no counters. Memory is estimated by sampling
+ * entries with ObjectSizes. Everything goes through the Spring and Caffeine interfaces
+ * reflectively, since neither is on the agent's class path.
+ */
+final class SpringCaches {
+
+    static final String CACHE_MANAGER = "org.springframework.cache.CacheManager";
+    static final int MEMORY_SAMPLES = 32;
+
+    static final class CacheInfo {
+        final String manager;
+        final String name;
+        final Object cache;
+        String provider = "";
+        long size = -1;
+        long hits = -1;
+        long misses = -1;
+        long evictions = -1;
+        long bytes = -1;
+        CacheInfo(String manager, String name, Object cache) {
+            this.manager = manager; this.name = name; this.cache = cache;
+        }
+
+        double hitRatio() {
+            long total = hits + misses;
+            return hits < 0 || total <= 0 ? -1 : hits / (double) total;
+        }
+    }
+
+    private SpringCaches() {}
+
+    static List<CacheInfo> stats(ContextRegistry.Entry entry, boolean estimateMemory) throws ReflectiveOperationException {
+        List<CacheInfo> out = new ArrayList<>();
+        for (Map.Entry<String, Object> m : entry.existingBeansOfType(CACHE_MANAGER).entrySet()) {
+            Object manager = m.getValue();
+            Class<?> managerType = Class.forName(CACHE_MANAGER, false, manager.getClass().getClassLoader());
+            Method getCache = managerType.getMethod("getCache", String.class);
+            for (Object name : (Collection<?>) managerType.getMethod("getCacheNames").invoke(manager)) {
+                Object cache = getCache.invoke(manager, name);
+                if (cache == null) continue;
+                CacheInfo info = new CacheInfo(m.getKey(), String.valueOf(name), cache);
+                describe(info, estimateMemory);
+                out.add(info);
+            }
+        }
+        return out;
+    }
+
+    private static void describe(CacheInfo info, boolean estimateMemory) {
+        Object nativeCache;
+        try {
+            nativeCache = cacheMethod(info.cache, "getNativeCache").invoke(info.cache);
+        } catch (Throwable t) {
+            info.provider = info.cache.getClass().getSimpleName();
+            return;
+        }
+        Map<?, ?> contents = null;
+        Class<?> caffeine = optionalClass("com.github.benmanes.caffeine.cache.Cache", nativeCache);
+        if (caffeine != null && caffeine.isInstance(nativeCache)) {
+            try {
+                info.size = (Long) caffeine.getMethod("estimatedSize").invoke(nativeCache);
+                Object policy = caffeine.getMethod("policy").invoke(nativeCache);
+                Class<?> policyType = Class.forName("com.github.benmanes.caffeine.cache.Policy", false, caffeine.getClassLoader());
+                boolean recording = Boolean.TRUE.equals(policyType.getMethod("isRecordingStats").invoke(policy));
+                info.provider = recording ? "caffeine" : "caffeine (recordStats off)";
+                if (recording) {
+                    Object stats = caffeine.getMethod("stats").invoke(nativeCache);
+                    info.hits = (Long) stats.getClass().getMethod("hitCount").invoke(stats);
+                    info.misses = (Long) stats.getClass().getMethod("missCount").invoke(stats);
+                    info.evictions = (Long) stats.getClass().getMethod("evictionCount").invoke(stats);
+                }
+                contents = (Map<?, ?>) caffeine.getMethod("asMap").invoke(nativeCache);
+            } catch (Throwable t) {
+                info.provider = "caffeine (stats unavailable)";
+            }
+        } else if (nativeCache instanceof Map) {
+            contents = (Map<?, ?>) nativeCache;
+            info.provider = nativeCache instanceof java.util.concurrent.ConcurrentMap ? "concurrent-map" : "map";
+            info.size = contents.size();
+        } else {
+            info.provider = nativeCache != null ? nativeCache.getClass().getName() : info.cache.getClass().getName();
+        }
+        if (estimateMemory && contents != null) {
+            info.bytes = ObjectSizes.estimateMap(contents, MEMORY_SAMPLES, 10_000);
+        }
+    }
+
+    /** Finds a cache by name, in the named manager or in the first manager that has it. */
+    static Object find(ContextRegistry.Entry entry, String managerName, String cacheName) throws ReflectiveOperationException {
+        for (Map.Entry<String, Object> m : entry.existingBeansOfType(CACHE_MANAGER).entrySet()) {
+            if (managerName != null && !managerName.isEmpty() && !managerName.equals(m.getKey())) continue;
+            Object manager = m.getValue();
+            Class<?> managerType = Class.forName(CACHE_MANAGER, false, manager.getClass().getClassLoader());
+            if (!((Collection<?>) managerType.getMethod("getCacheNames").invoke(manager)).contains(cacheName)) continue;
+            Object cache = managerType.getMethod("getCache", String.class).invoke(manager, cacheName);
+            if (cache != null) return cache;
+        }
+        throw new IllegalArgumentException("No cache '" + cacheName + "'"
+                + (managerName != null && !managerName.isEmpty() ? " in cache manager '" + managerName + "'" : ""));
+    }
+
+    /** Evicts one key; a null key is rejected rather than taken to mean every entry. */
+    static void evict(Object cache, Object key) throws ReflectiveOperationException {
+        if (key == null) throw new IllegalArgumentException("Cannot evict a null key");
+        cacheMethod(cache, "evict", Object.class).invoke(cache, key);
+    }
+
+    static void clear(Object cache) throws ReflectiveOperationException {
+        cacheMethod(cache, "clear").invoke(cache);
+    }
+
+    static int warm(Object cache, Map<?, ?> entries) throws ReflectiveOperationException {
+        Method put = cacheMethod(cache, "put", Object.class, Object.class);
+        for (Map.Entry<?, ?> e : entries.entrySet()) put.invoke(cache, e.getKey(), e.getValue());
+        return entries.size();
+    }
+
+    /** Through the Cache interface, since implementations need not be public classes. */
+    private static Method cacheMethod(Object cache, String name, Class<?>... params) throws ReflectiveOperationException {
+        Class<?> type = Class.forName("org.springframework.cache.Cache", false, cache.getClass().getClassLoader());
+        return type.getMethod(name, params);
+    }
+
+    private static Class<?> optionalClass(String name, Object from) {
+        if (from == null) return null;
+        try {
+            return Class.forName(name, false, from.getClass().getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /** Columns: manager, cache, provider, size, hits, misses, hit %, evictions, estimated bytes; blank when unknown. */
+    static String toTsv(List<CacheInfo> caches) {
+        StringBuilder sb = new StringBuilder();
+        for (CacheInfo c : caches) {
+            double ratio = c.hitRatio();
+            sb.append(c.manager).append('\t').append(c.name).append('\t').append(c.provider).append('\t')
+              .append(known(c.size)).append('\t').append(known(c.hits)).append('\t').append(known(c.misses)).append('\t')
+              .append(ratio < 0 ? "" : String.format(Locale.ROOT, "%.1f", 100 * ratio)).append('\t')
+              .append(known(c.evictions)).append('\t').append(known(c.bytes)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String known(long v) {
+        return v < 0 ? "" : Long.toString(v);
+    }
+}
@@ -1,11 +1,23 @@
 package com.baader.devrt;
 
+/**
+ * Entry point for whoever captures a context (SpringApplication.run advice, the bridge
+ * configuration, AutoBinder). Contexts are kept in {@link ContextRegistry}; {@link #get()}
+ * returns the current one.
+ */
 public final class SpringContextHolder {
-    private static volatile Object applicationContext; // avoid hard Spring dep
 
     private SpringContextHolder() {}
 
-    public static void set(Object ctx) { applicationContext = ctx; }
-    public static Object get() { return applicationContext; }
-}
+    /** Registers {@code ctx}; null forgets every captured context. */
+    public static void set(Object ctx) {
+        if (ctx == null) {
+            ContextRegistry.clear();
+            return;
+        }
+        ContextRegistry.register(ctx);
+        AgentStartup.onContextCaptured();
+    }
 
+    public static Object get() { return ContextRegistry.currentContext(); }
+}
@@ -0,0 +1,23 @@
+package com.baader.devrt;
+
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+
+/**
+ * Inlined into Statement.execute* implementations by JdbcStatements. The first argument is
+ * optional so the no-argument PreparedStatement variants match too.
+ */
+public class SqlExecuteAdvice {
+
+    @Advice.OnMethodEnter
+    public static long onEnter() {
+        return JdbcStatements.enter();
+    }
+
+    @Advice.OnMethodExit(onThrowable = Throwable.class)
+    public static void onExit(@Advice.This Object statement,
+                              @Advice.Argument(value = 0, optional = true, typing = Assigner.Typing.DYNAMIC) Object sql,
+                              @Advice.Enter long start) {
+        JdbcStatements.executed(statement, sql, start);
+    }
+}
@@ -0,0 +1,20 @@
+package com.baader.devrt;
+
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+
+/** Inlined into Connection.prepareStatement/prepareCall implementations by JdbcStatements. */
+public class SqlPrepareAdvice {
+
+    @Advice.OnMethodEnter
+    public static long onEnter() {
+        return JdbcStatements.enter();
+    }
+
+    @Advice.OnMethodExit(onThrowable = Throwable.class)
+    public static void onExit(@Advice.Return(typing = Assigner.Typing.DYNAMIC) Object statement,
+                              @Advice.Argument(0) String sql,
+                              @Advice.Enter long start) {
+        JdbcStatements.prepared(statement, sql, start);
+    }
+}
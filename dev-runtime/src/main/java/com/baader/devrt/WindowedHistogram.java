@@ -0,0 +1,84 @@
+package com.baader.devrt;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Sliding-window latency histogram: a ring of LatencyHistogram slots, each covering a
+ * fixed time slice. The first writer of a new slice swaps a fresh histogram into the slot
+ * instead of resetting the one other writers may be recording into, so recording stays
+ * lock-free and loses nothing; a writer late for its slice counts into the newer one.
+ * Stale slices simply drop out of the snapshot.
+ */
+final class WindowedHistogram {
+    private final long slotNanos;
+    private final AtomicReferenceArray<Slot> slots;
+
+    /** One time slice; replaced as a whole when the ring comes round to it again. */
+    private static final class Slot {
+        final long epoch;
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Slot(long epoch) { this.epoch = epoch; }
+    }
+
+    static final class Snapshot {
+        final long count;
+        final double windowSeconds;
+        final long p50, p95, p99, max;
+        Snapshot(long count, double windowSeconds, long p50, long p95, long p99, long max) {
+            this.count = count; this.windowSeconds = windowSeconds;
+            this.p50 = p50; this.p95 = p95; this.p99 = p99; this.max = max;
+        }
+        double perSecond() { return windowSeconds > 0 ? count / windowSeconds : 0; }
+    }
+
+    WindowedHistogram(int slotCount, long slotMillis) {
+        this(slotMillis * 1_000_000L, slotCount);
+    }
+
+    private WindowedHistogram(long slotNanos, int slotCount) {
+        this.slotNanos = slotNanos;
+        this.slots = new AtomicReferenceArray<>(slotCount);
+    }
+
+    /** Sub-millisecond slices, so tests can cross many slice boundaries quickly. */
+    static WindowedHistogram withSlotNanos(int slotCount, long slotNanos) {
+        return new WindowedHistogram(slotNanos, slotCount);
+    }
+
+    void record(long nanos) {
+        long epoch = Math.floorDiv(System.nanoTime(), slotNanos);
+        int i = (int) Math.floorMod(epoch, (long) slots.length());
+        Slot slot = slots.get(i);
+        while (slot == null || slot.epoch < epoch) {
+            Slot fresh = new Slot(epoch);
+            if (slots.compareAndSet(i, slot, fresh)) {
+                slot = fresh;
+                break;
+            }
+            slot = slots.get(i);
+        }
+        slot.histogram.record(nanos);
+    }
+
+    Snapshot snapshot() {
+        long now = Math.floorDiv(System.nanoTime(), slotNanos);
+        long[] merged = LatencyHistogram.newBuckets();
+        long count = 0, max = 0, oldest = now;
+        for (int i = 0; i < slots.length(); i++) {
+            Slot slot = slots.get(i);
+            if (slot == null || now - slot.epoch >= slots.length()) continue;
+            slot.histogram.addTo(merged);
+            count += slot.histogram.count();
+            max = Math.max(max, slot.histogram.maxNanos());
+            oldest = Math.min(oldest, slot.epoch);
+        }
+        // The current slice is only partially elapsed; count it by its elapsed share.
+        double partial = Math.floorMod(System.nanoTime(), slotNanos) / (double) slotNanos;
+        double seconds = ((now - oldest) + partial) * slotNanos / 1e9;
+        return new Snapshot(count, seconds,
+                LatencyHistogram.percentile(merged, 0.50, max),
+                LatencyHistogram.percentile(merged, 0.95, max),
+                LatencyHistogram.percentile(merged, 0.99, max),
+                max);
+    }
+}
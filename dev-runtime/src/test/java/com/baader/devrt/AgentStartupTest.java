@@ -0,0 +1,76 @@
+package com.baader.devrt;
+
+import net.bytebuddy.agent.ByteBuddyAgent;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.matcher.ElementMatchers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgentStartupTest {
+
+    @AfterEach
+    void restoreGrace() {
+        AgentStartup.setCaptureGraceMillis(30_000);
+        SpringContextHolder.set(null);
+    }
+
+    private static void installTransformer() {
+        AgentRuntime.setInstrumentation(ByteBuddyAgent.install());
+        ResettableClassFileTransformer t = new AgentBuilder.Default()
+                .with(AgentBuilder.RedefinitionStrategy.RETRANSFORMATION)
+                .type(ContextCapturingTransformer.MATCHER)
+                .transform(ContextCapturingTransformer.TRANSFORMER)
+                .installOn(AgentRuntime.getInstrumentation());
+        AgentStartup.transformerInstalled(t);
+    }
+
+    private static void awaitRemoved() throws InterruptedException {
+        for (int i = 0; i < 250 && !AgentStartup.transformerState().equals("removed"); i++) Thread.sleep(20);
+    }
+
+    @Test
+    void recordsPhasesAndRemovesTransformerOnceContextIsBound() throws Exception {
+        AgentStartup.setCaptureGraceMillis(0);
+        AgentStartup.begin();
+        AgentStartup.phase("locate-jar");
+        installTransformer();
+        AgentStartup.phase("install-transformer");
+        AgentStartup.milestone("ready");
+        assertEquals("installed", AgentStartup.transformerState());
+
+        SpringContextHolder.set(new Object());
+        awaitRemoved();
+
+        assertEquals("removed", AgentStartup.transformerState());
+        assertTrue(AgentStartup.phasesAsString().matches("locate-jar=[\\d.]+,install-transformer=[\\d.]+"),
+                AgentStartup.phasesAsString());
+        String milestones = AgentStartup.milestonesAsString();
+        assertTrue(milestones.startsWith("ready=") && milestones.contains("context-captured=")
+                && milestones.contains("transformer-removed="), milestones);
+    }
+
+    @Test
+    void keepsTransformerWhileContextsKeepStarting() throws Exception {
+        AgentStartup.setCaptureGraceMillis(1000);
+        AgentStartup.begin();
+        installTransformer();
+        GenericApplicationContext first = new GenericApplicationContext();
+        GenericApplicationContext second = new GenericApplicationContext();
+
+        SpringContextHolder.set(first);
+        Thread.sleep(600);
+        assertEquals("installed", AgentStartup.transformerState());
+        SpringContextHolder.set(second);
+        Thread.sleep(600);
+        assertEquals("installed", AgentStartup.transformerState(), "the second context restarts the grace period");
+
+        awaitRemoved();
+        assertEquals("removed", AgentStartup.transformerState());
+        assertNotNull(ContextRegistry.entryFor(first));
+        assertNotNull(ContextRegistry.entryFor(second));
+    }
+}
@@ -0,0 +1,62 @@
+package com.baader.devrt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AllocationSamplerTest {
+
+    static volatile Object sink;
+
+    static void churn(long until) {
+        while (System.currentTimeMillis() < until) {
+            List<byte[]> list = new ArrayList<>();
+            for (int i = 0; i < 64; i++) list.add(new byte[4096]);
+            sink = list;
+        }
+    }
+
+    @Test
+    void reportsAllocatingSiteWithinBounds() throws Exception {
+        Thread worker = new Thread(() -> churn(System.currentTimeMillis() + 2500));
+        worker.start();
+        AllocationSampler.Report report = AllocationSampler.record(2, 4, 500);
+        worker.join();
+
+        assertTrue(report.totalSamples > 0);
+        assertTrue(report.sites.size() <= AllocationSampler.MAX_SITES);
+        assertTrue(report.sites.stream().anyMatch(s -> s.frames.stream().anyMatch(f -> f.contains("#churn:"))),
+                AllocationSampler.toTsv(report, 10));
+        String tsv = AllocationSampler.toTsv(report, 3);
+        assertTrue(tsv.lines().count() <= 3);
+        assertEquals(6, tsv.lines().findFirst().orElseThrow().split("\t", -1).length);
+    }
+
+    static void churnLate(long until) {
+        churn(until);
+    }
+
+    @Test
+    void keepsSamplesFromTheEndOfTheWindow() throws Exception {
+        long start = System.currentTimeMillis();
+        Thread worker = new Thread(() -> {
+            try { Thread.sleep(1500); } catch (InterruptedException e) { return; }
+            churnLate(start + 2000);
+        });
+        worker.start();
+        AllocationSampler.Report report = AllocationSampler.record(2, 4, 500);
+        worker.join();
+
+        assertTrue(report.sites.stream().anyMatch(s -> s.frames.stream().anyMatch(f -> f.contains("#churnLate:"))),
+                AllocationSampler.toTsv(report, 10));
+    }
+
+    @Test
+    void rejectsUnboundedWindow() {
+        assertThrows(IllegalArgumentException.class, () -> AllocationSampler.record(0, 5, 100));
+        assertThrows(IllegalArgumentException.class, () -> AllocationSampler.record(AllocationSampler.MAX_SECONDS + 1, 5, 100));
+    }
+}
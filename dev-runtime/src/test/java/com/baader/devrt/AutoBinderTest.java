@@ -0,0 +1,75 @@
+package com.baader.devrt;
+
+import com.example.app.ContextHolderFixture;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.agent.ByteBuddyAgent;
+import net.bytebuddy.description.modifier.Ownership;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutoBinderTest {
+
+    @BeforeAll
+    static void installAgent() {
+        AgentRuntime.setInstrumentation(ByteBuddyAgent.install());
+    }
+
+    @AfterEach
+    void clearFixture() {
+        ContextHolderFixture.context = null;
+    }
+
+    @Test
+    void findsHolderFieldAssignedAfterTheClassWasScanned() {
+        // Loaded but still empty: the first pass scans the class and remembers the field.
+        assertNotNull(ContextHolderFixture.class.getName());
+        assertNull(AutoBinder.tryScanStaticFields());
+
+        GenericApplicationContext ctx = new GenericApplicationContext();
+        ContextHolderFixture.context = ctx;
+        assertSame(ctx, AutoBinder.tryScanStaticFields());
+    }
+
+    @Test
+    void rememberedHolderDoesNotPinItsClassLoader() throws Exception {
+        WeakReference<ClassLoader> loader = scanThrowawayHolder();
+        for (int i = 0; i < 50 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(loader.get(), "A class found holding a context must stay collectable.");
+        assertNull(AutoBinder.tryScanStaticFields());
+    }
+
+    // In its own frame so no local keeps the generated class reachable.
+    private static WeakReference<ClassLoader> scanThrowawayHolder() throws Exception {
+        Class<?> holder = new ByteBuddy()
+                .subclass(Object.class)
+                .name("com.example.app.ThrowawayContextHolder")
+                .defineField("context", ApplicationContext.class, Visibility.PUBLIC, Ownership.STATIC)
+                .make()
+                .load(AutoBinderTest.class.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+                .getLoaded();
+        GenericApplicationContext ctx = new GenericApplicationContext();
+        holder.getField("context").set(null, ctx);
+        assertSame(ctx, AutoBinder.tryScanStaticFields());
+        holder.getField("context").set(null, null);
+        return new WeakReference<>(holder.getClassLoader());
+    }
+
+    @Test
+    void skipsFrameworkPackages() {
+        assertTrue(AutoBinder.isSkippedPackage("org.springframework.context.support.GenericApplicationContext"));
+        assertTrue(AutoBinder.isSkippedPackage("com.fasterxml.jackson.databind.ObjectMapper"));
+        assertFalse(AutoBinder.isSkippedPackage("com.example.app.ContextHolderFixture"));
+    }
+}
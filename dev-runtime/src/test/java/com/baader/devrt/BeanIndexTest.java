@@ -0,0 +1,71 @@
+package com.baader.devrt;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BeanIndexTest {
+
+    static final AtomicInteger created = new AtomicInteger();
+
+    public static class Expensive {
+        public Expensive() { created.incrementAndGet(); }
+    }
+
+    @AfterEach
+    void clear() {
+        ContextRegistry.clear();
+    }
+
+    @Test
+    void listsLazyAndPrototypeBeansWithoutCreatingThem() throws Exception {
+        GenericApplicationContext ctx = new GenericApplicationContext();
+        ctx.registerBean("lazyOne", Expensive.class, bd -> bd.setLazyInit(true));
+        ctx.registerBean("protoOne", Expensive.class, bd -> bd.setScope(BeanDefinition.SCOPE_PROTOTYPE));
+        for (int i = 0; i < 2000; i++) ctx.registerBean("sb" + i, StringBuilder.class);
+        ctx.refresh();
+        try {
+            created.set(0);
+            ContextRegistry.Entry entry = ContextRegistry.register(ctx);
+            BeanIndex index = BeanIndex.of(entry);
+
+            assertEquals(0, created.get());
+            BeanIndex.Row lazy = index.filter("lazyOne").get(0);
+            assertEquals(Expensive.class.getName(), lazy.typeName);
+            assertEquals("lazy", lazy.flags());
+            assertEquals("prototype", index.filter("protoOne").get(0).scope);
+            assertSame(index, BeanIndex.of(entry), "cached until the context changes");
+
+            List<BeanIndex.Row> expensive = index.filter("EXPENSIVE");
+            assertEquals(2, expensive.size());
+            String page = BeanIndex.toTsv(index.filter("sb1"), 10, 5);
+            assertEquals(5, page.lines().count());
+            assertTrue(page.startsWith("sb1007\tjava.lang.StringBuilder\tsingleton\t\n"), page);
+        } finally {
+            ctx.close();
+        }
+    }
+
+    @Test
+    void rebuildsWhenBeansAreAddedOrTheContextIsRefreshed() throws Exception {
+        GenericApplicationContext ctx = new GenericApplicationContext();
+        ctx.registerBean("first", StringBuilder.class);
+        ctx.refresh();
+        try {
+            ContextRegistry.Entry entry = ContextRegistry.register(ctx);
+            BeanIndex before = BeanIndex.of(entry);
+            ctx.registerBean("second", StringBuilder.class);
+            BeanIndex after = BeanIndex.of(entry);
+            assertNotSame(before, after);
+            assertEquals(2, after.rows.size());
+        } finally {
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.baader.devrt;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.stereotype.Repository;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BeanQueryTest {
+
+    @Repository
+    public static class OrderRepository {}
+
+    @Repository
+    public static class CustomerRepository {}
+
+    @Service
+    public static class OrderService {}
+
+    private static GenericApplicationContext ctx;
+    private static BeanIndex index;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        ctx = new GenericApplicationContext();
+        ctx.registerBean("orderRepository", OrderRepository.class);
+        ctx.registerBean("customerRepository", CustomerRepository.class);
+        ctx.registerBean("orderService", OrderService.class);
+        ctx.registerBean("cacheManager", ConcurrentMapCacheManager.class);
+        ctx.registerBean("noopCaches", NoOpCacheManager.class);
+        ctx.registerBean("order", StringBuilder.class);
+        ctx.refresh();
+        index = BeanIndex.of(ContextRegistry.register(ctx));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        ctx.close();
+        ContextRegistry.clear();
+    }
+
+    private static List<String> names(String query) {
+        return BeanQuery.parse(query).run(index).stream().map(r -> r.name).collect(Collectors.toList());
+    }
+
+    @Test
+    void matchesAssignableTypesBySimpleOrQualifiedName() {
+        assertEquals(List.of("cacheManager", "noopCaches"), names("type:CacheManager"));
+        assertEquals(names("type:CacheManager"), names("type:" + CacheManager.class.getName()));
+        assertEquals(List.of("cacheManager"), names("type:ConcurrentMapCacheManager"));
+        assertEquals(List.of(), names("type:NoSuchType"));
+    }
+
+    @Test
+    void matchesAnnotationsIncludingMetaAnnotations() {
+        assertEquals(List.of("customerRepository", "orderRepository"), names("@Repository"));
+        assertEquals(List.of("customerRepository", "orderRepository", "orderService"), names("@Component"));
+        assertEquals(List.of("orderRepository"), names("@repository name:order*"));
+        assertEquals(List.of("orderService"), names("annotation:Service pkg:com.baader"));
+    }
+
+    @Test
+    void ranksExactAndPrefixNameMatchesFirst() {
+        List<String> ranked = names("order");
+        assertEquals("order", ranked.get(0));
+        assertEquals(List.of("order", "orderRepository", "orderService"), ranked);
+        assertEquals(List.of("orderRepository"), names("order repo"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.baader.devrt;
+
+import net.bytebuddy.agent.ByteBuddyAgent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BeanStartupTest {
+
+    public static class SlowRepository {
+        public SlowRepository() throws InterruptedException { Thread.sleep(30); }
+    }
+
+    public static class OrderService {
+        public OrderService(SlowRepository repository) throws InterruptedException { Thread.sleep(10); }
+    }
+
+    public static class Standalone {}
+
+    @AfterEach
+    void cleanUp() {
+        BeanStartup.uninstall();
+        BeanStartup.clear();
+        AgentStartup.setCaptureGraceMillis(30_000);
+        SpringContextHolder.set(null);
+    }
+
+    @Test
+    void recordsCreationTreeWithDependencyChainAndSelfTime() {
+        BeanStartup.install(ByteBuddyAgent.install());
+        GenericApplicationContext ctx = new GenericApplicationContext();
+        ctx.registerBean("orderService", OrderService.class);
+        ctx.registerBean("slowRepository", SlowRepository.class);
+        ctx.registerBean("standalone", Standalone.class);
+        ctx.refresh();
+        ctx.close();
+
+        BeanStartup.Report report = BeanStartup.report(null);
+        assertNotNull(report);
+        BeanStartup.Node top = report.roots.get(0);
+        assertEquals("orderService", top.name);
+        assertEquals(OrderService.class.getName(), top.type);
+        assertEquals(1, top.children.size());
+        BeanStartup.Node dependency = top.children.get(0);
+        assertEquals("slowRepository", dependency.name);
+        assertTrue(dependency.totalNanos >= 30_000_000L);
+        assertTrue(top.totalNanos >= dependency.totalNanos + 10_000_000L);
+        assertTrue(top.selfNanos() >= 10_000_000L && top.selfNanos() < top.totalNanos);
+        assertTrue(report.roots.stream().anyMatch(n -> n.name.equals("standalone")));
+
+        List<String> rows = BeanStartup.toTsv(report, 10, 0).lines().toList();
+        assertTrue(rows.get(0).startsWith("0\torderService\t" + OrderService.class.getName() + "\t"), rows.get(0));
+        assertTrue(rows.get(0).endsWith("\t1"), rows.get(0));
+        assertTrue(rows.get(1).startsWith("1\tslowRepository\t"), rows.get(1));
+    }
+
+    @Test
+    void adviceIsRemovedOnceContextsStopStartingButDataIsKept() throws Exception {
+        BeanStartup.install(ByteBuddyAgent.install());
+        AgentStartup.setCaptureGraceMillis(0);
+        GenericApplicationContext ctx = new GenericApplicationContext();
+        ctx.registerBean("standalone", Standalone.class);
+        ctx.refresh();
+        try {
+            SpringContextHolder.set(ctx);
+            for (int i = 0; i < 250 && BeanStartup.installed(); i++) Thread.sleep(20);
+            assertFalse(BeanStartup.installed());
+
+            ctx.registerBean("later", Standalone.class, bd -> bd.setScope("prototype"));
+            ctx.getBean("later");
+            BeanStartup.Report report = BeanStartup.report(null);
+            assertTrue(report.roots.stream().anyMatch(n -> n.name.equals("standalone")));
+            assertTrue(report.roots.stream().noneMatch(n -> n.name.equals("later")));
+        } finally {
+            ctx.close();
+        }
+    }
+
+    @Test
+    void noDataWithoutAdviceOrBufferedStartup() {
+        GenericApplicationContext ctx = new GenericApplicationContext();
+        ctx.refresh();
+        try {
+            assertNull(BeanStartup.report(ctx));
+        } finally {
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.baader.devrt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BenchTest {
+
+    private static Bench.Options quick() {
+        Bench.Options o = new Bench.Options();
+        o.warmupIterations = 2;
+        o.iterations = 5;
+        o.forks = 2;
+        o.iterationMillis = 20;
+        o.cpuBudgetPercent = 100;
+        return o;
+    }
+
+    @Test
+    void measuresJShellSnippetWithAllocation() throws Exception {
+        try (JShellSession session = new JShellSession(null)) {
+            Supplier<Object> target = session.compileSupplier("new byte[64]");
+            Bench.Result r = Bench.run(target, quick());
+            assertEquals(10, r.samples);
+            assertTrue(r.nsPerOp > 0 && r.ops > 0);
+            assertTrue(r.minNsPerOp <= r.nsPerOp && r.nsPerOp <= r.maxNsPerOp);
+            assertTrue(r.bytesPerOp < 0 || r.bytesPerOp >= 64, r.describe());
+        }
+    }
+
+    @Test
+    void statementSnippetsCompileAndBadSnippetsAreRejected() {
+        try (JShellSession session = new JShellSession(null)) {
+            assertNull(session.compileSupplier("int x = 1; x++;").get());
+            assertThrows(IllegalArgumentException.class, () -> session.compileSupplier("noSuchMethod()"));
+        }
+    }
+
+    @Test
+    void snippetFailureIsReported() throws Exception {
+        Supplier<Object> failing = () -> { throw new IllegalStateException("boom"); };
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> Bench.run(failing, quick()));
+        assertTrue(e.getMessage().contains("boom"));
+    }
+}
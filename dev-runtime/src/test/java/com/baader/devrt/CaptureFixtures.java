@@ -0,0 +1,30 @@
+package com.baader.devrt;
+
+import java.util.List;
+
+/**
+ * Public fixture types for MethodCapturesTest: predicates are compiled against the declared
+ * parameter types only when those are public, so the test types have to be.
+ */
+public final class CaptureFixtures {
+
+    private CaptureFixtures() {}
+
+    public static class Order {
+        private final String tenantId;
+        public Order(String tenantId) { this.tenantId = tenantId; }
+        public String getTenantId() { return tenantId; }
+        @Override public String toString() { return "Order(" + tenantId + ")"; }
+    }
+
+    public static class OrderService {
+        public int place(Order order, int qty) {
+            if (qty < 0) throw new IllegalArgumentException("qty");
+            return qty * 10;
+        }
+
+        public int placeAll(List<Order> orders) {
+            return orders.size();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.baader.devrt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentionReportTest {
+
+    static final class SharedMonitor {}
+
+    static void hold(Object monitor, long until) {
+        while (System.currentTimeMillis() < until) {
+            synchronized (monitor) {
+                try { Thread.sleep(20); } catch (InterruptedException e) { return; }
+            }
+        }
+    }
+
+    static void holdLock(ReentrantLock lock, long until) {
+        while (System.currentTimeMillis() < until) {
+            lock.lock();
+            try { Thread.sleep(20); } catch (InterruptedException e) { return; } finally { lock.unlock(); }
+        }
+    }
+
+    @Test
+    void reportsBlockedMonitorsAndParks() throws Exception {
+        SharedMonitor monitor = new SharedMonitor();
+        ReentrantLock lock = new ReentrantLock();
+        long until = System.currentTimeMillis() + 1500;
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = i % 2 == 0
+                    ? new Thread(() -> hold(monitor, until))
+                    : new Thread(() -> holdLock(lock, until));
+        }
+        ContentionReport.Session session = ContentionReport.start(1, 4);
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+        ContentionReport.Report report = session.stop();
+
+        String tsv = ContentionReport.toTsv(report, 20);
+        assertTrue(report.byMonitor.stream().anyMatch(e -> e.monitorClass.equals(SharedMonitor.class.getName())), tsv);
+        assertTrue(report.byStack.stream().anyMatch(e -> e.kind.equals("park")
+                && e.frames.stream().anyMatch(f -> f.contains("#holdLock:"))), tsv);
+        assertTrue(report.totalBlockedNanos() > 0);
+    }
+}
@@ -0,0 +1,83 @@
+package com.baader.devrt;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextRegistryTest {
+
+    @AfterEach
+    void clear() {
+        ContextRegistry.clear();
+    }
+
+    private static GenericApplicationContext context(String id, GenericApplicationContext parent, int beans) {
+        GenericApplicationContext ctx = parent != null ? new GenericApplicationContext(parent) : new GenericApplicationContext();
+        ctx.setId(id);
+        for (int i = 0; i < beans; i++) ctx.registerBean("bean" + i, StringBuilder.class);
+        ctx.refresh();
+        return ctx;
+    }
+
+    @Test
+    void registersParentsAndDefaultsToTheLargestActiveContext() {
+        GenericApplicationContext bootstrap = context("bootstrap", null, 1);
+        GenericApplicationContext app = context("application", bootstrap, 3);
+        try {
+            SpringContextHolder.set(app);
+            SpringContextHolder.set(app);
+
+            assertEquals(2, ContextRegistry.list().size());
+            ContextRegistry.Entry appEntry = ContextRegistry.entryFor(app);
+            ContextRegistry.Entry parentEntry = ContextRegistry.entryFor(bootstrap);
+            assertEquals(parentEntry.id, appEntry.parentId);
+            assertSame(app, SpringContextHolder.get());
+            assertSame(app.getClassLoader(), appEntry.classLoader());
+            assertTrue(appEntry.bean("bean2") instanceof StringBuilder);
+
+            String tsv = ContextRegistry.listAsTsv();
+            assertTrue(tsv.contains("*\t" + appEntry.id + "\tapplication\t" + parentEntry.id + "\t"), tsv);
+            assertTrue(tsv.contains("\tbootstrap\t\t"), tsv);
+        } finally {
+            app.close();
+            bootstrap.close();
+        }
+    }
+
+    @Test
+    void useContextSelectsByRegistryOrContextId() {
+        GenericApplicationContext a = context("a", null, 5);
+        GenericApplicationContext b = context("b", null, 1);
+        try {
+            SpringContextHolder.set(a);
+            SpringContextHolder.set(b);
+            assertSame(a, SpringContextHolder.get());
+
+            assertNotNull(ContextRegistry.use("b"));
+            assertSame(b, SpringContextHolder.get());
+            assertNotNull(ContextRegistry.use(ContextRegistry.entryFor(a).id));
+            assertSame(a, SpringContextHolder.get());
+            assertNull(ContextRegistry.use("missing"));
+        } finally {
+            a.close();
+            b.close();
+        }
+    }
+
+    @Test
+    void closedContextsLoseTheDefaultToActiveOnes() {
+        GenericApplicationContext big = context("big", null, 5);
+        GenericApplicationContext small = context("small", null, 1);
+        try {
+            SpringContextHolder.set(big);
+            SpringContextHolder.set(small);
+            big.close();
+            assertSame(small, SpringContextHolder.get());
+            assertEquals("inactive", ContextRegistry.entryFor(big).state());
+        } finally {
+            small.close();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.baader.devrt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CpuProfilerTest {
+
+    static volatile long sink;
+
+    static void spin(long until) {
+        long x = 0;
+        while (System.currentTimeMillis() < until) x += System.nanoTime() % 7;
+        sink = x;
+    }
+
+    @Test
+    void collapsedStacksContainBusyThread() throws Exception {
+        Thread worker = new Thread(() -> spin(System.currentTimeMillis() + 1500), "busy-worker");
+        worker.start();
+        CpuProfiler.Profile profile = CpuProfiler.sample(1, 5);
+        worker.join();
+
+        assertTrue(profile.samples > 0);
+        String collapsed = CpuProfiler.collapsed(profile);
+        assertTrue(collapsed.lines().anyMatch(l -> l.contains(CpuProfilerTest.class.getName() + ".spin")), collapsed);
+        assertTrue(collapsed.lines().allMatch(l -> l.matches(".+ \\d+")));
+    }
+
+    @Test
+    void trieStaysWithinNodeBudget() {
+        CpuProfiler.Profile profile = new CpuProfiler.Profile();
+        for (int i = 0; i < CpuProfiler.MAX_NODES + 100; i++) {
+            profile.add(new StackTraceElement[] {
+                    new StackTraceElement("a.B" + i, "m", null, 1),
+                    new StackTraceElement("a.Main", "main", null, 1)});
+        }
+        assertTrue(profile.truncated);
+        assertTrue(profile.nodes <= CpuProfiler.MAX_NODES + 1);
+        assertEquals(CpuProfiler.MAX_NODES + 100, profile.samples);
+    }
+}
@@ -0,0 +1,92 @@
+package com.baader.devrt;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvalClassLoadersTest {
+
+    private static final String SNIPPET =
+            "public class LoaderProbe { public Object run() { return 42; } }";
+
+    @AfterEach
+    void resetReuse() {
+        EvalClassLoaders.setReuseEnabled(false);
+    }
+
+    @Test
+    void snippetLoaderIsCollectableAfterEval() throws Exception {
+        WeakReference<ClassLoader> ref = evalAndCaptureLoader();
+        assertTrue(awaitCollected(ref), "Snippet class loader should be unloadable once the eval is done.");
+    }
+
+    @Test
+    void reusedLoaderIsPinnedUntilReleased() throws Exception {
+        EvalClassLoaders.setReuseEnabled(true);
+        JavaCodeEvaluator.SnippetClass first = JavaCodeEvaluator.loadSnippetClass(SNIPPET);
+        JavaCodeEvaluator.SnippetClass second = JavaCodeEvaluator.loadSnippetClass(SNIPPET);
+        assertNull(first.error, first.error);
+        assertSame(first.clazz, second.clazz, "Identical snippet should reuse the cached class.");
+
+        WeakReference<ClassLoader> ref = new WeakReference<>(first.clazz.getClassLoader());
+        first = null;
+        second = null;
+        assertFalse(awaitCollected(ref), "Cached loader must stay alive while reuse holds it.");
+
+        assertTrue(EvalClassLoaders.releaseCached() > 0);
+        assertTrue(awaitCollected(ref), "Released loader should be unloadable.");
+    }
+
+    @Test
+    void reuseIsPerApplicationClassLoader() throws Exception {
+        EvalClassLoaders.setReuseEnabled(true);
+        ClassLoader appLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        GenericApplicationContext ctx = new GenericApplicationContext();
+        ctx.setClassLoader(appLoader);
+        ctx.refresh();
+        try {
+            JavaCodeEvaluator.SnippetClass outside = JavaCodeEvaluator.loadSnippetClass(SNIPPET);
+            ContextRegistry.Entry entry = ContextRegistry.register(ctx);
+            ContextRegistry.use(entry.id);
+            JavaCodeEvaluator.SnippetClass inside = JavaCodeEvaluator.loadSnippetClass(SNIPPET);
+            assertNotSame(outside.clazz, inside.clazz, "A context switch must not reuse the other context's class.");
+            assertSame(appLoader, inside.clazz.getClassLoader().getParent());
+            assertSame(inside.clazz, JavaCodeEvaluator.loadSnippetClass(SNIPPET).clazz);
+        } finally {
+            ctx.close();
+            ContextRegistry.clear();
+            EvalClassLoaders.releaseCached();
+        }
+    }
+
+    @Test
+    void reportListsRegisteredLoaders() throws Exception {
+        JavaCodeEvaluator.EvalObj res = JavaCodeEvaluator.evaluateObject(SNIPPET);
+        assertNull(res.error, res.error);
+        assertEquals(42, res.obj);
+        String report = EvalClassLoaders.reportAsTsv();
+        assertTrue(report.contains("\teval\t"), report);
+        assertTrue(report.contains("LoaderProbe"), report);
+        assertTrue(report.contains("# metaspace.used"), report);
+    }
+
+    private static WeakReference<ClassLoader> evalAndCaptureLoader() throws Exception {
+        JavaCodeEvaluator.SnippetClass loaded = JavaCodeEvaluator.loadSnippetClass(SNIPPET);
+        assertNull(loaded.error, loaded.error);
+        return new WeakReference<>(loaded.clazz.getClassLoader());
+    }
+
+    private static boolean awaitCollected(WeakReference<?> ref) throws InterruptedException {
+        for (int i = 0; i < 20 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return ref.get() == null;
+    }
+}
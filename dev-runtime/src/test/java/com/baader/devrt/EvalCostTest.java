@@ -0,0 +1,67 @@
+package com.baader.devrt;
+
+import jdk.jshell.JShell;
+import jdk.jshell.SnippetEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvalCostTest {
+
+    @Test
+    void splitsCompileFromExecuteAndCountsSnippetAllocations() {
+        try (var s = new JShellSession(null)) {
+            EvalCost cost = EvalCost.begin();
+            JShellSession.EvalResult r = s.eval("new byte[8 << 20].length");
+            Map<String, Object> c = cost.end();
+
+            assertEquals("8388608", r.values().get(r.values().size() - 1));
+            assertTrue(Double.parseDouble((String) c.get("execute-ms")) >= 0);
+            assertTrue(Double.parseDouble((String) c.get("compile-ms")) > 0, c.toString());
+            if (c.containsKey("allocated-bytes")) {
+                assertTrue((Long) c.get("allocated-bytes") >= 8 << 20, c.toString());
+            }
+            assertNull(EvalCost.current());
+        }
+    }
+
+    @Test
+    void snippetExceptionsStillReachTheSession() {
+        try (var s = new JShellSession(null)) {
+            EvalCost cost = EvalCost.begin();
+            JShellSession.EvalResult r = s.eval("Integer.parseInt(\"x\")");
+            cost.end();
+            assertTrue(r.output().contains("EvalException: For input string"), r.output());
+        }
+    }
+
+    @Test
+    void executeTimeCoversASleepingSnippet() {
+        try (var s = new JShellSession(null)) {
+            EvalCost cost = EvalCost.begin();
+            s.eval("Thread.sleep(200)");
+            Map<String, Object> c = cost.end();
+            assertTrue(Double.parseDouble((String) c.get("execute-ms")) >= 190, c.toString());
+        }
+    }
+
+    @Test
+    void stopEndsARunningSnippet() throws Exception {
+        try (JShell shell = JShell.builder().executionEngine(new MeteredExecutionControl.Provider(), null).build()) {
+            CompletableFuture<List<SnippetEvent>> running =
+                    CompletableFuture.supplyAsync(() -> shell.eval("while (true) Thread.onSpinWait();"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!running.isDone() && System.nanoTime() < deadline) {
+                shell.stop();
+                Thread.sleep(50);
+            }
+            assertTrue(running.isDone(), "snippet still running after stop()");
+            assertNotNull(running.get());
+        }
+    }
+}
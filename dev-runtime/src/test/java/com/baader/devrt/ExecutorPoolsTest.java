@@ -0,0 +1,104 @@
+package com.baader.devrt;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutorPoolsTest {
+
+    private GenericApplicationContext ctx;
+    private ContextRegistry.Entry entry;
+
+    @BeforeEach
+    void setUp() {
+        ctx = new GenericApplicationContext();
+        ctx.registerBean("taskExecutor", ThreadPoolTaskExecutor.class, () -> {
+            ThreadPoolTaskExecutor e = new ThreadPoolTaskExecutor();
+            e.setCorePoolSize(2);
+            e.setMaxPoolSize(4);
+            e.setQueueCapacity(10);
+            return e;
+        });
+        ctx.registerBean("taskScheduler", ThreadPoolTaskScheduler.class, ThreadPoolTaskScheduler::new);
+        ctx.registerBean("rawPool", ThreadPoolExecutor.class,
+                () -> new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>()),
+                bd -> bd.setDestroyMethodName("shutdownNow"));
+        ctx.refresh();
+        entry = ContextRegistry.register(ctx);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ExecutorPools.reset();
+        ctx.close();
+        ContextRegistry.clear();
+    }
+
+    @Test
+    void discoversSpringAndPlainExecutors() throws Exception {
+        List<ExecutorPools.Pool> pools = ExecutorPools.discover(entry, 10);
+        assertEquals(List.of("rawPool", "taskExecutor", "taskScheduler"), pools.stream().map(p -> p.bean).toList());
+        assertEquals(List.of("thread-pool", "task-executor", "task-scheduler"), pools.stream().map(p -> p.kind).toList());
+        String tsv = ExecutorPools.poolsAsTsv();
+        assertTrue(tsv.contains("taskExecutor\ttask-executor\t2\t4\t"), tsv);
+    }
+
+    @Test
+    void countsRejectionsWithoutChangingThePolicy() throws Exception {
+        ExecutorPools.Pool raw = ExecutorPools.discover(entry, 10).get(0);
+        ThreadPoolExecutor tpe = (ThreadPoolExecutor) raw.executor;
+        CountDownLatch release = new CountDownLatch(1);
+        tpe.execute(() -> {
+            try { release.await(); } catch (InterruptedException ignored) {}
+        });
+        assertThrows(RejectedExecutionException.class, () -> tpe.execute(() -> {}));
+        release.countDown();
+
+        ExecutorPools.Sample s = ExecutorPools.sample(raw);
+        assertEquals(1, s.rejected);
+        ExecutorPools.stop();
+        assertInstanceOf(ThreadPoolExecutor.AbortPolicy.class, tpe.getRejectedExecutionHandler());
+    }
+
+    @Test
+    void resizesInAnOrderTheJdkAccepts() throws Exception {
+        ThreadPoolTaskExecutor executor = ctx.getBean(ThreadPoolTaskExecutor.class);
+        assertEquals("taskExecutor: core 2 -> 8, max 4 -> 16", ExecutorPools.setPoolSize(entry, "taskExecutor", 8, 16));
+        assertEquals(8, executor.getCorePoolSize());
+        assertEquals(16, executor.getThreadPoolExecutor().getMaximumPoolSize());
+
+        assertEquals("taskExecutor: core 8 -> 1, max 16 -> 2", ExecutorPools.setPoolSize(entry, "taskExecutor", 1, 2));
+        assertEquals(2, executor.getMaxPoolSize());
+
+        assertThrows(IllegalArgumentException.class, () -> ExecutorPools.setPoolSize(entry, "taskExecutor", 5, 3));
+        assertEquals("taskScheduler: core 1 -> 3", ExecutorPools.setPoolSize(entry, "taskScheduler", 3, -1));
+    }
+
+    @Test
+    void setPoolSizeRediscoversWhenAnotherContextIsInUse() throws Exception {
+        ExecutorPools.discover(entry, 10);
+        GenericApplicationContext other = new GenericApplicationContext();
+        other.registerBean("taskExecutor", ThreadPoolTaskExecutor.class, ThreadPoolTaskExecutor::new);
+        other.refresh();
+        try {
+            ThreadPoolTaskExecutor executor = other.getBean(ThreadPoolTaskExecutor.class);
+            assertEquals("taskExecutor: core 1 -> 3", ExecutorPools.setPoolSize(ContextRegistry.register(other), "taskExecutor", 3, -1));
+            assertEquals(3, executor.getCorePoolSize());
+            assertEquals(2, ctx.getBean(ThreadPoolTaskExecutor.class).getCorePoolSize());
+        } finally {
+            other.close();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.baader.devrt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeapHistogramsTest {
+
+    static final class Leak { final long[] payload = new long[4]; }
+
+    static final List<Leak> retained = new ArrayList<>();
+
+    @Test
+    void diffShowsAccumulatingType() throws Exception {
+        HeapHistograms.Capture before = HeapHistograms.capture("before", false);
+        for (int i = 0; i < 10_000; i++) retained.add(new Leak());
+        HeapHistograms.Capture after = HeapHistograms.capture("after", false);
+
+        List<HeapHistograms.Delta> diff = HeapHistograms.diff(before, after);
+        HeapHistograms.Delta leak = diff.stream()
+                .filter(d -> d.className.equals(Leak.class.getName()))
+                .findFirst().orElseThrow(() -> new AssertionError(HeapHistograms.diffAsTsv(diff, 20)));
+        assertEquals(10_000, leak.instances);
+        assertTrue(leak.bytes > 0);
+        assertSame(after, HeapHistograms.get("after"));
+        retained.clear();
+    }
+
+    @Test
+    void parsesJcmdRows() {
+        String out = " num     #instances         #bytes  class name (module)\n"
+                + "-------------------------------------------------------\n"
+                + "   1:          1200          96000  [B (java.base@17.0.9)\n"
+                + "   2:            10            240  com.acme.Foo\n"
+                + "   3:             5            120  com.acme.Foo\n"
+                + "Total          1215          96360\n";
+        var rows = HeapHistograms.parse(out);
+        assertEquals(2, rows.size());
+        assertEquals(15, rows.get("com.acme.Foo").instances);
+        assertEquals(96000, rows.get("[B").bytes);
+    }
+}
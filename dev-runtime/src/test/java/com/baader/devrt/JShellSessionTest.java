@@ -39,6 +39,16 @@ class JShellSessionTest {
         }
     }
     
+    @Test
+    void compiledSuppliersLeaveNoSnippetsBehind() {
+        try (var s = new JShellSession(null)) {
+            long before = s.activeSnippetCount();
+            assertEquals(3, s.compileSupplier("1 + 2").get());
+            assertNull(s.compileSupplier("int x = 1; x++").get());
+            assertEquals(before, s.activeSnippetCount());
+        }
+    }
+
     @Test
     void evalSeparatesImportsAndCode() {
         // try (var s = new JShellSession(null)) {
@@ -0,0 +1,189 @@
+package com.baader.devrt;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import net.bytebuddy.agent.ByteBuddyAgent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcPoolsTest {
+
+    @AfterEach
+    void tearDown() {
+        JdbcPools.reset();
+        ContextRegistry.clear();
+    }
+
+    @Test
+    void reportsDataSourcesThatAreNotAKnownPool() throws Exception {
+        GenericApplicationContext ctx = new GenericApplicationContext();
+        ctx.registerBean("plainDataSource", PlainDataSource.class, PlainDataSource::new);
+        ctx.refresh();
+        try {
+            assertTrue(JdbcPools.discover(ContextRegistry.register(ctx), 10).isEmpty());
+            assertEquals(1, JdbcPools.unsupported().size());
+            assertTrue(JdbcPools.unsupported().get(0).startsWith("plainDataSource ("));
+        } finally {
+            ctx.close();
+        }
+    }
+
+    @Test
+    void unwrapsThroughJdbcWrapper() {
+        FakePool inner = new FakePool();
+        assertSame(inner, JdbcPools.unwrap(new WrappingDataSource(inner), FakePool.class));
+        assertSame(inner, JdbcPools.unwrap(inner, FakePool.class));
+        assertNull(JdbcPools.unwrap(new PlainDataSource(), FakePool.class));
+        assertNull(JdbcPools.unwrap(new PlainDataSource(), null));
+    }
+
+    @Test
+    void samplesDrainAcquireTimesPerInterval() throws Exception {
+        FakePool fake = new FakePool();
+        JdbcPools.Pool pool = new JdbcPools.Pool("ds", new FakeAdapter(fake), 4);
+        pool.recordAcquire(2_000_000);
+        pool.recordAcquire(4_000_000);
+
+        JdbcPools.Sample first = JdbcPools.sample(pool);
+        assertSame(fake, pool.target);
+        assertEquals(3, first.active);
+        assertEquals(10, first.max);
+        assertEquals(2, first.acquires);
+        assertEquals(3_000_000, first.acquireAvgNanos);
+        assertEquals(4_000_000, first.acquireMaxNanos);
+
+        JdbcPools.Sample second = JdbcPools.sample(pool);
+        assertEquals(0, second.acquires);
+        assertEquals(-1, second.acquireAvgNanos);
+    }
+
+    @Test
+    void samplesAndResizesAHikariPool() throws Exception {
+        GenericApplicationContext ctx = hikariContext("mainDataSource");
+        try {
+            ContextRegistry.Entry entry = ContextRegistry.register(ctx);
+            List<JdbcPools.Pool> pools = JdbcPools.discover(entry, 10);
+            assertEquals(1, pools.size());
+            JdbcPools.Pool pool = pools.get(0);
+            assertEquals("hikari", pool.adapter.kind());
+            assertTrue(JdbcPools.poolsAsTsv().startsWith("mainDataSource\thikari\t" + HikariDataSource.class.getName()));
+
+            try (Connection held = ctx.getBean(DataSource.class).getConnection()) {
+                assertFalse(held.isClosed());
+                JdbcPools.Sample s = JdbcPools.sample(pool);
+                assertEquals(1, s.active);
+                assertTrue(s.total >= 1, "total " + s.total);
+                assertEquals(5, s.max);
+            }
+
+            assertEquals("mainDataSource: maximumPoolSize 5 -> 3, minimumIdle 1", JdbcPools.resize(entry, "", 3, 1));
+            HikariDataSource ds = ctx.getBean(HikariDataSource.class);
+            assertEquals(3, ds.getMaximumPoolSize());
+            assertEquals(1, ds.getMinimumIdle());
+            assertEquals(3, JdbcPools.sample(pool).max);
+        } finally {
+            ctx.close();
+        }
+    }
+
+    @Test
+    void timesAcquiresThroughTheAdvice() throws Exception {
+        AgentRuntime.setInstrumentation(ByteBuddyAgent.install());
+        GenericApplicationContext ctx = hikariContext("mainDataSource");
+        try {
+            JdbcPools.Pool pool = JdbcPools.start(ContextRegistry.register(ctx), 60_000, 10).get(0);
+            // The first tick points the advice at the running pool; the next is a minute away.
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (pool.samples.snapshot().isEmpty() && System.nanoTime() < deadline) Thread.sleep(5);
+            assertNotNull(pool.target);
+
+            DataSource ds = ctx.getBean(DataSource.class);
+            for (int i = 0; i < 3; i++) {
+                try (Connection c = ds.getConnection()) {
+                    assertTrue(c.isValid(1));
+                }
+            }
+            JdbcPools.Sample s = JdbcPools.sample(pool);
+            assertEquals(3, s.acquires);
+            assertTrue(s.acquireMaxNanos > 0 && s.acquireAvgNanos <= s.acquireMaxNanos);
+        } finally {
+            ctx.close();
+        }
+    }
+
+    @Test
+    void resizeRediscoversWhenAnotherContextIsInUse() throws Exception {
+        GenericApplicationContext first = hikariContext("firstDataSource");
+        GenericApplicationContext second = hikariContext("secondDataSource");
+        try {
+            JdbcPools.resize(ContextRegistry.register(first), "firstDataSource", 4, -1);
+            ContextRegistry.Entry entry = ContextRegistry.register(second);
+            assertEquals("secondDataSource: maximumPoolSize 5 -> 2", JdbcPools.resize(entry, "secondDataSource", 2, -1));
+            assertEquals(2, second.getBean(HikariDataSource.class).getMaximumPoolSize());
+            assertEquals(4, first.getBean(HikariDataSource.class).getMaximumPoolSize());
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    private static GenericApplicationContext hikariContext(String bean) {
+        GenericApplicationContext ctx = new GenericApplicationContext();
+        ctx.registerBean(bean, HikariDataSource.class, () -> {
+            HikariConfig config = new HikariConfig();
+            config.setJdbcUrl("jdbc:h2:mem:" + bean + ";DB_CLOSE_DELAY=-1");
+            config.setPoolName(bean);
+            config.setMaximumPoolSize(5);
+            config.setMinimumIdle(0);
+            return new HikariDataSource(config);
+        });
+        ctx.refresh();
+        return ctx;
+    }
+
+    static final class FakePool {
+        int max = 10;
+    }
+
+    static final class FakeAdapter extends JdbcPools.Adapter {
+        FakeAdapter(FakePool pool) { super(pool); }
+        @Override String kind() { return "fake"; }
+        @Override Object target() { return dataSource; }
+        @Override int[] read() { return new int[] {3, 2, 0, 5, ((FakePool) dataSource).max}; }
+        @Override String resize(int max, int minIdle) {
+            FakePool p = (FakePool) dataSource;
+            String s = "maxActive " + p.max + " -> " + max;
+            p.max = max;
+            return s;
+        }
+    }
+
+    public static class PlainDataSource implements DataSource {
+        @Override public Connection getConnection() throws SQLException { throw new SQLException("no database"); }
+        @Override public Connection getConnection(String user, String password) throws SQLException { return getConnection(); }
+        @Override public PrintWriter getLogWriter() { return null; }
+        @Override public void setLogWriter(PrintWriter out) {}
+        @Override public void setLoginTimeout(int seconds) {}
+        @Override public int getLoginTimeout() { return 0; }
+        @Override public Logger getParentLogger() { return Logger.getGlobal(); }
+        @Override public <T> T unwrap(Class<T> iface) throws SQLException { throw new SQLException("not a wrapper"); }
+        @Override public boolean isWrapperFor(Class<?> iface) { return false; }
+    }
+
+    static final class WrappingDataSource extends PlainDataSource {
+        private final Object target;
+        WrappingDataSource(Object target) { this.target = target; }
+        @Override public <T> T unwrap(Class<T> iface) { return iface.cast(target); }
+        @Override public boolean isWrapperFor(Class<?> iface) { return iface.isInstance(target); }
+    }
+}
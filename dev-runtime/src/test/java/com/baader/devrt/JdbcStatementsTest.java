@@ -0,0 +1,145 @@
+package com.baader.devrt;
+
+import net.bytebuddy.agent.ByteBuddyAgent;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import javax.sql.DataSource;
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcStatementsTest {
+
+    @AfterEach
+    void tearDown() {
+        JdbcStatements.uninstall();
+        ContextRegistry.clear();
+    }
+
+    @Test
+    void fingerprintsIgnoreLiteralsAndInListLength() {
+        assertEquals("select * from owner where id = ? and name = ?",
+                JdbcStatements.fingerprint("select *  from owner\n where id = 42 and name = 'O''Brien'"));
+        assertEquals(JdbcStatements.fingerprint("select * from pet where owner_id in (1, 2, 3)"),
+                JdbcStatements.fingerprint("select * from pet where owner_id in (?,?)"));
+        assertEquals("select t1.id from t1", JdbcStatements.fingerprint("select t1.id from t1"));
+    }
+
+    @Test
+    void countsOutermostStatementsAndRepeatedFingerprints() {
+        Object prepared = new Object();
+        JdbcStatements.Tracker t = JdbcStatements.begin();
+        try {
+            long start = JdbcStatements.enter();
+            JdbcStatements.prepared(prepared, "select * from pet where owner_id = ?", start);
+            for (int i = 0; i < 3; i++) {
+                long outer = JdbcStatements.enter();
+                // A pool proxy delegating to the driver statement is one query.
+                JdbcStatements.executed(prepared, null, JdbcStatements.enter());
+                JdbcStatements.executed(prepared, null, outer);
+            }
+            JdbcStatements.executed(new Object(), "select * from owner", JdbcStatements.enter());
+        } finally {
+            JdbcStatements.end(t);
+        }
+        assertEquals(4, t.count());
+        assertEquals(3, t.repeated());
+        assertTrue(t.summary().startsWith("4 queries, 3 identical, "), t.summary());
+        assertTrue(t.repeatedAsTsv(5).startsWith("3\t"), t.repeatedAsTsv(5));
+        assertTrue(t.repeatedAsTsv(5).endsWith("\tselect * from pet where owner_id = ?\n"));
+
+        JdbcStatements.executed(new Object(), "select 1", JdbcStatements.enter());
+        assertEquals(4, t.count());
+    }
+
+    @Test
+    void threadsStartedDuringTheEvalAreAttributed() throws Exception {
+        JdbcStatements.Tracker t = JdbcStatements.begin();
+        try {
+            Thread worker = new Thread(() -> JdbcStatements.executed(new Object(), "select 1", JdbcStatements.enter()));
+            worker.start();
+            worker.join();
+        } finally {
+            JdbcStatements.end(t);
+        }
+        assertEquals(1, t.count());
+        assertEquals("", t.repeatedAsTsv(5));
+    }
+
+    @Test
+    void threadsOutlivingTheEvalDoNotKeepItsTracker() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        JdbcStatements.Tracker t = JdbcStatements.begin();
+        Thread worker;
+        try {
+            worker = new Thread(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {}
+                JdbcStatements.executed(new Object(), "select 1", JdbcStatements.enter());
+            });
+            worker.start();
+        } finally {
+            JdbcStatements.end(t);
+        }
+        WeakReference<JdbcStatements.Tracker> ref = new WeakReference<>(t);
+        t = null;
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(ref.get(), "A thread started during the eval must not pin its tracker.");
+        release.countDown();
+        worker.join();
+    }
+
+    @Test
+    void installsOnceTheContextHasADataSourceAndTracksTheDriver() throws Exception {
+        AgentRuntime.setInstrumentation(ByteBuddyAgent.install());
+        GenericApplicationContext ctx = new GenericApplicationContext();
+        ctx.refresh();
+        try {
+            ContextRegistry.Entry entry = ContextRegistry.register(ctx);
+            assertFalse(JdbcStatements.install(entry));
+            assertFalse(JdbcStatements.isInstalled());
+
+            ctx.registerBean("dataSource", DataSource.class, () -> {
+                JdbcDataSource ds = new JdbcDataSource();
+                ds.setURL("jdbc:h2:mem:statements;DB_CLOSE_DELAY=-1");
+                return ds;
+            });
+            assertTrue(JdbcStatements.install(entry), "a new bean definition rebuilds the index");
+
+            JdbcStatements.Tracker t = JdbcStatements.begin();
+            try (Connection c = ctx.getBean(DataSource.class).getConnection();
+                 Statement st = c.createStatement();
+                 PreparedStatement ps = c.prepareStatement("select ? + 1")) {
+                st.execute("create table pet(id int)");
+                for (int i = 0; i < 3; i++) {
+                    ps.setInt(1, i);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        assertTrue(rs.next());
+                    }
+                }
+            } finally {
+                JdbcStatements.end(t);
+            }
+            assertEquals(4, t.count(), t.summary());
+            assertEquals(3, t.repeated());
+            assertTrue(t.repeatedAsTsv(5).endsWith("\tselect ? + ?\n"), t.repeatedAsTsv(5));
+
+            assertTrue(JdbcStatements.uninstall());
+            assertFalse(JdbcStatements.uninstall());
+        } finally {
+            ctx.close();
+        }
+    }
+}
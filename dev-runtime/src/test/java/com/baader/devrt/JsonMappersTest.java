@@ -0,0 +1,113 @@
+package com.baader.devrt;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonMappersTest {
+
+    public static class Point {
+        public int x = 1;
+        public int y = 2;
+        public String label = "origin";
+        public List<String> tags = List.of("a", "b");
+    }
+
+    @Test
+    void oneMapperPerLoaderAndNoneWithoutJackson() throws Exception {
+        ClassLoader app = getClass().getClassLoader();
+        assertSame(JsonMappers.of(app), JsonMappers.of(app));
+        try (URLClassLoader bare = new URLClassLoader(new URL[0], null)) {
+            assertNull(JsonMappers.of(bare));
+        }
+    }
+
+    @Test
+    void writesPrettyOrCompactAndReadsBack() throws Exception {
+        JsonMappers.Mapper mapper = JsonMappers.of(getClass().getClassLoader());
+        String compact = mapper.write(new Point(), false);
+        assertEquals("{\"x\":1,\"y\":2,\"label\":\"origin\",\"tags\":[\"a\",\"b\"]}", compact);
+        assertTrue(mapper.write(new Point(), true).contains("\n"));
+        assertEquals("{}", mapper.write(new Object(), false));
+
+        Point back = mapper.read(compact, Point.class);
+        assertEquals("origin", back.label);
+        assertEquals(Map.of("x", 1), mapper.read("{\"x\":1}", Map.class));
+        assertThrows(Exception.class, () -> mapper.read("{", Map.class));
+    }
+
+    @Test
+    void cachedMapperDoesNotPinItsClassLoader() throws Exception {
+        WeakReference<ClassLoader> loader = mapInThrowawayLoader();
+        for (int i = 0; i < 50 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(loader.get(), "A loader with its own Jackson must stay collectable.");
+    }
+
+    // In its own frame so no local keeps the loader reachable.
+    private static WeakReference<ClassLoader> mapInThrowawayLoader() throws Exception {
+        URL[] jackson = {
+                ObjectMapper.class.getProtectionDomain().getCodeSource().getLocation(),
+                JsonFactory.class.getProtectionDomain().getCodeSource().getLocation(),
+                JsonProperty.class.getProtectionDomain().getCodeSource().getLocation()};
+        URLClassLoader loader = new URLClassLoader(jackson, null);
+        JsonMappers.Mapper mapper = JsonMappers.of(loader);
+        assertNotSame(JsonMappers.of(JsonMappersTest.class.getClassLoader()), mapper);
+        // Jackson keeps a soft buffer recycler per thread, which would pin the loader until memory runs low.
+        String[] json = new String[1];
+        Thread writer = new Thread(() -> {
+            try {
+                json[0] = mapper.write(Map.of("a", 1), false);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        writer.join();
+        assertEquals("{\"a\":1}", json[0]);
+        loader.close();
+        return new WeakReference<>(loader);
+    }
+
+    @Test
+    void cachedAndFreshMappersBothRunUnderBench() throws Exception {
+        // Timings are recorded in the commit log; asserting on them here would be flaky.
+        Bench.Options o = new Bench.Options();
+        o.warmupIterations = 1;
+        o.iterations = 1;
+        o.iterationMillis = 10;
+        o.cpuBudgetPercent = 100;
+        Point p = new Point();
+        JsonMappers.Mapper cached = JsonMappers.of(getClass().getClassLoader());
+
+        // What the snapshot code did before: a new mapper and reflective lookup per save.
+        Bench.Result fresh = Bench.run(() -> {
+            try {
+                Object mapper = ObjectMapper.class.getConstructor().newInstance();
+                return mapper.getClass().getMethod("writeValueAsString", Object.class).invoke(mapper, p);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }, o);
+        Bench.Result reused = Bench.run(() -> {
+            try {
+                return cached.write(p, false);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }, o);
+        assertTrue(fresh.nsPerOp > 0, fresh.describe());
+        assertTrue(reused.nsPerOp > 0, reused.describe());
+    }
+}
@@ -0,0 +1,90 @@
+package com.baader.devrt;
+
+import net.bytebuddy.agent.ByteBuddyAgent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.baader.devrt.CaptureFixtures.Order;
+import com.baader.devrt.CaptureFixtures.OrderService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MethodCapturesTest {
+
+    @BeforeAll
+    static void attach() {
+        AgentRuntime.setInstrumentation(ByteBuddyAgent.install());
+    }
+
+    @AfterEach
+    void cleanup() {
+        MethodCaptures.removeAll();
+    }
+
+    @Test
+    void capturesOnlyCallsMatchingThePredicate() {
+        OrderService service = new OrderService();
+        MethodCaptures.Capture c = MethodCaptures.add(OrderService.class.getName() + "#place",
+                "args[0].getTenantId().equals(\"x\") && args[1] != 0", 1.0, 3);
+
+        service.place(new Order("y"), 1);
+        for (int i = 1; i <= 5; i++) service.place(new Order("x"), i);
+        assertThrows(IllegalArgumentException.class, () -> service.place(new Order("x"), -1));
+
+        List<MethodCaptures.Entry> entries = MethodCaptures.entries(c.id);
+        assertEquals(3, entries.size(), "Ring buffer keeps only the newest entries.");
+        assertEquals("50", entries.get(1).result);
+        MethodCaptures.Entry last = entries.get(2);
+        assertEquals("java.lang.IllegalArgumentException: qty", last.error);
+        assertNull(last.result);
+        assertEquals("[Order(x), -1]", last.args);
+        assertEquals(6, c.matched.sum());
+
+        assertTrue(MethodCaptures.remove(c.id));
+        service.place(new Order("x"), 1);
+        assertTrue(MethodCaptures.entries(c.id).isEmpty());
+    }
+
+    @Test
+    void holdsCapturedObjectsOnlyWeakly() throws Exception {
+        OrderService service = new OrderService();
+        MethodCaptures.Capture c = MethodCaptures.add(OrderService.class.getName() + "#place", null, 1.0, 10);
+        Order kept = new Order("kept");
+        service.place(kept, 1);
+        service.place(new Order("dropped"), 2);
+
+        List<MethodCaptures.Entry> entries = MethodCaptures.entries(c.id);
+        assertSame(kept, entries.get(0).liveArgs()[0]);
+        for (int i = 0; i < 50 && entries.get(1).liveArgs()[0] != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(entries.get(1).liveArgs()[0], "Capture must not keep the argument reachable.");
+        assertEquals("[Order(dropped), 2]", entries.get(1).args);
+    }
+
+    @Test
+    void rendersLargeArgumentsOnlyUpToTheCap() {
+        OrderService service = new OrderService();
+        MethodCaptures.Capture c = MethodCaptures.add(OrderService.class.getName() + "#placeAll", null, 1.0, 10);
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) orders.add(new Order("o" + i));
+        service.placeAll(orders);
+
+        String args = MethodCaptures.entries(c.id).get(0).args;
+        assertTrue(args.startsWith("[[Order(o0), Order(o1), "), args);
+        assertTrue(args.endsWith("..."), "Truncated rendering must be marked.");
+        assertEquals(2_003, args.length());
+    }
+
+    @Test
+    void rejectsPredicateThatDoesNotCompile() {
+        assertThrows(IllegalArgumentException.class, () ->
+                MethodCaptures.add(OrderService.class.getName() + "#place", "args[0].noSuchMethod()", 1.0, 10));
+        assertEquals("", MethodCaptures.listAsTsv());
+    }
+}
@@ -0,0 +1,76 @@
+package com.baader.devrt;
+
+import net.bytebuddy.agent.ByteBuddyAgent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MethodProbesTest {
+
+    public static class Target {
+        public int work(int x) { return x * 2; }
+        public void fail() { throw new IllegalStateException("boom"); }
+    }
+
+    @BeforeAll
+    static void attach() {
+        AgentRuntime.setInstrumentation(ByteBuddyAgent.install());
+    }
+
+    @AfterEach
+    void cleanup() {
+        MethodProbes.removeAll();
+    }
+
+    @Test
+    void probeCountsCallsAndErrorsThenRestoresBytecode() {
+        Target target = new Target();
+        MethodProbes.Probe probe = MethodProbes.add(Target.class.getName() + "#*");
+
+        for (int i = 0; i < 10; i++) assertEquals(2 * i, target.work(i));
+        assertThrows(IllegalStateException.class, target::fail);
+
+        String tsv = MethodProbes.listAsTsv();
+        assertTrue(tsv.contains(probe.id + "\t" + Target.class.getName() + "#work\t10\t0\t"), tsv);
+        assertTrue(tsv.contains("#fail\t1\t1\t"), tsv);
+
+        assertTrue(MethodProbes.remove(probe.id));
+        target.work(1);
+        assertEquals("", MethodProbes.listAsTsv());
+    }
+
+    @Test
+    void explicitMethodProbeKeepsWindowedStats() throws Exception {
+        Target target = new Target();
+        MethodProbes.Probe probe = MethodProbes.addMethods("test",
+                java.util.Map.of(Target.class.getMethod("work", int.class), "{GET [/work]}"), true);
+
+        for (int i = 0; i < 5; i++) target.work(i);
+
+        MethodProbes.Stats s = MethodProbes.statsOf(probe.id).get("{GET [/work]}");
+        assertNotNull(s);
+        assertEquals(5, s.latency.count());
+        WindowedHistogram.Snapshot w = s.window.snapshot();
+        assertEquals(5, w.count);
+        assertTrue(w.perSecond() > 0);
+        assertTrue(w.p99 <= w.max);
+    }
+
+    @Test
+    void rejectsOverlyBroadPatterns() {
+        assertThrows(IllegalArgumentException.class, () -> MethodProbes.add("*#run"));
+    }
+
+    @Test
+    void histogramPercentilesAreOrdered() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 1000; v++) h.record(v * 1000);
+        assertEquals(1000, h.count());
+        long p50 = h.percentile(0.5);
+        long p99 = h.percentile(0.99);
+        assertTrue(p50 >= 500_000 && p50 <= 640_000, "p50=" + p50);
+        assertTrue(p99 >= p50 && p99 <= h.maxNanos(), "p99=" + p99);
+    }
+}
@@ -0,0 +1,50 @@
+package com.baader.devrt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelBenchTest {
+
+    static final Object LOCK = new Object();
+    static long counter;
+
+    static Object serialized() {
+        synchronized (LOCK) {
+            long until = System.nanoTime() + 2_000_000;
+            while (System.nanoTime() < until) counter++;
+            return counter;
+        }
+    }
+
+    @Test
+    void threadCountsDoubleUpToMax() {
+        assertEquals(List.of(1), ParallelBench.threadCounts(1));
+        assertEquals(List.of(1, 2, 4, 6), ParallelBench.threadCounts(6));
+        assertEquals(List.of(1, 2, 4, 8), ParallelBench.threadCounts(8));
+        assertTrue(ParallelBench.defaultThreads() >= 1 && ParallelBench.defaultThreads() <= 4);
+    }
+
+    @Test
+    void cpuBudgetIdlesAfterEachStep() throws Exception {
+        long start = System.nanoTime();
+        ParallelBench.run(() -> 1, 2, 200, 0, 50);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMillis >= 800, "two 200 ms steps at 50% take at least 800 ms, took " + elapsedMillis);
+        assertThrows(IllegalArgumentException.class, () -> ParallelBench.run(() -> 1, 1, 200, 0, 0));
+    }
+
+    @Test
+    void serializedSnippetShowsContentionAndNoSpeedup() throws Exception {
+        List<ParallelBench.Step> steps = ParallelBench.run(ParallelBenchTest::serialized, 4, 400, 0, 100);
+        assertEquals(3, steps.size());
+        ParallelBench.Step four = steps.get(2);
+        assertEquals(4, four.threads);
+        assertTrue(four.speedup < 2.0, ParallelBench.toTsv(steps));
+        assertTrue(four.p50 <= four.p99 && four.p99 <= four.max);
+        assertTrue(four.contention.byMonitor.stream().anyMatch(e -> e.monitorClass.equals("java.lang.Object")),
+                ParallelBench.toTsv(steps));
+    }
+}
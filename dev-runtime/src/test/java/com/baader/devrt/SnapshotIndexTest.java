@@ -0,0 +1,93 @@
+package com.baader.devrt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void persistsRowsAndReadsThemBack() throws Exception {
+        Files.writeString(dir.resolve("a.json"), "{}");
+        SnapshotIndex index = new SnapshotIndex(dir);
+        index.put(new SnapshotIndex.Row("a", "com.example.A", 2, 1234L, 0xcafeL, "DISK"));
+
+        SnapshotIndex reloaded = new SnapshotIndex(dir);
+        SnapshotIndex.Row row = reloaded.get("a");
+        assertEquals("com.example.A", row.type);
+        assertEquals(1234L, row.ts);
+        assertEquals("0000cafe", row.checksumHex());
+        assertTrue(Files.readString(dir.resolve("index.tsv")).contains("a\tcom.example.A\t2\t1234\t0000cafe\tDISK"));
+    }
+
+    @Test
+    void reconcilesWithTheDirectoryOnLoad() throws Exception {
+        Files.writeString(dir.resolve("kept.json"), "[1]");
+        SnapshotIndex index = new SnapshotIndex(dir);
+        index.put(new SnapshotIndex.Row("kept", "java.util.List", 3, 1L, 0L, "DISK"));
+        index.put(new SnapshotIndex.Row("gone", "java.util.Map", 2, 1L, 0L, "DISK"));
+        Files.writeString(dir.resolve("old.json"), "\"x\"");
+        Files.writeString(dir.resolve("old.type"), "java.lang.String");
+
+        SnapshotIndex reloaded = new SnapshotIndex(dir);
+        assertNull(reloaded.get("gone"));
+        assertEquals(0L, reloaded.get("kept").checksum, "unchanged files are not re-read");
+        SnapshotIndex.Row old = reloaded.get("old");
+        assertEquals("java.lang.String", old.type);
+        assertEquals(3, old.size);
+        assertEquals(SnapshotIndex.checksum(dir.resolve("old.json")), old.checksum);
+        assertFalse(Files.exists(dir.resolve("old.type")), "sidecar is migrated into the index");
+        assertEquals(2, new SnapshotIndex(dir).rows().size());
+    }
+
+    @Test
+    void keepsRowsWrittenByAnotherAgent() throws Exception {
+        SnapshotIndex first = new SnapshotIndex(dir);
+        SnapshotIndex second = new SnapshotIndex(dir);
+        Files.writeString(dir.resolve("shared.json"), "{}");
+        assertEquals(1, first.rows().size());
+        assertEquals(1, second.rows().size());
+
+        Files.writeString(dir.resolve("mine.json"), "[]");
+        first.put(new SnapshotIndex.Row("mine", "java.util.List", 2, 1L, 0L, "DISK"));
+        Files.writeString(dir.resolve("theirs.json"), "[]");
+        second.put(new SnapshotIndex.Row("theirs", "java.util.List", 2, 1L, 0L, "DISK"));
+        assertEquals(List.of("mine", "shared", "theirs"), second.rows().stream().map(r -> r.name).toList(),
+                "a change picks up what the other agent wrote");
+        Files.delete(dir.resolve("shared.json"));
+        first.remove("shared");
+
+        assertEquals(List.of("mine", "theirs"), new SnapshotIndex(dir).rows().stream().map(r -> r.name).toList());
+        assertNull(first.get("shared"));
+    }
+
+    @Test
+    void savedSnapshotsAreIndexedWithSizeAndChecksum() throws Exception {
+        String name = "snapshot-index-test";
+        SnapshotManager.useDirectory(dir);
+        try {
+            SnapshotManager.save(name, new JsonMappersTest.Point());
+            Path json = dir.resolve(name + ".json");
+            byte[] bytes = Files.readAllBytes(json);
+            CRC32C crc = new CRC32C();
+            crc.update(bytes);
+
+            String info = SnapshotManager.info(name);
+            assertTrue(info.contains("Size: " + bytes.length + " bytes"), info);
+            assertTrue(info.contains(String.format("Checksum: %08x", crc.getValue())), info);
+            assertTrue(SnapshotManager.listAsTsv().contains(name + "\t" + JsonMappersTest.Point.class.getName() + "\tJSON\t"));
+        } finally {
+            SnapshotManager.delete(name);
+        }
+        assertFalse(SnapshotManager.list().contains(name));
+    }
+}
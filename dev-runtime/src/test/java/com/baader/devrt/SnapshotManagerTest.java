@@ -0,0 +1,80 @@
+package com.baader.devrt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotManagerTest {
+
+    @TempDir
+    Path dir;
+    private final String name = "snapshot-manager-test";
+
+    @BeforeEach
+    void setUp() {
+        SnapshotManager.useDirectory(dir);
+    }
+
+    @Test
+    void streamsCompactJsonAndReadsItBack() throws Exception {
+        JsonMappersTest.Point p = new JsonMappersTest.Point();
+        p.label = "saved";
+        SnapshotManager.save(name, p);
+
+        String onDisk = Files.readString(dir.resolve(name + ".json"));
+        assertEquals("{\"x\":1,\"y\":2,\"label\":\"saved\",\"tags\":[\"a\",\"b\"]}", onDisk);
+        JsonMappersTest.Point back = SnapshotManager.load(name);
+        assertEquals("saved", back.label);
+        assertTrue(SnapshotManager.show(name).contains("\n  \"label\" : \"saved\""), SnapshotManager.show(name));
+    }
+
+    @Test
+    void replacesTheFileWithoutLeavingTempFiles() throws Exception {
+        SnapshotManager.save(name, new JsonMappersTest.Point());
+        JsonMappersTest.Point second = new JsonMappersTest.Point();
+        second.x = 42;
+        SnapshotManager.save(name, second);
+
+        assertEquals(42, SnapshotManager.<JsonMappersTest.Point>load(name).x);
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.noneMatch(f -> f.getFileName().toString().startsWith(name) && f.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void unserializableObjectsStayInMemory() {
+        Object self = new Object() {
+            public Object getSelf() { return this; }
+        };
+        SnapshotManager.save(name, self);
+        assertSame(self, SnapshotManager.load(name));
+        assertFalse(Files.exists(dir.resolve(name + ".json")));
+    }
+
+    @Test
+    void snapshotGetReturnsPrettyJson() {
+        SnapshotManager.save(name, new JsonMappersTest.Point());
+        Map<String, Object> r = new ReplHandler().handle(ReplOps.SNAPSHOT_GET, Map.of("name", name));
+        assertEquals(SnapshotManager.show(name), r.get("value"));
+        assertTrue(((String) r.get("value")).contains("\n  \"x\" : 1"), r.toString());
+    }
+
+    @Test
+    void loadNoticesFilesChangedOutsideTheAgent() throws Exception {
+        SnapshotManager.save(name, new JsonMappersTest.Point());
+        Path json = dir.resolve(name + ".json");
+        String edited = Files.readString(json).replace("\"x\":1", "\"x\":7");
+        Files.writeString(json, edited);
+
+        assertEquals(7, SnapshotManager.<JsonMappersTest.Point>load(name).x);
+        String info = SnapshotManager.info(name);
+        assertTrue(info.contains(String.format("Checksum: %08x", SnapshotIndex.checksum(json))), info);
+    }
+}
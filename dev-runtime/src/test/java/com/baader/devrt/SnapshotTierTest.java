@@ -0,0 +1,148 @@
+package com.baader.devrt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTierTest {
+
+    @TempDir
+    Path dir;
+
+    private static ArrayList<Integer> serializable(int n) {
+        ArrayList<Integer> list = new ArrayList<>();
+        for (int i = 0; i < n; i++) list.add(1000 + i);
+        return list;
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedAndSpillsSerializableEntries() {
+        SnapshotTier tier = new SnapshotTier(dir);
+        ArrayList<Integer> first = serializable(1000);
+        tier.setBudget(ObjectSizes.deepSize(first, 100_000) * 2 + 100);
+        tier.put("a", first);
+        tier.put("b", serializable(1000));
+        assertSame(first, tier.get("a"));   // "b" is now the least recently used
+
+        assertEquals(SnapshotTier.Tier.MEMORY, tier.put("c", serializable(1000)));
+        assertEquals(SnapshotTier.Tier.DISK, tier.entry("b").tier);
+        assertTrue(Files.exists(dir.resolve("b.ser")));
+        assertEquals(serializable(1000), tier.get("b"));
+        assertTrue(tier.used() <= tier.budget());
+
+        tier.remove("b");
+        assertFalse(Files.exists(dir.resolve("b.ser")));
+    }
+
+    record Blob(long[] data) {}
+
+    @Test
+    void dropsWhatCannotBeSerialized() {
+        SnapshotTier tier = new SnapshotTier(dir);
+        Blob blob = new Blob(new long[10_000]);
+        tier.setBudget(ObjectSizes.deepSize(blob, 10) + 100);
+        tier.put("old", new Blob(new long[10_000]));
+        assertEquals(SnapshotTier.Tier.MEMORY, tier.put("new", blob));
+        assertNull(tier.entry("old"));
+
+        assertNull(tier.put("huge", new Blob(new long[20_000])));
+        assertFalse(tier.contains("huge"));
+        assertEquals(List.of("new"), tier.entries().stream().map(e -> e.name).toList());
+    }
+
+    @Test
+    void tiersSharingABudgetAreCappedTogether() {
+        SnapshotTier.Budget budget = new SnapshotTier.Budget();
+        SnapshotTier objects = new SnapshotTier(dir.resolve("spill"), budget);
+        SnapshotTier pinned = new SnapshotTier(dir.resolve("pinned"), budget);
+        ArrayList<Integer> first = serializable(1000);
+        objects.setBudget(ObjectSizes.deepSize(first, 100_000) * 2 + 100);
+
+        objects.put("a", first);
+        pinned.put("b", serializable(1000));
+        assertEquals(SnapshotTier.Tier.MEMORY, pinned.put("c", serializable(1000)));
+
+        assertEquals(SnapshotTier.Tier.DISK, objects.entry("a").tier, "the oldest entry of either tier spills");
+        assertTrue(Files.exists(dir.resolve("spill").resolve("a.ser")));
+        assertEquals(SnapshotTier.Tier.MEMORY, pinned.entry("b").tier);
+        assertTrue(pinned.used() <= pinned.budget());
+        assertEquals(objects.used(), pinned.used());
+    }
+
+    @Test
+    void clearsSpillsLeftByAnEarlierRun() throws Exception {
+        Files.writeString(dir.resolve("stale.ser"), "left over");
+        Files.writeString(dir.resolve("notes.txt"), "kept");
+        new SnapshotTier(dir);
+        assertFalse(Files.exists(dir.resolve("stale.ser")));
+        assertTrue(Files.exists(dir.resolve("notes.txt")));
+    }
+
+    static final class SlowToWrite implements Serializable {
+        private static final long serialVersionUID = 1L;
+        static volatile CountDownLatch writing;
+        static volatile CountDownLatch release;
+        final long[] data = new long[10_000];
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            writing.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            out.defaultWriteObject();
+        }
+    }
+
+    @Test
+    void serializesOutsideTheTierLock() throws Exception {
+        SlowToWrite.writing = new CountDownLatch(1);
+        SlowToWrite.release = new CountDownLatch(1);
+        SnapshotTier tier = new SnapshotTier(dir);
+        SlowToWrite slow = new SlowToWrite();
+        tier.setBudget(ObjectSizes.deepSize(slow, 10) + 100);
+        tier.put("slow", slow);
+
+        CompletableFuture<SnapshotTier.Tier> evicting = CompletableFuture.supplyAsync(() -> tier.put("next", serializable(10)));
+        assertTrue(SlowToWrite.writing.await(10, TimeUnit.SECONDS));
+        // Reads go on while "slow" is being written, and still see its value.
+        assertSame(slow, tier.get("slow"));
+        assertEquals(List.of("next", "slow"), tier.entries().stream().map(e -> e.name).toList());
+        SlowToWrite.release.countDown();
+
+        assertEquals(SnapshotTier.Tier.MEMORY, evicting.get(10, TimeUnit.SECONDS));
+        assertEquals(SnapshotTier.Tier.DISK, tier.entry("slow").tier);
+    }
+
+    @Test
+    void reportsWhySomethingSerializableWasDropped() throws Exception {
+        SnapshotTier tier = new SnapshotTier(dir.resolve("not-a-dir"));
+        Files.writeString(dir.resolve("not-a-dir"), "a file where the spill directory should be");
+        tier.setBudget(100);
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(captured, true));
+        try {
+            assertNull(tier.put("list", serializable(1000)));
+        } finally {
+            System.setOut(out);
+        }
+        assertTrue(captured.toString().contains("could not be spilled"), captured.toString());
+        assertFalse(captured.toString().contains("not serializable"), captured.toString());
+    }
+}
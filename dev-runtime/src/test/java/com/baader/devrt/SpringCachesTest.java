@@ -0,0 +1,125 @@
+package com.baader.devrt;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpringCachesTest {
+
+    private GenericApplicationContext ctx;
+    private ContextRegistry.Entry entry;
+    private ConcurrentMapCacheManager manager;
+
+    @BeforeEach
+    void setUp() {
+        ctx = new GenericApplicationContext();
+        ctx.registerBean("cacheManager", ConcurrentMapCacheManager.class, () -> new ConcurrentMapCacheManager("orders", "users"));
+        ctx.refresh();
+        entry = ContextRegistry.register(ctx);
+        manager = ctx.getBean(ConcurrentMapCacheManager.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ctx.close();
+        ContextRegistry.clear();
+    }
+
+    @Test
+    void reportsSizeAndMemoryOfConcurrentMapCaches() throws Exception {
+        Cache orders = manager.getCache("orders");
+        for (int i = 0; i < 100; i++) orders.put((long) i, "order-payload-" + "x".repeat(200) + i);
+
+        List<SpringCaches.CacheInfo> caches = SpringCaches.stats(entry, true);
+        assertEquals(2, caches.size());
+        SpringCaches.CacheInfo info = caches.stream().filter(c -> c.name.equals("orders")).findFirst().orElseThrow();
+        assertEquals("cacheManager", info.manager);
+        assertEquals("concurrent-map", info.provider);
+        assertEquals(100, info.size);
+        assertEquals(-1, info.hits, "ConcurrentMap caches keep no counters");
+        assertTrue(info.bytes >= 100 * 200, "estimate " + info.bytes);
+
+        String tsv = SpringCaches.toTsv(caches);
+        assertTrue(tsv.contains("cacheManager\torders\tconcurrent-map\t100\t\t\t\t\t"), tsv);
+    }
+
+    @Test
+    void evictsAndWarmsByName() throws Exception {
+        Object cache = SpringCaches.find(entry, null, "users");
+        SpringCaches.warm(cache, Map.of(1L, "ann", 2L, "bob"));
+        assertEquals("ann", manager.getCache("users").get(1L).get());
+
+        SpringCaches.evict(cache, 1L);
+        assertNull(manager.getCache("users").get(1L));
+        assertThrows(IllegalArgumentException.class, () -> SpringCaches.evict(cache, null));
+        assertEquals("bob", manager.getCache("users").get(2L).get(), "A null key must not clear the cache.");
+        SpringCaches.clear(cache);
+        assertNull(manager.getCache("users").get(2L));
+
+        assertThrows(IllegalArgumentException.class, () -> SpringCaches.find(entry, "otherManager", "users"));
+        assertThrows(IllegalArgumentException.class, () -> SpringCaches.find(entry, null, "missing"));
+    }
+
+    @Test
+    void readsCaffeineCountersWhenStatsAreRecorded() throws Exception {
+        CaffeineCacheManager caffeine = registerCaffeine(Caffeine.newBuilder()
+                .recordStats().maximumSize(10).executor(Runnable::run));
+        Cache sessions = caffeine.getCache("sessions");
+        for (int i = 0; i < 15; i++) sessions.put(i, "session-" + i);
+        ((com.github.benmanes.caffeine.cache.Cache<?, ?>) sessions.getNativeCache()).cleanUp();
+        int present = 0;
+        for (int i = 0; i < 15; i++) if (sessions.get(i) != null) present++;
+        assertNull(sessions.get("missing"));
+
+        SpringCaches.CacheInfo info = caffeineInfo();
+        assertEquals("caffeine", info.provider);
+        assertEquals(10, info.size);
+        assertEquals(present, info.hits);
+        assertEquals(15 - present + 1, info.misses);
+        assertEquals(5, info.evictions);
+        assertTrue(info.bytes > 0, "estimate " + info.bytes);
+    }
+
+    @Test
+    void reportsCaffeineWithoutCountersWhenStatsAreOff() throws Exception {
+        CaffeineCacheManager caffeine = registerCaffeine(Caffeine.newBuilder());
+        Cache sessions = caffeine.getCache("sessions");
+        sessions.put(1, "a");
+        sessions.get(1);
+
+        SpringCaches.CacheInfo info = caffeineInfo();
+        assertEquals("caffeine (recordStats off)", info.provider);
+        assertEquals(1, info.size);
+        assertEquals(-1, info.hits);
+        assertEquals(-1, info.misses);
+        assertEquals(-1, info.evictions);
+    }
+
+    private CaffeineCacheManager registerCaffeine(Caffeine<Object, Object> builder) {
+        ctx.close();
+        ctx = new GenericApplicationContext();
+        ctx.registerBean("caffeineManager", CaffeineCacheManager.class, () -> {
+            CaffeineCacheManager m = new CaffeineCacheManager("sessions");
+            m.setCaffeine(builder);
+            return m;
+        });
+        ctx.refresh();
+        entry = ContextRegistry.register(ctx);
+        return ctx.getBean(CaffeineCacheManager.class);
+    }
+
+    private SpringCaches.CacheInfo caffeineInfo() throws Exception {
+        return SpringCaches.stats(entry, true).stream()
+                .filter(c -> c.manager.equals("caffeineManager")).findFirst().orElseThrow();
+    }
+}
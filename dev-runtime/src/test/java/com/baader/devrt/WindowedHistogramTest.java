@@ -0,0 +1,43 @@
+package com.baader.devrt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WindowedHistogramTest {
+
+    @Test
+    void concurrentWritersLoseNothingAcrossSliceBoundaries() throws Exception {
+        // 50 us slices over a 2 s window, longer than the test, so every sample stays in it.
+        WindowedHistogram h = WindowedHistogram.withSlotNanos(40_000, 50_000);
+        int threads = 4, perThread = 500_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread w = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) h.record(1_000 + i % 1_000);
+            });
+            w.start();
+            writers.add(w);
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread w : writers) w.join();
+        long elapsedMillis = (System.nanoTime() - began) / 1_000_000;
+
+        assertTrue(elapsedMillis < 2_000, "the window must cover the whole run, took " + elapsedMillis + " ms");
+        assertTrue(elapsedMillis >= 1, "writes should span several slices, took " + elapsedMillis + " ms");
+        WindowedHistogram.Snapshot s = h.snapshot();
+        assertEquals((long) threads * perThread, s.count);
+        assertTrue(s.max >= 1_000 && s.max < 2_000, "max " + s.max);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.app;
+
+import org.springframework.context.ApplicationContext;
+
+/** Application-style static holder, outside the packages AutoBinder skips. */
+public final class ContextHolderFixture {
+    public static ApplicationContext context;
+    public static String unrelated = "not a context";
+
+    private ContextHolderFixture() {}
+}
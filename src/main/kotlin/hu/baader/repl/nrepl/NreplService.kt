@@ -195,6 +195,52 @@ class NreplService(private val project: Project) {
         }
     }
 
+    /** Server-side filtered and ranked bean lookup; see BeanQuery in the agent for the query syntax. */
+    fun queryBeans(query: String, offset: Int = 0, limit: Int = 50, onResult: (BeanPage)->Unit, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp("beans/query", mapOf("q" to query, "offset" to offset.toString(), "limit" to limit.toString())) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                m["value"] != null -> {
+                    val beans = m["value"]!!.lines().mapNotNull { line ->
+                        val parts = line.split('\t')
+                        if (parts[0].isBlank()) null else BeanInfo(parts[0], parts.getOrNull(1).orEmpty())
+                    }
+                    onResult(BeanPage(beans, m["total"]?.toIntOrNull() ?: beans.size))
+                }
+                else -> onResult(BeanPage(emptyList(), 0))
+            }
+        }
+    }
+
+    fun listContexts(onResult: (List<ContextInfo>)->Unit, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp("list-contexts", emptyMap()) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                m["value"] != null -> onResult(m["value"]!!.lines().mapNotNull { line ->
+                    val p = line.split('\t')
+                    if (p.size < 8) return@mapNotNull null
+                    ContextInfo(p[0] == "*", p[1], p[2], p[3], p[4], p[5], p[6].toIntOrNull() ?: -1, p[7])
+                })
+                else -> onResult(emptyList())
+            }
+        }
+    }
+
+    fun useContext(id: String, onResult: (String)->Unit, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp("use-context", mapOf("id" to id)) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                else -> {
+                    springBound.set(true)
+                    onResult(m["message"] ?: m["value"] ?: id)
+                }
+            }
+        }
+    }
+
     fun listAgentSnapshots(onResult: (String)->Unit, onError: ((String)->Unit)? = null) {
         val c = client ?: throw IllegalStateException("Not connected to nREPL")
         c.sendOp("snapshots", emptyMap()) { m ->
@@ -293,8 +339,408 @@ class NreplService(private val project: Project) {
         }
     }
 
+    fun endpointsTop(limit: Int, sort: String, onResult: (List<EndpointStats>)->Unit, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp("endpoints/top", mapOf("n" to limit.toString(), "sort" to sort)) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                m["value"] != null -> {
+                    val rows = m["value"]!!.lines().mapNotNull { line ->
+                        val p = line.split('\t')
+                        if (p.size < 9) return@mapNotNull null
+                        EndpointStats(
+                            endpoint = p[0],
+                            windowCount = p[1].toLongOrNull() ?: 0,
+                            perSecond = p[2].toDoubleOrNull() ?: 0.0,
+                            p50Micros = p[3].toDoubleOrNull() ?: 0.0,
+                            p95Micros = p[4].toDoubleOrNull() ?: 0.0,
+                            p99Micros = p[5].toDoubleOrNull() ?: 0.0,
+                            maxMicros = p[6].toDoubleOrNull() ?: 0.0,
+                            totalCount = p[7].toLongOrNull() ?: 0,
+                            errors = p[8].toLongOrNull() ?: 0
+                        )
+                    }
+                    onResult(rows)
+                }
+                else -> onResult(emptyList())
+            }
+        }
+    }
+
+    fun endpointsRemove(onResult: ((String)->Unit)? = null, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp("endpoints/remove", emptyMap()) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                m["value"] != null -> onResult?.invoke(m["value"]!!)
+            }
+        }
+    }
+
+    /** Starts counting the JDBC statements of each eval; results arrive as the eval's sql keys. */
+    fun sqlTrack(onResult: ((String)->Unit)? = null, onError: ((String)->Unit)? = null) {
+        sqlOp("sql/track", onResult, onError)
+    }
+
+    fun sqlRemove(onResult: ((String)->Unit)? = null, onError: ((String)->Unit)? = null) {
+        sqlOp("sql/remove", onResult, onError)
+    }
+
+    private fun sqlOp(op: String, onResult: ((String)->Unit)?, onError: ((String)->Unit)?) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp(op, emptyMap()) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                m["value"] != null -> onResult?.invoke(m["value"]!!)
+            }
+        }
+    }
+
+    fun allocTop(seconds: Int, limit: Int, onResult: (List<AllocationSite>)->Unit, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp("alloc/top", mapOf("seconds" to seconds.toString(), "n" to limit.toString())) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                m["value"] != null -> {
+                    val rows = m["value"]!!.lines().mapNotNull { line ->
+                        val p = line.split('\t')
+                        if (p.size < 6) return@mapNotNull null
+                        AllocationSite(
+                            bytes = p[0].toLongOrNull() ?: 0,
+                            sharePercent = p[1].toDoubleOrNull() ?: 0.0,
+                            samples = p[2].toLongOrNull() ?: 0,
+                            className = p[3],
+                            topFrame = p[4],
+                            stack = p[5]
+                        )
+                    }
+                    onResult(rows)
+                }
+                else -> onResult(emptyList())
+            }
+        }
+    }
+
+    fun profileCpu(seconds: Int, intervalMillis: Int, onResult: (String)->Unit, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp("profile/cpu", mapOf("seconds" to seconds.toString(), "interval" to intervalMillis.toString())) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                m["value"] != null -> onResult(m["value"]!!)
+                else -> onResult("")
+            }
+        }
+    }
+
+    fun startupReport(limit: Int, minMillis: Double, onResult: (List<StartupRow>)->Unit, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp("startup/report", mapOf("n" to limit.toString(), "min" to minMillis.toString())) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                m["value"] != null -> onResult(m["value"]!!.lines().mapNotNull { line ->
+                    val p = line.split('\t')
+                    if (p.size < 6) return@mapNotNull null
+                    StartupRow(p[0].toIntOrNull() ?: 0, p[1], p[2], p[3].toDoubleOrNull() ?: 0.0,
+                        p[4].toDoubleOrNull() ?: 0.0, p[5].toIntOrNull() ?: 0)
+                })
+                else -> onResult(emptyList())
+            }
+        }
+    }
+
+    fun cachesStats(onResult: (List<CacheStats>)->Unit, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp("caches/stats", emptyMap()) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                m["value"] != null -> onResult(m["value"]!!.lines().mapNotNull { line ->
+                    val p = line.split('\t')
+                    if (p.size < 9) return@mapNotNull null
+                    CacheStats(p[0], p[1], p[2], p[3].toLongOrNull(), p[4].toLongOrNull(), p[5].toLongOrNull(),
+                        p[6].toDoubleOrNull(), p[7].toLongOrNull(), p[8].toLongOrNull())
+                })
+                else -> onResult(emptyList())
+            }
+        }
+    }
+
+    /** Evicts [keyExpression] (a Java expression evaluated in the agent) from the cache. */
+    fun cachesEvict(manager: String, cache: String, keyExpression: String, onResult: (String)->Unit, onError: ((String)->Unit)? = null) {
+        cachesEvictOp(mapOf("manager" to manager, "cache" to cache, "key" to keyExpression), onResult, onError)
+    }
+
+    /** Removes every entry of the cache. */
+    fun cachesClear(manager: String, cache: String, onResult: (String)->Unit, onError: ((String)->Unit)? = null) {
+        cachesEvictOp(mapOf("manager" to manager, "cache" to cache, "all" to "true"), onResult, onError)
+    }
+
+    private fun cachesEvictOp(params: Map<String, String>, onResult: (String)->Unit, onError: ((String)->Unit)?) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp("caches/evict", params) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                else -> onResult(m["value"] ?: "Done")
+            }
+        }
+    }
+
+    /** Puts every entry of the Map returned by [code] into the cache. */
+    fun cachesWarm(manager: String, cache: String, code: String, onResult: (String)->Unit, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp("caches/warm", mapOf("manager" to manager, "cache" to cache, "code" to code)) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                else -> onResult(m["value"] ?: "Done")
+            }
+        }
+    }
+
+    /**
+     * Pools and their samples newer than [since] (epoch ms). Starts sampling in the agent on
+     * first use; [intervalMillis] re-schedules it. A non-null [resizeMax] resizes [resizePool].
+     */
+    fun jdbcPools(
+        since: Long,
+        intervalMillis: Int? = null,
+        resizePool: String? = null,
+        resizeMax: Int? = null,
+        onResult: (JdbcPoolsPage)->Unit,
+        onError: ((String)->Unit)? = null
+    ) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        val params = mutableMapOf("since" to since.toString())
+        intervalMillis?.let { params["interval"] = it.toString() }
+        if (resizeMax != null) {
+            params["pool"] = resizePool.orEmpty()
+            params["max"] = resizeMax.toString()
+        }
+        c.sendOp("pools/jdbc", params) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                m["value"] != null -> {
+                    val pools = m["value"]!!.lines().mapNotNull { line ->
+                        val p = line.split('\t')
+                        if (p.size < 4) return@mapNotNull null
+                        JdbcPool(p[0], p[1], p[2], p[3].toIntOrNull())
+                    }
+                    val samples = m["samples"].orEmpty().lines().mapNotNull { line ->
+                        val p = line.split('\t')
+                        if (p.size < 10) return@mapNotNull null
+                        PoolSample(p[0], p[1].toLongOrNull() ?: return@mapNotNull null, p[2].toIntOrNull(), p[3].toIntOrNull(),
+                            p[4].toIntOrNull(), p[5].toIntOrNull(), p[6].toIntOrNull(), p[7].toLongOrNull() ?: 0,
+                            p[8].toDoubleOrNull(), p[9].toDoubleOrNull())
+                    }
+                    onResult(JdbcPoolsPage(pools, samples, m["resized"]))
+                }
+                else -> onResult(JdbcPoolsPage(emptyList(), emptyList(), null))
+            }
+        }
+    }
+
+    fun jdbcPoolsStop(onResult: ((String)->Unit)? = null, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp("pools/jdbc", mapOf("stop" to "true")) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                else -> onResult?.invoke(m["value"] ?: "Stopped")
+            }
+        }
+    }
+
+    /**
+     * Executor beans with live values and their samples newer than [since] (epoch ms). Starts
+     * sampling in the agent on first use; [intervalMillis] re-schedules it.
+     */
+    fun executors(since: Long, intervalMillis: Int? = null, onResult: (ExecutorsPage)->Unit, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        val params = mutableMapOf("since" to since.toString())
+        intervalMillis?.let { params["interval"] = it.toString() }
+        c.sendOp("executors", params) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                m["value"] != null -> {
+                    val executors = m["value"]!!.lines().mapNotNull { line ->
+                        val p = line.split('\t')
+                        if (p.size < 11) return@mapNotNull null
+                        ExecutorInfo(p[0], p[1], p[2].toIntOrNull(), p[3].toIntOrNull(), p[4].toIntOrNull(), p[5].toIntOrNull(),
+                            p[6].toIntOrNull(), p[7].toLongOrNull(), p[8].toLongOrNull(), p[9].toLongOrNull(), p[10].toLongOrNull())
+                    }
+                    val samples = m["samples"].orEmpty().lines().mapNotNull { line ->
+                        val p = line.split('\t')
+                        if (p.size < 7) return@mapNotNull null
+                        ExecutorSample(p[0], p[1].toLongOrNull() ?: return@mapNotNull null, p[2].toIntOrNull() ?: 0,
+                            p[3].toIntOrNull() ?: 0, p[4].toLongOrNull() ?: 0, p[5].toLongOrNull(), p[6].toLongOrNull())
+                    }
+                    onResult(ExecutorsPage(executors, samples))
+                }
+                else -> onResult(ExecutorsPage(emptyList(), emptyList()))
+            }
+        }
+    }
+
+    fun executorsStop(onResult: ((String)->Unit)? = null, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp("executors", mapOf("stop" to "true")) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                else -> onResult?.invoke(m["value"] ?: "Stopped")
+            }
+        }
+    }
+
+    /** Resizes an executor bean live; a null [core] or [max] is left unchanged. */
+    fun setPoolSize(name: String, core: Int?, max: Int?, onResult: (String)->Unit, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        val params = mutableMapOf("name" to name)
+        core?.let { params["core"] = it.toString() }
+        max?.let { params["max"] = it.toString() }
+        c.sendOp("set-pool-size", params) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                else -> onResult(m["value"] ?: "Done")
+            }
+        }
+    }
+
+    fun heapHisto(name: String, onResult: (List<HistoRow>)->Unit, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp("heap/histo", mapOf("name" to name, "n" to "500")) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                m["value"] != null -> onResult(parseHistoRows(m["value"]!!))
+                else -> onResult(emptyList())
+            }
+        }
+    }
+
+    fun heapHistoDiff(from: String, to: String, onResult: (List<HistoRow>)->Unit, onError: ((String)->Unit)? = null) {
+        val c = client ?: throw IllegalStateException("Not connected to nREPL")
+        c.sendOp("heap/histo-diff", mapOf("from" to from, "to" to to, "n" to "500")) { m ->
+            when {
+                m["err"] != null -> onError?.invoke(m["err"]!!)
+                m["value"] != null -> onResult(parseHistoRows(m["value"]!!))
+                else -> onResult(emptyList())
+            }
+        }
+    }
+
+    private fun parseHistoRows(tsv: String): List<HistoRow> = tsv.lines().mapNotNull { line ->
+        val p = line.split('\t')
+        if (p.size < 3) return@mapNotNull null
+        HistoRow(p[0], p[1].toLongOrNull() ?: 0, p[2].toLongOrNull() ?: 0)
+    }
+
     data class BeanInfo(val name: String, val className: String)
 
+    /** One page of a bean query; [total] counts all matches. */
+    data class BeanPage(val beans: List<BeanInfo>, val total: Int)
+
+    /** A captured application context; [current] marks the one snippets and bean lookups use. */
+    data class ContextInfo(
+        val current: Boolean,
+        val id: String,
+        val contextId: String,
+        val parentId: String,
+        val className: String,
+        val classLoader: String,
+        val beanCount: Int,
+        val state: String
+    )
+
+    /** A bean creation in depth-first order; beans at depth + 1 below it are its dependencies. */
+    data class StartupRow(
+        val depth: Int,
+        val bean: String,
+        val type: String,
+        val totalMillis: Double,
+        val selfMillis: Double,
+        val dependencies: Int
+    )
+
+    /** Statistics of one cache; null where the provider does not report the value. */
+    data class CacheStats(
+        val manager: String,
+        val cache: String,
+        val provider: String,
+        val size: Long?,
+        val hits: Long?,
+        val misses: Long?,
+        val hitPercent: Double?,
+        val evictions: Long?,
+        val estimatedBytes: Long?
+    )
+
+    /** A monitored connection pool; [max] is the size limit at the latest sample. */
+    data class JdbcPool(val bean: String, val kind: String, val dataSourceClass: String, val max: Int?)
+
+    /** One sampling tick of a pool; acquire times cover the interval before [at]. */
+    data class PoolSample(
+        val pool: String,
+        val at: Long,
+        val active: Int?,
+        val idle: Int?,
+        val waiting: Int?,
+        val total: Int?,
+        val max: Int?,
+        val acquires: Long,
+        val acquireAvgMillis: Double?,
+        val acquireMaxMillis: Double?
+    )
+
+    /** [resized] describes the size change when the request resized a pool. */
+    data class JdbcPoolsPage(val pools: List<JdbcPool>, val samples: List<PoolSample>, val resized: String?)
+
+    /** An executor bean; null where the pool type does not report the value. */
+    data class ExecutorInfo(
+        val bean: String,
+        val kind: String,
+        val core: Int?,
+        val max: Int?,
+        val poolSize: Int?,
+        val largest: Int?,
+        val active: Int?,
+        val queued: Long?,
+        val remainingCapacity: Long?,
+        val completed: Long?,
+        val rejected: Long?
+    )
+
+    data class ExecutorSample(
+        val bean: String,
+        val at: Long,
+        val poolSize: Int,
+        val active: Int,
+        val queued: Long,
+        val completed: Long?,
+        val rejected: Long?
+    )
+
+    data class ExecutorsPage(val executors: List<ExecutorInfo>, val samples: List<ExecutorSample>)
+
+    /** A class histogram row; for diffs the counts are deltas. */
+    data class HistoRow(val className: String, val instances: Long, val bytes: Long)
+
+    data class AllocationSite(
+        val bytes: Long,
+        val sharePercent: Double,
+        val samples: Long,
+        val className: String,
+        val topFrame: String,
+        val stack: String
+    )
+
+    data class EndpointStats(
+        val endpoint: String,
+        val windowCount: Long,
+        val perSecond: Double,
+        val p50Micros: Double,
+        val p95Micros: Double,
+        val p99Micros: Double,
+        val maxMicros: Double,
+        val totalCount: Long,
+        val errors: Long
+    )
+
     companion object {
         @JvmStatic
         fun getInstance(project: Project): NreplService = project.service()
@@ -0,0 +1,119 @@
+package hu.baader.repl.ui
+
+import com.intellij.icons.AllIcons
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.project.Project
+import com.intellij.ui.components.JBLabel
+import com.intellij.ui.components.JBScrollPane
+import com.intellij.ui.table.JBTable
+import hu.baader.repl.nrepl.NreplService
+import java.awt.BorderLayout
+import java.awt.FlowLayout
+import java.awt.event.MouseAdapter
+import java.awt.event.MouseEvent
+import javax.swing.JButton
+import javax.swing.JPanel
+import javax.swing.JSpinner
+import javax.swing.SpinnerNumberModel
+import javax.swing.table.AbstractTableModel
+
+/**
+ * Allocation hotspots sampled by the agent over a short JFR window.
+ * Double-click a row to open the allocating frame.
+ */
+class AllocationsPanel(
+    private val project: Project,
+    private val connection: () -> NreplService?
+) : JPanel(BorderLayout()) {
+
+    private val model = AllocationTableModel()
+    private val table = JBTable(model)
+    private val seconds = JSpinner(SpinnerNumberModel(10, 1, 120, 1))
+    private val recordButton = JButton("Record", AllIcons.Actions.Execute)
+    private val status = JBLabel("Record allocations for a few seconds while the app is under load")
+
+    init {
+        table.autoCreateRowSorter = true
+        table.setShowGrid(false)
+        table.toolTipText = "Double-click to open the allocating frame"
+        table.addMouseListener(object : MouseAdapter() {
+            override fun mouseClicked(e: MouseEvent) {
+                if (e.clickCount != 2) return
+                val row = table.rowAtPoint(e.point).takeIf { it >= 0 } ?: return
+                val site = model.siteAt(table.convertRowIndexToModel(row))
+                if (!navigateToFrame(project, site.topFrame)) {
+                    status.text = "Source not found for ${site.topFrame}"
+                }
+            }
+        })
+
+        val toolbar = JPanel(FlowLayout(FlowLayout.LEFT))
+        recordButton.toolTipText = "Sample allocations via JFR in the target JVM (nothing is written to disk)"
+        recordButton.addActionListener { record() }
+        toolbar.add(JBLabel("Seconds:"))
+        toolbar.add(seconds)
+        toolbar.add(recordButton)
+
+        add(toolbar, BorderLayout.NORTH)
+        add(JBScrollPane(table), BorderLayout.CENTER)
+        add(status, BorderLayout.SOUTH)
+    }
+
+    private fun record() {
+        val svc = connection()
+        if (svc == null) {
+            status.text = "Not connected"
+            return
+        }
+        val window = seconds.value as Int
+        recordButton.isEnabled = false
+        status.text = "Recording for ${window}s..."
+        svc.allocTop(window, 100,
+            onResult = { rows ->
+                ApplicationManager.getApplication().invokeLater {
+                    model.setRows(rows)
+                    recordButton.isEnabled = true
+                    status.text = "${rows.size} allocation site(s), ${rows.sumOf { it.samples }} sample(s)"
+                }
+            },
+            onError = { err ->
+                ApplicationManager.getApplication().invokeLater {
+                    recordButton.isEnabled = true
+                    status.text = err
+                }
+            })
+    }
+}
+
+private class AllocationTableModel : AbstractTableModel() {
+    private val columns = arrayOf("Sampled MiB", "%", "Samples", "Class", "Allocated at", "Stack")
+    private var rows: List<NreplService.AllocationSite> = emptyList()
+
+    fun setRows(newRows: List<NreplService.AllocationSite>) {
+        rows = newRows
+        fireTableDataChanged()
+    }
+
+    fun siteAt(row: Int): NreplService.AllocationSite = rows[row]
+
+    override fun getRowCount(): Int = rows.size
+    override fun getColumnCount(): Int = columns.size
+    override fun getColumnName(column: Int): String = columns[column]
+    override fun getColumnClass(columnIndex: Int): Class<*> = when (columnIndex) {
+        0, 1 -> java.lang.Double::class.java
+        2 -> java.lang.Long::class.java
+        else -> String::class.java
+    }
+
+    override fun getValueAt(rowIndex: Int, columnIndex: Int): Any {
+        val r = rows[rowIndex]
+        return when (columnIndex) {
+            0 -> Math.round(r.bytes / 1048576.0 * 10) / 10.0
+            1 -> r.sharePercent
+            2 -> r.samples
+            3 -> r.className
+            4 -> r.topFrame
+            else -> r.stack
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package hu.baader.repl.ui
+
+import com.intellij.icons.AllIcons
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.ui.Messages
+import com.intellij.ui.components.JBLabel
+import com.intellij.ui.components.JBScrollPane
+import com.intellij.ui.components.JBTextField
+import com.intellij.ui.table.JBTable
+import hu.baader.repl.nrepl.NreplService
+import java.awt.BorderLayout
+import java.awt.FlowLayout
+import javax.swing.JButton
+import javax.swing.JPanel
+import javax.swing.table.AbstractTableModel
+
+/**
+ * Spring caches of the bound context with hit rates and size. The selected cache can be
+ * cleared, have one key evicted, or be warmed from a snippet that returns a Map.
+ */
+class CachesPanel(
+    private val connection: () -> NreplService?
+) : JPanel(BorderLayout()) {
+
+    private val model = CacheTableModel()
+    private val table = JBTable(model)
+    private val expression = JBTextField(30)
+    private val status = JBLabel("Refresh to list the caches of every CacheManager bean")
+
+    init {
+        table.autoCreateRowSorter = true
+        table.setShowGrid(false)
+        expression.emptyText.text = "key expression, or Map for warm-up"
+
+        val toolbar = JPanel(FlowLayout(FlowLayout.LEFT))
+        val refresh = JButton("Refresh", AllIcons.Actions.Refresh)
+        refresh.addActionListener { refresh() }
+        val evict = JButton("Evict", AllIcons.Actions.GC)
+        evict.toolTipText = "Evict the key expression from the selected cache"
+        evict.addActionListener { evict() }
+        val clear = JButton("Clear", AllIcons.Actions.GC)
+        clear.toolTipText = "Remove every entry of the selected cache"
+        clear.addActionListener { clear() }
+        val warm = JButton("Warm", AllIcons.Actions.Upload)
+        warm.toolTipText = "Evaluate the expression (a Map) in the target JVM and put its entries into the selected cache"
+        warm.addActionListener { warm() }
+
+        toolbar.add(refresh)
+        toolbar.add(expression)
+        toolbar.add(evict)
+        toolbar.add(clear)
+        toolbar.add(warm)
+
+        add(toolbar, BorderLayout.NORTH)
+        add(JBScrollPane(table), BorderLayout.CENTER)
+        add(status, BorderLayout.SOUTH)
+    }
+
+    private fun refresh() {
+        val svc = connection()
+        if (svc == null) {
+            status.text = "Not connected"
+            return
+        }
+        status.text = "Loading..."
+        svc.cachesStats(
+            onResult = { rows ->
+                ApplicationManager.getApplication().invokeLater {
+                    model.setRows(rows)
+                    status.text = "${rows.size} cache(s)"
+                }
+            },
+            onError = { err -> ApplicationManager.getApplication().invokeLater { status.text = err } })
+    }
+
+    private fun selected(): NreplService.CacheStats? {
+        val row = table.selectedRow
+        if (row < 0) {
+            status.text = "Select a cache first"
+            return null
+        }
+        return model.rowAt(table.convertRowIndexToModel(row))
+    }
+
+    private fun evict() {
+        val svc = connection() ?: return
+        val cache = selected() ?: return
+        val key = expression.text.trim()
+        if (key.isEmpty()) {
+            status.text = "Enter a key expression to evict, or use Clear"
+            return
+        }
+        svc.cachesEvict(cache.manager, cache.cache, key,
+            onResult = { msg -> ApplicationManager.getApplication().invokeLater { status.text = msg; refresh() } },
+            onError = { err -> ApplicationManager.getApplication().invokeLater { status.text = err } })
+    }
+
+    private fun clear() {
+        val svc = connection() ?: return
+        val cache = selected() ?: return
+        if (Messages.showYesNoDialog(this, "Remove every entry of '${cache.cache}'?", "Clear Cache", null) != Messages.YES) return
+        svc.cachesClear(cache.manager, cache.cache,
+            onResult = { msg -> ApplicationManager.getApplication().invokeLater { status.text = msg; refresh() } },
+            onError = { err -> ApplicationManager.getApplication().invokeLater { status.text = err } })
+    }
+
+    private fun warm() {
+        val svc = connection() ?: return
+        val cache = selected() ?: return
+        val code = expression.text.trim()
+        if (code.isEmpty()) {
+            status.text = "Enter an expression returning a Map, e.g. Map.of(1L, repo.findById(1L).get())"
+            return
+        }
+        svc.cachesWarm(cache.manager, cache.cache, code,
+            onResult = { msg -> ApplicationManager.getApplication().invokeLater { status.text = msg; refresh() } },
+            onError = { err -> ApplicationManager.getApplication().invokeLater { status.text = err } })
+    }
+}
+
+private class CacheTableModel : AbstractTableModel() {
+    private val columns = arrayOf("Manager", "Cache", "Provider", "Size", "Hits", "Misses", "Hit %", "Evictions", "Est. KiB")
+    private var rows: List<NreplService.CacheStats> = emptyList()
+
+    fun setRows(newRows: List<NreplService.CacheStats>) {
+        rows = newRows
+        fireTableDataChanged()
+    }
+
+    fun rowAt(index: Int): NreplService.CacheStats = rows[index]
+
+    override fun getRowCount(): Int = rows.size
+    override fun getColumnCount(): Int = columns.size
+    override fun getColumnName(column: Int): String = columns[column]
+    override fun getColumnClass(columnIndex: Int): Class<*> = when (columnIndex) {
+        0, 1, 2 -> String::class.java
+        6 -> java.lang.Double::class.java
+        else -> java.lang.Long::class.java
+    }
+
+    override fun getValueAt(rowIndex: Int, columnIndex: Int): Any? {
+        val r = rows[rowIndex]
+        return when (columnIndex) {
+            0 -> r.manager
+            1 -> r.cache
+            2 -> r.provider
+            3 -> r.size
+            4 -> r.hits
+            5 -> r.misses
+            6 -> r.hitPercent
+            7 -> r.evictions
+            else -> r.estimatedBytes?.let { it / 1024 }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package hu.baader.repl.ui
+
+import com.intellij.icons.AllIcons
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.ui.components.JBCheckBox
+import com.intellij.ui.components.JBLabel
+import com.intellij.ui.components.JBScrollPane
+import com.intellij.ui.table.JBTable
+import hu.baader.repl.nrepl.NreplService
+import java.awt.BorderLayout
+import java.awt.FlowLayout
+import javax.swing.JButton
+import javax.swing.JComboBox
+import javax.swing.JPanel
+import javax.swing.Timer
+import javax.swing.table.AbstractTableModel
+
+/**
+ * Per-endpoint latency table. The first refresh instruments all Spring MVC handler methods
+ * in the agent; "Remove" takes the instrumentation out again.
+ */
+class EndpointsPanel(
+    private val connection: () -> NreplService?
+) : JPanel(BorderLayout()), Disposable {
+
+    private val model = EndpointTableModel()
+    private val table = JBTable(model)
+    private val sortBox = JComboBox(arrayOf("p99", "rps"))
+    private val autoRefresh = JBCheckBox("Auto (2s)")
+    private val status = JBLabel("Press Refresh to instrument endpoints")
+    private val timer = Timer(2000) { refresh() }
+
+    init {
+        table.autoCreateRowSorter = true
+        table.setShowGrid(false)
+
+        val toolbar = JPanel(FlowLayout(FlowLayout.LEFT))
+        val refreshButton = JButton("Refresh", AllIcons.Actions.Refresh)
+        refreshButton.toolTipText = "Instrument handler methods (first time) and fetch the top endpoints"
+        refreshButton.addActionListener { refresh() }
+        val removeButton = JButton("Remove", AllIcons.General.Remove)
+        removeButton.toolTipText = "Remove endpoint instrumentation from the application"
+        removeButton.addActionListener { remove() }
+        autoRefresh.addActionListener { if (autoRefresh.isSelected) timer.start() else timer.stop() }
+
+        toolbar.add(refreshButton)
+        toolbar.add(JBLabel("Top by:"))
+        toolbar.add(sortBox)
+        toolbar.add(autoRefresh)
+        toolbar.add(removeButton)
+
+        add(toolbar, BorderLayout.NORTH)
+        add(JBScrollPane(table), BorderLayout.CENTER)
+        add(status, BorderLayout.SOUTH)
+    }
+
+    private fun refresh() {
+        val svc = connection()
+        if (svc == null) {
+            status.text = "Not connected"
+            autoRefresh.isSelected = false
+            timer.stop()
+            return
+        }
+        val sort = sortBox.selectedItem as String
+        svc.endpointsTop(50, sort,
+            onResult = { rows ->
+                ApplicationManager.getApplication().invokeLater {
+                    model.setRows(rows)
+                    status.text = "${rows.size} endpoint(s), last 60s window"
+                }
+            },
+            onError = { err ->
+                ApplicationManager.getApplication().invokeLater {
+                    status.text = err
+                    autoRefresh.isSelected = false
+                    timer.stop()
+                }
+            })
+    }
+
+    private fun remove() {
+        val svc = connection() ?: return
+        autoRefresh.isSelected = false
+        timer.stop()
+        svc.endpointsRemove(
+            onResult = { msg ->
+                ApplicationManager.getApplication().invokeLater {
+                    model.setRows(emptyList())
+                    status.text = msg
+                }
+            },
+            onError = { err -> ApplicationManager.getApplication().invokeLater { status.text = err } })
+    }
+
+    override fun dispose() {
+        timer.stop()
+    }
+}
+
+private class EndpointTableModel : AbstractTableModel() {
+    private val columns = arrayOf("Endpoint", "Req/s", "p50 µs", "p95 µs", "p99 µs", "Max µs", "Window", "Total", "Errors")
+    private var rows: List<NreplService.EndpointStats> = emptyList()
+
+    fun setRows(newRows: List<NreplService.EndpointStats>) {
+        rows = newRows
+        fireTableDataChanged()
+    }
+
+    override fun getRowCount(): Int = rows.size
+    override fun getColumnCount(): Int = columns.size
+    override fun getColumnName(column: Int): String = columns[column]
+    override fun getColumnClass(columnIndex: Int): Class<*> = when (columnIndex) {
+        0 -> String::class.java
+        6, 7, 8 -> java.lang.Long::class.java
+        else -> java.lang.Double::class.java
+    }
+
+    override fun getValueAt(rowIndex: Int, columnIndex: Int): Any {
+        val r = rows[rowIndex]
+        return when (columnIndex) {
+            0 -> r.endpoint
+            1 -> r.perSecond
+            2 -> r.p50Micros
+            3 -> r.p95Micros
+            4 -> r.p99Micros
+            5 -> r.maxMicros
+            6 -> r.windowCount
+            7 -> r.totalCount
+            else -> r.errors
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package hu.baader.repl.ui
+
+import com.intellij.icons.AllIcons
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.ui.Splitter
+import com.intellij.ui.JBColor
+import com.intellij.ui.components.JBLabel
+import com.intellij.ui.components.JBScrollPane
+import com.intellij.ui.table.JBTable
+import hu.baader.repl.nrepl.NreplService
+import java.awt.BorderLayout
+import java.awt.Color
+import java.awt.FlowLayout
+import javax.swing.JButton
+import javax.swing.JPanel
+import javax.swing.JSpinner
+import javax.swing.SpinnerNumberModel
+import javax.swing.Timer
+import javax.swing.table.AbstractTableModel
+
+/**
+ * Executor beans of the bound context with their live pool values; the selected executor's
+ * threads, active count and queue depth are charted over time. Core and max size can be
+ * changed live to test saturation hypotheses.
+ */
+class ExecutorsPanel(
+    private val connection: () -> NreplService?
+) : JPanel(BorderLayout()), Disposable {
+
+    private val model = ExecutorTableModel()
+    private val table = JBTable(model)
+    private val interval = JSpinner(SpinnerNumberModel(1000, 100, 60_000, 100))
+    private val coreSize = JSpinner(SpinnerNumberModel(1, 0, 10_000, 1))
+    private val maxSize = JSpinner(SpinnerNumberModel(1, 1, 10_000, 1))
+    private val startButton = JButton("Start", AllIcons.Actions.Execute)
+    private val stopButton = JButton("Stop", AllIcons.Actions.Suspend)
+    private val status = JBLabel("Start to sample the executor beans of the bound context")
+    private val chart = TimeSeriesChart<NreplService.ExecutorSample>(listOf(
+        TimeSeriesChart.Series<NreplService.ExecutorSample>("threads", JBColor.GRAY, dashed = true) { it.poolSize.toLong() },
+        TimeSeriesChart.Series<NreplService.ExecutorSample>("active", JBColor(Color(0xD9534F), Color(0xE06C75))) { it.active.toLong() },
+        TimeSeriesChart.Series<NreplService.ExecutorSample>("queued", JBColor(Color(0xF0AD4E), Color(0xE5C07B))) { it.queued }
+    )) { it.at }
+    private val history = HashMap<String, ArrayDeque<NreplService.ExecutorSample>>()
+    private var since = 0L
+    private var restoringSelection = false
+    private val timer = Timer(1000) { poll(null) }
+
+    init {
+        table.autoCreateRowSorter = true
+        table.setShowGrid(false)
+        table.selectionModel.addListSelectionListener { e ->
+            if (!e.valueIsAdjusting && !restoringSelection) showSelected(copySizes = true)
+        }
+
+        startButton.toolTipText = "Sample executors in the target JVM at this interval"
+        startButton.addActionListener { start() }
+        stopButton.toolTipText = "Stop sampling and restore the executors' rejection handlers"
+        stopButton.addActionListener { stop() }
+        stopButton.isEnabled = false
+        val resizeButton = JButton("Resize", AllIcons.Actions.Edit)
+        resizeButton.toolTipText = "Apply core/max to the selected executor (live)"
+        resizeButton.addActionListener { resize() }
+
+        val toolbar = JPanel(FlowLayout(FlowLayout.LEFT))
+        toolbar.add(JBLabel("Interval ms:"))
+        toolbar.add(interval)
+        toolbar.add(startButton)
+        toolbar.add(stopButton)
+        toolbar.add(JBLabel("Core:"))
+        toolbar.add(coreSize)
+        toolbar.add(JBLabel("Max:"))
+        toolbar.add(maxSize)
+        toolbar.add(resizeButton)
+
+        val split = Splitter(true, 0.5f).apply {
+            firstComponent = JBScrollPane(table)
+            secondComponent = chart
+        }
+        add(toolbar, BorderLayout.NORTH)
+        add(split, BorderLayout.CENTER)
+        add(status, BorderLayout.SOUTH)
+    }
+
+    private fun start() {
+        val ms = interval.value as Int
+        // Polling faster than the agent samples would only fetch empty pages.
+        timer.delay = maxOf(ms, 500)
+        poll(ms)
+        timer.start()
+        startButton.isEnabled = false
+        stopButton.isEnabled = true
+    }
+
+    private fun stop() {
+        timer.stop()
+        startButton.isEnabled = true
+        stopButton.isEnabled = false
+        val svc = connection() ?: return
+        svc.executorsStop(
+            onResult = { msg -> ApplicationManager.getApplication().invokeLater { status.text = msg } },
+            onError = { err -> ApplicationManager.getApplication().invokeLater { status.text = err } })
+    }
+
+    private fun selected(): NreplService.ExecutorInfo? {
+        val row = table.selectedRow
+        return if (row < 0) null else model.rowAt(table.convertRowIndexToModel(row))
+    }
+
+    private fun resize() {
+        val svc = connection() ?: return
+        val executor = selected()
+        if (executor == null) {
+            status.text = "Select an executor first"
+            return
+        }
+        // Scheduled pools only have a core size; the agent ignores max for them.
+        svc.setPoolSize(executor.bean, coreSize.value as Int, maxSize.value as Int,
+            onResult = { msg -> ApplicationManager.getApplication().invokeLater { status.text = msg } },
+            onError = { err -> ApplicationManager.getApplication().invokeLater { status.text = err } })
+    }
+
+    private fun poll(intervalMillis: Int?) {
+        val svc = connection()
+        if (svc == null) {
+            status.text = "Not connected"
+            timer.stop()
+            startButton.isEnabled = true
+            stopButton.isEnabled = false
+            return
+        }
+        svc.executors(since, intervalMillis,
+            onResult = { page -> ApplicationManager.getApplication().invokeLater { accept(page) } },
+            onError = { err ->
+                ApplicationManager.getApplication().invokeLater {
+                    status.text = err
+                    timer.stop()
+                    startButton.isEnabled = true
+                    stopButton.isEnabled = false
+                }
+            })
+    }
+
+    private fun accept(page: NreplService.ExecutorsPage) {
+        val selectedBean = selected()?.bean
+        // Re-selecting after a refresh must not overwrite sizes the user is editing.
+        restoringSelection = true
+        try {
+            model.setRows(page.executors)
+            val index = page.executors.indexOfFirst { it.bean == selectedBean }
+            if (index >= 0) {
+                val row = table.convertRowIndexToView(index)
+                table.selectionModel.setSelectionInterval(row, row)
+            }
+        } finally {
+            restoringSelection = false
+        }
+        for (s in page.samples) {
+            val series = history.getOrPut(s.bean) { ArrayDeque() }
+            series.addLast(s)
+            while (series.size > MAX_POINTS) series.removeFirst()
+            since = maxOf(since, s.at)
+        }
+        showSelected(copySizes = false)
+    }
+
+    private fun showSelected(copySizes: Boolean) {
+        val executor = selected() ?: return
+        chart.setSamples(history[executor.bean].orEmpty().toList())
+        if (copySizes) {
+            executor.core?.let { coreSize.value = it }
+            executor.max?.let { if (it <= 10_000) maxSize.value = it }
+        }
+        status.text = buildString {
+            append("${executor.bean}: ${executor.active ?: "?"} active of ${executor.poolSize ?: "?"} thread(s), ")
+            append("${executor.queued ?: "?"} queued")
+            executor.rejected?.let { append(", $it rejected since monitoring began") }
+        }
+    }
+
+    override fun dispose() {
+        timer.stop()
+    }
+
+    private companion object {
+        const val MAX_POINTS = 600
+    }
+}
+
+private class ExecutorTableModel : AbstractTableModel() {
+    private val columns = arrayOf("Bean", "Kind", "Core", "Max", "Threads", "Largest", "Active", "Queued", "Queue free", "Completed", "Rejected")
+    private var rows: List<NreplService.ExecutorInfo> = emptyList()
+
+    fun setRows(newRows: List<NreplService.ExecutorInfo>) {
+        rows = newRows
+        fireTableDataChanged()
+    }
+
+    fun rowAt(index: Int): NreplService.ExecutorInfo = rows[index]
+
+    override fun getRowCount(): Int = rows.size
+    override fun getColumnCount(): Int = columns.size
+    override fun getColumnName(column: Int): String = columns[column]
+    override fun getColumnClass(columnIndex: Int): Class<*> = when (columnIndex) {
+        0, 1 -> String::class.java
+        2, 3, 4, 5, 6 -> java.lang.Integer::class.java
+        else -> java.lang.Long::class.java
+    }
+
+    override fun getValueAt(rowIndex: Int, columnIndex: Int): Any? {
+        val r = rows[rowIndex]
+        return when (columnIndex) {
+            0 -> r.bean
+            1 -> r.kind
+            2 -> r.core
+            3 -> r.max
+            4 -> r.poolSize
+            5 -> r.largest
+            6 -> r.active
+            7 -> r.queued
+            8 -> r.remainingCapacity
+            9 -> r.completed
+            else -> r.rejected
+        }
+    }
+}
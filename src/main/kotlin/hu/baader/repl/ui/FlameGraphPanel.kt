@@ -0,0 +1,203 @@
+package hu.baader.repl.ui
+
+import com.intellij.icons.AllIcons
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.project.Project
+import com.intellij.ui.JBColor
+import com.intellij.ui.components.JBLabel
+import com.intellij.ui.components.JBScrollPane
+import com.intellij.util.ui.JBUI
+import com.intellij.util.ui.UIUtil
+import hu.baader.repl.nrepl.NreplService
+import java.awt.BorderLayout
+import java.awt.Color
+import java.awt.Dimension
+import java.awt.FlowLayout
+import java.awt.Graphics
+import java.awt.Graphics2D
+import java.awt.RenderingHints
+import java.awt.event.MouseAdapter
+import java.awt.event.MouseEvent
+import javax.swing.JButton
+import javax.swing.JComponent
+import javax.swing.JPanel
+import javax.swing.JSpinner
+import javax.swing.SpinnerNumberModel
+
+/**
+ * CPU profile tab: asks the agent for a sampled profile in collapsed-stack form and draws it
+ * as a flame graph (root at the bottom). Click a frame to zoom in, double-click to open its
+ * source, click the root to zoom out.
+ */
+class FlameGraphPanel(
+    private val project: Project,
+    private val connection: () -> NreplService?
+) : JPanel(BorderLayout()) {
+
+    private val seconds = JSpinner(SpinnerNumberModel(10, 1, 120, 1))
+    private val interval = JSpinner(SpinnerNumberModel(10, 1, 1000, 1))
+    private val profileButton = JButton("Profile", AllIcons.Actions.Profile)
+    private val status = JBLabel("Profile the target JVM for a few seconds")
+    private val graph = FlameGraph()
+
+    init {
+        val toolbar = JPanel(FlowLayout(FlowLayout.LEFT))
+        profileButton.toolTipText = "Sample RUNNABLE thread stacks in the target JVM"
+        profileButton.addActionListener { profile() }
+        toolbar.add(JBLabel("Seconds:"))
+        toolbar.add(seconds)
+        toolbar.add(JBLabel("Interval ms:"))
+        toolbar.add(interval)
+        toolbar.add(profileButton)
+
+        add(toolbar, BorderLayout.NORTH)
+        add(JBScrollPane(graph), BorderLayout.CENTER)
+        add(status, BorderLayout.SOUTH)
+    }
+
+    private fun profile() {
+        val svc = connection()
+        if (svc == null) {
+            status.text = "Not connected"
+            return
+        }
+        val window = seconds.value as Int
+        profileButton.isEnabled = false
+        status.text = "Profiling for ${window}s..."
+        svc.profileCpu(window, interval.value as Int,
+            onResult = { collapsed ->
+                ApplicationManager.getApplication().invokeLater {
+                    val root = FrameNode.parseCollapsed(collapsed)
+                    graph.setRoot(root)
+                    profileButton.isEnabled = true
+                    status.text = "${root.total} sample(s)"
+                }
+            },
+            onError = { err ->
+                ApplicationManager.getApplication().invokeLater {
+                    profileButton.isEnabled = true
+                    status.text = err
+                }
+            })
+    }
+
+    private inner class FlameGraph : JComponent() {
+        private val rowHeight = JBUI.scale(18)
+        private var root = FrameNode("all", null)
+        private var zoom = root
+        private val hitBoxes = mutableListOf<Pair<java.awt.Rectangle, FrameNode>>()
+
+        init {
+            toolTipText = ""
+            addMouseListener(object : MouseAdapter() {
+                override fun mouseClicked(e: MouseEvent) {
+                    val node = nodeAt(e) ?: return
+                    if (e.clickCount == 2 && node.parent != null) {
+                        // Frames are "pkg.Type.method"; navigation expects "pkg.Type#method".
+                        val dot = node.name.lastIndexOf('.')
+                        if (dot > 0) navigateToFrame(project, node.name.substring(0, dot) + "#" + node.name.substring(dot + 1))
+                        return
+                    }
+                    zoom = if (node === zoom) node.parent ?: root else node
+                    revalidate()
+                    repaint()
+                }
+            })
+        }
+
+        fun setRoot(newRoot: FrameNode) {
+            root = newRoot
+            zoom = newRoot
+            revalidate()
+            repaint()
+        }
+
+        override fun getPreferredSize(): Dimension =
+            Dimension(JBUI.scale(400), (root.depth() + 1) * rowHeight + JBUI.scale(4))
+
+        override fun getToolTipText(event: MouseEvent): String? {
+            val node = nodeAt(event) ?: return null
+            val pct = if (root.total > 0) 100.0 * node.total / root.total else 0.0
+            return "${node.name} — ${node.total} sample(s), %.1f%%".format(pct)
+        }
+
+        private fun nodeAt(e: MouseEvent): FrameNode? =
+            hitBoxes.lastOrNull { it.first.contains(e.point) }?.second
+
+        override fun paintComponent(g: Graphics) {
+            super.paintComponent(g)
+            val g2 = g as Graphics2D
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON)
+            g2.color = UIUtil.getPanelBackground()
+            g2.fillRect(0, 0, width, height)
+            hitBoxes.clear()
+            if (zoom.total == 0L) return
+            // Ancestors of the zoomed node are drawn full width so the way back stays visible.
+            val ancestors = generateSequence(zoom.parent) { it.parent }.toList().reversed()
+            var level = 0
+            for (a in ancestors) {
+                drawFrame(g2, a, 0.0, width.toDouble(), level++, dimmed = true)
+            }
+            drawTree(g2, zoom, 0.0, width.toDouble(), level)
+        }
+
+        private fun drawTree(g2: Graphics2D, node: FrameNode, x: Double, w: Double, level: Int) {
+            if (w < 1.0) return
+            drawFrame(g2, node, x, w, level, dimmed = false)
+            var cx = x
+            for (child in node.children.values.sortedBy { it.name }) {
+                val cw = w * child.total / node.total
+                drawTree(g2, child, cx, cw, level + 1)
+                cx += cw
+            }
+        }
+
+        private fun drawFrame(g2: Graphics2D, node: FrameNode, x: Double, w: Double, level: Int, dimmed: Boolean) {
+            val y = height - (level + 1) * rowHeight
+            val rect = java.awt.Rectangle(x.toInt(), y, maxOf(1, w.toInt() - 1), rowHeight - 1)
+            g2.color = if (dimmed) JBColor.LIGHT_GRAY else colorFor(node.name)
+            g2.fillRect(rect.x, rect.y, rect.width, rect.height)
+            hitBoxes += rect to node
+            if (rect.width > JBUI.scale(30)) {
+                g2.color = Color.BLACK
+                val fm = g2.fontMetrics
+                var label = node.name
+                while (label.length > 1 && fm.stringWidth(label) > rect.width - 6) {
+                    label = label.dropLast(2) + "…"
+                }
+                g2.drawString(label, rect.x + 3, rect.y + rect.height - fm.descent - 2)
+            }
+        }
+
+        private fun colorFor(name: String): Color {
+            val h = (name.hashCode() and 0x7fffffff) % 40
+            return Color(205 + h % 50, 90 + h * 3, 40)
+        }
+    }
+}
+
+/** Call tree rebuilt from collapsed stacks; `total` includes all descendants. */
+internal class FrameNode(val name: String, val parent: FrameNode?) {
+    val children = LinkedHashMap<String, FrameNode>()
+    var total = 0L
+
+    fun depth(): Int = 1 + (children.values.maxOfOrNull { it.depth() } ?: 0)
+
+    companion object {
+        fun parseCollapsed(text: String): FrameNode {
+            val root = FrameNode("all", null)
+            for (line in text.lineSequence()) {
+                val sep = line.lastIndexOf(' ')
+                if (sep <= 0) continue
+                val count = line.substring(sep + 1).trim().toLongOrNull() ?: continue
+                var node = root
+                root.total += count
+                for (frame in line.substring(0, sep).split(';')) {
+                    node = node.children.getOrPut(frame) { FrameNode(frame, node) }
+                    node.total += count
+                }
+            }
+            return root
+        }
+    }
+}
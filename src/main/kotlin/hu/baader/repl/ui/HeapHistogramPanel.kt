@@ -0,0 +1,135 @@
+package hu.baader.repl.ui
+
+import com.intellij.icons.AllIcons
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.ui.components.JBLabel
+import com.intellij.ui.components.JBScrollPane
+import com.intellij.ui.components.JBTextField
+import com.intellij.ui.table.JBTable
+import hu.baader.repl.nrepl.NreplService
+import java.awt.BorderLayout
+import java.awt.FlowLayout
+import javax.swing.DefaultComboBoxModel
+import javax.swing.JButton
+import javax.swing.JComboBox
+import javax.swing.JPanel
+import javax.swing.table.AbstractTableModel
+
+/**
+ * Leak hunting: capture class histograms by name before and after a suspect snippet or
+ * load, then diff them to see which types accumulate.
+ */
+class HeapHistogramPanel(
+    private val connection: () -> NreplService?
+) : JPanel(BorderLayout()) {
+
+    private val model = HistoTableModel()
+    private val table = JBTable(model)
+    private val nameField = JBTextField(8)
+    private val captured = mutableListOf<String>()
+    private val fromBox = JComboBox(DefaultComboBoxModel<String>())
+    private val toBox = JComboBox(DefaultComboBoxModel<String>())
+    private val status = JBLabel("Capture a histogram (forces a full GC in the target JVM)")
+
+    init {
+        table.autoCreateRowSorter = true
+        table.setShowGrid(false)
+
+        val toolbar = JPanel(FlowLayout(FlowLayout.LEFT))
+        val captureButton = JButton("Capture", AllIcons.Actions.Dump)
+        captureButton.toolTipText = "Take a live class histogram and store it under the given name"
+        captureButton.addActionListener { capture() }
+        val diffButton = JButton("Diff", AllIcons.Actions.Diff)
+        diffButton.toolTipText = "Per-class growth from the first capture to the second"
+        diffButton.addActionListener { diff() }
+        nameField.emptyText.text = "name"
+
+        toolbar.add(nameField)
+        toolbar.add(captureButton)
+        toolbar.add(JBLabel("  From:"))
+        toolbar.add(fromBox)
+        toolbar.add(JBLabel("To:"))
+        toolbar.add(toBox)
+        toolbar.add(diffButton)
+
+        add(toolbar, BorderLayout.NORTH)
+        add(JBScrollPane(table), BorderLayout.CENTER)
+        add(status, BorderLayout.SOUTH)
+    }
+
+    private fun capture() {
+        val svc = connection()
+        if (svc == null) {
+            status.text = "Not connected"
+            return
+        }
+        val name = nameField.text.trim().ifEmpty { "h${captured.size + 1}" }
+        status.text = "Capturing '$name'..."
+        svc.heapHisto(name,
+            onResult = { rows ->
+                ApplicationManager.getApplication().invokeLater {
+                    if (name !in captured) {
+                        captured += name
+                        (fromBox.model as DefaultComboBoxModel<String>).addElement(name)
+                        (toBox.model as DefaultComboBoxModel<String>).addElement(name)
+                    }
+                    // Preselect the two most recent captures for the usual before/after diff.
+                    if (captured.size >= 2) fromBox.selectedItem = captured[captured.size - 2]
+                    toBox.selectedItem = name
+                    nameField.text = ""
+                    model.setRows(rows, diff = false)
+                    status.text = "'$name': ${rows.size} classes, ${rows.sumOf { it.bytes } / 1048576} MiB (top 500)"
+                }
+            },
+            onError = { err -> ApplicationManager.getApplication().invokeLater { status.text = err } })
+    }
+
+    private fun diff() {
+        val svc = connection()
+        if (svc == null) {
+            status.text = "Not connected"
+            return
+        }
+        val from = fromBox.selectedItem as? String ?: return
+        val to = toBox.selectedItem as? String ?: return
+        svc.heapHistoDiff(from, to,
+            onResult = { rows ->
+                ApplicationManager.getApplication().invokeLater {
+                    model.setRows(rows, diff = true)
+                    status.text = "$from → $to: ${rows.count { it.bytes > 0 }} growing class(es)"
+                }
+            },
+            onError = { err -> ApplicationManager.getApplication().invokeLater { status.text = err } })
+    }
+}
+
+private class HistoTableModel : AbstractTableModel() {
+    private var rows: List<NreplService.HistoRow> = emptyList()
+    private var diff = false
+
+    fun setRows(newRows: List<NreplService.HistoRow>, diff: Boolean) {
+        val structureChanged = diff != this.diff
+        rows = newRows
+        this.diff = diff
+        if (structureChanged) fireTableStructureChanged() else fireTableDataChanged()
+    }
+
+    override fun getRowCount(): Int = rows.size
+    override fun getColumnCount(): Int = 3
+    override fun getColumnName(column: Int): String = when (column) {
+        0 -> "Class"
+        1 -> if (diff) "Δ Instances" else "Instances"
+        else -> if (diff) "Δ Bytes" else "Bytes"
+    }
+    override fun getColumnClass(columnIndex: Int): Class<*> =
+        if (columnIndex == 0) String::class.java else java.lang.Long::class.java
+
+    override fun getValueAt(rowIndex: Int, columnIndex: Int): Any {
+        val r = rows[rowIndex]
+        return when (columnIndex) {
+            0 -> r.className
+            1 -> r.instances
+            else -> r.bytes
+        }
+    }
+}
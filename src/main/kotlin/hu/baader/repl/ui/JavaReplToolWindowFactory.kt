@@ -326,15 +326,14 @@ class JavaReplToolWindowFactory : ToolWindowFactory, DumbAware {
             }
         }
 
-        fun showBeanChooser(items: List<NreplService.BeanInfo>) {
+        fun showBeanChooser(items: List<NreplService.BeanInfo>, total: Int) {
             if (items.isEmpty()) {
                 console.print("No Spring beans reported.\n", ConsoleViewContentType.SYSTEM_OUTPUT)
                 return
             }
             ApplicationManager.getApplication().invokeLater {
-                val allItems = items.toList()
                 val listModel = javax.swing.DefaultListModel<NreplService.BeanInfo>().apply {
-                    allItems.forEach { addElement(it) }
+                    items.forEach { addElement(it) }
                 }
                 val list = JList(listModel).apply {
                     cellRenderer = object : SimpleListCellRenderer<NreplService.BeanInfo>() {
@@ -352,32 +351,40 @@ class JavaReplToolWindowFactory : ToolWindowFactory, DumbAware {
                     }
                 }
                 val searchField = javax.swing.JTextField()
+                searchField.toolTipText = "Filter by name or type; also type:CacheManager @Repository name:order* pkg:com.acme"
+                val countLabel = javax.swing.JLabel("${items.size} of $total")
                 val panel = javax.swing.JPanel(java.awt.BorderLayout()).apply {
                     border = javax.swing.BorderFactory.createEmptyBorder(4, 4, 4, 4)
                     add(searchField, java.awt.BorderLayout.NORTH)
                     add(JBScrollPane(list), java.awt.BorderLayout.CENTER)
+                    add(countLabel, java.awt.BorderLayout.SOUTH)
                 }
 
+                // Filtering and ranking happen in the agent; only the current page is held here.
+                var requested = 0
                 fun applyFilter() {
-                    val query = searchField.text.trim().lowercase()
-                    listModel.clear()
-                    if (query.isEmpty()) {
-                        allItems.forEach { listModel.addElement(it) }
-                    } else {
-                        allItems.filter {
-                            it.name.lowercase().contains(query) ||
-                                it.className.lowercase().contains(query)
-                        }.forEach { listModel.addElement(it) }
-                    }
-                    if (!listModel.isEmpty) {
-                        list.selectedIndex = 0
-                    }
+                    val query = searchField.text.trim()
+                    val ticket = ++requested
+                    service.queryBeans(query, limit = 200,
+                        onResult = { page ->
+                            ApplicationManager.getApplication().invokeLater {
+                                if (ticket != requested) return@invokeLater
+                                listModel.clear()
+                                page.beans.forEach { listModel.addElement(it) }
+                                countLabel.text = "${page.beans.size} of ${page.total}"
+                                if (!listModel.isEmpty) list.selectedIndex = 0
+                            }
+                        },
+                        onError = { err ->
+                            ApplicationManager.getApplication().invokeLater { countLabel.text = err }
+                        })
                 }
+                val debounce = javax.swing.Timer(150) { applyFilter() }.apply { isRepeats = false }
 
                 searchField.document.addDocumentListener(object : javax.swing.event.DocumentListener {
-                    override fun insertUpdate(e: javax.swing.event.DocumentEvent?) = applyFilter()
-                    override fun removeUpdate(e: javax.swing.event.DocumentEvent?) = applyFilter()
-                    override fun changedUpdate(e: javax.swing.event.DocumentEvent?) = applyFilter()
+                    override fun insertUpdate(e: javax.swing.event.DocumentEvent?) = debounce.restart()
+                    override fun removeUpdate(e: javax.swing.event.DocumentEvent?) = debounce.restart()
+                    override fun changedUpdate(e: javax.swing.event.DocumentEvent?) = debounce.restart()
                 })
 
                 fun chooseSelected(popup: com.intellij.openapi.ui.popup.JBPopup) {
@@ -393,6 +400,7 @@ class JavaReplToolWindowFactory : ToolWindowFactory, DumbAware {
                     .setMovable(true)
                     .setRequestFocus(true)
                     .setCancelOnClickOutside(true)
+                    .setCancelCallback { debounce.stop(); true }
                     .createPopup()
 
                 val width = activeEditor.component.width.coerceAtLeast(400)
@@ -412,7 +420,7 @@ class JavaReplToolWindowFactory : ToolWindowFactory, DumbAware {
                     }
                 }
 
-                applyFilter()
+                if (!listModel.isEmpty) list.selectedIndex = 0
                 popup.showInBestPositionFor(activeEditor)
                 searchField.requestFocusInWindow()
             }
@@ -435,6 +443,7 @@ class JavaReplToolWindowFactory : ToolWindowFactory, DumbAware {
         }
 
         val unsub = service.onMessage { msg ->
+            val cost = evalCostFooter(msg)
             val out = msg["out"]
             if (!out.isNullOrBlank()) {
                 console.print(out, ConsoleViewContentType.NORMAL_OUTPUT)
@@ -459,7 +468,7 @@ class JavaReplToolWindowFactory : ToolWindowFactory, DumbAware {
                             val header = ">>\n"
                             val body = snippet + "\n"
                             val arrow = "=>\n"
-                            val valueText = formatted + "\n\n"
+                            val valueText = formatted + "\n" + (cost?.let { "$it\n" } ?: "") + "\n"
                             val blockText = header + body + arrow + valueText
 
                             val start = doc.textLength
@@ -514,6 +523,19 @@ class JavaReplToolWindowFactory : ToolWindowFactory, DumbAware {
                     updateResultHighlighter(project, resultEditor, jsonFormatted != null)
                 }
             }
+            if (cost != null) {
+                console.print("$cost\n", ConsoleViewContentType.SYSTEM_OUTPUT)
+            }
+            val sql = msg["sql"]
+            if (sql != null) {
+                // Repeated fingerprints are the usual N+1 suspects; show the worst one.
+                val worst = msg["sql-repeated"]?.lineSequence()?.firstOrNull { it.isNotBlank() }?.split('\t')
+                val type = if (worst != null) ConsoleViewContentType.LOG_WARNING_OUTPUT else ConsoleViewContentType.SYSTEM_OUTPUT
+                console.print("SQL: $sql\n", type)
+                if (worst != null && worst.size >= 3) {
+                    console.print("  ${worst[0]}x  ${worst[2]}\n", type)
+                }
+            }
             val err = msg["err"]
             if (err != null) {
                 console.print(err, ConsoleViewContentType.ERROR_OUTPUT)
@@ -654,8 +676,8 @@ class JavaReplToolWindowFactory : ToolWindowFactory, DumbAware {
             override fun getActionUpdateThread(): ActionUpdateThread = ActionUpdateThread.BGT
             override fun actionPerformed(e: AnActionEvent) {
                 try {
-                    service.listSpringBeans(
-                        onResult = { beans -> showBeanChooser(beans) },
+                    service.queryBeans("", limit = 200,
+                        onResult = { page -> showBeanChooser(page.beans, page.total) },
                         onError = { err ->
                             ApplicationManager.getApplication().invokeLater {
                                 console.print("Bean lookup error: $err\n", ConsoleViewContentType.ERROR_OUTPUT)
@@ -671,6 +693,56 @@ class JavaReplToolWindowFactory : ToolWindowFactory, DumbAware {
             }
         }
 
+        val chooseContext = object : AnAction("Select Context", "Choose which captured Spring context the session uses", AllIcons.Nodes.Module) {
+            override fun getActionUpdateThread(): ActionUpdateThread = ActionUpdateThread.BGT
+            override fun actionPerformed(e: AnActionEvent) {
+                service.listContexts(
+                    onResult = { contexts ->
+                        ApplicationManager.getApplication().invokeLater {
+                            if (contexts.isEmpty()) {
+                                console.print("No Spring contexts captured yet.\n", ConsoleViewContentType.SYSTEM_OUTPUT)
+                                return@invokeLater
+                            }
+                            JBPopupFactory.getInstance()
+                                .createPopupChooserBuilder(contexts)
+                                .setTitle("Spring Contexts")
+                                .setRenderer(object : SimpleListCellRenderer<NreplService.ContextInfo>() {
+                                    override fun customize(
+                                        l: JList<out NreplService.ContextInfo>,
+                                        value: NreplService.ContextInfo?,
+                                        index: Int,
+                                        selected: Boolean,
+                                        hasFocus: Boolean
+                                    ) {
+                                        text = value?.let {
+                                            val parent = if (it.parentId.isEmpty()) "" else ", parent ${it.parentId}"
+                                            "${if (it.current) "● " else ""}${it.id} ${it.contextId} — ${it.className.substringAfterLast('.')}" +
+                                                " (${it.beanCount} beans$parent, ${it.state})"
+                                        } ?: ""
+                                    }
+                                })
+                                .setItemChosenCallback { chosen ->
+                                    service.useContext(chosen.id,
+                                        onResult = { msg ->
+                                            sessionSnippets.clear()
+                                            console.print("$msg\n", ConsoleViewContentType.SYSTEM_OUTPUT)
+                                        },
+                                        onError = { err -> console.print("Context switch failed: $err\n", ConsoleViewContentType.ERROR_OUTPUT) })
+                                }
+                                .createPopup()
+                                .showInBestPositionFor(activeEditor)
+                        }
+                    },
+                    onError = { err ->
+                        ApplicationManager.getApplication().invokeLater {
+                            console.print("Context lookup error: $err\n", ConsoleViewContentType.ERROR_OUTPUT)
+                        }
+                    }
+                )
+            }
+            override fun update(e: AnActionEvent) { e.presentation.isEnabled = service.isConnected() }
+        }
+
         val connect = object : AnAction("Connect", "Connect to nREPL server", AllIcons.Actions.Run_anything) {
             override fun getActionUpdateThread(): ActionUpdateThread = ActionUpdateThread.BGT
             override fun actionPerformed(e: AnActionEvent) {
@@ -837,6 +909,25 @@ class JavaReplToolWindowFactory : ToolWindowFactory, DumbAware {
             override fun update(e: AnActionEvent) { e.presentation.isEnabled = service.isConnected() }
         }
 
+        // Statement counting weaves every JDBC driver, so it stays off until asked for.
+        var sqlCounting = false
+        val countSql = object : ToggleAction("Count SQL", "Count the JDBC statements of each eval and flag repeated SQL", AllIcons.Nodes.DataTables) {
+            override fun getActionUpdateThread(): ActionUpdateThread = ActionUpdateThread.BGT
+            override fun isSelected(e: AnActionEvent): Boolean = sqlCounting
+            override fun setSelected(e: AnActionEvent, state: Boolean) {
+                val onResult: (String) -> Unit = { msg ->
+                    sqlCounting = state
+                    console.print("$msg\n", ConsoleViewContentType.SYSTEM_OUTPUT)
+                }
+                val onError: (String) -> Unit = { err -> console.print("SQL counting: $err\n", ConsoleViewContentType.ERROR_OUTPUT) }
+                if (state) service.sqlTrack(onResult, onError) else service.sqlRemove(onResult, onError)
+            }
+            override fun update(e: AnActionEvent) {
+                super.update(e)
+                e.presentation.isEnabled = service.isConnected()
+            }
+        }
+
         val am = ActionManager.getInstance()
         val bindSpringCtx = am.getAction("hu.baader.repl.BindSpringContext")
 
@@ -875,7 +966,9 @@ class JavaReplToolWindowFactory : ToolWindowFactory, DumbAware {
             add(disconnect)
             bindSpringCtx?.let { add(it) }
             add(beanHelper)
+            add(chooseContext)
             add(resetSession) // Keep session reset at the top
+            add(countSql)
             add(Separator.create())
             add(historyPrevAction)
             add(historyNextAction)
@@ -1116,12 +1209,66 @@ class JavaReplToolWindowFactory : ToolWindowFactory, DumbAware {
         val httpContent = ContentFactory.getInstance().createContent(httpPanel, "HTTP", false)
         toolWindow.contentManager.addContent(httpContent)
 
+        val endpointsPanel = EndpointsPanel(connection = { service.takeIf { it.isConnected() } })
+        val endpointsContent = ContentFactory.getInstance().createContent(endpointsPanel, "Endpoints", false)
+        endpointsContent.setDisposer(endpointsPanel)
+        toolWindow.contentManager.addContent(endpointsContent)
+
+        val allocationsPanel = AllocationsPanel(project, connection = { service.takeIf { it.isConnected() } })
+        val allocationsContent = ContentFactory.getInstance().createContent(allocationsPanel, "Allocations", false)
+        toolWindow.contentManager.addContent(allocationsContent)
+
+        val cpuPanel = FlameGraphPanel(project, connection = { service.takeIf { it.isConnected() } })
+        val cpuContent = ContentFactory.getInstance().createContent(cpuPanel, "CPU", false)
+        toolWindow.contentManager.addContent(cpuContent)
+
+        val heapPanel = HeapHistogramPanel(connection = { service.takeIf { it.isConnected() } })
+        val heapContent = ContentFactory.getInstance().createContent(heapPanel, "Heap", false)
+        toolWindow.contentManager.addContent(heapContent)
+
+        val startupPanel = StartupPanel(connection = { service.takeIf { it.isConnected() } })
+        val startupContent = ContentFactory.getInstance().createContent(startupPanel, "Startup", false)
+        toolWindow.contentManager.addContent(startupContent)
+
+        val cachesPanel = CachesPanel(connection = { service.takeIf { it.isConnected() } })
+        val cachesContent = ContentFactory.getInstance().createContent(cachesPanel, "Caches", false)
+        toolWindow.contentManager.addContent(cachesContent)
+
+        val poolsPanel = JdbcPoolsPanel(connection = { service.takeIf { it.isConnected() } })
+        val poolsContent = ContentFactory.getInstance().createContent(poolsPanel, "Pools", false)
+        poolsContent.setDisposer(poolsPanel)
+        toolWindow.contentManager.addContent(poolsContent)
+
+        val executorsPanel = ExecutorsPanel(connection = { service.takeIf { it.isConnected() } })
+        val executorsContent = ContentFactory.getInstance().createContent(executorsPanel, "Executors", false)
+        executorsContent.setDisposer(executorsPanel)
+        toolWindow.contentManager.addContent(executorsContent)
+
         // Enable soft wraps in console editor on EDT once the UI is ready
         ApplicationManager.getApplication().invokeLater {
             consoleImpl.editor?.settings?.isUseSoftWraps = true
         }
     }
 
+    /** "// 12.3 ms (compile 8.1, run 4.2) · cpu 3.0 ms · 1.2 MB · 1 GC, 4 ms" from an eval's cost keys. */
+    private fun evalCostFooter(msg: Map<String, String>): String? {
+        val wall = msg["wall-ms"] ?: return null
+        return buildString {
+            append("// $wall ms (compile ${msg["compile-ms"] ?: "?"}, run ${msg["execute-ms"] ?: "?"})")
+            msg["cpu-ms"]?.let { append(" · cpu $it ms") }
+            msg["allocated-bytes"]?.toLongOrNull()?.let { append(" · ${formatBytes(it)}") }
+            val gcs = msg["gc-count"]?.toLongOrNull() ?: 0
+            if (gcs > 0) append(" · $gcs GC, ${msg["gc-ms"] ?: "?"} ms")
+        }
+    }
+
+    private fun formatBytes(bytes: Long): String = when {
+        bytes >= 1L shl 30 -> String.format(java.util.Locale.ROOT, "%.1f GB", bytes / (1L shl 30).toDouble())
+        bytes >= 1L shl 20 -> String.format(java.util.Locale.ROOT, "%.1f MB", bytes / (1L shl 20).toDouble())
+        bytes >= 1L shl 10 -> String.format(java.util.Locale.ROOT, "%.1f KB", bytes / (1L shl 10).toDouble())
+        else -> "$bytes B"
+    }
+
     private fun prettyPrintJsonIfLikely(raw: String?): String? {
         val original = raw?.trim() ?: return null
         if (original.length < 2) return null
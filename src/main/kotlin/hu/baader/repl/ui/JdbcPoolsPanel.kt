@@ -0,0 +1,162 @@
+package hu.baader.repl.ui
+
+import com.intellij.icons.AllIcons
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.ui.JBColor
+import com.intellij.ui.components.JBLabel
+import hu.baader.repl.nrepl.NreplService
+import java.awt.BorderLayout
+import java.awt.Color
+import java.awt.FlowLayout
+import java.util.Locale
+import javax.swing.JButton
+import javax.swing.JComboBox
+import javax.swing.JPanel
+import javax.swing.JSpinner
+import javax.swing.SpinnerNumberModel
+import javax.swing.Timer
+
+/**
+ * JDBC connection pools of the bound context: active, idle and waiting connections over
+ * time for the selected pool, with the latest acquire times in the status line. The agent
+ * samples on its own; this tab polls for new samples and can resize the pool live.
+ */
+class JdbcPoolsPanel(
+    private val connection: () -> NreplService?
+) : JPanel(BorderLayout()), Disposable {
+
+    private val poolBox = JComboBox<String>()
+    private val interval = JSpinner(SpinnerNumberModel(1000, 100, 60_000, 100))
+    private val maxSize = JSpinner(SpinnerNumberModel(10, 1, 1000, 1))
+    private val startButton = JButton("Start", AllIcons.Actions.Execute)
+    private val stopButton = JButton("Stop", AllIcons.Actions.Suspend)
+    private val status = JBLabel("Start to sample the DataSource pools of the bound context")
+    private val chart = TimeSeriesChart<NreplService.PoolSample>(listOf(
+        TimeSeriesChart.Series<NreplService.PoolSample>("active", JBColor(Color(0xD9534F), Color(0xE06C75))) { it.active?.toLong() },
+        TimeSeriesChart.Series<NreplService.PoolSample>("idle", JBColor(Color(0x5CB85C), Color(0x98C379))) { it.idle?.toLong() },
+        TimeSeriesChart.Series<NreplService.PoolSample>("waiting", JBColor(Color(0xF0AD4E), Color(0xE5C07B))) { it.waiting?.toLong() },
+        TimeSeriesChart.Series<NreplService.PoolSample>("max", JBColor.GRAY, dashed = true) { it.max?.toLong() }
+    )) { it.at }
+    private val history = HashMap<String, ArrayDeque<NreplService.PoolSample>>()
+    private var since = 0L
+    private val timer = Timer(1000) { poll(null, null) }
+
+    init {
+        startButton.toolTipText = "Sample pools in the target JVM at this interval"
+        startButton.addActionListener { start() }
+        stopButton.toolTipText = "Stop sampling and remove the acquire-time advice"
+        stopButton.addActionListener { stop() }
+        stopButton.isEnabled = false
+        poolBox.addActionListener { showSelected() }
+        val resizeButton = JButton("Resize", AllIcons.Actions.Edit)
+        resizeButton.toolTipText = "Set the maximum pool size of the selected pool (live, for experiments)"
+        resizeButton.addActionListener { resize() }
+
+        val toolbar = JPanel(FlowLayout(FlowLayout.LEFT))
+        toolbar.add(JBLabel("Pool:"))
+        toolbar.add(poolBox)
+        toolbar.add(JBLabel("Interval ms:"))
+        toolbar.add(interval)
+        toolbar.add(startButton)
+        toolbar.add(stopButton)
+        toolbar.add(JBLabel("Max:"))
+        toolbar.add(maxSize)
+        toolbar.add(resizeButton)
+
+        add(toolbar, BorderLayout.NORTH)
+        add(chart, BorderLayout.CENTER)
+        add(status, BorderLayout.SOUTH)
+    }
+
+    private fun start() {
+        val ms = interval.value as Int
+        // Polling faster than the agent samples would only fetch empty pages.
+        timer.delay = maxOf(ms, 500)
+        poll(ms, null)
+        timer.start()
+        startButton.isEnabled = false
+        stopButton.isEnabled = true
+    }
+
+    private fun stop() {
+        timer.stop()
+        startButton.isEnabled = true
+        stopButton.isEnabled = false
+        val svc = connection() ?: return
+        svc.jdbcPoolsStop(
+            onResult = { msg -> ApplicationManager.getApplication().invokeLater { status.text = msg } },
+            onError = { err -> ApplicationManager.getApplication().invokeLater { status.text = err } })
+    }
+
+    private fun resize() {
+        val pool = poolBox.selectedItem as String?
+        if (pool == null) {
+            status.text = "Start sampling to discover the pools first"
+            return
+        }
+        poll(null, pool to (maxSize.value as Int))
+    }
+
+    private fun poll(intervalMillis: Int?, resize: Pair<String, Int>?) {
+        val svc = connection()
+        if (svc == null) {
+            status.text = "Not connected"
+            timer.stop()
+            startButton.isEnabled = true
+            stopButton.isEnabled = false
+            return
+        }
+        svc.jdbcPools(since, intervalMillis, resize?.first, resize?.second,
+            onResult = { page -> ApplicationManager.getApplication().invokeLater { accept(page) } },
+            onError = { err ->
+                ApplicationManager.getApplication().invokeLater {
+                    status.text = err
+                    timer.stop()
+                    startButton.isEnabled = true
+                    stopButton.isEnabled = false
+                }
+            })
+    }
+
+    private fun accept(page: NreplService.JdbcPoolsPage) {
+        val names = page.pools.map { it.bean }
+        if ((0 until poolBox.itemCount).map { poolBox.getItemAt(it) } != names) {
+            val selected = poolBox.selectedItem
+            poolBox.removeAllItems()
+            names.forEach { poolBox.addItem(it) }
+            if (selected in names) poolBox.selectedItem = selected
+        }
+        for (s in page.samples) {
+            val series = history.getOrPut(s.pool) { ArrayDeque() }
+            series.addLast(s)
+            while (series.size > MAX_POINTS) series.removeFirst()
+            since = maxOf(since, s.at)
+        }
+        showSelected()
+        page.resized?.let { status.text = it }
+    }
+
+    private fun showSelected() {
+        val pool = poolBox.selectedItem as String? ?: return
+        val series = history[pool].orEmpty().toList()
+        chart.setSamples(series)
+        val last = series.lastOrNull() ?: return
+        status.text = buildString {
+            append("active ${last.active ?: "?"}, idle ${last.idle ?: "?"}, waiting ${last.waiting ?: "?"}, ")
+            append("total ${last.total ?: "?"} / max ${last.max ?: "?"}")
+            if (last.acquires > 0) {
+                append(String.format(Locale.ROOT, " — %d acquire(s), avg %.2f ms, max %.2f ms",
+                    last.acquires, last.acquireAvgMillis ?: 0.0, last.acquireMaxMillis ?: 0.0))
+            }
+        }
+    }
+
+    override fun dispose() {
+        timer.stop()
+    }
+
+    private companion object {
+        const val MAX_POINTS = 600
+    }
+}
@@ -14,7 +14,7 @@ import java.awt.BorderLayout
 import javax.swing.JPanel
 import com.intellij.openapi.editor.ex.EditorEx
 
-data class SnapshotRow(val name: String, val type: String, val mode: String, val ts: Long, val size: Long)
+data class SnapshotRow(val name: String, val type: String, val mode: String, val ts: Long, val size: Long, val tier: String = "")
 
 class SnapshotsPanel(private val project: Project, private val replEditor: EditorEx) : JPanel(BorderLayout()) {
     private val svc = NreplService.getInstance(project)
@@ -24,7 +24,8 @@ class SnapshotsPanel(private val project: Project, private val replEditor: Edito
         object : ColumnInfo<SnapshotRow, String>("Type") { override fun valueOf(it: SnapshotRow) = it.type },
         object : ColumnInfo<SnapshotRow, String>("Mode") { override fun valueOf(it: SnapshotRow) = it.mode },
         object : ColumnInfo<SnapshotRow, String>("TS") { override fun valueOf(it: SnapshotRow) = it.ts.toString() },
-        object : ColumnInfo<SnapshotRow, String>("~Size") { override fun valueOf(it: SnapshotRow) = it.size.toString() }
+        object : ColumnInfo<SnapshotRow, String>("~Size") { override fun valueOf(it: SnapshotRow) = it.size.toString() },
+        object : ColumnInfo<SnapshotRow, String>("Tier") { override fun valueOf(it: SnapshotRow) = it.tier }
     )
 
     private val model = ListTableModel<SnapshotRow>(columns, mutableListOf())
@@ -83,7 +84,8 @@ class SnapshotsPanel(private val project: Project, private val replEditor: Edito
             val mode = parts.getOrNull(2) ?: ""
             val ts = parts.getOrNull(3)?.toLongOrNull() ?: 0L
             val size = parts.getOrNull(4)?.toLongOrNull() ?: 0L
-            list.add(SnapshotRow(name, type, mode, ts, size))
+            val tier = parts.getOrNull(5) ?: ""
+            list.add(SnapshotRow(name, type, mode, ts, size, tier))
         }
         return list
     }
@@ -0,0 +1,22 @@
+package hu.baader.repl.ui
+
+import com.intellij.openapi.fileEditor.OpenFileDescriptor
+import com.intellij.openapi.project.Project
+import com.intellij.psi.JavaPsiFacade
+import com.intellij.psi.search.GlobalSearchScope
+
+/**
+ * Opens the source of an agent-reported frame in "com.acme.Type$Inner#method:line" form.
+ * Returns false when the class is not part of the project or its libraries.
+ */
+internal fun navigateToFrame(project: Project, frame: String): Boolean {
+    val typeName = frame.substringBefore('#').trim()
+    if (typeName.isEmpty()) return false
+    val line = frame.substringAfterLast(':', "").toIntOrNull() ?: 0
+    val outerName = typeName.substringBefore('$')
+    val psiClass = JavaPsiFacade.getInstance(project)
+        .findClass(outerName, GlobalSearchScope.allScope(project)) ?: return false
+    val file = psiClass.navigationElement.containingFile?.virtualFile ?: return false
+    OpenFileDescriptor(project, file, (line - 1).coerceAtLeast(0), 0).navigate(true)
+    return true
+}
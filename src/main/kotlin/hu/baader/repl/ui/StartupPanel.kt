@@ -0,0 +1,101 @@
+package hu.baader.repl.ui
+
+import com.intellij.icons.AllIcons
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.ui.ColoredTreeCellRenderer
+import com.intellij.ui.SimpleTextAttributes
+import com.intellij.ui.components.JBLabel
+import com.intellij.ui.components.JBScrollPane
+import com.intellij.ui.treeStructure.Tree
+import com.intellij.util.ui.tree.TreeUtil
+import hu.baader.repl.nrepl.NreplService
+import java.awt.BorderLayout
+import java.awt.FlowLayout
+import javax.swing.JButton
+import javax.swing.JPanel
+import javax.swing.JSpinner
+import javax.swing.JTree
+import javax.swing.SpinnerNumberModel
+import javax.swing.tree.DefaultMutableTreeNode
+import javax.swing.tree.DefaultTreeModel
+
+/**
+ * Bean creation cost from the agent's startup report: the most expensive beans first, each
+ * expandable into the dependencies created on its behalf. Self time shows where lazy-init
+ * or refactoring would actually save time.
+ */
+class StartupPanel(
+    private val connection: () -> NreplService?
+) : JPanel(BorderLayout()) {
+
+    private val root = DefaultMutableTreeNode("Beans")
+    private val treeModel = DefaultTreeModel(root)
+    private val tree = Tree(treeModel)
+    private val minMillis = JSpinner(SpinnerNumberModel(1.0, 0.0, 10_000.0, 0.5))
+    private val status = JBLabel("Needs -javaagent at launch or a BufferingApplicationStartup in the app")
+
+    init {
+        tree.isRootVisible = false
+        tree.showsRootHandles = true
+        tree.cellRenderer = StartupCellRenderer()
+
+        val toolbar = JPanel(FlowLayout(FlowLayout.LEFT))
+        val load = JButton("Load", AllIcons.Actions.Refresh)
+        load.toolTipText = "Fetch per-bean creation times from the target JVM"
+        load.addActionListener { load() }
+        toolbar.add(JBLabel("Hide below (ms):"))
+        toolbar.add(minMillis)
+        toolbar.add(load)
+
+        add(toolbar, BorderLayout.NORTH)
+        add(JBScrollPane(tree), BorderLayout.CENTER)
+        add(status, BorderLayout.SOUTH)
+    }
+
+    private fun load() {
+        val svc = connection()
+        if (svc == null) {
+            status.text = "Not connected"
+            return
+        }
+        status.text = "Loading..."
+        svc.startupReport(200, minMillis.value as Double,
+            onResult = { rows ->
+                ApplicationManager.getApplication().invokeLater {
+                    setRows(rows)
+                    val top = rows.filter { it.depth == 0 }
+                    status.text = "${top.size} top-level bean(s), ${"%.0f".format(top.sumOf { it.totalMillis })} ms"
+                }
+            },
+            onError = { err -> ApplicationManager.getApplication().invokeLater { status.text = err } })
+    }
+
+    /** Rows arrive depth-first and already sorted by total time at every level. */
+    private fun setRows(rows: List<NreplService.StartupRow>) {
+        root.removeAllChildren()
+        val path = ArrayList<DefaultMutableTreeNode>()
+        for (row in rows) {
+            val node = DefaultMutableTreeNode(row)
+            while (path.size > row.depth) path.removeAt(path.size - 1)
+            (path.lastOrNull() ?: root).add(node)
+            path.add(node)
+        }
+        treeModel.reload()
+        TreeUtil.expand(tree, 1)
+    }
+}
+
+private class StartupCellRenderer : ColoredTreeCellRenderer() {
+    override fun customizeCellRenderer(
+        tree: JTree, value: Any?, selected: Boolean, expanded: Boolean,
+        leaf: Boolean, row: Int, hasFocus: Boolean
+    ) {
+        val r = (value as? DefaultMutableTreeNode)?.userObject as? NreplService.StartupRow ?: return
+        icon = AllIcons.Nodes.Class
+        append(r.bean)
+        append("  %.1f ms".format(r.totalMillis), SimpleTextAttributes.REGULAR_BOLD_ATTRIBUTES)
+        append("  (self %.1f ms".format(r.selfMillis) + if (r.dependencies > 0) ", ${r.dependencies} dependencies)" else ")",
+            SimpleTextAttributes.GRAYED_ATTRIBUTES)
+        if (r.type.isNotEmpty()) append("  ${r.type}", SimpleTextAttributes.GRAYED_SMALL_ATTRIBUTES)
+    }
+}
@@ -0,0 +1,83 @@
+package hu.baader.repl.ui
+
+import com.intellij.ui.JBColor
+import com.intellij.util.ui.JBUI
+import com.intellij.util.ui.UIUtil
+import java.awt.BasicStroke
+import java.awt.Color
+import java.awt.Dimension
+import java.awt.Graphics
+import java.awt.Graphics2D
+import java.awt.RenderingHints
+import javax.swing.JComponent
+
+/**
+ * Small line chart over sample time: one line per series on a shared y axis from zero, with
+ * a legend on top. Dashed series are meant for limits such as a pool maximum. Samples with
+ * no value for a series leave it out at that point.
+ */
+internal class TimeSeriesChart<T>(
+    private val series: List<Series<T>>,
+    private val time: (T) -> Long
+) : JComponent() {
+
+    class Series<T>(val name: String, val color: Color, val dashed: Boolean = false, val value: (T) -> Long?)
+
+    private var samples: List<T> = emptyList()
+
+    fun setSamples(newSamples: List<T>) {
+        samples = newSamples
+        repaint()
+    }
+
+    override fun getPreferredSize(): Dimension = Dimension(JBUI.scale(400), JBUI.scale(200))
+
+    override fun paintComponent(g: Graphics) {
+        super.paintComponent(g)
+        val g2 = g as Graphics2D
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON)
+        g2.color = UIUtil.getPanelBackground()
+        g2.fillRect(0, 0, width, height)
+        val fm = g2.fontMetrics
+        val yMax = maxOf(1L, samples.maxOfOrNull { s -> series.maxOf { it.value(s) ?: 0L } } ?: 1L)
+        val left = fm.stringWidth(yMax.toString()) + JBUI.scale(8)
+        val top = fm.height + JBUI.scale(6)
+        val plotW = width - left - JBUI.scale(8)
+        val plotH = height - top - JBUI.scale(8)
+        if (plotW <= 0 || plotH <= 0) return
+
+        g2.color = JBColor.border()
+        g2.drawRect(left, top, plotW, plotH)
+        g2.color = UIUtil.getLabelForeground()
+        g2.drawString(yMax.toString(), left - fm.stringWidth(yMax.toString()) - JBUI.scale(4), top + fm.ascent)
+        g2.drawString("0", left - fm.stringWidth("0") - JBUI.scale(4), top + plotH)
+
+        var legendX = left
+        for (s in series) {
+            g2.color = s.color
+            g2.fillRect(legendX, JBUI.scale(4), JBUI.scale(10), JBUI.scale(10))
+            g2.color = UIUtil.getLabelForeground()
+            g2.drawString(s.name, legendX + JBUI.scale(14), JBUI.scale(4) + fm.ascent - 2)
+            legendX += JBUI.scale(24) + fm.stringWidth(s.name)
+        }
+        if (samples.size < 2) return
+
+        val t0 = time(samples.first())
+        val span = maxOf(1L, time(samples.last()) - t0)
+        for (s in series) {
+            g2.color = s.color
+            g2.stroke = if (s.dashed) BasicStroke(1f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10f, floatArrayOf(4f, 4f), 0f)
+                        else BasicStroke(JBUI.scale(2).toFloat())
+            var prevX = -1
+            var prevY = -1
+            for (sample in samples) {
+                val v = s.value(sample) ?: continue
+                val x = left + ((time(sample) - t0) * plotW / span).toInt()
+                val y = top + plotH - (v * plotH / yMax).toInt()
+                if (prevX >= 0) g2.drawLine(prevX, prevY, x, y)
+                prevX = x
+                prevY = y
+            }
+        }
+    }
+}